@@ -0,0 +1,123 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.L2.git;
+
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.microsoft.alm.L2.L2Test;
+import com.microsoft.alm.plugin.idea.git.ui.pullrequest.BranchCompareCache;
+import com.microsoft.alm.plugin.idea.git.ui.pullrequest.DiffCompareInfoProvider;
+import git4idea.GitRevisionNumber;
+import git4idea.repo.GitRepository;
+import git4idea.repo.GitRepositoryImpl;
+import git4idea.util.GitCommitCompareInfo;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import sun.security.util.Debug;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to populate the Create Pull Request dialog for a branch with a long history, the first
+ * time (cold), when the dialog is opened again (warm) and after a few more commits were made on the source branch
+ * (incremental). The repository is generated locally, so no server is involved.
+ */
+public class CreatePullRequestDiffBenchmarkTest extends L2Test {
+    private static final int TARGET_COMMITS = 100;
+    private static final int SOURCE_COMMITS = 10000;
+    private static final int ADDED_COMMITS = 10;
+    private static final int FILE_COUNT = 200;
+
+    @Test(timeout = 600000)
+    public void testBranchComparePopulation() throws Exception {
+        final File repositoryFolder = L2Test.createTempDirectory();
+        try {
+            // master gets a short history, feature branches off of it and gets the long one
+            generateCommits(repositoryFolder, "master", null, 0, TARGET_COMMITS);
+            generateCommits(repositoryFolder, "feature", "master", TARGET_COMMITS, SOURCE_COMMITS);
+            git(repositoryFolder, "checkout", "-q", "feature");
+
+            final VirtualFile root = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(repositoryFolder);
+            final GitRepository repository = GitRepositoryImpl.getInstance(root, myProject, true);
+            final String target = GitRevisionNumber.resolve(myProject, root, "master").asString();
+            final String source = GitRevisionNumber.resolve(myProject, root, "feature").asString();
+
+            BranchCompareCache.getInstance().clear();
+            final long cold = timeCompare(repository, source, target, SOURCE_COMMITS);
+            // reopening the dialog creates a new provider, but the cache outlives it
+            final long warm = timeCompare(repository, source, target, SOURCE_COMMITS);
+
+            generateCommits(repositoryFolder, "feature", "feature", TARGET_COMMITS + SOURCE_COMMITS, ADDED_COMMITS);
+            final String advancedSource = GitRevisionNumber.resolve(myProject, root, "feature").asString();
+            final long incremental = timeCompare(repository, advancedSource, target, SOURCE_COMMITS + ADDED_COMMITS);
+
+            final BranchCompareCache.Entry entry = BranchCompareCache.getInstance().get(root, advancedSource, target);
+            Assert.assertNotNull(entry);
+            Debug.println("cold (ms)", String.valueOf(cold));
+            Debug.println("warm (ms)", String.valueOf(warm));
+            Debug.println("incremental (ms)", String.valueOf(incremental));
+            Assert.assertTrue(warm < cold);
+            Assert.assertTrue(incremental < cold);
+        } finally {
+            BranchCompareCache.getInstance().clear();
+            FileUtils.deleteDirectory(repositoryFolder);
+        }
+    }
+
+    private long timeCompare(final GitRepository repository, final String source, final String target,
+                             final int expectedCommits) throws Exception {
+        final long start = System.nanoTime();
+        final GitCommitCompareInfo info = new DiffCompareInfoProvider()
+                .getBranchCompareInfo(myProject, repository, source, target);
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertEquals(expectedCommits, info.getBranchToHeadCommits(repository).size());
+        return elapsed;
+    }
+
+    /**
+     * Uses git fast-import, which creates thousands of commits in a few seconds
+     */
+    private static void generateCommits(final File folder, final String branch, final String from, final int first,
+                                        final int count) throws IOException, InterruptedException {
+        if (!new File(folder, ".git").exists()) {
+            git(folder, "init", "-q");
+        }
+
+        final Process process = new ProcessBuilder("git", "fast-import", "--quiet")
+                .directory(folder)
+                .redirectErrorStream(true)
+                .start();
+        try (final OutputStream stream = process.getOutputStream();
+             final Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8)) {
+            for (int i = first; i < first + count; i++) {
+                final String content = "line " + i + "\n";
+                final String message = "commit " + i + "\n";
+                writer.write("commit refs/heads/" + branch + "\n");
+                writer.write("committer Benchmark <benchmark@example.com> " + (1500000000L + i) + " +0000\n");
+                writer.write("data " + message.getBytes(StandardCharsets.UTF_8).length + "\n" + message);
+                if (i == first && from != null) {
+                    writer.write("from refs/heads/" + from + "^0\n");
+                }
+                writer.write("M 644 inline file" + (i % FILE_COUNT) + ".txt\n");
+                writer.write("data " + content.getBytes(StandardCharsets.UTF_8).length + "\n" + content + "\n");
+            }
+        }
+        Assert.assertEquals(0, process.waitFor());
+    }
+
+    private static void git(final File folder, final String... args) throws IOException, InterruptedException {
+        final String[] command = new String[args.length + 1];
+        command[0] = "git";
+        System.arraycopy(args, 0, command, 1, args.length);
+        final Process process = new ProcessBuilder(command).directory(folder).inheritIO().start();
+        Assert.assertEquals(0, process.waitFor());
+    }
+}
@@ -0,0 +1,114 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.L2.git;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.microsoft.alm.L2.L2Test;
+import com.microsoft.alm.plugin.idea.git.ui.vcsimport.BatchedGitStager;
+import git4idea.commands.GitCommand;
+import git4idea.commands.GitSimpleHandler;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import sun.security.util.Debug;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Measures the throughput of the phases of an import (staging, commit and push) on a generated tree of 200k files.
+ * A local bare repository is used as the remote, so no server is involved.
+ */
+public class GitImportBenchmarkTest extends L2Test {
+    private static final int FILE_COUNT = 200000;
+    private static final int FILES_PER_FOLDER = 500;
+
+    @Test(timeout = 1800000)
+    public void testImportThroughput() throws Exception {
+        final File workingFolder = L2Test.createTempDirectory();
+        final File remoteFolder = L2Test.createTempDirectory();
+        try {
+            generateTree(workingFolder);
+            git(remoteFolder, "init", "-q", "--bare");
+            git(workingFolder, "init", "-q");
+            final VirtualFile root = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(workingFolder);
+            Assert.assertNotNull(root);
+            final BatchedGitStager stager = new BatchedGitStager(relativePaths -> add(root, relativePaths));
+
+            // Walk the tree and stage it at the same time
+            long start = System.nanoTime();
+            final int staged;
+            try (final Stream<Path> files = Files.walk(workingFolder.toPath())) {
+                final Iterator<String> relativePaths = files
+                        .filter(Files::isRegularFile)
+                        .map(path -> FileUtil.toSystemIndependentName(workingFolder.toPath().relativize(path).toString()))
+                        .filter(path -> !path.startsWith(".git/"))
+                        .iterator();
+                staged = stager.stage(relativePaths, new BatchedGitStager.Listener() {
+                    @Override
+                    public void onBatchStaged(final int stagedFiles, final int producedFiles) {
+                    }
+
+                    @Override
+                    public boolean isCanceled() {
+                        return false;
+                    }
+                });
+            }
+            final long stageMillis = elapsedMillis(start);
+            Assert.assertEquals(FILE_COUNT, staged);
+
+            start = System.nanoTime();
+            git(workingFolder, "commit", "-q", "-m", "import");
+            final long commitMillis = elapsedMillis(start);
+
+            start = System.nanoTime();
+            git(workingFolder, "push", "-q", remoteFolder.getAbsolutePath(), "*:*");
+            final long pushMillis = elapsedMillis(start);
+
+            Debug.println("stage (ms)", stageMillis + " (" + (FILE_COUNT * 1000L / Math.max(1, stageMillis)) + " files/s)");
+            Debug.println("commit (ms)", String.valueOf(commitMillis));
+            Debug.println("push (ms)", String.valueOf(pushMillis));
+        } finally {
+            FileUtils.deleteDirectory(workingFolder);
+            FileUtils.deleteDirectory(remoteFolder);
+        }
+    }
+
+    private void add(final VirtualFile root, final List<String> relativePaths) throws VcsException {
+        final GitSimpleHandler hAdd = new GitSimpleHandler(myProject, root, GitCommand.ADD);
+        hAdd.setSilent(true);
+        hAdd.addParameters("--ignore-errors");
+        hAdd.endOptions();
+        hAdd.addParameters(relativePaths);
+        hAdd.run();
+    }
+
+    private static void generateTree(final File folder) throws IOException {
+        for (int i = 0; i < FILE_COUNT; i++) {
+            final File file = new File(folder, "module" + (i / FILES_PER_FOLDER) + "/File" + i + ".java");
+            FileUtil.writeToFile(file, "class File" + i + " {}\n");
+        }
+    }
+
+    private static long elapsedMillis(final long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static void git(final File folder, final String... args) throws IOException, InterruptedException {
+        final List<String> command = Stream.concat(Stream.of("git"), Stream.of(args)).collect(Collectors.toList());
+        final Process process = new ProcessBuilder(command).directory(folder).inheritIO().start();
+        Assert.assertEquals(0, process.waitFor());
+    }
+}
@@ -0,0 +1,157 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.L2.tfvc;
+
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.microsoft.alm.plugin.context.ServerContext;
+import com.microsoft.alm.plugin.context.ServerContextManager;
+import com.microsoft.alm.plugin.external.models.PendingChange;
+import com.microsoft.alm.plugin.external.reactive.ReactiveClientSupervisor;
+import com.microsoft.alm.plugin.external.reactive.ReactiveTfvcClientHolder;
+import com.microsoft.alm.plugin.external.reactive.ReactiveTfvcClientHost;
+import com.microsoft.alm.plugin.external.reactive.RestartBackoff;
+import com.microsoft.alm.plugin.external.reactive.ServerIdentification;
+import com.microsoft.alm.plugin.external.telemetry.ReactiveCallTrace;
+import com.microsoft.alm.plugin.services.PropertyService;
+import com.microsoft.tfs.model.connector.TfsLocalPath;
+import org.junit.Assert;
+import org.junit.Test;
+import sun.security.util.Debug;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Injects faults into a running reactive backend: kills it, suspends it and drops its connection. Checks that a
+ * read-only request sent at that moment gets its result from the restarted backend, and that a mutating one fails
+ * rather than waits forever. Run with the reactiveRecoveryTest task on a Unix-like system.
+ */
+public class TfvcBackendRecoveryTest extends TfvcCheckoutTestBase {
+    private static final int HEARTBEAT_DEADLINE_SECONDS = 5;
+    private static final long REQUEST_TIMEOUT_MINUTES = 5L;
+
+    private interface Fault {
+        void inject(ReactiveTfvcClientHost client) throws Exception;
+    }
+
+    private static Path getBackendScript() {
+        String backendPath = System.getProperty("reactiveClient.backend");
+        Path backend = backendPath != null ? Paths.get(backendPath) : ReactiveTfvcClientHolder.getClientBackendPath();
+        return backend.resolve("bin").resolve(SystemInfo.isWindows ? "backend.bat" : "backend");
+    }
+
+    private static void signal(ReactiveTfvcClientHost client, String signal) throws IOException, InterruptedException {
+        Process kill = new ProcessBuilder("kill", "-" + signal, Integer.toString(client.getProcessId()))
+                .inheritIO()
+                .start();
+        Assert.assertEquals(0, kill.waitFor());
+    }
+
+    private ReactiveClientSupervisor createSupervisor() {
+        return new ReactiveClientSupervisor(
+                () -> {
+                    ReactiveTfvcClientHost client = ReactiveTfvcClientHost.create(
+                            getTestRootDisposable(),
+                            getBackendScript());
+                    return client.startAsync().thenApply(unused -> client);
+                },
+                AppExecutorUtil.getAppScheduledExecutorService(),
+                new RestartBackoff(
+                        ReactiveClientSupervisor.DEFAULT_INITIAL_RESTART_DELAY_MILLIS,
+                        ReactiveClientSupervisor.DEFAULT_MAX_RESTART_DELAY_MILLIS,
+                        ReactiveClientSupervisor.DEFAULT_STABLE_RUN_MILLIS));
+    }
+
+    private void checkRecovery(String faultName, Fault fault) throws InterruptedException, IOException {
+        if (!Boolean.getBoolean("reactiveClient.recoveryTests") || SystemInfo.isWindows) {
+            Debug.println("recovery", "skipped, run with the reactiveRecoveryTest task on a Unix-like system");
+            return;
+        }
+
+        PropertyService propertyService = PropertyService.getInstance();
+        propertyService.setProperty(
+                PropertyService.PROP_REACTIVE_CLIENT_HEARTBEAT_DEADLINE_SECONDS,
+                Integer.toString(HEARTBEAT_DEADLINE_SECONDS));
+        try {
+            checkoutTestRepository(workspace -> {
+                ServerContext serverContext = ServerContextManager.getInstance().get(getServerUrl());
+                ServerIdentification serverIdentification = new ServerIdentification(
+                        serverContext.getCollectionURI(),
+                        serverContext.getAuthenticationInfo());
+                try {
+                    checkRecovery(faultName, fault, workspace, serverIdentification);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        } finally {
+            propertyService.removeProperty(PropertyService.PROP_REACTIVE_CLIENT_HEARTBEAT_DEADLINE_SECONDS);
+        }
+    }
+
+    private void checkRecovery(
+            String faultName,
+            Fault fault,
+            Path workspace,
+            ServerIdentification serverIdentification) throws Exception {
+        ReactiveClientSupervisor supervisor = createSupervisor();
+        try {
+            ReactiveTfvcClientHost client = supervisor.getClient().toCompletableFuture()
+                    .get(REQUEST_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            List<PendingChange> expected = client.getPendingChangesAsync(serverIdentification, Stream.of(workspace))
+                    .toCompletableFuture()
+                    .get(REQUEST_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+
+            long start = System.nanoTime();
+            fault.inject(client);
+            CompletionStage<List<PendingChange>> status = supervisor.callReadOnlyAsync(
+                    restarted -> restarted.getPendingChangesAsync(serverIdentification, Stream.of(workspace)));
+            CompletionStage<List<TfsLocalPath>> add = client.addFilesAsync(
+                    serverIdentification,
+                    Collections.singletonList(new TfsLocalPath(workspace.resolve("recovery.txt").toString())),
+                    new ReactiveCallTrace("Recovery test"));
+
+            List<PendingChange> actual = status.toCompletableFuture().get(REQUEST_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            long recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Assert.assertEquals(expected.size(), actual.size());
+            Assert.assertFalse("The killed client should be terminated", client.isAlive());
+
+            try {
+                add.toCompletableFuture().get(REQUEST_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+                Assert.fail("A mutating request sent to the failed client shouldn't succeed");
+            } catch (ExecutionException | CancellationException e) {
+                // expected
+            }
+
+            Debug.println("recovery", faultName + ": status answered by the restarted client after "
+                    + recoveryMillis + " ms");
+        } finally {
+            supervisor.destroyClient();
+        }
+    }
+
+    @Test(timeout = 900000)
+    public void testKilledBackendIsRestarted() throws InterruptedException, IOException {
+        checkRecovery("kill -9", client -> signal(client, "KILL"));
+    }
+
+    @Test(timeout = 900000)
+    public void testSuspendedBackendIsRestarted() throws InterruptedException, IOException {
+        checkRecovery("SIGSTOP", client -> signal(client, "STOP"));
+    }
+
+    @Test(timeout = 900000)
+    public void testDroppedConnectionIsRestored() throws InterruptedException, IOException {
+        checkRecovery("socket drop", ReactiveTfvcClientHost::dropConnection);
+    }
+}
@@ -0,0 +1,100 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.L2.tfvc;
+
+import com.intellij.openapi.util.SystemInfo;
+import com.microsoft.alm.plugin.context.ServerContext;
+import com.microsoft.alm.plugin.context.ServerContextManager;
+import com.microsoft.alm.plugin.external.reactive.ReactiveTfvcClientHolder;
+import com.microsoft.alm.plugin.external.reactive.ReactiveTfvcClientHost;
+import com.microsoft.alm.plugin.external.reactive.ServerIdentification;
+import com.microsoft.alm.plugin.external.telemetry.ReactiveCallTrace;
+import org.junit.Test;
+import sun.security.util.Debug;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Measures the end-to-end latency of the status and item info requests for 100,000 paths under a workspace through
+ * the reactive client, whose path lists are front-coded on the protocol. The payload sizes are reported by the
+ * PathListTests of the backend. Run with the reactivePathListBenchmark task.
+ */
+public class TfvcPathListBenchmarkTest extends TfvcCheckoutTestBase {
+    private static final int PATH_COUNT = 100_000;
+    private static final int RUNS = 3;
+
+    private static Path getBackendScript() {
+        String backendPath = System.getProperty("reactiveClient.backend");
+        Path backend = backendPath != null ? Paths.get(backendPath) : ReactiveTfvcClientHolder.getClientBackendPath();
+        return backend.resolve("bin").resolve(SystemInfo.isWindows ? "backend.bat" : "backend");
+    }
+
+    private static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private void measure(Path workspace, ServerIdentification serverIdentification) {
+        List<Path> paths = IntStream.range(0, PATH_COUNT)
+                .mapToObj(i -> workspace.resolve("benchmark")
+                        .resolve("folder" + i / 1000)
+                        .resolve("File" + i + ".java"))
+                .collect(Collectors.toList());
+        try {
+            ReactiveTfvcClientHost client = ReactiveTfvcClientHost.create(getTestRootDisposable(), getBackendScript());
+            client.startAsync().toCompletableFuture().get(5, TimeUnit.MINUTES);
+            client.prewarmCollectionAsync(serverIdentification).toCompletableFuture().get(5, TimeUnit.MINUTES);
+
+            for (int run = 1; run <= RUNS; run++) {
+                long statusStart = System.nanoTime();
+                client.getPendingChangesAsync(serverIdentification, paths.stream())
+                        .toCompletableFuture()
+                        .get(5, TimeUnit.MINUTES);
+                long statusMillis = millisSince(statusStart);
+
+                AtomicInteger itemCount = new AtomicInteger();
+                long infoStart = System.nanoTime();
+                client.getLocalItemsInfoAsync(
+                        serverIdentification,
+                        paths.stream(),
+                        info -> itemCount.incrementAndGet(),
+                        new ReactiveCallTrace("Path list benchmark"))
+                        .toCompletableFuture()
+                        .get(5, TimeUnit.MINUTES);
+                long infoMillis = millisSince(infoStart);
+
+                Debug.println(
+                        "pathList",
+                        String.format("run %d: status of %d paths %d ms, info %d ms (%d items)",
+                                run, PATH_COUNT, statusMillis, infoMillis, itemCount.get()));
+            }
+
+            client.terminate();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test(timeout = 1800000)
+    public void testPathListLatency() throws InterruptedException, IOException {
+        if (!Boolean.getBoolean("reactiveClient.pathListBenchmark")) {
+            Debug.println("pathList", "skipped, run with the reactivePathListBenchmark task");
+            return;
+        }
+
+        checkoutTestRepository(workspace -> {
+            ServerContext serverContext = ServerContextManager.getInstance().get(getServerUrl());
+            ServerIdentification serverIdentification = new ServerIdentification(
+                    serverContext.getCollectionURI(),
+                    serverContext.getAuthenticationInfo());
+            measure(workspace, serverIdentification);
+        });
+    }
+}
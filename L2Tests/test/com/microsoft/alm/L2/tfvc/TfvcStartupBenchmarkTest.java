@@ -0,0 +1,102 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.L2.tfvc;
+
+import com.intellij.openapi.util.SystemInfo;
+import com.microsoft.alm.plugin.context.ServerContext;
+import com.microsoft.alm.plugin.context.ServerContextManager;
+import com.microsoft.alm.plugin.external.models.PendingChange;
+import com.microsoft.alm.plugin.external.reactive.ReactiveTfvcClientHolder;
+import com.microsoft.alm.plugin.external.reactive.ReactiveTfvcClientHost;
+import com.microsoft.alm.plugin.external.reactive.ServerIdentification;
+import org.junit.Assert;
+import org.junit.Test;
+import sun.security.util.Debug;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the time to the first pending changes of a workspace through the reactive client: cold, when the backend
+ * is started by the request, and warm, when the backend and the collection were prewarmed before it. Run with the
+ * reactiveStartupBenchmark task, which installs the backend first.
+ */
+public class TfvcStartupBenchmarkTest extends TfvcCheckoutTestBase {
+    private static final int RUNS = 3;
+
+    private static Path getBackendScript() {
+        String backendPath = System.getProperty("reactiveClient.backend");
+        Path backend = backendPath != null ? Paths.get(backendPath) : ReactiveTfvcClientHolder.getClientBackendPath();
+        return backend.resolve("bin").resolve(SystemInfo.isWindows ? "backend.bat" : "backend");
+    }
+
+    private ReactiveTfvcClientHost startClient() throws Exception {
+        ReactiveTfvcClientHost client = ReactiveTfvcClientHost.create(getTestRootDisposable(), getBackendScript());
+        client.startAsync().toCompletableFuture().get(5, TimeUnit.MINUTES);
+        return client;
+    }
+
+    private static List<PendingChange> getPendingChanges(
+            ReactiveTfvcClientHost client,
+            ServerIdentification serverIdentification,
+            Path workspace) throws Exception {
+        return client.getPendingChangesAsync(serverIdentification, Stream.of(workspace))
+                .toCompletableFuture()
+                .get(5, TimeUnit.MINUTES);
+    }
+
+    private static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private void measureStartup(Path workspace, ServerIdentification serverIdentification) {
+        try {
+            for (int run = 1; run <= RUNS; run++) {
+                long coldStart = System.nanoTime();
+                ReactiveTfvcClientHost coldClient = startClient();
+                List<PendingChange> coldChanges = getPendingChanges(coldClient, serverIdentification, workspace);
+                long coldMillis = millisSince(coldStart);
+                coldClient.terminate();
+
+                long prewarmStart = System.nanoTime();
+                ReactiveTfvcClientHost warmClient = startClient();
+                warmClient.prewarmCollectionAsync(serverIdentification).toCompletableFuture().get(5, TimeUnit.MINUTES);
+                long prewarmMillis = millisSince(prewarmStart);
+
+                long warmStart = System.nanoTime();
+                List<PendingChange> warmChanges = getPendingChanges(warmClient, serverIdentification, workspace);
+                long warmMillis = millisSince(warmStart);
+                warmClient.terminate();
+
+                Assert.assertEquals(coldChanges.size(), warmChanges.size());
+                Debug.println(
+                        "startup",
+                        String.format("run %d: first pending changes cold %d ms, warm %d ms (prewarm took %d ms)",
+                                run, coldMillis, warmMillis, prewarmMillis));
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test(timeout = 900000)
+    public void testStartupTime() throws InterruptedException, IOException {
+        if (!Boolean.getBoolean("reactiveClient.startupBenchmark")) {
+            Debug.println("startup", "skipped, run with the reactiveStartupBenchmark task");
+            return;
+        }
+
+        checkoutTestRepository(workspace -> {
+            ServerContext serverContext = ServerContextManager.getInstance().get(getServerUrl());
+            ServerIdentification serverIdentification = new ServerIdentification(
+                    serverContext.getCollectionURI(),
+                    serverContext.getAuthenticationInfo());
+            measureStartup(workspace, serverIdentification);
+        });
+    }
+}
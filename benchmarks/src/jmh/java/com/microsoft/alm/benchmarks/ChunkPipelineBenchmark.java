@@ -0,0 +1,99 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.benchmarks;
+
+import com.microsoft.alm.plugin.external.reactive.ChunkPipeline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An info query of 100,000 paths through the chunk pipeline with 1 to 8 chunks in flight, against a simulated backend:
+ * the rd wire adds a fixed latency each way, and the backend processes one call at a time with a fixed overhead per
+ * call and a fixed cost per item, like the SDK calls behind the single-threaded protocol scheduler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ChunkPipelineBenchmark {
+    private static final long WIRE_LATENCY_MICROS = 2000L;
+    private static final long CALL_OVERHEAD_MICROS = 1000L;
+    private static final long ITEM_COST_NANOS = 3000L;
+
+    @Param({"1", "2", "4", "8"})
+    public int chunksInFlight;
+
+    @Param({"100000"})
+    public int pathCount;
+
+    private List<String> paths;
+    private ScheduledExecutorService wire;
+    private ExecutorService backend;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Random random = Fixtures.newRandom();
+        paths = new ArrayList<>(pathCount);
+        for (int i = 0; i < pathCount; i++) {
+            paths.add("/workspace" + Fixtures.serverPath(random, 8).substring(1));
+        }
+
+        wire = Executors.newScheduledThreadPool(2);
+        backend = Executors.newSingleThreadExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        wire.shutdownNow();
+        backend.shutdownNow();
+    }
+
+    @Benchmark
+    public void query(final Blackhole blackhole) {
+        new ChunkPipeline<String, String>(paths.iterator(), this::queryChunk, blackhole::consume, String::length,
+                chunksInFlight)
+                .runAsync()
+                .toCompletableFuture()
+                .join();
+    }
+
+    private CompletionStage<List<String>> queryChunk(final List<String> chunk) {
+        final CompletableFuture<List<String>> result = new CompletableFuture<>();
+        wire.schedule(() -> backend.execute(() -> {
+            simulateWork(TimeUnit.MICROSECONDS.toNanos(CALL_OVERHEAD_MICROS) + ITEM_COST_NANOS * chunk.size());
+            wire.schedule(() -> result.complete(chunk), WIRE_LATENCY_MICROS, TimeUnit.MICROSECONDS);
+        }), WIRE_LATENCY_MICROS, TimeUnit.MICROSECONDS);
+        return result;
+    }
+
+    private static void simulateWork(final long nanos) {
+        final long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            LockSupport.parkNanos(Math.min(end - System.nanoTime(), 100_000L));
+        }
+    }
+}
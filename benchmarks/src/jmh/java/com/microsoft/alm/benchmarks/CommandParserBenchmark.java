@@ -0,0 +1,62 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.microsoft.alm.plugin.external.commands.HistoryCommand;
+import com.microsoft.alm.plugin.external.commands.InfoCommand;
+import com.microsoft.alm.plugin.external.commands.StatusCommand;
+import com.microsoft.alm.plugin.external.models.ChangeSet;
+import com.microsoft.alm.plugin.external.models.ExtendedItemInfo;
+import com.microsoft.alm.plugin.external.models.PendingChange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Parsing of the output of the tf commands run on every refresh of the changes view and of the history
+ */
+@State(Scope.Benchmark)
+public class CommandParserBenchmark {
+    private static final String LOCAL_ROOT = "/home/user/workspace";
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private StatusCommand statusCommand;
+    private HistoryCommand historyCommand;
+    private InfoCommand infoCommand;
+    private String statusXml;
+    private String historyXml;
+    private String infoOutput;
+
+    @Setup
+    public void setUp() {
+        statusCommand = new StatusCommand(null, ImmutableList.of(LOCAL_ROOT));
+        historyCommand = new HistoryCommand(null, "$/project", null, size, true, null);
+        infoCommand = new InfoCommand(null, ImmutableList.of(LOCAL_ROOT));
+        statusXml = Fixtures.statusXml(LOCAL_ROOT, size);
+        historyXml = Fixtures.historyXml(size);
+        infoOutput = Fixtures.infoOutput(LOCAL_ROOT, size);
+    }
+
+    @Benchmark
+    public List<PendingChange> parseStatus() {
+        return statusCommand.parseOutput(statusXml, "");
+    }
+
+    @Benchmark
+    public List<ChangeSet> parseHistory() {
+        return historyCommand.parseOutput(historyXml, "");
+    }
+
+    @Benchmark
+    public List<ExtendedItemInfo> parseInfo() {
+        return infoCommand.parseOutput(infoOutput, "");
+    }
+}
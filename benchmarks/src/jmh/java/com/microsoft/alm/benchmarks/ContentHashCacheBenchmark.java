@@ -0,0 +1,113 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.benchmarks;
+
+import com.microsoft.alm.plugin.idea.tfvc.core.tfs.TfsContentHashCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing of the files of a workspace (50,000 by default, 1 to 32 KB each) to find the edits that don't change the
+ * content: cold, with an empty cache, and warm, with a cache reloaded from the storage of a previous session. The
+ * files stay in the OS page cache between iterations, so the cold numbers don't include the disk reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ContentHashCacheBenchmark {
+    private static final FileTime OLD_TIME = FileTime.fromMillis(1554120000000L);
+
+    @Param({"50000"})
+    public int fileCount;
+
+    private Path root;
+    private Path storage;
+    private List<Path> files;
+    private ExecutorService hashers;
+    private TfsContentHashCache cache;
+
+    @Setup(Level.Trial)
+    public void createWorkspace() throws IOException {
+        root = Files.createTempDirectory("hash-benchmark");
+        storage = root.resolve("content-hashes.dat");
+        hashers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+        final Random random = Fixtures.newRandom();
+        files = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            final Path file = root.resolve("folder" + (i / 200)).resolve("File" + i + ".java");
+            Files.createDirectories(file.getParent());
+            final byte[] content = new byte[1024 + random.nextInt(31 * 1024)];
+            random.nextBytes(content);
+            Files.write(file, content);
+            Files.setLastModifiedTime(file, OLD_TIME);
+            files.add(file);
+        }
+
+        final TfsContentHashCache previousSession = new TfsContentHashCache(storage, hashers);
+        previousSession.getHashes(files);
+        previousSession.save();
+    }
+
+    @Setup(Level.Invocation)
+    public void createCache() {
+        cache = new TfsContentHashCache(storage, hashers);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteWorkspace() throws IOException {
+        hashers.shutdown();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path directory, final IOException e) throws IOException {
+                Files.delete(directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Benchmark
+    public Map<Path, byte[]> cold() {
+        return cache.getHashes(files);
+    }
+
+    @Benchmark
+    public Map<Path, byte[]> warm() {
+        cache.load();
+        return cache.getHashes(files);
+    }
+}
@@ -0,0 +1,117 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.benchmarks;
+
+import com.microsoft.alm.plugin.external.models.Workspace;
+import com.microsoft.alm.plugin.external.tools.StatusXmlFixture;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the inputs of the benchmarks. Every fixture comes from a fixed seed so that runs on different machines
+ * (and the committed baseline) measure the same data.
+ */
+public final class Fixtures {
+    private static final long SEED = 20190401L;
+    private static final String[] CHANGE_TYPES = {"edit", "add", "delete", "edit, rename"};
+    private static final String[] FOLDER_NAMES = {"src", "main", "java", "com", "microsoft", "alm", "plugin", "idea",
+            "tfvc", "core", "external", "models", "test", "resources", "common", "utils"};
+    private static final int FILES_PER_FOLDER = StatusXmlFixture.FILES_PER_FOLDER;
+
+    private Fixtures() {
+    }
+
+    public static Random newRandom() {
+        return new Random(SEED);
+    }
+
+    /**
+     * Output of "status -format:xml" for a workspace with the given number of pending changes under the local root
+     */
+    public static String statusXml(final String localRoot, final int changeCount) {
+        final StringBuilder builder = new StringBuilder(changeCount * 320);
+        try {
+            StatusXmlFixture.write(builder, localRoot, changeCount);
+        } catch (IOException e) {
+            // a StringBuilder doesn't throw
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Output of "history -format:xml" with the given number of changesets of one to ten items each
+     */
+    public static String historyXml(final int changesetCount) {
+        final Random random = newRandom();
+        final StringBuilder builder = new StringBuilder(changesetCount * 600);
+        builder.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<history>\n");
+        for (int i = changesetCount; i > 0; i--) {
+            builder.append("<changeset id=\"").append(i).append("\" owner=\"user").append(i % 7)
+                    .append("\" committer=\"user").append(i % 7)
+                    .append("\" date=\"2019-04-01T12:00:00.000-0400\">\n<comment>change ").append(i)
+                    .append("</comment>\n");
+            final int itemCount = 1 + random.nextInt(10);
+            for (int j = 0; j < itemCount; j++) {
+                builder.append("<item change-type=\"").append(CHANGE_TYPES[random.nextInt(CHANGE_TYPES.length)])
+                        .append("\" server-item=\"").append(serverPath(random, 8)).append("\"/>\n");
+            }
+            builder.append("</changeset>\n");
+        }
+        return builder.append("</history>\n").toString();
+    }
+
+    /**
+     * Output of "info" for the given number of items
+     */
+    public static String infoOutput(final String localRoot, final int itemCount) {
+        final StringBuilder builder = new StringBuilder(itemCount * 400);
+        for (int i = 0; i < itemCount; i++) {
+            final String relativePath = "folder" + (i / FILES_PER_FOLDER) + "/File" + i + ".java";
+            builder.append("Local information:\n")
+                    .append("  Local path:  ").append(localRoot).append('/').append(relativePath).append('\n')
+                    .append("  Server path: $/project/").append(relativePath).append('\n')
+                    .append("  Changeset:   ").append(i + 1).append('\n')
+                    .append("  Change:      none\n")
+                    .append("  Type:        file\n")
+                    .append("Server information:\n")
+                    .append("  Server path:   $/project/").append(relativePath).append('\n')
+                    .append("  Changeset:     ").append(i + 1).append('\n')
+                    .append("  Deletion ID:   0\n")
+                    .append("  Lock:          none\n")
+                    .append("  Lock owner:\n")
+                    .append("  Last modified: Nov 18, 2016 11:10:20 AM\n")
+                    .append("  Type:          file\n")
+                    .append("  File type:     utf-8\n")
+                    .append("  Size:          1385\n");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * A server path of the given depth below $/project
+     */
+    public static String serverPath(final Random random, final int depth) {
+        final StringBuilder builder = new StringBuilder("$/project");
+        for (int i = 0; i < depth; i++) {
+            builder.append('/').append(FOLDER_NAMES[random.nextInt(FOLDER_NAMES.length)]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Mappings of distinct server folders of $/project to local folders, with every tenth one cloaked
+     */
+    public static List<Workspace.Mapping> mappings(final String localRoot, final int mappingCount) {
+        final List<Workspace.Mapping> mappings = new ArrayList<>(mappingCount);
+        for (int i = 0; i < mappingCount; i++) {
+            mappings.add(new Workspace.Mapping("$/project/team" + i, localRoot + "/team" + i, i % 10 == 9));
+        }
+        return mappings;
+    }
+}
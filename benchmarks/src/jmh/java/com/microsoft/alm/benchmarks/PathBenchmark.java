@@ -0,0 +1,72 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.benchmarks;
+
+import com.microsoft.alm.plugin.external.models.Workspace;
+import com.microsoft.alm.plugin.idea.tfvc.core.tfs.TfsFileUtil;
+import com.microsoft.alm.plugin.idea.tfvc.core.tfs.VersionControlPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Server path utilities, run for every item of a status or a history: ancestry checks and the translation of server
+ * paths to local paths through the workspace mappings
+ */
+@State(Scope.Benchmark)
+public class PathBenchmark {
+    private static final int PATH_COUNT = 1000;
+    private static final int DEPTH = 12;
+
+    @Param({"1", "100"})
+    public int mappingCount;
+
+    private List<Workspace.Mapping> mappings;
+    private String[] paths;
+    private String[] mappedPaths;
+
+    @Setup
+    public void setUp() {
+        final Random random = Fixtures.newRandom();
+        mappings = Fixtures.mappings("/home/user/workspace", mappingCount);
+        paths = new String[PATH_COUNT];
+        mappedPaths = new String[PATH_COUNT];
+        for (int i = 0; i < PATH_COUNT; i++) {
+            paths[i] = Fixtures.serverPath(random, DEPTH);
+            mappedPaths[i] = mappings.get(random.nextInt(mappingCount)).getServerPath()
+                    + paths[i].substring("$/project".length());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATH_COUNT)
+    public void isUnder(final Blackhole blackhole) {
+        for (int i = 0; i < PATH_COUNT; i++) {
+            blackhole.consume(VersionControlPath.isUnder(paths[i], paths[(i + 1) % PATH_COUNT]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATH_COUNT)
+    public void getCommonAncestor(final Blackhole blackhole) {
+        for (int i = 0; i < PATH_COUNT; i++) {
+            blackhole.consume(VersionControlPath.getCommonAncestor(paths[i], paths[(i + 1) % PATH_COUNT]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATH_COUNT)
+    public void translateServerItemToLocalItem(final Blackhole blackhole) {
+        for (int i = 0; i < PATH_COUNT; i++) {
+            blackhole.consume(TfsFileUtil.translateServerItemToLocalItem(mappings, mappedPaths[i]));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.microsoft.alm.plugin.external.commands.StatusCommand;
+import com.microsoft.alm.plugin.external.models.PendingChange;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and retained heap of the pending changes of a large workspace (300,000 by default), as held by the changes
+ * view between two refreshes. Allocation and GC time come from the gc profiler; the retained heap is reported as the
+ * retainedBytes counter. Compare against a run of the same benchmark on an older revision to see the effect of a
+ * change of the model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class PendingChangeFootprintBenchmark {
+    private static final String LOCAL_ROOT = "/home/user/workspace";
+
+    @Param({"300000"})
+    public int rows;
+
+    private StatusCommand statusCommand;
+    private String statusXml;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long retainedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            retainedBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        statusCommand = new StatusCommand(null, ImmutableList.of(LOCAL_ROOT));
+        statusXml = Fixtures.statusXml(LOCAL_ROOT, rows);
+    }
+
+    @Benchmark
+    public List<PendingChange> parse() {
+        return statusCommand.parseOutput(statusXml, "");
+    }
+
+    @Benchmark
+    public List<PendingChange> retain(final Footprint footprint) {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        final long before = memory.getHeapMemoryUsage().getUsed();
+        final List<PendingChange> changes = statusCommand.parseOutput(statusXml, "");
+        System.gc();
+        footprint.retainedBytes = memory.getHeapMemoryUsage().getUsed() - before;
+        return changes;
+    }
+}
@@ -0,0 +1,79 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.benchmarks;
+
+import com.microsoft.alm.plugin.idea.common.ui.common.TableFilterIndex;
+import org.apache.commons.lang.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Typing a filter into a table one character at a time: through a fresh TableFilterIndex, whose first search builds
+ * the index, and by scanning every column of every row for each keystroke, which is what the table model used to do
+ * on the UI thread
+ */
+@State(Scope.Benchmark)
+public class TableFilterIndexBenchmark {
+    private static final String TYPED = "service12";
+    private static final String[] WORDS = {"alpha", "Beta", "gamma", "delta", "Web", "api", "service", "client",
+            "Portal", "mobile", "data", "core", "infra", "tools", "docs"};
+
+    @Param({"1000", "10000", "50000"})
+    public int rowCount;
+
+    private List<String[]> rows;
+    private TableFilterIndex<String[]> index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Random random = Fixtures.newRandom();
+        rows = new ArrayList<String[]>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(new String[]{
+                    WORDS[random.nextInt(WORDS.length)] + WORDS[random.nextInt(WORDS.length)] + random.nextInt(1000),
+                    WORDS[random.nextInt(WORDS.length)] + "Project" + random.nextInt(100),
+                    "dev.azure.com/account" + random.nextInt(50)});
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createIndex() {
+        index = new TableFilterIndex<String[]>(row -> StringUtils.join(row, TableFilterIndex.COLUMN_SEPARATOR));
+        index.addAll(rows);
+    }
+
+    @Benchmark
+    public void typeIntoIndex(final Blackhole blackhole) {
+        for (int i = 1; i <= TYPED.length(); i++) {
+            blackhole.consume(index.find(TYPED.substring(0, i), () -> false));
+        }
+    }
+
+    @Benchmark
+    public void typeWithLinearScan(final Blackhole blackhole) {
+        for (int i = 1; i <= TYPED.length(); i++) {
+            final String filter = TYPED.substring(0, i);
+            final BitSet matches = new BitSet();
+            for (int id = 0; id < rows.size(); id++) {
+                for (final String column : rows.get(id)) {
+                    if (StringUtils.containsIgnoreCase(column, filter)) {
+                        matches.set(id);
+                        break;
+                    }
+                }
+            }
+            blackhole.consume(matches);
+        }
+    }
+}
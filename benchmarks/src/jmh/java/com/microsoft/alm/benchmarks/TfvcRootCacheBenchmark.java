@@ -0,0 +1,59 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.benchmarks;
+
+import com.microsoft.alm.plugin.idea.tfvc.extensions.TfvcRootCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Root lookups of the TFVC root cache, which the VCS root checker runs for every directory of the project
+ */
+@State(Scope.Benchmark)
+public class TfvcRootCacheBenchmark {
+    private static final int PATH_COUNT = 1000;
+    private static final int DEPTH = 12;
+
+    @Param({"10", "1000"})
+    public int rootCount;
+
+    private TfvcRootCache cache;
+    private Path[] paths;
+
+    @Setup
+    public void setUp() {
+        final Random random = Fixtures.newRandom();
+        cache = new TfvcRootCache();
+        cache.putMappings(Fixtures.mappings("/home/user/workspace", rootCount));
+        for (int i = 0; i < rootCount; i++) {
+            cache.putNoMappingsFor(Paths.get("/home/user/other" + i));
+        }
+
+        paths = new Path[PATH_COUNT];
+        for (int i = 0; i < PATH_COUNT; i++) {
+            // deep paths under a random root, or outside of any known root
+            final String relativePath = Fixtures.serverPath(random, DEPTH).substring("$/project/".length());
+            paths[i] = i % 4 == 3
+                    ? Paths.get("/home/user/unknown", relativePath)
+                    : Paths.get("/home/user/workspace/team" + random.nextInt(rootCount), relativePath);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATH_COUNT)
+    public void get(final Blackhole blackhole) {
+        for (int i = 0; i < PATH_COUNT; i++) {
+            blackhole.consume(cache.get(paths[i]));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.benchmarks;
+
+import com.microsoft.alm.common.utils.UrlHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.net.URI;
+import java.util.Random;
+
+/**
+ * Account comparisons of server URLs, which the server context lookups run against every known context
+ */
+@State(Scope.Benchmark)
+public class UrlHelperBenchmark {
+    private static final int URL_COUNT = 1000;
+
+    private URI[] urls;
+
+    @Setup
+    public void setUp() {
+        final Random random = Fixtures.newRandom();
+        urls = new URI[URL_COUNT];
+        for (int i = 0; i < URL_COUNT; i++) {
+            final int account = random.nextInt(20);
+            switch (i % 3) {
+                case 0:
+                    urls[i] = URI.create("https://dev.azure.com/account" + account + "/project/_git/repo" + i);
+                    break;
+                case 1:
+                    urls[i] = URI.create("https://account" + account + ".visualstudio.com/DefaultCollection/project");
+                    break;
+                default:
+                    urls[i] = URI.create("http://tfs" + account + ".corp.example.com:8080/tfs/DefaultCollection");
+                    break;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(URL_COUNT)
+    public void haveSameAccount(final Blackhole blackhole) {
+        for (int i = 0; i < URL_COUNT; i++) {
+            blackhole.consume(UrlHelper.haveSameAccount(urls[i], urls[(i * 7 + 1) % URL_COUNT]));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Counts and times of the calls handled for a collection, per call name. The plugin keeps the full per-stage
+ * histograms; this is the backend side of them, written to the backend log.
+ */
+class CallMetrics {
+    private class Statistics {
+        val count = AtomicLong()
+        val failureCount = AtomicLong()
+        val totalQueueMillis = AtomicLong()
+        val maxQueueMillis = AtomicLong()
+        val totalSdkMicros = AtomicLong()
+        val maxSdkMicros = AtomicLong()
+    }
+
+    private val statistics = ConcurrentHashMap<String, Statistics>()
+
+    fun record(call: String, queueMillis: Long, sdkMicros: Long, failed: Boolean) {
+        statistics.computeIfAbsent(call) { Statistics() }.apply {
+            count.incrementAndGet()
+            if (failed) failureCount.incrementAndGet()
+            totalQueueMillis.addAndGet(queueMillis)
+            maxQueueMillis.accumulateAndGet(queueMillis) { a, b -> Math.max(a, b) }
+            totalSdkMicros.addAndGet(sdkMicros)
+            maxSdkMicros.accumulateAndGet(sdkMicros) { a, b -> Math.max(a, b) }
+        }
+    }
+
+    fun dump(): String = buildString {
+        appendln(String.format("%-28s %8s %8s %12s %12s %12s %12s",
+            "call", "count", "failed", "avg queue", "max queue", "avg sdk", "max sdk"))
+        for ((call, callStatistics) in statistics.toSortedMap()) {
+            callStatistics.run {
+                val calls = Math.max(1L, count.get())
+                appendln(String.format("%-28s %8d %8d %9d ms %9d ms %9.1f ms %9.1f ms",
+                    call, count.get(), failureCount.get(),
+                    totalQueueMillis.get() / calls, maxQueueMillis.get(),
+                    totalSdkMicros.get() / calls / 1000.0, maxSdkMicros.get() / 1000.0))
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs
+
+import com.jetbrains.rd.util.info
+import com.microsoft.tfs.core.clients.versioncontrol.*
+import com.microsoft.tfs.core.clients.versioncontrol.events.BeforeCheckinListener
+import com.microsoft.tfs.core.clients.versioncontrol.soapextensions.*
+import com.microsoft.tfs.core.clients.versioncontrol.specs.ItemSpec
+import com.microsoft.tfs.core.clients.workitem.*
+import com.microsoft.tfs.model.host.TfsCheckinResult
+import com.microsoft.tfs.model.host.TfsLocalPath
+import com.microsoft.tfs.model.host.TfvcCheckinProgress
+import com.microsoft.tfs.sdk.withBeforeCheckinListener
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.Executor
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Checks in the pending changes of a workspace. Before uploading anything, runs the checks the server would otherwise
+ * only fail on after the upload: conflicts, locks held in other workspaces and existence of the associated work items.
+ * These checks and the query of the pending changes to check in are independent, so they're run in parallel.
+ */
+class CheckinEngine(
+    private val client: VersionControlClient,
+    private val workItemClient: WorkItemClient,
+    private val executor: Executor
+) {
+    companion object {
+        private val logger = Logging.getLogger<CheckinEngine>()
+    }
+
+    fun checkin(
+        workspace: Workspace,
+        paths: List<TfsLocalPath>,
+        comment: String,
+        workItemIds: List<Int>,
+        onProgress: (TfvcCheckinProgress) -> Unit
+    ): TfsCheckinResult {
+        val itemSpecs = paths.mapToArray { it.toCanonicalPathItemSpec(RecursionType.NONE) }
+        val pendingChanges = async { queryPendingChanges(workspace, itemSpecs) }
+        val conflicts = async { findConflicts(workspace, paths) }
+        val locks = async { findLocksHeldByOthers(workspace, itemSpecs) }
+        val workItems = async { workItemIds.map { it to workItemClient.getWorkItemByID(it) } }
+
+        val errorMessages = conflicts.await() + locks.await() +
+                workItems.await().filter { it.second == null }.map { "Work item #${it.first} does not exist" }
+        if (errorMessages.isNotEmpty()) {
+            logger.info { "Checkin rejected before upload, ${errorMessages.size} problems found" }
+            return TfsCheckinResult(0, errorMessages)
+        }
+
+        val changes = pendingChanges.await()
+        if (changes.isEmpty()) {
+            return TfsCheckinResult(0, listOf("No pending changes to check in"))
+        }
+
+        val associatedWorkItems = workItems.await().mapToArray {
+            WorkItemCheckinInfo(it.second, CheckinWorkItemAction.ASSOCIATE)
+        }
+
+        // Fired for every item before it's uploaded, from the upload threads
+        val checkedInCount = AtomicInteger()
+        val listener = BeforeCheckinListener { event ->
+            val change = event.pendingChange
+            onProgress(TfvcCheckinProgress(
+                change.serverItem,
+                change.localItem,
+                checkedInCount.incrementAndGet(),
+                changes.size))
+        }
+
+        var changesetNumber = 0
+        client.eventEngine.withBeforeCheckinListener(listener) {
+            changesetNumber = workspace.checkIn(
+                changes,
+                null,
+                null,
+                comment.takeIf { it.isNotEmpty() },
+                null,
+                associatedWorkItems,
+                null,
+                CheckinFlags.NONE)
+        }
+
+        logger.info { "Checked in ${changes.size} changes as changeset $changesetNumber" }
+        return TfsCheckinResult(changesetNumber, emptyList())
+    }
+
+    private fun queryPendingChanges(workspace: Workspace, itemSpecs: Array<ItemSpec>): Array<PendingChange> =
+        client.queryPendingSets(itemSpecs, false, workspace.name, workspace.ownerName, false)
+            .flatMap { it.pendingChanges.asList() }
+            .toTypedArray()
+
+    private fun findConflicts(workspace: Workspace, paths: List<TfsLocalPath>): List<String> =
+        workspace.queryConflicts(paths.mapToArray { it.toCanonicalPathString() }, false)
+            .map { "Resolve the conflict on ${it.yourServerItem ?: it.theirServerItem} before checking in" }
+
+    private fun findLocksHeldByOthers(workspace: Workspace, itemSpecs: Array<ItemSpec>): List<String> =
+        client.queryPendingSets(itemSpecs, false, null, null, false)
+            .filterNot {
+                it.name.equals(workspace.name, ignoreCase = true)
+                        && it.ownerName.equals(workspace.ownerName, ignoreCase = true)
+            }
+            .flatMap { pendingSet ->
+                pendingSet.pendingChanges
+                    .filter { it.lockLevel != LockLevel.NONE }
+                    .map { "The item ${it.serverItem} is locked in workspace ${pendingSet.name};${pendingSet.ownerName}" }
+            }
+
+    private fun <T> async(action: () -> T): CompletableFuture<T> =
+        CompletableFuture.supplyAsync(action, executor)
+
+    private fun <T> CompletableFuture<T>.await(): T =
+        try {
+            join()
+        } catch (ex: CompletionException) {
+            throw ex.cause ?: ex
+        }
+}
@@ -10,6 +10,7 @@ import com.microsoft.tfs.core.clients.versioncontrol.specs.ItemSpec
 import com.microsoft.tfs.core.util.FileEncoding
 import com.microsoft.tfs.model.host.*
 import java.text.SimpleDateFormat
+import java.util.Base64
 
 private val isoDateFormat = SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ")
 
@@ -43,7 +44,8 @@ private fun toPendingChange(pendingSet: PendingSet, pc: PendingChange) = TfsPend
     pendingSet.name,
     pendingSet.computer,
     pc.isCandidate,
-    pc.sourceServerItem
+    pc.sourceServerItem,
+    pc.hashValue?.takeIf { it.isNotEmpty() }?.let(Base64.getEncoder()::encodeToString)
 )
 
 fun toPendingChanges(pendingSet: PendingSet): Iterable<TfsPendingChange> =
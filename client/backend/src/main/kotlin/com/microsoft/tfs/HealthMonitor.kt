@@ -0,0 +1,144 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs
+
+import com.jetbrains.rd.util.lifetime.Lifetime
+import com.jetbrains.rd.util.lifetime.isAlive
+import com.jetbrains.rd.util.lifetime.onTermination
+import com.jetbrains.rd.util.reactive.IProperty
+import com.jetbrains.rd.util.reactive.IScheduler
+import com.jetbrains.rd.util.warn
+import com.microsoft.tfs.core.clients.versioncontrol.GetItemsOptions
+import com.microsoft.tfs.core.clients.versioncontrol.soapextensions.DeletedState
+import com.microsoft.tfs.core.clients.versioncontrol.soapextensions.ItemType
+import com.microsoft.tfs.core.clients.versioncontrol.soapextensions.Workspace
+import com.microsoft.tfs.core.clients.versioncontrol.specs.ItemSpec
+import com.microsoft.tfs.model.host.TfsBackendHealth
+import java.lang.management.ManagementFactory
+import java.lang.management.MemoryType
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Publishes the heap, GC and SDK cache statistics of the backend to the health property of the model every
+ * [INTERVAL_SECONDS]. The plugin sizes the heap of the next backend launch from them.
+ */
+class HealthMonitor(
+    private val lifetime: Lifetime,
+    private val scheduler: IScheduler,
+    private val health: IProperty<TfsBackendHealth?>) {
+
+    companion object {
+        private val logger = Logging.getLogger<HealthMonitor>()
+        const val INTERVAL_SECONDS = 10L
+
+        /**
+         * How often the versioned items of the known workspaces are counted again, to follow the gets
+         */
+        const val RECOUNT_MINUTES = 30L
+
+        /**
+         * Counts the versioned items (files and folders) mapped by the workspace, from its local version table, or
+         * from the server for a server workspace. Untracked files, e.g. build outputs, are not counted.
+         */
+        fun countVersionedItems(workspace: Workspace): Long {
+            val itemSpecs = workspace.folders
+                .filter { !it.isCloaked }
+                .mapToArray { ItemSpec(it.serverItem, it.depth) }
+            if (itemSpecs.isEmpty()) return 0L
+
+            val items = workspace.getExtendedItems(
+                itemSpecs,
+                DeletedState.NON_DELETED,
+                ItemType.ANY,
+                GetItemsOptions.LOCAL_ONLY)
+            // nested mappings return the same items more than once
+            val localItems = HashSet<String>()
+            for (specItems in items) {
+                specItems?.mapNotNullTo(localItems) { it.localItem }
+            }
+            return localItems.size.toLong()
+        }
+    }
+
+    // Versioned item counts of the known workspaces, per client
+    private val clients = ConcurrentHashMap<TfsClient, ConcurrentHashMap<Workspace, Long>>()
+    private val timer = Executors.newSingleThreadScheduledExecutor { runnable ->
+        Thread(runnable, "com.microsoft.tfs.HealthMonitor").apply {
+            isDaemon = true
+            priority = Thread.MIN_PRIORITY
+        }
+    }
+
+    // Only accessed on the timer thread
+    private var peakLiveHeapBytes = 0L
+
+    init {
+        lifetime.onTermination { timer.shutdownNow() }
+        timer.scheduleWithFixedDelay(::publish, INTERVAL_SECONDS, INTERVAL_SECONDS, TimeUnit.SECONDS)
+        timer.scheduleWithFixedDelay(::recountAll, RECOUNT_MINUTES, RECOUNT_MINUTES, TimeUnit.MINUTES)
+    }
+
+    /**
+     * Includes the workspaces of the client in the statistics while the lifetime is alive. The versioned items of a
+     * workspace are counted on the timer thread when the client first uses it, then every [RECOUNT_MINUTES].
+     */
+    fun register(clientLifetime: Lifetime, client: TfsClient) {
+        val counts = ConcurrentHashMap<Workspace, Long>()
+        clients[client] = counts
+        clientLifetime.onTermination { clients.remove(client) }
+        client.workspaces.advise(clientLifetime) { workspaces ->
+            val newWorkspaces = workspaces.filter { counts.putIfAbsent(it, 0L) == null }
+            if (newWorkspaces.isNotEmpty()) {
+                timer.execute { newWorkspaces.forEach { recount(counts, it) } }
+            }
+        }
+    }
+
+    private fun recountAll() {
+        for (counts in clients.values) {
+            counts.keys.forEach { recount(counts, it) }
+        }
+    }
+
+    private fun recount(counts: ConcurrentHashMap<Workspace, Long>, workspace: Workspace) {
+        try {
+            val count = countVersionedItems(workspace)
+            counts.computeIfPresent(workspace) { _, _ -> count }
+        } catch (t: Throwable) {
+            logger.warn { "Unable to count the items of workspace ${workspace.name}: $t" }
+        }
+    }
+
+    private fun publish() {
+        try {
+            val heap = ManagementFactory.getMemoryMXBean().heapMemoryUsage
+            val liveHeapBytes = ManagementFactory.getMemoryPoolMXBeans()
+                .filter { it.type == MemoryType.HEAP }
+                .mapNotNull { it.collectionUsage?.used }
+                .sum()
+            peakLiveHeapBytes = Math.max(peakLiveHeapBytes, liveHeapBytes)
+
+            val collectors = ManagementFactory.getGarbageCollectorMXBeans()
+            val statistics = TfsBackendHealth(
+                heap.used,
+                liveHeapBytes,
+                peakLiveHeapBytes,
+                heap.max,
+                collectors.map { Math.max(0L, it.collectionCount) }.sum(),
+                collectors.map { Math.max(0L, it.collectionTime) }.sum(),
+                ManagementFactory.getRuntimeMXBean().uptime,
+                clients.keys.sumBy { it.workspaces.value.size },
+                clients.values.map { it.values.sum() }.sum(),
+                clients.keys.fold(emptyItemCacheStatistics) { total, client -> total + client.itemCacheStatistics })
+
+            scheduler.queue {
+                if (lifetime.isAlive) health.set(statistics)
+            }
+        } catch (t: Throwable) {
+            logger.warn { "Unable to collect the backend health: $t" }
+        }
+    }
+}
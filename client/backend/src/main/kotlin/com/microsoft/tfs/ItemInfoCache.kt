@@ -0,0 +1,148 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs
+
+import com.microsoft.tfs.model.host.TfsItemCacheStatistics
+import java.io.File
+import java.util.concurrent.ConcurrentNavigableMap
+import java.util.concurrent.ConcurrentSkipListMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Item info results by canonical local path, so the paths asked for over and over (e.g. by the diff provider and the
+ * change provider of the plugin) don't cost a server round trip each time. The entries are dropped by the pending
+ * change, get and checkin events of the SDK and by the status queries that find a different pending change (see
+ * [PendingChangeTracker]); they also expire after [ttlMillis], because the server side of an item (its latest version,
+ * the locks of others) changes without any local event.
+ *
+ * Every invalidation bumps the [version]: a result is only stored if the version didn't change since its query
+ * started, so a query racing with a change never caches the state from before the change.
+ */
+class ItemInfoCache<T>(
+    private val ttlMillis: Long = DEFAULT_TTL_MILLIS,
+    private val maxEntries: Int = DEFAULT_MAX_ENTRIES,
+    private val clock: () -> Long = System::currentTimeMillis) {
+
+    companion object {
+        const val DEFAULT_TTL_MILLIS = 30_000L
+        const val DEFAULT_MAX_ENTRIES = 100_000
+    }
+
+    private class Entry<T>(val infos: List<T>, val createdMillis: Long)
+
+    private val entries = newPathMap<Entry<T>>()
+    private val currentVersion = AtomicLong()
+
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+    private val invalidations = AtomicLong()
+    private val cachedCalls = AtomicLong()
+    private val cachedCallNanos = AtomicLong()
+    private val serverCalls = AtomicLong()
+    private val serverCallNanos = AtomicLong()
+
+    val version: Long
+        get() = currentVersion.get()
+
+    /**
+     * Returns the cached infos of the path, or null if they must be queried.
+     */
+    fun get(path: String): List<T>? {
+        val entry = entries[path]
+        if (entry == null || clock() - entry.createdMillis >= ttlMillis) {
+            misses.incrementAndGet()
+            return null
+        }
+
+        hits.incrementAndGet()
+        return entry.infos
+    }
+
+    /**
+     * Makes room for the results of a query of [count] paths. Called once per query rather than per [put], because
+     * the size of the map is counted entry by entry.
+     */
+    fun reserve(count: Int) {
+        // The cache only helps with the paths the IDE shows; a bulk query (e.g. of a whole workspace) starts afresh
+        if (entries.size + count > maxEntries) entries.clear()
+    }
+
+    /**
+     * Stores the infos of the path queried at the given [version], unless it was invalidated since.
+     */
+    fun put(path: String, infos: List<T>, queryVersion: Long) {
+        entries[path] = Entry(infos, clock())
+        if (currentVersion.get() != queryVersion) entries.remove(path)
+    }
+
+    /**
+     * Drops the entries of the path and of the paths under it.
+     */
+    fun invalidate(path: String) {
+        currentVersion.incrementAndGet()
+        invalidations.incrementAndGet()
+        entries.remove(path)
+        entries.under(path).clear()
+    }
+
+    fun invalidateAll() {
+        currentVersion.incrementAndGet()
+        invalidations.incrementAndGet()
+        entries.clear()
+    }
+
+    /**
+     * Records a call answered from the cache (no path missed) or through the server, with its run time.
+     */
+    fun recordCall(missCount: Int, nanos: Long) {
+        if (missCount == 0) {
+            cachedCalls.incrementAndGet()
+            cachedCallNanos.addAndGet(nanos)
+        } else {
+            serverCalls.incrementAndGet()
+            serverCallNanos.addAndGet(nanos)
+        }
+    }
+
+    fun getStatistics() = TfsItemCacheStatistics(
+        hits.get(),
+        misses.get(),
+        invalidations.get(),
+        entries.size,
+        cachedCalls.get(),
+        TimeUnit.NANOSECONDS.toMicros(cachedCallNanos.get()),
+        serverCalls.get(),
+        TimeUnit.NANOSECONDS.toMicros(serverCallNanos.get()))
+}
+
+private val ignoreCase = System.getProperty("os.name").startsWith("Windows", ignoreCase = true)
+
+/**
+ * Returns a map sorted by canonical local path, ignoring the case on Windows like the file system does.
+ */
+fun <V> newPathMap(): ConcurrentNavigableMap<String, V> =
+    if (ignoreCase) ConcurrentSkipListMap<String, V>(String.CASE_INSENSITIVE_ORDER)
+    else ConcurrentSkipListMap<String, V>()
+
+/**
+ * Returns the view of the entries of the paths under the given one (not including it).
+ */
+fun <V> ConcurrentNavigableMap<String, V>.under(path: String): ConcurrentNavigableMap<String, V> {
+    val prefix = path.trimEnd(File.separatorChar) + File.separatorChar
+    // The next character after the separator bounds the paths under the prefix
+    return subMap(prefix, prefix.dropLast(1) + (File.separatorChar + 1))
+}
+
+val emptyItemCacheStatistics = TfsItemCacheStatistics(0L, 0L, 0L, 0, 0L, 0L, 0L, 0L)
+
+operator fun TfsItemCacheStatistics.plus(other: TfsItemCacheStatistics) = TfsItemCacheStatistics(
+    hits + other.hits,
+    misses + other.misses,
+    invalidations + other.invalidations,
+    entries + other.entries,
+    cachedCalls + other.cachedCalls,
+    cachedCallMicros + other.cachedCallMicros,
+    serverCalls + other.serverCalls,
+    serverCallMicros + other.serverCallMicros)
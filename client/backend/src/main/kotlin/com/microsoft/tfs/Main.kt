@@ -4,17 +4,22 @@
 package com.microsoft.tfs
 
 import com.jetbrains.rd.framework.*
+import com.jetbrains.rd.framework.impl.RdTask
 import com.jetbrains.rd.util.Logger
 import com.jetbrains.rd.util.info
 import com.jetbrains.rd.util.lifetime.Lifetime
 import com.jetbrains.rd.util.lifetime.LifetimeDefinition
 import com.jetbrains.rd.util.lifetime.isAlive
+import com.jetbrains.rd.util.lifetime.onTermination
+import com.jetbrains.rd.util.reactive.IScheduler
 import com.jetbrains.rd.util.threading.SingleThreadScheduler
 import com.microsoft.tfs.core.httpclient.UsernamePasswordCredentials
 import com.microsoft.tfs.model.host.*
 import org.apache.log4j.Level
+import java.net.URI
 import java.nio.file.Paths
 import java.util.*
+import java.util.concurrent.Executors
 import kotlin.system.exitProcess
 
 fun main(args: Array<String>) {
@@ -57,19 +62,31 @@ private fun runRdClient(portNumber: Int) {
 
     val protocol = Protocol(Serializers(), Identities(IdKind.Client), scheduler, socket, appLifetime)
     scheduler.queue {
-        val model = TfsModel.create(appLifetime, protocol)
-        model.shutdown.advise(appLifetime) {
-            logger.info { "Shutting down per request" }
-            appLifetime.terminate()
-        }
-
-        model.collections.view(appLifetime, ::initializeCollection)
+        bindModel(appLifetime, scheduler, TfsModel.create(appLifetime, protocol))
     }
 
     logger.info { "Application initialized, waiting termination" }
     waitTermination(appLifetime)
 }
 
+/**
+ * Serves the model on the protocol scheduler: a client per collection, the heartbeats, the health statistics and the
+ * shutdown requests, which terminate the lifetime.
+ */
+internal fun bindModel(lifetime: LifetimeDefinition, scheduler: IScheduler, model: TfsModel) {
+    val logger = Logging.getLogger("Main")
+    model.shutdown.advise(lifetime) {
+        logger.info { "Shutting down per request" }
+        lifetime.terminate()
+    }
+    model.heartbeat.set { sentAtMillis -> sentAtMillis }
+
+    val healthMonitor = HealthMonitor(lifetime, scheduler, model.health)
+    model.collections.view(lifetime) { collectionLifetime, serverUri, collection ->
+        initializeCollection(collectionLifetime, serverUri, collection, healthMonitor)
+    }
+}
+
 private fun startSocketWatchdog(ld: LifetimeDefinition, socket: SocketWire.Client, logger: Logger) {
     socket.connected.change.advise(ld) { connected ->
         if (!connected) {
@@ -85,75 +102,183 @@ private fun waitTermination(lifetime: Lifetime, msBetweenChecks: Long = 1000L) {
     }
 }
 
-private fun initializeCollection(lifetime: Lifetime, definition: TfsCollectionDefinition, collection: TfsCollection) {
+/**
+ * Creates the client of the collection when its credentials are first set, and updates them in place afterwards. The
+ * client lives until the collection is removed from the model.
+ */
+internal fun initializeCollection(
+    lifetime: Lifetime,
+    serverUri: URI,
+    collection: TfsCollection,
+    healthMonitor: HealthMonitor) {
+    val logger = Logging.getLogger("Collection")
+    var client: TfsClient? = null
+    collection.credentials.advise(lifetime) { tfsCredentials ->
+        if (tfsCredentials == null) return@advise
+
+        val credentials = tfsCredentials.run { UsernamePasswordCredentials(login, password.contents) }
+        val existingClient = client
+        if (existingClient != null) {
+            logger.info { "Updating credentials for $serverUri" }
+            existingClient.updateCredentials(credentials)
+        } else {
+            logger.info { "Initializing collection for $serverUri" }
+            client = TfsClient(lifetime, serverUri, credentials).also {
+                bindCollection(lifetime, serverUri, collection, it, healthMonitor)
+            }
+        }
+    }
+
+    lifetime.onTermination {
+        logger.info { "Collection for $serverUri terminated" }
+    }
+}
+
+private fun bindCollection(
+    lifetime: Lifetime,
+    serverUri: URI,
+    collection: TfsCollection,
+    client: TfsClient,
+    healthMonitor: HealthMonitor) {
     val logger = Logging.getLogger("Collection")
-    logger.info { "Initializing collection for ${definition.serverUri}" }
+    healthMonitor.register(lifetime, client)
 
-    val credentials = definition.credentials.run { UsernamePasswordCredentials(login, password.contents) }
-    val client = TfsClient(lifetime, definition.serverUri, credentials)
+    val callMetrics = CallMetrics()
+    lifetime.onTermination {
+        logger.info { "Calls handled for $serverUri:\n${callMetrics.dump()}" }
+    }
 
-    collection.getPendingChanges.set { paths ->
-        logger.info { "Calculating pending changes for ${paths.size} paths" }
-        val result = client.status(paths).flatMap(::toPendingChanges).toList()
-        logger.info { "${result.size} changes detected" }
-        logger.info { "First 10 changes: " + result.take(10).joinToString { it.serverItem } }
-        result
+    // The calls run one at a time, as they did on the protocol thread, but the protocol thread stays free to answer the
+    // heartbeats and the other collections while a long call (e.g. a big checkin) is in progress
+    val callExecutor = Executors.newSingleThreadExecutor { runnable ->
+        Thread(runnable, "com.microsoft.tfs.CallThread[$serverUri]").apply { isDaemon = true }
+    }
+    lifetime.onTermination {
+        callExecutor.shutdownNow()
+    }
+
+    fun <T> traced(call: String, context: TfsCallContext, handler: () -> T): RdTask<T> {
+        val task = RdTask<T>()
+        callExecutor.execute {
+            val queueMillis = Math.max(0L, System.currentTimeMillis() - context.sentAtMillis)
+            val startNanos = System.nanoTime()
+            val result: RdTaskResult<T> = try {
+                RdTaskResult.Success(handler())
+            } catch (t: Throwable) {
+                RdTaskResult.Fault(t)
+            }
+
+            val failed = result is RdTaskResult.Fault
+            val sdkMicros = (System.nanoTime() - startNanos) / 1000L
+            callMetrics.record(call, queueMillis, sdkMicros, failed)
+            logger.info {
+                val status = if (failed) "failed" else "done"
+                "[${context.correlationId}] $call $status: queue $queueMillis ms, SDK ${sdkMicros / 1000L} ms"
+            }
+            collection.callTimings.fire(TfsCallTimings(context.correlationId, queueMillis, sdkMicros))
+            task.result.set(result)
+        }
+        return task
+    }
+
+    collection.getPendingChanges.set { _, request ->
+        traced("getPendingChanges", request.context) {
+            val paths = request.toPaths()
+            logger.info { "Calculating pending changes for ${paths.size} paths" }
+            val result = client.status(paths).flatMap(::toPendingChanges).toList()
+            logger.info { "${result.size} changes detected" }
+            logger.info { "First 10 changes: " + result.take(10).joinToString { it.serverItem } }
+            result.toPendingChangeList()
+        }
     }
 
     fun logPaths(title: String, paths: List<TfsPath>) {
         logger.info { "Performing $title operation on ${paths.size} paths, first 10: ${paths.take(10).joinToString()}" }
     }
 
-    collection.getLocalItemsInfo.set { paths ->
-        if (paths.isEmpty()) return@set emptyList()
+    collection.getLocalItemsInfo.set { _, (pathList, context) ->
+        traced("getLocalItemsInfo", context) {
+            val paths = pathList.toLocalPaths()
+            if (paths.isEmpty()) return@traced emptyList<TfsLocalItemInfo>().toLocalItemInfoList()
 
-        logPaths("Get Local Items Info", paths)
-        client.getLocalItemsInfo(paths)
+            logPaths("Get Local Items Info", paths)
+            client.getLocalItemsInfo(paths).toLocalItemInfoList()
+        }
     }
 
-    collection.getExtendedLocalItemsInfo.set { paths ->
-        if (paths.isEmpty()) return@set emptyList()
+    collection.getExtendedLocalItemsInfo.set { _, (pathList, context) ->
+        traced("getExtendedLocalItemsInfo", context) {
+            val paths = pathList.toLocalPaths()
+            if (paths.isEmpty()) return@traced emptyList<TfsExtendedItemInfo>().toExtendedItemInfoList()
 
-        logPaths("Get Local Items Info", paths)
-        client.getExtendedLocalItemsInfo(paths)
+            logPaths("Get Local Items Info", paths)
+            client.getExtendedLocalItemsInfo(paths).toExtendedItemInfoList()
+        }
     }
 
-    collection.invalidatePaths.set { paths ->
-        if (paths.isEmpty()) return@set
+    collection.invalidatePaths.set { _, (pathList, context) ->
+        traced("invalidatePaths", context) {
+            val paths = pathList.toLocalPaths()
+            if (paths.isEmpty()) return@traced
 
-        logPaths("Invalidate", paths)
-        client.invalidatePaths(paths)
+            logPaths("Invalidate", paths)
+            client.invalidatePaths(paths)
+        }
     }
 
-    collection.addFiles.set { paths ->
-        if (paths.isEmpty()) return@set emptyList()
+    collection.addFiles.set { _, (pathList, context) ->
+        traced("addFiles", context) {
+            val paths = pathList.toLocalPaths()
+            if (paths.isEmpty()) return@traced emptyList<TfsLocalPath>().toPathList()
 
-        logPaths("Add", paths)
-        client.addFiles(paths)
+            logPaths("Add", paths)
+            client.addFiles(paths).toPathList()
+        }
     }
 
-    collection.deleteFilesRecursively.set { paths ->
-        if (paths.isEmpty()) return@set TfsDeleteResult(emptyList(), emptyList(), emptyList())
+    collection.deleteFilesRecursively.set { _, request ->
+        traced("deleteFilesRecursively", request.context) {
+            val paths = request.toPaths()
+            if (paths.isEmpty()) return@traced TfsDeleteResult(emptyList(), emptyList(), emptyList())
 
-        logPaths("Recursive Delete", paths)
-        client.deletePathsRecursively(paths)
+            logPaths("Recursive Delete", paths)
+            client.deletePathsRecursively(paths)
+        }
     }
 
-    collection.undoLocalChanges.set { paths ->
-        if (paths.isEmpty()) return@set emptyList()
+    collection.undoLocalChanges.set { _, request ->
+        traced("undoLocalChanges", request.context) {
+            val paths = request.toPaths()
+            if (paths.isEmpty()) return@traced emptyList<TfsLocalPath>().toPathList()
+
+            logPaths("Undo", paths)
+            client.undoLocalChanges(paths).toPathList()
+        }
+    }
 
-        logPaths("Undo", paths)
-        client.undoLocalChanges(paths)
+    collection.checkoutFilesForEdit.set { _, parameters ->
+        traced("checkoutFilesForEdit", parameters.context) {
+            logPaths("Checkout (recursive: ${parameters.recursive})", parameters.filePaths)
+            client.checkoutFilesForEdit(parameters.filePaths, parameters.recursive)
+        }
     }
 
-    collection.checkoutFilesForEdit.set { parameters ->
-        logPaths("Checkout (recursive: ${parameters.recursive})", parameters.filePaths)
-        client.checkoutFilesForEdit(parameters.filePaths, parameters.recursive)
+    collection.renameFile.set { _, (oldPath, newPath, context) ->
+        traced("renameFile", context) {
+            logger.info { "Performing Rename operation on \"${oldPath.path}\" to \"${newPath.path}\"" }
+            client.renameFile(oldPath, newPath)
+        }
     }
 
-    collection.renameFile.set { (oldPath, newPath) ->
-        logger.info { "Performing Rename operation on \"${oldPath.path}\" to \"${newPath.path}\"" }
-        client.renameFile(oldPath, newPath)
+    collection.checkin.set { _, parameters ->
+        traced("checkin", parameters.context) {
+            if (parameters.filePaths.isEmpty()) return@traced TfsCheckinResult(0, emptyList())
+
+            logPaths("Checkin (work items: ${parameters.workItemIds.joinToString()})", parameters.filePaths)
+            client.checkin(parameters.filePaths, parameters.comment, parameters.workItemIds) { progress ->
+                collection.checkinProgress.fire(progress)
+            }
+        }
     }
 
     client.workspaces.advise(lifetime) { workspaces ->
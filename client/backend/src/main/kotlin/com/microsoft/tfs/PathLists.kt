@@ -0,0 +1,79 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs
+
+import com.microsoft.tfs.common.FrontCodedPaths
+import com.microsoft.tfs.model.host.*
+
+/**
+ * Front-codes the paths for the protocol, see [FrontCodedPaths].
+ */
+fun encodePathList(paths: List<String?>): TfsPathList =
+    FrontCodedPaths.encode(paths).run { TfsPathList(sharedPrefixLengths, suffixes) }
+
+fun TfsPathList.decode(): List<String?> =
+    FrontCodedPaths(sharedPrefixLengths, suffixes).decode()
+
+fun List<TfsLocalPath>.toPathList(): TfsPathList =
+    encodePathList(map { it.path })
+
+fun TfsPathList.toLocalPaths(): List<TfsLocalPath> =
+    decode().map { TfsLocalPath(it ?: throw IllegalArgumentException("Null path in a local path list")) }
+
+fun TfsPathsRequest.toPaths(): List<TfsPath> =
+    localPaths.toLocalPaths() + serverPaths
+
+fun List<TfsPendingChange>.toPendingChangeList(): TfsPendingChangeList =
+    TfsPendingChangeList(
+        encodePathList(map { it.serverItem }),
+        encodePathList(map { it.localItem }),
+        map {
+            TfsPendingChange(
+                "",
+                "",
+                it.version,
+                it.owner,
+                it.date,
+                it.lock,
+                it.changeTypes,
+                it.workspace,
+                it.computer,
+                it.isCandidate,
+                it.sourceItem,
+                it.hashValue)
+        })
+
+fun List<TfsLocalItemInfo>.toLocalItemInfoList(): TfsLocalItemInfoList =
+    TfsLocalItemInfoList(
+        encodePathList(map { it.serverItem }),
+        encodePathList(map { it.localItem }),
+        map {
+            TfsLocalItemInfo(
+                null,
+                null,
+                it.localVersion,
+                it.serverVersion,
+                it.change,
+                it.type,
+                it.lastModified,
+                it.fileEncoding)
+        })
+
+fun List<TfsExtendedItemInfo>.toExtendedItemInfoList(): TfsExtendedItemInfoList =
+    TfsExtendedItemInfoList(
+        encodePathList(map { it.serverItem }),
+        encodePathList(map { it.localItem }),
+        map {
+            TfsExtendedItemInfo(
+                it.lock,
+                it.lockOwner,
+                null,
+                null,
+                it.localVersion,
+                it.serverVersion,
+                it.change,
+                it.type,
+                it.lastModified,
+                it.fileEncoding)
+        })
@@ -0,0 +1,35 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs
+
+/**
+ * The pending changes returned by the last status query of every path. A status query finds the changes made outside
+ * of the SDK (e.g. the edits detected by the local workspace scanner), which fire no pending change event, so it reports
+ * the items whose change appeared, differs or disappeared since the previous query to [onChanged]. The items without
+ * any difference keep their cached infos.
+ */
+class PendingChangeTracker<T>(private val onChanged: (String) -> Unit) {
+    private val changes = newPathMap<T>()
+
+    /**
+     * Records the changes returned by a recursive status query of the [scopes], by canonical local path.
+     */
+    @Synchronized
+    fun update(scopes: List<String>, newChanges: Map<String, T>) {
+        val pathMap = newPathMap<T>().also { it.putAll(newChanges) }
+        for (scope in scopes) {
+            val previousPaths = changes.under(scope).keys.toList() + listOfNotNull(scope.takeIf(changes::containsKey))
+            for (path in previousPaths) {
+                if (pathMap.containsKey(path)) continue
+
+                changes.remove(path)
+                onChanged(path)
+            }
+        }
+
+        for ((path, change) in pathMap) {
+            if (changes.put(path, change) != change) onChanged(path)
+        }
+    }
+}
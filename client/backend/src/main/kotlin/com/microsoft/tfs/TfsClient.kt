@@ -14,14 +14,17 @@ import com.microsoft.tfs.core.clients.versioncontrol.events.NewPendingChangeList
 import com.microsoft.tfs.core.clients.versioncontrol.events.NonFatalErrorListener
 import com.microsoft.tfs.core.clients.versioncontrol.events.PendingChangeEvent
 import com.microsoft.tfs.core.clients.versioncontrol.events.UndonePendingChangeListener
+import com.microsoft.tfs.core.clients.versioncontrol.path.LocalPath
 import com.microsoft.tfs.core.clients.versioncontrol.soapextensions.*
 import com.microsoft.tfs.core.clients.versioncontrol.specs.ItemSpec
 import com.microsoft.tfs.core.httpclient.Credentials
+import com.microsoft.tfs.core.httpclient.auth.AuthScope
 import com.microsoft.tfs.model.host.*
 import com.microsoft.tfs.sdk.*
 import com.microsoft.tfs.watcher.ExternallyControlledPathWatcherFactory
 import java.net.URI
 import java.nio.file.Paths
+import java.util.concurrent.Executors
 
 class TfsClient(lifetime: Lifetime, serverUri: URI, credentials: Credentials) {
     companion object {
@@ -29,9 +32,13 @@ class TfsClient(lifetime: Lifetime, serverUri: URI, credentials: Credentials) {
     }
 
     val client: VersionControlClient
+    private val collection = TFSTeamProjectCollection(serverUri, credentials)
     private val pathWatcherFactory = ExternallyControlledPathWatcherFactory(lifetime)
+    private val checkinEngine: CheckinEngine
+    private val localItemsInfoCache = ItemInfoCache<TfsLocalItemInfo>()
+    private val extendedItemsInfoCache = ItemInfoCache<TfsExtendedItemInfo>()
+    private val pendingChangeTracker = PendingChangeTracker<TfsPendingChange>(::invalidateCachedItems)
     init {
-        val collection = TFSTeamProjectCollection(serverUri, credentials)
         lifetime.onTermination { collection.close() }
 
         client = collection.versionControlClient.also {
@@ -39,7 +46,36 @@ class TfsClient(lifetime: Lifetime, serverUri: URI, credentials: Credentials) {
             it.eventEngine.addNonFatalErrorListener { event ->
                 logger.warn { event.message }
             }
+
+            // The item info caches follow the changes made through any client of the collection
+            it.eventEngine.addNewPendingChangeListener { event ->
+                invalidateCachedItems(event.pendingChange.localItem)
+                invalidateCachedItems(event.pendingChange.sourceLocalItem)
+            }
+            it.eventEngine.addUndonePendingChangeListener { event ->
+                invalidateCachedItems(event.pendingChange.localItem)
+                invalidateCachedItems(event.pendingChange.sourceLocalItem)
+            }
+            it.eventEngine.addGetListener { event ->
+                invalidateCachedItems(event.targetLocalItem)
+                invalidateCachedItems(event.operation?.sourceLocalItem)
+            }
+            it.eventEngine.addCheckinListener {
+                localItemsInfoCache.invalidateAll()
+                extendedItemsInfoCache.invalidateAll()
+            }
         }
+
+        val checkinValidators = Executors.newCachedThreadPool()
+        lifetime.onTermination { checkinValidators.shutdown() }
+        checkinEngine = CheckinEngine(client, collection.workItemClient, checkinValidators)
+    }
+
+    /**
+     * Replaces the credentials of the connection for the next requests, keeping the client with its workspace cache.
+     */
+    fun updateCredentials(credentials: Credentials) {
+        collection.getHTTPClient().state.setCredentials(AuthScope.ANY, credentials)
     }
 
     val workspaces = Property<List<Workspace>>(listOf())
@@ -78,42 +114,79 @@ class TfsClient(lifetime: Lifetime, serverUri: URI, credentials: Credentials) {
             )
             val pendingSets = client.queryPendingSets(itemSpecs, false, workspaceName, workspaceOwner, true)
             results.addAll(pendingSets)
+
+            val localChanges = pendingSets.asSequence()
+                .flatMap { toPendingChanges(it).asSequence() }
+                .filter { it.localItem.isNotEmpty() }
+                .associateBy { LocalPath.canonicalize(it.localItem) }
+            pendingChangeTracker.update(itemSpecs.map { it.item }, localChanges)
         }
 
         return results
     }
 
+    val itemCacheStatistics: TfsItemCacheStatistics
+        get() = localItemsInfoCache.getStatistics() + extendedItemsInfoCache.getStatistics()
+
+    private fun invalidateCachedItems(path: String?) {
+        if (path == null) return
+        val canonicalPath = LocalPath.canonicalize(path)
+        localItemsInfoCache.invalidate(canonicalPath)
+        extendedItemsInfoCache.invalidate(canonicalPath)
+    }
+
     private fun <TInfo>getLocalItemsInfo(
         paths: List<TfsLocalPath>,
         extended: Boolean,
+        cache: ItemInfoCache<TInfo>,
         converter: (ExtendedItem) -> TInfo
     ): List<TInfo> {
-        val infos = ArrayList<TInfo>(paths.size)
-        enumeratePathsWithWorkspace(paths) { workspace, workspacePaths ->
+        val start = System.nanoTime()
+        // Taken before the query, so the results of a query racing with a change are not cached
+        val queryVersion = cache.version
+        val canonicalPaths = paths.map { it.toCanonicalPathString() }
+        val cachedInfos = canonicalPaths.map { cache.get(it) }
+        val queriedInfos = mutableMapOf<String, List<TInfo>>()
+        val missedPaths = paths.filterIndexed { index, _ -> cachedInfos[index] == null }
+        cache.reserve(missedPaths.size)
+        enumeratePathsWithWorkspace(missedPaths) { workspace, workspacePaths ->
             // Pass NONE to get lock info in extended mode.
             val downloadType = if (extended) GetItemsOptions.NONE else GetItemsOptions.LOCAL_ONLY
             val itemSpecs = workspacePaths.mapToArray { it.toCanonicalPathItemSpec(RecursionType.NONE) }
             val extendedItems = workspace.getExtendedItems(itemSpecs, DeletedState.ANY, ItemType.ANY, downloadType)
-                .asSequence()
-                .flatMap { it.asSequence() }
 
-            for (extendedItem in extendedItems) {
-                infos.add(converter(extendedItem))
+            // One array of items per spec, in the order of the specs
+            for ((index, items) in extendedItems.withIndex()) {
+                val path = workspacePaths[index].toCanonicalPathString()
+                val infos = items?.map(converter) ?: emptyList()
+                queriedInfos[path] = infos
+                cache.put(path, infos, queryVersion)
             }
         }
 
+        val infos = ArrayList<TInfo>(paths.size)
+        for ((index, path) in canonicalPaths.withIndex()) {
+            (cachedInfos[index] ?: queriedInfos[path])?.let { infos.addAll(it) }
+        }
+
+        cache.recordCall(missedPaths.size, System.nanoTime() - start)
         return infos
     }
 
-    fun getLocalItemsInfo(paths: List<TfsLocalPath>): List<TfsLocalItemInfo> = getLocalItemsInfo(paths, false) {
-        it.toLocalItemInfo()
-    }
+    fun getLocalItemsInfo(paths: List<TfsLocalPath>): List<TfsLocalItemInfo> =
+        getLocalItemsInfo(paths, false, localItemsInfoCache) {
+            it.toLocalItemInfo()
+        }
 
     fun getExtendedLocalItemsInfo(paths: List<TfsLocalPath>): List<TfsExtendedItemInfo> =
-        getLocalItemsInfo(paths, true) {
+        getLocalItemsInfo(paths, true, extendedItemsInfoCache) {
             it.toExtendedItemInfo()
         }
 
+    /**
+     * Makes the next status query rescan the paths. The cached item infos are kept: the status query drops the ones
+     * whose pending change differs (see [PendingChangeTracker]).
+     */
     fun invalidatePaths(paths: List<TfsLocalPath>) {
         pathWatcherFactory.pathsInvalidated.fire(paths.map { Paths.get(it.path) })
     }
@@ -267,4 +340,21 @@ class TfsClient(lifetime: Lifetime, serverUri: URI, credentials: Credentials) {
 
         return changedItems == 1
     }
+
+    fun checkin(
+        paths: List<TfsLocalPath>,
+        comment: String,
+        workItemIds: List<Int>,
+        onProgress: (TfvcCheckinProgress) -> Unit
+    ): TfsCheckinResult {
+        val pathsByWorkspace = paths.groupBy(::getWorkspaceFor)
+        if (pathsByWorkspace.size > 1) {
+            return TfsCheckinResult(0, listOf("Cannot check in files from more than one workspace at once"))
+        }
+
+        val workspace = pathsByWorkspace.keys.singleOrNull()
+            ?: return TfsCheckinResult(0, listOf("Could not determine workspace for paths: " + paths.joinToString()))
+
+        return checkinEngine.checkin(workspace, paths, comment, workItemIds, onProgress)
+    }
 }
@@ -3,6 +3,7 @@
 
 package com.microsoft.tfs.sdk
 
+import com.microsoft.tfs.core.clients.versioncontrol.events.BeforeCheckinListener
 import com.microsoft.tfs.core.clients.versioncontrol.events.NewPendingChangeListener
 import com.microsoft.tfs.core.clients.versioncontrol.events.NonFatalErrorListener
 import com.microsoft.tfs.core.clients.versioncontrol.events.UndonePendingChangeListener
@@ -41,3 +42,14 @@ fun VersionControlEventEngine.withNonFatalErrorListener(
         removeNonFatalErrorListener(listener)
     }
 }
+
+fun VersionControlEventEngine.withBeforeCheckinListener(
+    listener: BeforeCheckinListener,
+    action: () -> Unit) {
+    addBeforeCheckinListener(listener)
+    try {
+        action()
+    } finally {
+        removeBeforeCheckinListener(listener)
+    }
+}
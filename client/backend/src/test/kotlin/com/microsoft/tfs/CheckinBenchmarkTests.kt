@@ -0,0 +1,68 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs
+
+import com.jetbrains.rd.util.info
+import com.microsoft.tfs.model.host.TfsLocalPath
+import com.microsoft.tfs.tests.TfsClientTestFixture
+import com.microsoft.tfs.tests.cloneTestRepository
+import com.microsoft.tfs.tests.createClient
+import com.microsoft.tfs.tests.tfCheckin
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import java.nio.file.Path
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Compares the checkin of 5,000 added files through the checkin engine of the client with the checkin through the
+ * command line client: the total time, and for the engine the time until the first item is uploaded.
+ */
+class CheckinBenchmarkTests : TfsClientTestFixture() {
+    companion object {
+        private val logger = Logging.getLogger<CheckinBenchmarkTests>()
+        private const val FILE_COUNT = 5000
+    }
+
+    override fun cloneRepository(): Path =
+        cloneTestRepository()
+
+    private fun addFiles(client: TfsClient, folderName: String): List<TfsLocalPath> {
+        val folder = workspacePath.resolve(folderName)
+        val paths = (0 until FILE_COUNT).map { i ->
+            val file = folder.resolve("folder${i / 100}").resolve("File$i.java")
+            createTestFile(file)
+            TfsLocalPath(file.toString())
+        }
+
+        assertEquals(FILE_COUNT, client.addFiles(paths).size)
+        return paths
+    }
+
+    // @Test for manual run only, because it checks 10,000 files into the test project
+    fun compareCheckinOf5000Files() {
+        val client = createClient(testLifetime)
+
+        val enginePaths = addFiles(client, "engine")
+        val start = System.nanoTime()
+        val firstUploadNanos = AtomicLong(-1L)
+        val result = client.checkin(enginePaths, "Checkin engine benchmark", emptyList()) {
+            firstUploadNanos.compareAndSet(-1L, System.nanoTime() - start)
+        }
+        val engineMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+        assertEquals(emptyList<String>(), result.errorMessages)
+        assertNotEquals(0, result.changesetNumber)
+
+        addFiles(client, "clc")
+        val clcStart = System.nanoTime()
+        tfCheckin(workspacePath, "Command line checkin benchmark", "clc")
+        val clcMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - clcStart)
+
+        logger.info {
+            "Checkin of $FILE_COUNT files: engine $engineMillis ms " +
+                    "(first item after ${TimeUnit.NANOSECONDS.toMillis(firstUploadNanos.get())} ms), " +
+                    "command line client $clcMillis ms"
+        }
+    }
+}
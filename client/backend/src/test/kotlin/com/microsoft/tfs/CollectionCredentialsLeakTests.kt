@@ -0,0 +1,124 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs
+
+import com.jetbrains.rd.framework.IdKind
+import com.jetbrains.rd.framework.Identities
+import com.jetbrains.rd.framework.Protocol
+import com.jetbrains.rd.framework.Serializers
+import com.jetbrains.rd.framework.SocketWire
+import com.jetbrains.rd.framework.impl.RdSecureString
+import com.jetbrains.rd.util.info
+import com.jetbrains.rd.util.threading.SingleThreadScheduler
+import com.microsoft.tfs.connector.CallTrace
+import com.microsoft.tfs.connector.ReactiveClientConnection
+import com.microsoft.tfs.model.connector.TfsCallTimings
+import com.microsoft.tfs.model.connector.TfsCollection
+import com.microsoft.tfs.model.connector.TfsCredentials
+import com.microsoft.tfs.model.connector.TfsLocalPath
+import com.microsoft.tfs.model.host.TfsModel
+import com.microsoft.tfs.tests.IntegrationTestUtils
+import com.microsoft.tfs.tests.TfsClientTestFixture
+import com.microsoft.tfs.tests.cloneTestRepository
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.net.URI
+import java.nio.file.Path
+import java.util.UUID
+import java.util.concurrent.CompletionStage
+import java.util.concurrent.TimeUnit
+
+/**
+ * Rotates the credentials of a collection through the connector of the plugin, as the plugin does when the user signs
+ * in again, and checks that the backend keeps a single client for it, without growing the heap.
+ */
+class CollectionCredentialsLeakTests : TfsClientTestFixture() {
+    companion object {
+        private val logger = Logging.getLogger<CollectionCredentialsLeakTests>()
+        private const val ROTATIONS = 100
+        private const val ALLOWED_GROWTH_BYTES = 16L * 1024 * 1024
+        private const val TIMEOUT_SECONDS = 60L
+    }
+
+    private object NoTrace : CallTrace {
+        override fun nextCallId() = UUID.randomUUID().toString()
+        override fun callSent(serializationNanos: Long) {}
+        override fun backendTimingsReceived(timings: TfsCallTimings) {}
+        override fun callCompleted(roundTripNanos: Long) {}
+    }
+
+    override fun cloneRepository(): Path =
+        cloneTestRepository()
+
+    private fun <T> CompletionStage<T>.await(): T =
+        toCompletableFuture().get(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+
+    private fun usedHeapAfterGc(): Long {
+        repeat(3) {
+            System.gc()
+            Thread.sleep(100L)
+        }
+        return Runtime.getRuntime().run { totalMemory() - freeMemory() }
+    }
+
+    /**
+     * Connects to an in-process backend, served like the one started by the plugin.
+     */
+    private fun connectToBackend(): ReactiveClientConnection {
+        val connectionLifetime = testLifetime.createNested()
+        val connection = ReactiveClientConnection(
+            connectionLifetime,
+            SingleThreadScheduler(connectionLifetime, "CollectionCredentialsLeakConnection"))
+        val started = connection.startAsync()
+
+        val backendLifetime = testLifetime.createNested()
+        val backendScheduler = SingleThreadScheduler(backendLifetime, "CollectionCredentialsLeakBackend")
+        val socket = SocketWire.Client(
+            backendLifetime,
+            backendScheduler,
+            connection.port,
+            "CollectionCredentialsLeakSocket")
+        val protocol = Protocol(Serializers(), Identities(IdKind.Client), backendScheduler, socket, backendLifetime)
+        backendScheduler.queue {
+            bindModel(backendLifetime, backendScheduler, TfsModel.create(backendLifetime, protocol))
+        }
+
+        started.await()
+        return connection
+    }
+
+    @Test
+    fun credentialRotationShouldNotLeak() {
+        val connection = connectToBackend()
+        val serverUri = URI(IntegrationTestUtils.serverUrl)
+        val workspace = listOf(TfsLocalPath(workspacePath.toString()))
+        fun credentials(password: String) = TfsCredentials(IntegrationTestUtils.user, RdSecureString(password))
+
+        val collection = connection.getOrCreateCollectionAsync(serverUri, credentials(IntegrationTestUtils.pass))
+            .await()
+        connection.waitForReadyAsync(collection).await()
+        connection.getPendingChangesAsync(collection, workspace, NoTrace).await()
+
+        val heapBefore = usedHeapAfterGc()
+        for (i in 1..ROTATIONS) {
+            val isValid = i % 2 == 0
+            val password = if (isValid) IntegrationTestUtils.pass else "wrong-password-$i"
+            val rotated = connection.getOrCreateCollectionAsync(serverUri, credentials(password)).await()
+            assertSame("Rotation $i should reuse the collection", collection, rotated)
+            assertEquals("Rotation $i should keep a single collection", 1, connection.model.collections.size)
+
+            // the server may or may not refuse the wrong passwords at once, depending on its session cookies
+            val request = runCatching { connection.getPendingChangesAsync(collection, workspace, NoTrace).await() }
+            if (isValid) request.getOrThrow()
+        }
+        val heapAfter = usedHeapAfterGc()
+
+        logger.info { "Heap used after $ROTATIONS credential rotations: $heapBefore -> $heapAfter bytes" }
+        assertTrue("Heap grew from $heapBefore to $heapAfter bytes",
+            heapAfter - heapBefore < ALLOWED_GROWTH_BYTES)
+        assertTrue("Collection should stay ready", collection.isReady.value)
+    }
+}
@@ -0,0 +1,94 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs
+
+import com.jetbrains.rd.util.info
+import com.jetbrains.rd.util.reactive.Property
+import com.jetbrains.rd.util.threading.SingleThreadScheduler
+import com.microsoft.tfs.model.host.TfsBackendHealth
+import com.microsoft.tfs.model.host.TfsLocalPath
+import com.microsoft.tfs.tests.TfsClientTestFixture
+import com.microsoft.tfs.tests.cloneTestRepository
+import com.microsoft.tfs.tests.createClient
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertTrue
+import java.nio.file.Path
+import java.util.concurrent.TimeUnit
+
+/**
+ * Replays the status refreshes of the plugin against a workspace with 1,000 added files for a long time (60 minutes
+ * by default, or -Dsoak.minutes), and checks through the health statistics that the live heap doesn't grow after the
+ * warm-up and that the GC overhead stays low.
+ */
+class HealthSoakTests : TfsClientTestFixture() {
+    companion object {
+        private val logger = Logging.getLogger<HealthSoakTests>()
+        private const val FILE_COUNT = 1000
+        private const val REFRESH_INTERVAL_MILLIS = 100L
+        private const val WARM_UP_MINUTES = 5L
+    }
+
+    override fun cloneRepository(): Path =
+        cloneTestRepository()
+
+    private fun awaitHealthAfterGc(health: Property<TfsBackendHealth?>): TfsBackendHealth {
+        System.gc()
+        Thread.sleep(TimeUnit.SECONDS.toMillis(HealthMonitor.INTERVAL_SECONDS + 1))
+        return health.value.also { assertNotNull("No health statistics published", it) }!!
+    }
+
+    // @Test for manual run only, because it takes an hour
+    fun statusLoadShouldNotLeak() {
+        val minutes = System.getProperty("soak.minutes")?.toLong() ?: 60L
+        val client = createClient(testLifetime)
+        val health = Property<TfsBackendHealth?>(null)
+        val monitor = HealthMonitor(testLifetime, SingleThreadScheduler(testLifetime, "HealthSoakScheduler"), health)
+        monitor.register(testLifetime, client)
+
+        val paths = (0 until FILE_COUNT).map { i ->
+            val file = workspacePath.resolve("soak").resolve("folder${i / 100}").resolve("File$i.java")
+            createTestFile(file)
+            TfsLocalPath(file.toString())
+        }
+        assertEquals(FILE_COUNT, client.addFiles(paths).size)
+
+        val root = listOf(TfsLocalPath(workspacePath.toString()))
+        val start = System.nanoTime()
+        val end = start + TimeUnit.MINUTES.toNanos(minutes)
+        var warmHealth: TfsBackendHealth? = null
+        var refreshes = 0L
+        while (System.nanoTime() < end) {
+            val file = paths[(refreshes % FILE_COUNT).toInt()]
+            client.invalidatePaths(listOf(file))
+            assertEquals(FILE_COUNT, client.status(root).sumBy { it.pendingChanges.size })
+            client.status(listOf(file))
+            refreshes++
+
+            val elapsedMinutes = TimeUnit.NANOSECONDS.toMinutes(System.nanoTime() - start)
+            if (warmHealth == null && elapsedMinutes >= WARM_UP_MINUTES) {
+                val afterWarmUp = awaitHealthAfterGc(health)
+                logger.info { "After warm-up: live heap ${afterWarmUp.liveHeapBytes / 1024 / 1024} MB" }
+                warmHealth = afterWarmUp
+            }
+
+            Thread.sleep(REFRESH_INTERVAL_MILLIS)
+        }
+
+        val finalHealth = awaitHealthAfterGc(health)
+        val baseline = warmHealth ?: finalHealth
+        val gcOverhead = finalHealth.gcPauseMillis.toDouble() / finalHealth.uptimeMillis
+        logger.info {
+            "$refreshes refreshes in $minutes minutes: live heap ${finalHealth.liveHeapBytes / 1024 / 1024} MB " +
+                    "(peak ${finalHealth.peakLiveHeapBytes / 1024 / 1024} MB), ${finalHealth.gcCount} collections, " +
+                    "GC overhead ${String.format("%.1f", gcOverhead * 100)}%, " +
+                    "${finalHealth.workspaceItemCount} workspace items"
+        }
+
+        val allowedBytes = baseline.liveHeapBytes * 3 / 2 + 32L * 1024 * 1024
+        assertTrue("Live heap grew from ${baseline.liveHeapBytes} to ${finalHealth.liveHeapBytes} bytes",
+            finalHealth.liveHeapBytes <= allowedBytes)
+        assertTrue("GC overhead is $gcOverhead", gcOverhead < 0.1)
+    }
+}
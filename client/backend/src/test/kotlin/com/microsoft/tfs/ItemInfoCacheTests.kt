@@ -0,0 +1,105 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+import java.io.File
+
+class ItemInfoCacheTests {
+    companion object {
+        private val root = listOf("", "work", "project").joinToString(File.separator)
+        private val file = listOf(root, "src", "File.java").joinToString(File.separator)
+        private val sibling = "$root-other${File.separator}File.java"
+    }
+
+    private var now = 0L
+    private val cache = ItemInfoCache<String>(ttlMillis = 1000L, maxEntries = 3, clock = { now })
+
+    @Test
+    fun cachedInfosShouldBeReturnedUntilExpired() {
+        cache.put(file, listOf("info"), cache.version)
+        assertEquals(listOf("info"), cache.get(file))
+
+        now += 1000L
+        assertNull(cache.get(file))
+
+        val statistics = cache.getStatistics()
+        assertEquals(1L, statistics.hits)
+        assertEquals(1L, statistics.misses)
+    }
+
+    @Test
+    fun invalidationShouldDropThePathAndTheItemsUnderIt() {
+        cache.put(root, listOf("root"), cache.version)
+        cache.put(file, listOf("file"), cache.version)
+        cache.put(sibling, listOf("sibling"), cache.version)
+
+        cache.invalidate(root)
+
+        assertNull(cache.get(root))
+        assertNull(cache.get(file))
+        assertEquals(listOf("sibling"), cache.get(sibling))
+    }
+
+    @Test
+    fun infosQueriedBeforeAnInvalidationShouldNotBeCached() {
+        val queryVersion = cache.version
+        cache.invalidate(file)
+        cache.put(file, listOf("stale"), queryVersion)
+
+        assertNull(cache.get(file))
+    }
+
+    @Test
+    fun cachedInfosShouldSurviveAStatusRefreshWithoutChanges() {
+        val tracker = PendingChangeTracker<String>(cache::invalidate)
+        tracker.update(listOf(root), mapOf(file to "edit"))
+        cache.put(file, listOf("info"), cache.version)
+        cache.put(sibling, listOf("sibling"), cache.version)
+
+        tracker.update(listOf(root), mapOf(file to "edit"))
+
+        assertEquals(listOf("info"), cache.get(file))
+        assertEquals(listOf("sibling"), cache.get(sibling))
+    }
+
+    @Test
+    fun statusRefreshShouldDropTheInfosOfChangedItems() {
+        val added = listOf(root, "src", "Added.java").joinToString(File.separator)
+        val tracker = PendingChangeTracker<String>(cache::invalidate)
+        tracker.update(listOf(root), mapOf(file to "edit"))
+        cache.put(file, listOf("file"), cache.version)
+        cache.put(added, listOf("added"), cache.version)
+
+        // The edit was undone and the file was added outside of the SDK
+        tracker.update(listOf(root), mapOf(added to "add"))
+
+        assertNull(cache.get(file))
+        assertNull(cache.get(added))
+    }
+
+    @Test
+    fun bulkQueryShouldStartAfresh() {
+        cache.put(file, listOf("file"), cache.version)
+        cache.reserve(2)
+        assertEquals(listOf("file"), cache.get(file))
+
+        cache.reserve(3)
+        assertNull(cache.get(file))
+    }
+
+    @Test
+    fun callsShouldBeRecordedAsCachedOrServerCalls() {
+        cache.recordCall(0, 2000L)
+        cache.recordCall(2, 5_000_000L)
+
+        val statistics = cache.getStatistics() + emptyItemCacheStatistics
+        assertEquals(1L, statistics.cachedCalls)
+        assertEquals(2L, statistics.cachedCallMicros)
+        assertEquals(1L, statistics.serverCalls)
+        assertEquals(5000L, statistics.serverCallMicros)
+    }
+}
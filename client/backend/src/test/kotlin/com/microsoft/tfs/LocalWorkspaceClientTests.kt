@@ -5,6 +5,7 @@ package com.microsoft.tfs
 
 import com.microsoft.tfs.core.clients.versioncontrol.soapextensions.ChangeType
 import com.microsoft.tfs.model.host.TfsLocalPath
+import com.microsoft.tfs.model.host.TfvcCheckinProgress
 import com.microsoft.tfs.tests.TfsClientTestFixture
 import com.microsoft.tfs.tests.cloneTestRepository
 import com.microsoft.tfs.tests.createClient
@@ -72,4 +73,31 @@ class LocalWorkspaceClientTests : TfsClientTestFixture() {
 
         assertTrue(result)
     }
+
+    @Test
+    fun checkinShouldBeRejectedBeforeUploadIfWorkItemDoesNotExist() {
+        val client = createClient(testLifetime)
+        val newFilePath = workspacePath.resolve("new_readme.txt")
+        newFilePath.toFile().writeText("test")
+        val localPathList = listOf(TfsLocalPath(newFilePath.toString()))
+        client.addFiles(localPathList)
+
+        val progress = mutableListOf<TfvcCheckinProgress>()
+        val result = client.checkin(localPathList, "test", listOf(Int.MAX_VALUE)) { progress.add(it) }
+
+        assertEquals(0, result.changesetNumber)
+        assertEquals(listOf("Work item #${Int.MAX_VALUE} does not exist"), result.errorMessages)
+        assertEquals(emptyList<TfvcCheckinProgress>(), progress)
+    }
+
+    @Test
+    fun checkinShouldReportFilesWithoutPendingChanges() {
+        val client = createClient(testLifetime)
+        val filePath = workspacePath.resolve("readme.txt")
+
+        val result = client.checkin(listOf(TfsLocalPath(filePath.toString())), "test", emptyList()) { }
+
+        assertEquals(0, result.changesetNumber)
+        assertEquals(listOf("No pending changes to check in"), result.errorMessages)
+    }
 }
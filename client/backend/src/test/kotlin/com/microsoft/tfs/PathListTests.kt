@@ -0,0 +1,116 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs
+
+import com.jetbrains.rd.framework.AbstractBuffer
+import com.jetbrains.rd.framework.SerializationCtx
+import com.jetbrains.rd.framework.Serializers
+import com.jetbrains.rd.framework.createAbstractBuffer
+import com.jetbrains.rd.util.info
+import com.microsoft.tfs.model.host.*
+import org.apache.log4j.Level
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+
+class PathListTests {
+    companion object {
+        private val logger = Logging.getLogger<PathListTests>()
+        private const val WORKSPACE_ROOT = "/home/developer/projects/contoso/enterprise/src/main/java/com/contoso"
+        private const val BENCHMARK_PATH_COUNT = 100_000
+        private const val BENCHMARK_RUNS = 5
+    }
+
+    @Test
+    fun pendingChangeListShouldRoundTrip() {
+        val change = TfsPendingChange(
+            "$/Contoso/a/File1.java",
+            "$WORKSPACE_ROOT/a/File1.java",
+            12,
+            "owner",
+            "2019-01-01T00:00:00.000+0000",
+            "none",
+            listOf(TfsServerStatusType.EDIT),
+            "workspace",
+            "computer",
+            false,
+            null,
+            null)
+
+        val changeList = listOf(change).toPendingChangeList()
+
+        assertEquals(listOf("$/Contoso/a/File1.java"), changeList.serverItems.decode())
+        assertEquals(listOf("$WORKSPACE_ROOT/a/File1.java"), changeList.localItems.decode())
+        assertEquals("", changeList.changes.single().serverItem)
+        assertEquals("", changeList.changes.single().localItem)
+    }
+
+    private fun benchmarkPaths(): List<TfsLocalPath> =
+        (0 until BENCHMARK_PATH_COUNT).map { i ->
+            TfsLocalPath("$WORKSPACE_ROOT/module${i / 10_000}/folder${i / 100}/File$i.java")
+        }
+
+    private fun itemInfo(path: TfsLocalPath) =
+        TfsLocalItemInfo(
+            path.path.replace(WORKSPACE_ROOT, "$/Contoso/Main"),
+            path.path,
+            42,
+            42,
+            "none",
+            "file",
+            "2019-01-01T00:00:00.000+0000",
+            "UTF-8")
+
+    private fun measure(
+        title: String,
+        write: (SerializationCtx, AbstractBuffer) -> Unit,
+        read: (SerializationCtx, AbstractBuffer) -> Any) {
+        val ctx = SerializationCtx(Serializers())
+        var bytes = 0
+        var bestNanos = Long.MAX_VALUE
+        repeat(BENCHMARK_RUNS) {
+            val start = System.nanoTime()
+            val buffer = createAbstractBuffer()
+            write(ctx, buffer)
+            bytes = buffer.position
+            buffer.position = 0
+            read(ctx, buffer)
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start)
+        }
+        logger.info { "$title: $bytes bytes, encoded and decoded in ${TimeUnit.NANOSECONDS.toMillis(bestNanos)} ms" }
+    }
+
+    // @Test for manual run only, it measures the protocol payloads of 100,000 paths with and without front coding
+    fun reportPayloadsOf100kPaths() {
+        Logging.initialize(null, Level.INFO)
+        val paths = benchmarkPaths()
+        val context = TfsCallContext("benchmark.1", System.currentTimeMillis())
+
+        measure("Status request, path list",
+            { ctx, buffer ->
+                TfsLocalPathsRequest.write(ctx, buffer, TfsLocalPathsRequest(paths.toPathList(), context))
+            },
+            { ctx, buffer -> TfsLocalPathsRequest.read(ctx, buffer).paths.toLocalPaths() })
+        measure("Status request, full paths",
+            { ctx, buffer ->
+                buffer.writeInt(paths.size)
+                paths.forEach { TfsLocalPath.write(ctx, buffer, it) }
+            },
+            { ctx, buffer -> List(buffer.readInt()) { TfsLocalPath.read(ctx, buffer) } })
+
+        val itemsInfo = paths.map(::itemInfo)
+        measure("Info result, path lists",
+            { ctx, buffer -> TfsLocalItemInfoList.write(ctx, buffer, itemsInfo.toLocalItemInfoList()) },
+            { ctx, buffer ->
+                val result = TfsLocalItemInfoList.read(ctx, buffer)
+                result.serverItems.decode().zip(result.localItems.decode())
+            })
+        measure("Info result, full paths",
+            { ctx, buffer ->
+                buffer.writeInt(itemsInfo.size)
+                itemsInfo.forEach { TfsLocalItemInfo.write(ctx, buffer, it) }
+            },
+            { ctx, buffer -> List(buffer.readInt()) { TfsLocalItemInfo.read(ctx, buffer) } })
+    }
+}
@@ -0,0 +1,150 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs
+
+import com.jetbrains.rd.util.info
+import com.jetbrains.rd.util.lifetime.Lifetime
+import com.microsoft.tfs.core.clients.versioncontrol.*
+import com.microsoft.tfs.core.clients.versioncontrol.soapextensions.*
+import com.microsoft.tfs.core.httpclient.UsernamePasswordCredentials
+import com.microsoft.tfs.model.host.TfsLocalPath
+import com.microsoft.tfs.tests.LifetimedTest
+import com.microsoft.tfs.tests.TfsClientTestFixture.Companion.createTestFile
+import com.microsoft.tfs.tests.standin.Latency
+import com.microsoft.tfs.tests.standin.SoapStandInServer
+import com.microsoft.tfs.tests.standin.SyntheticRepository
+import org.apache.commons.io.FileUtils
+import org.apache.log4j.Level
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.nio.file.Files
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures the latency and throughput of the status, extended item info and checkout calls of the client against the
+ * SOAP stand-in server, for repositories of 10,000 to 1,000,000 items with 1% of them edited. Run with the
+ * standInScenarios task of the backend, which passes the settings from the Gradle properties: the repository sizes
+ * (standIn.sizes, comma-separated), the latency injected by the server (standIn.latencyMillis and
+ * standIn.perItemMicros) and the number of measured iterations (standIn.iterations).
+ */
+class StandInScenarioTests : LifetimedTest() {
+    companion object {
+        private val logger = Logging.getLogger<StandInScenarioTests>()
+        private const val WARM_UP_ITERATIONS = 3
+        private const val BATCH_SIZE = 1000
+        private const val EDITED_PERCENT = 1
+    }
+
+    private val sizes = (System.getProperty("standIn.sizes") ?: "10000,100000,1000000")
+        .split(',')
+        .map { it.trim().toInt() }
+    private val iterations = Integer.getInteger("standIn.iterations", 20)
+    private val latency = Latency(
+        java.lang.Long.getLong("standIn.latencyMillis", 0L),
+        java.lang.Long.getLong("standIn.perItemMicros", 0L))
+
+    private fun measure(
+        server: SoapStandInServer,
+        scenario: String,
+        itemCount: Int,
+        reset: () -> Unit = {},
+        action: () -> Unit) {
+        repeat(WARM_UP_ITERATIONS) {
+            action()
+            reset()
+        }
+
+        server.resetStatistics()
+        val latencies = LongArray(iterations)
+        for (i in 0 until iterations) {
+            val start = System.nanoTime()
+            action()
+            latencies[i] = System.nanoTime() - start
+            reset()
+        }
+
+        latencies.sort()
+        val totalSeconds = latencies.sum() / 1e9
+        val calls = server.getStatistics().entries.sortedBy { it.key }.joinToString { (operation, statistics) ->
+            "$operation ${statistics.calls.get() / iterations}/${statistics.responseBytes.get() / iterations} B"
+        }
+        logger.info {
+            "${server.repository.fileCount} items, $scenario of $itemCount items: " +
+                    "p50 ${TimeUnit.NANOSECONDS.toMillis(latencies[iterations / 2])} ms, " +
+                    "p95 ${TimeUnit.NANOSECONDS.toMillis(latencies[(iterations * 95 - 1) / 100])} ms, " +
+                    "max ${TimeUnit.NANOSECONDS.toMillis(latencies.last())} ms, " +
+                    "${String.format("%.1f", iterations / totalSeconds)} calls/s, " +
+                    "${(itemCount * iterations / totalSeconds).toLong()} items/s; server calls per call: $calls"
+        }
+    }
+
+    private fun runScenarios(lifetime: Lifetime, fileCount: Int) {
+        val editedCount = fileCount * EDITED_PERCENT / 100
+        val repository = SyntheticRepository(fileCount, initialEdits = editedCount)
+        val server = SoapStandInServer(lifetime, repository, latency)
+        val workspacePath = Files.createTempDirectory("adi.b.standin.").toFile().canonicalFile.toPath()
+        val client = TfsClient(
+            lifetime,
+            server.collectionUri,
+            UsernamePasswordCredentials(SoapStandInServer.USER_NAME, ""))
+        val workspace = client.client.createWorkspace(
+            arrayOf(WorkingFolder(repository.serverRoot, workspacePath.toString())),
+            workspacePath.fileName.toString(),
+            "Stand-in scenarios",
+            WorkspaceLocation.SERVER,
+            WorkspaceOptions.NONE)
+        try {
+            val root = listOf(TfsLocalPath(workspacePath.toString()))
+            measure(server, "status", editedCount) {
+                assertEquals(editedCount, client.status(root).sumBy { it.pendingChanges.size })
+            }
+
+            val batch = (0 until minOf(BATCH_SIZE, fileCount)).map {
+                TfsLocalPath(repository.localFilePath(workspacePath, it).toString())
+            }
+            measure(server, "getExtendedLocalItemsInfo", batch.size) {
+                assertEquals(batch.size, client.getExtendedLocalItemsInfo(batch).size)
+            }
+
+            // The files to check out follow the edited ones; each checkout is undone on the server and on the disk
+            val checkoutFiles = editedCount until minOf(editedCount + BATCH_SIZE, fileCount)
+            val checkoutPaths = checkoutFiles.map { file ->
+                repository.localFilePath(workspacePath, file).also { path ->
+                    createTestFile(path)
+                    path.toFile().setReadOnly()
+                }
+            }
+            val checkoutBatch = checkoutPaths.map { TfsLocalPath(it.toString()) }
+            val resetCheckout = {
+                repository.undoEdits(checkoutFiles)
+                checkoutPaths.forEach { it.toFile().setReadOnly() }
+            }
+            measure(server, "checkoutFilesForEdit", checkoutBatch.size, resetCheckout) {
+                val result = client.checkoutFilesForEdit(checkoutBatch, false)
+                assertEquals(checkoutBatch.size, result.checkedOutFiles.size)
+            }
+        } finally {
+            client.client.deleteWorkspace(workspace)
+            FileUtils.deleteDirectory(workspacePath.toFile())
+        }
+    }
+
+    @Test
+    fun scenarios() {
+        Logging.initialize(null, Level.INFO)
+        if (!java.lang.Boolean.getBoolean("standIn.scenarios")) {
+            logger.info { "Skipped, run with the standInScenarios task" }
+            return
+        }
+
+        for (size in sizes) {
+            val lifetime = testLifetime.createNested()
+            try {
+                runScenarios(lifetime, size)
+            } finally {
+                lifetime.terminate()
+            }
+        }
+    }
+}
@@ -48,6 +48,10 @@ private fun tfGet(workspacePath: Path) {
     executeClient(workspacePath, "get")
 }
 
+fun tfCheckin(workspacePath: Path, comment: String, vararg items: String) {
+    executeClient(workspacePath, "checkin", "-comment:$comment", "-recursive", *items)
+}
+
 fun cloneTestRepository(isServer: Boolean = false): Path {
     val workspacePath = Files.createTempDirectory("adi.b.test.").toFile().canonicalFile.toPath()
     val workspaceName = "${workspacePath.fileName}.${IntegrationTestUtils.workspaceNameSuffix}"
@@ -0,0 +1,132 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs.tests.standin
+
+import java.net.URI
+import java.util.UUID
+
+/**
+ * The location service of the stand-in server. The SDK connects to it first, to get the authorized user, and finds
+ * the other services through it.
+ *
+ * The stand-in doesn't know the identifiers of the services: [connect] returns no service definition, so the SDK
+ * asks for the ones it needs with [queryServices], which answers each filter with a definition carrying the requested
+ * identifier. The service types the stand-in doesn't know are located at an `.asmx` named after them, where every call
+ * fails with a fault naming the operation.
+ */
+internal class LocationService(private val collectionUri: URI, private val userName: String) {
+    companion object {
+        private const val PUBLIC_ACCESS_MAPPING = "PublicAccessMapping"
+        private const val FULLY_QUALIFIED = 3
+
+        private val servicePaths = mapOf(
+            "LocationService" to "/Services/v3.0/LocationService.asmx",
+            "IdentityManagementService" to "/Services/v3.0/IdentityManagementService.asmx",
+            "ISCCProvider" to "/VersionControl/v1.0/repository.asmx",
+            "ISCCProvider4" to "/VersionControl/v4.0/repository4.asmx",
+            "ISCCProvider5" to "/VersionControl/v5.0/repository5.asmx",
+            "Download" to "/VersionControl/v1.0/item.asmx",
+            "Upload" to "/VersionControl/v1.0/upload.asmx"
+        )
+    }
+
+    private val instanceId = UUID.randomUUID()
+    private val userId = UUID.nameUUIDFromBytes(userName.toByteArray())
+
+    val operations = mapOf<String, SoapOperation>(
+        "Connect" to ::connect,
+        "QueryServices" to ::queryServices
+    )
+
+    private fun connect(request: SoapElement) = SoapResponse {
+        element(
+            "ConnectResult",
+            "InstanceId" to instanceId,
+            "CatalogResourceId" to instanceId,
+            "ServerCapabilities" to 0,
+            "WebApplicationRelativeDirectory" to "/tfs/"
+        ) {
+            identity("AuthenticatedUser")
+            identity("AuthorizedUser")
+            element("LocationServiceData") { locationServiceData(emptyList()) }
+        }
+    }
+
+    private fun queryServices(request: SoapElement): SoapResponse {
+        val filters = request.childrenOf("serviceTypeFilters").map { filter ->
+            val serviceType = filter.attribute("ServiceType") ?: filter.attribute("serviceType") ?: "*"
+            val identifier = filter.attribute("Identifier") ?: filter.attribute("identifier")
+            serviceType to identifier
+        }
+        val definitions = filters.flatMap { (serviceType, identifier) ->
+            if (serviceType == "*") servicePaths.keys.map { it to null } else listOf(serviceType to identifier)
+        }
+
+        return SoapResponse(definitions.size) {
+            element("QueryServicesResult") { locationServiceData(definitions) }
+        }
+    }
+
+    private fun SoapWriter.identity(name: String) {
+        element(
+            name,
+            "DisplayName" to userName,
+            "IsActive" to true,
+            "TeamFoundationId" to userId,
+            "UniqueUserId" to 0,
+            "IsContainer" to false
+        ) {
+            element(
+                "Descriptor",
+                "identityType" to "System.Security.Principal.WindowsIdentity",
+                "identifier" to "S-1-5-21-0-0-0-1000"
+            )
+            element("Attributes") {
+                for ((key, value) in listOf("Account" to userName, "Domain" to "STANDIN", "SchemaClassName" to "User")) {
+                    element("KeyValueOfStringString") {
+                        text("Key", key)
+                        text("Value", value)
+                    }
+                }
+            }
+        }
+    }
+
+    // The definitions are pairs of service type and requested identifier, null for the stand-in own one
+    private fun SoapWriter.locationServiceData(definitions: List<Pair<String, String?>>) {
+        element("ServiceDefinitions") {
+            for ((serviceType, identifier) in definitions) {
+                val path = servicePaths[serviceType] ?: "/StandIn/$serviceType.asmx"
+                element(
+                    "ServiceDefinition",
+                    "serviceType" to serviceType,
+                    "identifier" to (identifier ?: UUID.nameUUIDFromBytes(serviceType.toByteArray())),
+                    "displayName" to serviceType,
+                    "relativeToSetting" to FULLY_QUALIFIED,
+                    "relativePath" to "",
+                    "toolId" to "StandIn"
+                ) {
+                    element("LocationMappings") {
+                        element(
+                            "LocationMapping",
+                            "accessMappingMoniker" to PUBLIC_ACCESS_MAPPING,
+                            "location" to "$collectionUri$path"
+                        )
+                    }
+                }
+            }
+        }
+        element("AccessMappings") {
+            element(
+                "AccessMapping",
+                "DisplayName" to "Public",
+                "Moniker" to PUBLIC_ACCESS_MAPPING,
+                "AccessPoint" to collectionUri
+            )
+        }
+        text("DefaultAccessMappingMoniker", PUBLIC_ACCESS_MAPPING)
+        text("LastChangeId", 1)
+        text("ClientCacheFresh", false)
+    }
+}
@@ -0,0 +1,317 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs.tests.standin
+
+import java.io.File
+import java.time.Instant
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * The version control service of the stand-in server: server workspaces, pending sets, extended items, and pending
+ * and undoing edits and adds of a [SyntheticRepository].
+ *
+ * The workspaces are kept as sent by the SDK and returned as they are, with the attributes set by the server added.
+ * Their first working folder maps the local paths of the requests to the server paths.
+ */
+internal class RepositoryService(private val repository: SyntheticRepository, private val userName: String) {
+    companion object {
+        private const val CHANGESET_DATE = "2020-01-01T00:00:00Z"
+        private const val FOLDER_ENCODING = -3
+        private const val UTF_8_ENCODING = 65001
+        private const val ITEM_NOT_FOUND = "ItemNotFoundException"
+    }
+
+    private class Workspace(val element: SoapElement, val serverRoot: String, val localRoot: String?) {
+        val name: String = element.attribute("name") ?: ""
+        val owner: String = element.attribute("owner") ?: ""
+        val computer: String = element.attribute("computer") ?: ""
+
+        fun toServerPath(path: String): String? = when {
+            path.startsWith("$/") -> path
+            localRoot == null -> null
+            path == localRoot -> serverRoot
+            path.startsWith(localRoot + File.separator) ->
+                serverRoot + "/" + path.substring(localRoot.length + 1).replace(File.separatorChar, '/')
+            else -> null
+        }
+
+        fun toLocalPath(serverPath: String): String? = when {
+            localRoot == null -> null
+            serverPath.equals(serverRoot, ignoreCase = true) -> localRoot
+            serverPath.regionMatches(0, "$serverRoot/", 0, serverRoot.length + 1, ignoreCase = true) ->
+                localRoot + File.separator + serverPath.substring(serverRoot.length + 1).replace('/', File.separatorChar)
+            else -> null
+        }
+    }
+
+    private class Failure(val code: String, val message: String, val serverPath: String?, val localPath: String?)
+
+    // Lower-cased workspace name -> workspace
+    private val workspaces = ConcurrentHashMap<String, Workspace>()
+
+    val operations = mapOf<String, SoapOperation>(
+        "CheckAuthentication" to ::checkAuthentication,
+        "CreateWorkspace" to ::createWorkspace,
+        "QueryWorkspace" to ::queryWorkspace,
+        "QueryWorkspaces" to ::queryWorkspaces,
+        "UpdateWorkspace" to ::updateWorkspace,
+        "DeleteWorkspace" to ::deleteWorkspace,
+        "QueryPendingSets" to ::queryPendingSets,
+        "QueryItemsExtended" to ::queryItemsExtended,
+        "PendChanges" to ::pendChanges,
+        "UndoPendingChanges" to ::undoPendingChanges
+    )
+
+    private fun toWorkspace(element: SoapElement): Workspace {
+        val mapping = element.childrenOf("Folders").firstOrNull { (it.attribute("type") ?: "Map") == "Map" }
+        return Workspace(
+            element,
+            mapping?.attribute("item")?.trimEnd('/') ?: repository.serverRoot,
+            mapping?.attribute("local")?.trimEnd(File.separatorChar))
+    }
+
+    private fun getWorkspace(name: String?): Workspace =
+        name?.let { workspaces[it.toLowerCase()] }
+            ?: throw SoapFault("Workspace $name not found", "WorkspaceNotFoundException")
+
+    // The pending changes are those of the single workspace of the repository
+    private fun getWorkspaceForChanges(name: String?): Workspace =
+        name?.let { workspaces[it.toLowerCase()] } ?: workspaces.values.singleOrNull() ?: getWorkspace(name)
+
+    private fun SoapWriter.writeWorkspace(name: String, workspace: Workspace) {
+        copy(workspace.element, name, mapOf(
+            "ownerdisp" to userName,
+            "securitytoken" to "/${workspace.name};${workspace.owner}",
+            "permissions" to 15,
+            "date" to Instant.now()
+        ))
+    }
+
+    private fun checkAuthentication(request: SoapElement) = SoapResponse {
+        text("CheckAuthenticationResult", userName)
+    }
+
+    private fun createWorkspace(request: SoapElement): SoapResponse {
+        val workspace = toWorkspace(request.child("workspace") ?: throw SoapFault("No workspace"))
+        if (workspaces.putIfAbsent(workspace.name.toLowerCase(), workspace) != null)
+            throw SoapFault("Workspace ${workspace.name} already exists", "WorkspaceExistsException")
+
+        return SoapResponse { writeWorkspace("CreateWorkspaceResult", workspace) }
+    }
+
+    private fun queryWorkspace(request: SoapElement): SoapResponse {
+        val workspace = getWorkspace(request.childText("workspaceName"))
+        return SoapResponse { writeWorkspace("QueryWorkspaceResult", workspace) }
+    }
+
+    private fun queryWorkspaces(request: SoapElement): SoapResponse {
+        val computer = request.childText("computer")?.takeIf { it.isNotEmpty() }
+        val result = workspaces.values.filter { computer == null || it.computer.equals(computer, ignoreCase = true) }
+        return SoapResponse(result.size) {
+            element("QueryWorkspacesResult") {
+                for (workspace in result) writeWorkspace("Workspace", workspace)
+            }
+        }
+    }
+
+    private fun updateWorkspace(request: SoapElement): SoapResponse {
+        val oldName = getWorkspace(request.childText("oldWorkspaceName")).name
+        val workspace = toWorkspace(request.child("newWorkspace") ?: throw SoapFault("No workspace"))
+        workspaces.remove(oldName.toLowerCase())
+        workspaces[workspace.name.toLowerCase()] = workspace
+        return SoapResponse { writeWorkspace("UpdateWorkspaceResult", workspace) }
+    }
+
+    private fun deleteWorkspace(request: SoapElement): SoapResponse {
+        workspaces.remove(getWorkspace(request.childText("workspaceName")).name.toLowerCase())
+        return SoapResponse()
+    }
+
+    private fun SoapWriter.writeFailures(failures: List<Failure>) {
+        element("failures") {
+            for (failure in failures) {
+                element(
+                    "Failure",
+                    "code" to failure.code,
+                    "sev" to "Error",
+                    "item" to failure.serverPath,
+                    "local" to failure.localPath
+                ) {
+                    text("Message", failure.message)
+                }
+            }
+        }
+    }
+
+    private fun encoding(item: RepositoryItem) = if (item.isFolder) FOLDER_ENCODING else UTF_8_ENCODING
+    private fun itemType(item: RepositoryItem) = if (item.isFolder) "Folder" else "File"
+    private fun version(change: String?) = if (change == SyntheticRepository.ADD) 0 else SyntheticRepository.VERSION
+
+    private fun queryPendingSets(request: SoapElement): SoapResponse {
+        val workspace = getWorkspaceForChanges(
+            request.childText("queryWorkspaceName") ?: request.childText("localWorkspaceName"))
+        val changes = LinkedHashMap<Int, Pair<RepositoryItem, String>>()
+        for (itemSpec in request.childrenOf("itemSpecs")) {
+            val serverPath = workspace.toServerPath(itemSpec.attribute("item") ?: "") ?: continue
+            for (change in repository.pendingChanges(serverPath, Recursion.parse(itemSpec.attribute("recurse")))) {
+                changes.putIfAbsent(change.first.itemId, change)
+            }
+        }
+
+        return SoapResponse(changes.size) {
+            element("QueryPendingSetsResult") {
+                if (changes.isNotEmpty()) {
+                    element(
+                        "PendingSet",
+                        "computer" to workspace.computer,
+                        "owner" to workspace.owner,
+                        "ownerdisp" to userName,
+                        "name" to workspace.name,
+                        "type" to "Workspace",
+                        "signature" to UUID.nameUUIDFromBytes(workspace.name.toByteArray())
+                    ) {
+                        element("PendingChanges") {
+                            for ((item, change) in changes.values) {
+                                element(
+                                    "PendingChange",
+                                    "chg" to change,
+                                    "date" to CHANGESET_DATE,
+                                    "ver" to version(change),
+                                    "type" to itemType(item),
+                                    "enc" to encoding(item),
+                                    "itemid" to item.itemId,
+                                    "local" to workspace.toLocalPath(item.serverPath),
+                                    "item" to item.serverPath
+                                )
+                            }
+                        }
+                    }
+                }
+            }
+            writeFailures(emptyList())
+        }
+    }
+
+    private fun queryItemsExtended(request: SoapElement): SoapResponse {
+        val workspace = getWorkspaceForChanges(request.childText("workspaceName"))
+        val itemLists = request.childrenOf("items").map { itemSpec ->
+            val serverPath = workspace.toServerPath(itemSpec.attribute("item") ?: "")
+            serverPath?.let { repository.items(it, Recursion.parse(itemSpec.attribute("recurse"))).toList() }
+                ?: emptyList()
+        }
+
+        return SoapResponse(itemLists.sumBy { it.size }) {
+            element("QueryItemsExtendedResult") {
+                for (items in itemLists) {
+                    element("ArrayOfExtendedItem") {
+                        for (item in items) {
+                            val change = repository.getChange(item)
+                            element(
+                                "ExtendedItem",
+                                "lver" to version(change),
+                                "did" to 0,
+                                "latest" to version(change),
+                                "type" to itemType(item),
+                                "enc" to encoding(item),
+                                "itemid" to item.itemId,
+                                "local" to workspace.toLocalPath(item.serverPath),
+                                "titem" to item.serverPath,
+                                "sitem" to item.serverPath.takeIf { change != SyntheticRepository.ADD },
+                                "chg" to (change ?: "None"),
+                                "lock" to "None"
+                            )
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private fun SoapWriter.writeGetOperation(workspace: Workspace, item: RepositoryItem, change: String) {
+        val localPath = workspace.toLocalPath(item.serverPath)
+        element(
+            "GetOperation",
+            "type" to itemType(item),
+            "itemid" to item.itemId,
+            "slocal" to localPath,
+            "tlocal" to localPath,
+            "titem" to item.serverPath,
+            "sver" to version(change),
+            "lver" to version(change),
+            "did" to 0,
+            "chg" to change,
+            "lock" to "None",
+            "enc" to encoding(item)
+        )
+    }
+
+    private fun pendChanges(request: SoapElement): SoapResponse {
+        val workspace = getWorkspaceForChanges(request.childText("workspaceName"))
+        val pended = mutableListOf<Pair<RepositoryItem, String>>()
+        val failures = mutableListOf<Failure>()
+        for (changeRequest in request.childrenOf("changes")) {
+            val itemSpec = changeRequest.child("item") ?: continue
+            val path = itemSpec.attribute("item") ?: ""
+            val serverPath = workspace.toServerPath(path)
+            if (serverPath == null) {
+                failures.add(Failure("ItemNotMappedException", "$path is not mapped", null, path))
+                continue
+            }
+
+            when (val changeType = changeRequest.attribute("req")) {
+                SyntheticRepository.EDIT -> {
+                    val files = repository.items(serverPath, Recursion.parse(itemSpec.attribute("recurse")))
+                        .filter { !it.isFolder }
+                        .toList()
+                    if (files.isEmpty())
+                        failures.add(Failure(ITEM_NOT_FOUND, "$path does not exist", serverPath, path))
+
+                    for (file in files) {
+                        if (repository.pendEdit(file) || repository.getChange(file) == SyntheticRepository.EDIT)
+                            pended.add(file to SyntheticRepository.EDIT)
+                    }
+                }
+                SyntheticRepository.ADD -> {
+                    val added = repository.pendAdd(serverPath)
+                    if (added == null)
+                        failures.add(Failure("ItemExistsException", "$path already exists", serverPath, path))
+                    else
+                        pended.add(added to SyntheticRepository.ADD)
+                }
+                else -> failures.add(Failure(
+                    "NotSupportedException",
+                    "The stand-in server doesn't pend $changeType changes",
+                    serverPath,
+                    path))
+            }
+        }
+
+        return SoapResponse(pended.size) {
+            element("PendChangesResult") {
+                for ((item, change) in pended) writeGetOperation(workspace, item, change)
+            }
+            writeFailures(failures)
+        }
+    }
+
+    private fun undoPendingChanges(request: SoapElement): SoapResponse {
+        val workspace = getWorkspaceForChanges(request.childText("workspaceName"))
+        val undone = mutableListOf<Pair<RepositoryItem, String>>()
+        for (itemSpec in request.childrenOf("items")) {
+            val serverPath = workspace.toServerPath(itemSpec.attribute("item") ?: "") ?: continue
+            for ((item, change) in repository.pendingChanges(serverPath, Recursion.parse(itemSpec.attribute("recurse")))
+                .toList()) {
+                if (repository.undo(item) != null) undone.add(item to change)
+            }
+        }
+
+        return SoapResponse(undone.size) {
+            element("UndoPendingChangesResult") {
+                for ((item, change) in undone) writeGetOperation(workspace, item, change)
+            }
+            writeFailures(emptyList())
+        }
+    }
+}
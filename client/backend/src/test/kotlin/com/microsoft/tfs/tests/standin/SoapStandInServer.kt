@@ -0,0 +1,194 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs.tests.standin
+
+import com.jetbrains.rd.util.info
+import com.jetbrains.rd.util.lifetime.Lifetime
+import com.jetbrains.rd.util.lifetime.onTermination
+import com.jetbrains.rd.util.warn
+import com.microsoft.tfs.Logging
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import java.io.FilterOutputStream
+import java.io.OutputStream
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.net.URI
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * The delay of every response: a fixed part for the round trip and the server overhead, and a part per item of the
+ * response (pending change, extended item or get operation) for the database and serialization work.
+ */
+data class Latency(val fixedMillis: Long = 0L, val perItemMicros: Long = 0L) {
+    fun micros(itemCount: Int): Long = TimeUnit.MILLISECONDS.toMicros(fixedMillis) + perItemMicros * itemCount
+}
+
+/**
+ * The response of an operation: the number of items it holds, for the latency, and the writer of the content of its
+ * `<Operation>Response` element.
+ */
+class SoapResponse(val itemCount: Int = 0, val write: SoapWriter.() -> Unit = {})
+
+typealias SoapOperation = (SoapElement) -> SoapResponse
+
+/**
+ * An error reported to the client as a SOAP fault. The SDK turns the faults into exceptions by their base exception
+ * name, e.g. `WorkspaceNotFoundException`.
+ */
+class SoapFault(message: String, val exceptionName: String = "TeamFoundationServerException") : Exception(message)
+
+class OperationStatistics {
+    val calls = AtomicLong()
+    val responseBytes = AtomicLong()
+}
+
+/**
+ * An in-process HTTP server that stands in for a TFS collection in the backend tests. It answers the SOAP calls the
+ * SDK makes to connect, to manage server workspaces, to query pending sets and extended items and to pend and undo
+ * edits and adds, from a [SyntheticRepository]. The other calls are answered with a fault naming the operation, so a
+ * call the stand-in misses is easy to spot.
+ *
+ * The operations are dispatched by the name of the request element, whatever the URL and the SOAP version. Every
+ * response is delayed by the [latency].
+ */
+class SoapStandInServer(
+    lifetime: Lifetime,
+    val repository: SyntheticRepository,
+    @Volatile var latency: Latency = Latency(),
+    threadCount: Int = 8
+) {
+    companion object {
+        private val logger = Logging.getLogger<SoapStandInServer>()
+
+        const val COLLECTION_PATH = "/tfs/StandIn"
+        const val USER_NAME = "standin"
+        private const val SOAP_11_NAMESPACE = "http://schemas.xmlsoap.org/soap/envelope/"
+        private const val SOAP_12_NAMESPACE = "http://www.w3.org/2003/05/soap-envelope"
+    }
+
+    private val server = HttpServer.create(InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0)
+    val collectionUri = URI("http", null, "127.0.0.1", server.address.port, COLLECTION_PATH, null, null)
+
+    private val operations: Map<String, SoapOperation> =
+        LocationService(collectionUri, USER_NAME).operations + RepositoryService(repository, USER_NAME).operations
+    private val statistics = ConcurrentHashMap<String, OperationStatistics>()
+
+    init {
+        val executor = Executors.newFixedThreadPool(threadCount)
+        server.executor = executor
+        server.createContext("/") { handle(it) }
+        server.start()
+        lifetime.onTermination {
+            server.stop(0)
+            executor.shutdownNow()
+        }
+        logger.info { "Stand-in server for ${repository.fileCount} items started at $collectionUri" }
+    }
+
+    /**
+     * Returns the calls and response bytes per operation since the start or the last reset.
+     */
+    fun getStatistics(): Map<String, OperationStatistics> = HashMap(statistics)
+
+    fun resetStatistics() = statistics.clear()
+
+    private class CountingOutputStream(output: OutputStream) : FilterOutputStream(output) {
+        var count = 0L
+            private set
+
+        override fun write(b: Int) {
+            out.write(b)
+            count++
+        }
+
+        override fun write(b: ByteArray, off: Int, len: Int) {
+            out.write(b, off, len)
+            count += len
+        }
+    }
+
+    private fun handle(exchange: HttpExchange) {
+        try {
+            if (!exchange.requestMethod.equals("POST", ignoreCase = true)) {
+                exchange.sendResponseHeaders(404, -1)
+                return
+            }
+
+            val envelope = SoapElement.parse(exchange.requestBody)
+            val request = envelope.child("Body")?.children?.firstOrNull()
+            if (request == null) {
+                exchange.sendResponseHeaders(400, -1)
+                return
+            }
+
+            val result = try {
+                val operation = operations[request.name]
+                    ?: throw SoapFault("The stand-in server doesn't implement ${request.name}", "NotSupportedException")
+                operation(request)
+            } catch (fault: SoapFault) {
+                logger.info { "${request.name}: ${fault.exceptionName}: ${fault.message}" }
+                fault
+            }
+
+            val delayMicros = latency.micros((result as? SoapResponse)?.itemCount ?: 0)
+            if (delayMicros > 0L) TimeUnit.MICROSECONDS.sleep(delayMicros)
+
+            val soap12 = envelope.namespace == SOAP_12_NAMESPACE
+            val contentType = if (soap12) "application/soap+xml" else "text/xml"
+            exchange.responseHeaders.add("Content-Type", "$contentType; charset=utf-8")
+            exchange.sendResponseHeaders(if (result is SoapFault) 500 else 200, 0)
+
+            val output = CountingOutputStream(exchange.responseBody)
+            SoapWriter.create(output, request.namespace).apply {
+                startDocument()
+                root("soap", "Envelope", envelope.namespace) {
+                    root("soap", "Body", envelope.namespace) {
+                        when (result) {
+                            is SoapResponse ->
+                                root("", "${request.name}Response", request.namespace) { result.write(this) }
+                            is SoapFault -> writeFault(envelope.namespace, result)
+                        }
+                    }
+                }
+                endDocument()
+            }
+            output.flush()
+
+            statistics.computeIfAbsent(request.name) { OperationStatistics() }.apply {
+                calls.incrementAndGet()
+                responseBytes.addAndGet(output.count)
+            }
+        } catch (t: Throwable) {
+            logger.warn { "Stand-in server failed to answer a request: $t" }
+        } finally {
+            exchange.close()
+        }
+    }
+
+    private fun SoapWriter.writeFault(soapNamespace: String, fault: SoapFault) {
+        val message = fault.message ?: fault.exceptionName
+        val detail = arrayOf("ExceptionMessage" to message, "BaseExceptionName" to fault.exceptionName)
+        root("soap", "Fault", soapNamespace) {
+            if (soapNamespace == SOAP_11_NAMESPACE) {
+                plain("faultcode", "soap:Server")
+                plain("faultstring", message)
+                plain("detail", null, *detail)
+            } else {
+                root("soap", "Code", soapNamespace) {
+                    root("soap", "Value", soapNamespace) { characters("soap:Receiver") }
+                }
+                root("soap", "Reason", soapNamespace) {
+                    root("soap", "Text", soapNamespace) { characters(message) }
+                }
+                root("soap", "Detail", soapNamespace) {
+                    plain("detail", null, *detail)
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs.tests.standin
+
+import java.io.InputStream
+import java.io.OutputStream
+import javax.xml.stream.XMLInputFactory
+import javax.xml.stream.XMLOutputFactory
+import javax.xml.stream.XMLStreamConstants
+import javax.xml.stream.XMLStreamReader
+import javax.xml.stream.XMLStreamWriter
+
+/**
+ * An element of a SOAP request. Names are local names: the requests of a single service use a single namespace.
+ */
+class SoapElement(val name: String, val namespace: String, val attributes: Map<String, String>) {
+    val children = mutableListOf<SoapElement>()
+    var text = ""
+        private set
+
+    fun child(name: String): SoapElement? = children.firstOrNull { it.name.equals(name, ignoreCase = true) }
+    fun childText(name: String): String? = child(name)?.text
+    fun childrenOf(name: String): List<SoapElement> = child(name)?.children ?: emptyList()
+    fun attribute(name: String): String? = attributes[name]
+
+    companion object {
+        private val inputFactory = XMLInputFactory.newInstance().apply {
+            setProperty(XMLInputFactory.SUPPORT_DTD, false)
+            setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false)
+        }
+
+        fun parse(input: InputStream): SoapElement {
+            val reader = inputFactory.createXMLStreamReader(input)
+            try {
+                while (reader.next() != XMLStreamConstants.START_ELEMENT) { }
+                return read(reader)
+            } finally {
+                reader.close()
+            }
+        }
+
+        // The reader is at the start of the element, and is left at its end
+        private fun read(reader: XMLStreamReader): SoapElement {
+            val attributes = (0 until reader.attributeCount).associate {
+                reader.getAttributeLocalName(it) to reader.getAttributeValue(it)
+            }
+            val element = SoapElement(reader.localName, reader.namespaceURI ?: "", attributes)
+            val text = StringBuilder()
+            while (true) {
+                when (reader.next()) {
+                    XMLStreamConstants.START_ELEMENT -> element.children.add(read(reader))
+                    XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> text.append(reader.text)
+                    XMLStreamConstants.END_ELEMENT -> {
+                        element.text = text.toString().trim()
+                        return element
+                    }
+                }
+            }
+        }
+    }
+}
+
+/**
+ * Writes the elements of a SOAP response in the namespace of its service.
+ */
+class SoapWriter(private val writer: XMLStreamWriter, private val namespace: String) {
+    companion object {
+        private val outputFactory = XMLOutputFactory.newInstance()
+
+        fun create(output: OutputStream, namespace: String) =
+            SoapWriter(outputFactory.createXMLStreamWriter(output, "utf-8"), namespace)
+    }
+
+    fun startDocument() = writer.writeStartDocument("utf-8", "1.0")
+
+    fun endDocument() {
+        writer.writeEndDocument()
+        writer.flush()
+    }
+
+    /**
+     * Writes an element of the given namespace, declared on the element with the prefix (the default namespace if
+     * empty), e.g. the SOAP envelope or the response of an operation.
+     */
+    fun root(prefix: String, name: String, namespace: String, content: SoapWriter.() -> Unit) {
+        writer.writeStartElement(prefix, name, namespace)
+        if (prefix.isEmpty()) writer.writeDefaultNamespace(namespace) else writer.writeNamespace(prefix, namespace)
+        content()
+        writer.writeEndElement()
+    }
+
+    // The namespace of the service is the default one, declared on the response of the operation
+    fun element(name: String, vararg attributes: Pair<String, Any?>, content: SoapWriter.() -> Unit = {}) {
+        writer.writeStartElement("", name, namespace)
+        for ((attribute, value) in attributes) {
+            if (value != null) writer.writeAttribute(attribute, value.toString())
+        }
+        content()
+        writer.writeEndElement()
+    }
+
+    fun text(name: String, value: Any?) {
+        if (value == null) return
+        writer.writeStartElement("", name, namespace)
+        writer.writeCharacters(value.toString())
+        writer.writeEndElement()
+    }
+
+    fun characters(value: String) = writer.writeCharacters(value)
+
+    /**
+     * Writes an element without namespace, e.g. the fault code of SOAP 1.1.
+     */
+    fun plain(name: String, value: String?, vararg attributes: Pair<String, Any?>) {
+        writer.writeStartElement(name)
+        for ((attribute, attributeValue) in attributes) {
+            if (attributeValue != null) writer.writeAttribute(attribute, attributeValue.toString())
+        }
+        value?.let { writer.writeCharacters(it) }
+        writer.writeEndElement()
+    }
+
+    /**
+     * Writes a copy of a request element under another name, e.g. the workspace sent by the client as the result.
+     */
+    fun copy(source: SoapElement, name: String = source.name, extraAttributes: Map<String, Any?> = emptyMap()) {
+        val attributes = source.attributes + extraAttributes.filterKeys { it !in source.attributes }
+        element(name, *attributes.toList().toTypedArray()) {
+            if (source.children.isEmpty()) characters(source.text)
+            for (child in source.children) copy(child)
+        }
+    }
+}
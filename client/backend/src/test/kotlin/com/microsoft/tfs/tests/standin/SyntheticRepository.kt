@@ -0,0 +1,186 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs.tests.standin
+
+import java.nio.file.Path
+import java.util.concurrent.ConcurrentSkipListMap
+import java.util.concurrent.ConcurrentSkipListSet
+import java.util.concurrent.atomic.AtomicInteger
+
+enum class Recursion {
+    NONE, ONE_LEVEL, FULL;
+
+    companion object {
+        fun parse(value: String?): Recursion = when (value) {
+            "OneLevel" -> ONE_LEVEL
+            "Full" -> FULL
+            else -> NONE
+        }
+    }
+}
+
+class RepositoryItem(val itemId: Int, val serverPath: String, val isFolder: Boolean, val fileIndex: Int = -1)
+
+/**
+ * A generated repository of [fileCount] files under `$/[projectName]`, [filesPerFolder] per folder, all at changeset
+ * [VERSION]. It keeps no data per item but the pending changes, and computes the paths from the item indices, so a
+ * million items take no memory until they are queried.
+ *
+ * The pending changes are those of the single workspace of the stand-in server. The first [initialEdits] files start
+ * with a pending edit.
+ */
+class SyntheticRepository(
+    val fileCount: Int,
+    val filesPerFolder: Int = 100,
+    val projectName: String = "StandIn",
+    initialEdits: Int = 0
+) {
+    companion object {
+        const val VERSION = 1
+        const val EDIT = "Edit"
+        const val ADD = "Add"
+        private const val ROOT_ITEM_ID = 1
+    }
+
+    val serverRoot = "$/$projectName"
+    val folderCount = (fileCount + filesPerFolder - 1) / filesPerFolder
+
+    private val root = RepositoryItem(ROOT_ITEM_ID, serverRoot, true)
+    private val pendingEdits = ConcurrentSkipListSet<Int>((0 until minOf(initialEdits, fileCount)).toList())
+    // Lower-cased server path -> item
+    private val pendingAdds = ConcurrentSkipListMap<String, RepositoryItem>()
+    private val nextAddedItemId = AtomicInteger(ROOT_ITEM_ID + 1 + folderCount + fileCount)
+
+    val pendingChangeCount
+        get() = pendingEdits.size + pendingAdds.size
+
+    fun folderPath(folder: Int) = "$serverRoot/folder$folder"
+    fun filePath(file: Int) = "${folderPath(file / filesPerFolder)}/File$file.java"
+
+    /**
+     * Returns the path of a file in a workspace mapping [serverRoot] to [workspaceRoot].
+     */
+    fun localFilePath(workspaceRoot: Path, file: Int): Path =
+        workspaceRoot.resolve("folder${file / filesPerFolder}").resolve("File$file.java")
+
+    private fun folderItem(folder: Int) = RepositoryItem(ROOT_ITEM_ID + 1 + folder, folderPath(folder), true)
+    private fun fileItem(file: Int) = RepositoryItem(ROOT_ITEM_ID + 1 + folderCount + file, filePath(file), false, file)
+
+    private fun String.parseIndex(prefix: String, suffix: String): Int? {
+        if (!startsWith(prefix, ignoreCase = true) || !endsWith(suffix, ignoreCase = true)) return null
+        val digits = substring(prefix.length, length - suffix.length)
+        return digits.toIntOrNull()?.takeIf { it >= 0 && it.toString() == digits }
+    }
+
+    /**
+     * Returns the item of a server path (compared ignoring case, as on the server), including the pending adds.
+     */
+    fun resolve(serverPath: String): RepositoryItem? {
+        val path = serverPath.trimEnd('/')
+        if (path.equals(serverRoot, ignoreCase = true)) return root
+        if (!path.regionMatches(0, "$serverRoot/", 0, serverRoot.length + 1, ignoreCase = true)) return null
+
+        val segments = path.substring(serverRoot.length + 1).split('/')
+        val folder = segments[0].parseIndex("folder", "")
+        if (folder != null && folder < folderCount) {
+            if (segments.size == 1) return folderItem(folder)
+
+            val file = segments[1].parseIndex("File", ".java")
+            if (segments.size == 2 && file != null && file < fileCount && file / filesPerFolder == folder)
+                return fileItem(file)
+        }
+
+        return pendingAdds[path.toLowerCase()]
+    }
+
+    private fun addsUnder(item: RepositoryItem, recursion: Recursion): Sequence<RepositoryItem> {
+        val prefix = item.serverPath.toLowerCase() + "/"
+        // '0' follows '/', so the range holds the paths under the prefix
+        val adds = pendingAdds.subMap(prefix, prefix.dropLast(1) + "0").values.asSequence()
+        return if (recursion == Recursion.FULL) adds else adds.filter { it.serverPath.indexOf('/', prefix.length) < 0 }
+    }
+
+    private fun filesOf(folder: Int): IntRange =
+        folder * filesPerFolder until minOf(fileCount, (folder + 1) * filesPerFolder)
+
+    /**
+     * Returns the item of the path, followed by its children or descendants depending on the recursion.
+     */
+    fun items(serverPath: String, recursion: Recursion): Sequence<RepositoryItem> {
+        val item = resolve(serverPath) ?: return emptySequence()
+        if (!item.isFolder || recursion == Recursion.NONE) return sequenceOf(item)
+
+        val descendants = when {
+            item === root && recursion == Recursion.ONE_LEVEL ->
+                (0 until folderCount).asSequence().map(::folderItem)
+            item === root ->
+                (0 until folderCount).asSequence().flatMap { folder ->
+                    sequenceOf(folderItem(folder)) + filesOf(folder).asSequence().map(::fileItem)
+                }
+            item.itemId <= ROOT_ITEM_ID + folderCount ->
+                filesOf(item.itemId - ROOT_ITEM_ID - 1).asSequence().map(::fileItem)
+            else -> emptySequence()
+        }
+        return sequenceOf(item) + descendants + addsUnder(item, recursion)
+    }
+
+    /**
+     * Returns the pending changes of the path and of its children or descendants, without enumerating the unchanged
+     * items.
+     */
+    fun pendingChanges(serverPath: String, recursion: Recursion): Sequence<Pair<RepositoryItem, String>> {
+        val item = resolve(serverPath) ?: return emptySequence()
+        if (!item.isFolder || recursion == Recursion.NONE)
+            return getChange(item)?.let { sequenceOf(item to it) } ?: emptySequence()
+
+        val edits = when {
+            item === root && recursion == Recursion.FULL -> pendingEdits.asSequence()
+            item === root -> emptySequence()
+            item.itemId <= ROOT_ITEM_ID + folderCount -> {
+                val files = filesOf(item.itemId - ROOT_ITEM_ID - 1)
+                pendingEdits.subSet(files.first, files.last + 1).asSequence()
+            }
+            else -> emptySequence()
+        }
+        return edits.map { fileItem(it) to EDIT } + addsUnder(item, recursion).map { it to ADD }
+    }
+
+    fun getChange(item: RepositoryItem): String? = when {
+        item.fileIndex >= 0 && pendingEdits.contains(item.fileIndex) -> EDIT
+        pendingAdds.containsKey(item.serverPath.toLowerCase()) -> ADD
+        else -> null
+    }
+
+    /**
+     * Pends an edit of a file, returns false if it is a folder or if there's already a pending change.
+     */
+    fun pendEdit(item: RepositoryItem): Boolean =
+        item.fileIndex >= 0 && pendingEdits.add(item.fileIndex)
+
+    /**
+     * Pends an add of a new file, returns null if the path already has an item.
+     */
+    fun pendAdd(serverPath: String): RepositoryItem? {
+        if (resolve(serverPath) != null) return null
+        val item = RepositoryItem(nextAddedItemId.getAndIncrement(), serverPath, false)
+        return item.takeIf { pendingAdds.putIfAbsent(serverPath.toLowerCase(), it) == null }
+    }
+
+    /**
+     * Undoes the pending change of the item, returns the undone change type, if any.
+     */
+    fun undo(item: RepositoryItem): String? = when {
+        item.fileIndex >= 0 && pendingEdits.remove(item.fileIndex) -> EDIT
+        pendingAdds.remove(item.serverPath.toLowerCase()) != null -> ADD
+        else -> null
+    }
+
+    /**
+     * Undoes the pending changes of the given files, e.g. to repeat a checkout scenario without the SDK having to get
+     * their content back.
+     */
+    fun undoEdits(files: IntRange) {
+        pendingEdits.removeAll(files)
+    }
+}
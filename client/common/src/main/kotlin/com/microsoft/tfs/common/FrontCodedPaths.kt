@@ -0,0 +1,56 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs.common
+
+/**
+ * Front-coded paths, as sent by the protocol: every path is the number of leading characters it shares with the
+ * previous one and the rest of it, so the workspace root of a chunk is only sent once. Nulls are kept, with -1 as their
+ * shared prefix length.
+ */
+class FrontCodedPaths(val sharedPrefixLengths: List<Int>, val suffixes: List<String>) {
+    companion object {
+        fun encode(paths: List<String?>): FrontCodedPaths {
+            val sharedPrefixLengths = ArrayList<Int>(paths.size)
+            val suffixes = ArrayList<String>(paths.size)
+            var previous = ""
+            for (path in paths) {
+                if (path == null) {
+                    sharedPrefixLengths.add(-1)
+                    suffixes.add("")
+                    continue
+                }
+
+                val maxShared = Math.min(previous.length, path.length)
+                var shared = 0
+                while (shared < maxShared && previous[shared] == path[shared]) shared++
+                sharedPrefixLengths.add(shared)
+                suffixes.add(path.substring(shared))
+                previous = path
+            }
+            return FrontCodedPaths(sharedPrefixLengths, suffixes)
+        }
+    }
+
+    fun decode(): List<String?> {
+        if (sharedPrefixLengths.size != suffixes.size)
+            throw IllegalArgumentException(
+                "Path list has ${sharedPrefixLengths.size} prefix lengths for ${suffixes.size} suffixes")
+
+        val paths = ArrayList<String?>(suffixes.size)
+        var previous = ""
+        for (i in suffixes.indices) {
+            val shared = sharedPrefixLengths[i]
+            if (shared < 0) {
+                paths.add(null)
+                continue
+            }
+            if (shared > previous.length)
+                throw IllegalArgumentException("Path $i shares $shared characters with a path of ${previous.length}")
+
+            previous = previous.substring(0, shared) + suffixes[i]
+            paths.add(previous)
+        }
+        return paths
+    }
+}
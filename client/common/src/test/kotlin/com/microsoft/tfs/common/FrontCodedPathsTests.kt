@@ -0,0 +1,47 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs.common
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class FrontCodedPathsTests {
+    companion object {
+        private const val WORKSPACE_ROOT = "/home/developer/projects/contoso/enterprise/src/main/java/com/contoso"
+    }
+
+    @Test
+    fun pathsShouldRoundTrip() {
+        val paths = listOf(
+            "$WORKSPACE_ROOT/a/File1.java",
+            "$WORKSPACE_ROOT/a/File2.java",
+            null,
+            "$WORKSPACE_ROOT/b/File1.java",
+            "C:\\Other\\File.txt",
+            "",
+            "$WORKSPACE_ROOT/a",
+            "$WORKSPACE_ROOT/a")
+
+        val encoded = FrontCodedPaths.encode(paths)
+
+        assertEquals(paths, encoded.decode())
+        val root = WORKSPACE_ROOT.length
+        assertEquals(listOf(0, root + 7, -1, root + 1, 0, 0, 0, root + 2), encoded.sharedPrefixLengths)
+    }
+
+    @Test
+    fun emptyListShouldRoundTrip() {
+        assertEquals(emptyList<String?>(), FrontCodedPaths.encode(emptyList()).decode())
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun mismatchedListsShouldBeRejected() {
+        FrontCodedPaths(listOf(0, 1), listOf("a")).decode()
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun prefixLongerThanThePreviousPathShouldBeRejected() {
+        FrontCodedPaths(listOf(0, 5), listOf("a", "b")).decode()
+    }
+}
@@ -0,0 +1,32 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs.connector
+
+import com.microsoft.tfs.model.connector.TfsCallTimings
+
+/**
+ * Collects the timings of the backend calls made for a request of the plugin. A request may make several calls (e.g.
+ * one per chunk of an info query), so the methods may be called several times and from several threads.
+ */
+interface CallTrace {
+    /**
+     * Returns the correlation ID of the next call of the request, which the backend writes to its log.
+     */
+    fun nextCallId(): String
+
+    /**
+     * Called once a call has been serialized and written to the wire.
+     */
+    fun callSent(serializationNanos: Long)
+
+    /**
+     * Called with the timings reported by the backend for a call, before the call completes.
+     */
+    fun backendTimingsReceived(timings: TfsCallTimings)
+
+    /**
+     * Called once a call has completed, with the time from sending it to receiving its deserialized result.
+     */
+    fun callCompleted(roundTripNanos: Long)
+}
@@ -0,0 +1,79 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.tfs.connector
+
+import com.microsoft.tfs.common.FrontCodedPaths
+import com.microsoft.tfs.model.connector.*
+
+/**
+ * Front-codes the paths for the protocol, see [FrontCodedPaths].
+ */
+internal fun encodePathList(paths: List<String?>): TfsPathList =
+    FrontCodedPaths.encode(paths).run { TfsPathList(sharedPrefixLengths, suffixes) }
+
+internal fun TfsPathList.decode(): List<String?> =
+    FrontCodedPaths(sharedPrefixLengths, suffixes).decode()
+
+internal fun List<TfsLocalPath>.toPathList(): TfsPathList =
+    encodePathList(map { it.path })
+
+internal fun TfsPathList.toLocalPaths(): List<TfsLocalPath> =
+    decode().map { TfsLocalPath(it ?: throw IllegalArgumentException("Null path in a local path list")) }
+
+internal fun List<TfsPath>.toPathsRequest(context: TfsCallContext): TfsPathsRequest =
+    TfsPathsRequest(filterIsInstance<TfsLocalPath>().toPathList(), filterIsInstance<TfsServerPath>(), context)
+
+internal fun TfsPendingChangeList.toPendingChanges(): List<TfsPendingChange> {
+    val serverItems = serverItems.decode()
+    val localItems = localItems.decode()
+    return changes.mapIndexed { i, it ->
+        TfsPendingChange(
+            serverItems[i] ?: "",
+            localItems[i] ?: "",
+            it.version,
+            it.owner,
+            it.date,
+            it.lock,
+            it.changeTypes,
+            it.workspace,
+            it.computer,
+            it.isCandidate,
+            it.sourceItem,
+            it.hashValue)
+    }
+}
+
+internal fun TfsLocalItemInfoList.toItemsInfo(): List<TfsLocalItemInfo> {
+    val serverItems = serverItems.decode()
+    val localItems = localItems.decode()
+    return items.mapIndexed { i, it ->
+        TfsLocalItemInfo(
+            serverItems[i],
+            localItems[i],
+            it.localVersion,
+            it.serverVersion,
+            it.change,
+            it.type,
+            it.lastModified,
+            it.fileEncoding)
+    }
+}
+
+internal fun TfsExtendedItemInfoList.toItemsInfo(): List<TfsExtendedItemInfo> {
+    val serverItems = serverItems.decode()
+    val localItems = localItems.decode()
+    return items.mapIndexed { i, it ->
+        TfsExtendedItemInfo(
+            it.lock,
+            it.lockOwner,
+            serverItems[i],
+            localItems[i],
+            it.localVersion,
+            it.serverVersion,
+            it.change,
+            it.type,
+            it.lastModified,
+            it.fileEncoding)
+    }
+}
@@ -12,8 +12,12 @@ import com.jetbrains.rd.util.reactive.adviseOnce
 import com.jetbrains.rd.util.reactive.whenTrue
 import com.microsoft.tfs.model.connector.*
 import kotlinx.coroutines.CancellationException
+import java.net.URI
 import java.util.concurrent.CompletableFuture
 import java.util.concurrent.CompletionStage
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Consumer
 
 class ReactiveClientConnection(val lifetime: LifetimeDefinition, private val scheduler: IScheduler) {
     private val socket = SocketWire.Server(
@@ -35,6 +39,16 @@ class ReactiveClientConnection(val lifetime: LifetimeDefinition, private val sch
 
     lateinit var model: TfsModel
 
+    private val callTraces = ConcurrentHashMap<String, CallTrace>()
+
+    private class CollectionUsage(val lifetime: LifetimeDefinition) {
+        @Volatile
+        var lastUsedMillis = System.currentTimeMillis()
+        val callsInFlight = AtomicInteger()
+    }
+
+    private val collectionUsages = ConcurrentHashMap<TfsCollection, CollectionUsage>()
+
     val port
         get() = socket.port
 
@@ -47,75 +61,210 @@ class ReactiveClientConnection(val lifetime: LifetimeDefinition, private val sch
             }
         }
 
-    fun getOrCreateCollectionAsync(definition: TfsCollectionDefinition): CompletionStage<TfsCollection> =
+    /**
+     * Returns the collection of the server, creating it if needed. The credentials of an existing collection are
+     * replaced if they changed, so the backend keeps a single client per server.
+     */
+    fun getOrCreateCollectionAsync(serverUri: URI, credentials: TfsCredentials): CompletionStage<TfsCollection> =
         queueFutureAsync {
-            complete(model.collections[definition] ?: TfsCollection().apply { model.collections[definition] = this })
+            val collection = model.collections[serverUri] ?: TfsCollection().apply {
+                model.collections[serverUri] = this
+                val usage = CollectionUsage(this@ReactiveClientConnection.lifetime.createNested())
+                collectionUsages[this] = usage
+                callTimings.advise(usage.lifetime) { timings ->
+                    callTraces[timings.correlationId]?.backendTimingsReceived(timings)
+                }
+            }
+
+            val currentCredentials = collection.credentials.value
+            if (currentCredentials == null
+                || currentCredentials.login != credentials.login
+                || currentCredentials.password.contents != credentials.password.contents) {
+                collection.credentials.set(credentials)
+            }
+
+            collectionUsages[collection]?.lastUsedMillis = System.currentTimeMillis()
+            complete(collection)
         }
 
+    /**
+     * Removes the collections that have no calls in flight and weren't used for the given time, which terminates
+     * their clients in the backend. Returns the server URIs of the removed collections.
+     */
+    fun evictIdleCollectionsAsync(idleMillis: Long): CompletionStage<List<URI>> =
+        queueFutureAsync {
+            val now = System.currentTimeMillis()
+            val idleCollections = model.collections.entries
+                .filter { (_, collection) ->
+                    val usage = collectionUsages[collection]
+                    usage == null || usage.callsInFlight.get() == 0 && now - usage.lastUsedMillis >= idleMillis
+                }
+                .map { it.key }
+
+            for (serverUri in idleCollections) {
+                model.collections.remove(serverUri)?.let { collectionUsages.remove(it)?.lifetime?.terminate() }
+            }
+            complete(idleCollections)
+        }
+
+    /**
+     * Sends a heartbeat, which the backend answers from its protocol thread rather than from the call threads.
+     */
+    fun heartbeatAsync(sentAtMillis: Long): CompletionStage<Long> =
+        queueFutureAsync { lt ->
+            model.heartbeat.start(sentAtMillis).pipeTo(lt, this)
+        }
+
+    /**
+     * Closes the socket as if the connection had dropped, which terminates the connection. Used by the fault injection
+     * tests.
+     */
+    fun dropConnection() {
+        socket.socketProvider.valueOrNull?.close()
+    }
+
     fun waitForReadyAsync(collection: TfsCollection): CompletionStage<Void> =
         queueFutureAsync {
             collection.isReady.whenTrue(lifetime) { complete(null) }
         }
 
+    /**
+     * Calls the handler on the protocol scheduler with every health statistics update of the backend, for the
+     * connection lifetime.
+     */
+    fun adviseHealthAsync(handler: Consumer<TfsBackendHealth>): CompletionStage<Void> =
+        queueFutureAsync {
+            model.health.advise(lifetime) { health -> health?.let(handler::accept) }
+            complete(null)
+        }
+
     fun getPendingChangesAsync(
         collection: TfsCollection,
-        paths: List<TfsPath>): CompletionStage<List<TfsPendingChange>> =
-        queueFutureAsync { lt ->
-            collection.getPendingChanges.start(paths).pipeTo(lt, this)
+        paths: List<TfsPath>,
+        trace: CallTrace): CompletionStage<List<TfsPendingChange>> =
+        queueCallAsync(collection, trace) { lt, context ->
+            collection.getPendingChanges.start(paths.toPathsRequest(context))
+                .pipeTo(lt, this) { it.toPendingChanges() }
         }
 
     fun getLocalItemsInfoAsync(
         collection: TfsCollection,
-        paths: List<TfsLocalPath>
+        paths: List<TfsLocalPath>,
+        trace: CallTrace
     ): CompletionStage<List<TfsItemInfo>> =
-        queueFutureAsync { lt ->
-            collection.getLocalItemsInfo.start(paths).pipeTo(lt, this)
+        queueCallAsync(collection, trace) { lt, context ->
+            collection.getLocalItemsInfo.start(TfsLocalPathsRequest(paths.toPathList(), context))
+                .pipeTo(lt, this) { it.toItemsInfo() }
         }
 
     fun getExtendedItemsInfoAsync(
         collection: TfsCollection,
-        paths: List<TfsLocalPath>
+        paths: List<TfsLocalPath>,
+        trace: CallTrace
     ): CompletionStage<List<TfsExtendedItemInfo>> =
-        queueFutureAsync { lt ->
-            collection.getExtendedLocalItemsInfo.start(paths).pipeTo(lt, this)
+        queueCallAsync(collection, trace) { lt, context ->
+            collection.getExtendedLocalItemsInfo.start(TfsLocalPathsRequest(paths.toPathList(), context))
+                .pipeTo(lt, this) { it.toItemsInfo() }
         }
 
-    fun invalidatePathsAsync(collection: TfsCollection, paths: List<TfsLocalPath>): CompletionStage<Void> =
-        queueFutureAsync { lt ->
-            collection.invalidatePaths.start(paths).pipeToVoid(lt, this)
+    fun invalidatePathsAsync(
+        collection: TfsCollection,
+        paths: List<TfsLocalPath>,
+        trace: CallTrace
+    ): CompletionStage<Void> =
+        queueCallAsync(collection, trace) { lt, context ->
+            collection.invalidatePaths.start(TfsLocalPathsRequest(paths.toPathList(), context)).pipeToVoid(lt, this)
         }
 
-    fun addFilesAsync(collection: TfsCollection, files: List<TfsLocalPath>): CompletionStage<List<TfsLocalPath>> =
-        queueFutureAsync { lt ->
-            collection.addFiles.start(files).pipeTo(lt, this)
+    fun addFilesAsync(
+        collection: TfsCollection,
+        files: List<TfsLocalPath>,
+        trace: CallTrace
+    ): CompletionStage<List<TfsLocalPath>> =
+        queueCallAsync(collection, trace) { lt, context ->
+            collection.addFiles.start(TfsLocalPathsRequest(files.toPathList(), context))
+                .pipeTo(lt, this) { it.toLocalPaths() }
         }
 
-    fun deleteFilesRecursivelyAsync(collection: TfsCollection, paths: List<TfsPath>): CompletionStage<TfsDeleteResult> =
-        queueFutureAsync { lt ->
-            collection.deleteFilesRecursively.start(paths).pipeTo(lt, this)
+    fun deleteFilesRecursivelyAsync(
+        collection: TfsCollection,
+        paths: List<TfsPath>,
+        trace: CallTrace
+    ): CompletionStage<TfsDeleteResult> =
+        queueCallAsync(collection, trace) { lt, context ->
+            collection.deleteFilesRecursively.start(paths.toPathsRequest(context)).pipeTo(lt, this)
         }
 
-    fun undoLocalChangesAsync(collection: TfsCollection, paths: List<TfsPath>): CompletionStage<List<TfsLocalPath>> =
-        queueFutureAsync { lt ->
-            collection.undoLocalChanges.start(paths).pipeTo(lt, this)
+    fun undoLocalChangesAsync(
+        collection: TfsCollection,
+        paths: List<TfsPath>,
+        trace: CallTrace
+    ): CompletionStage<List<TfsLocalPath>> =
+        queueCallAsync(collection, trace) { lt, context ->
+            collection.undoLocalChanges.start(paths.toPathsRequest(context))
+                .pipeTo(lt, this) { it.toLocalPaths() }
         }
 
     fun checkoutFilesForEditAsync(
         collection: TfsCollection,
         filePaths: List<TfsLocalPath>,
-        recursive: Boolean
+        recursive: Boolean,
+        trace: CallTrace
     ): CompletionStage<TfvcCheckoutResult> =
-        queueFutureAsync { lt ->
-            collection.checkoutFilesForEdit.start(TfvcCheckoutParameters(filePaths, recursive)).pipeTo(lt, this)
+        queueCallAsync(collection, trace) { lt, context ->
+            collection.checkoutFilesForEdit.start(TfvcCheckoutParameters(filePaths, recursive, context))
+                .pipeTo(lt, this)
         }
 
     fun renameFileAsync(
         collection: TfsCollection,
         oldPath: TfsLocalPath,
-        newPath: TfsLocalPath
+        newPath: TfsLocalPath,
+        trace: CallTrace
     ): CompletionStage<Boolean> =
+        queueCallAsync(collection, trace) { lt, context ->
+            collection.renameFile.start(TfvcRenameRequest(oldPath, newPath, context)).pipeTo(lt, this)
+        }
+
+    fun checkinAsync(
+        collection: TfsCollection,
+        filePaths: List<TfsLocalPath>,
+        comment: String,
+        workItemIds: List<Int>,
+        onProgress: Consumer<TfvcCheckinProgress>,
+        trace: CallTrace
+    ): CompletionStage<TfsCheckinResult> =
+        queueCallAsync(collection, trace) { lt, context ->
+            collection.checkinProgress.advise(lt) { onProgress.accept(it) }
+            collection.checkin.start(TfvcCheckinParameters(filePaths, comment, workItemIds, context)).pipeTo(lt, this)
+        }
+
+    /**
+     * Queues a call that is reported to the trace: the time spent serializing the request on the protocol scheduler,
+     * the timings reported by the backend and the round trip.
+     */
+    private fun <T> queueCallAsync(
+        collection: TfsCollection,
+        trace: CallTrace,
+        action: CompletableFuture<T>.(Lifetime, TfsCallContext) -> Unit
+    ): CompletionStage<T> =
         queueFutureAsync { lt ->
-            collection.renameFile.start(TfvcRenameRequest(oldPath, newPath)).pipeTo(lt, this)
+            val callId = trace.nextCallId()
+            val startNanos = System.nanoTime()
+            val usage = collectionUsages[collection]
+            usage?.callsInFlight?.incrementAndGet()
+            callTraces[callId] = trace
+            whenComplete { _, _ ->
+                callTraces.remove(callId)
+                usage?.apply {
+                    lastUsedMillis = System.currentTimeMillis()
+                    callsInFlight.decrementAndGet()
+                }
+                trace.callCompleted(System.nanoTime() - startNanos)
+            }
+
+            action(lt, TfsCallContext(callId, System.currentTimeMillis()))
+            trace.callSent(System.nanoTime() - startNanos)
         }
 
     private fun <T> queueFutureAsync(action: CompletableFuture<T>.(Lifetime) -> Unit): CompletionStage<T> {
@@ -128,10 +277,17 @@ class ReactiveClientConnection(val lifetime: LifetimeDefinition, private val sch
         return future
     }
 
-    private fun <T> IRdTask<T>.pipeTo(lt: Lifetime, future: CompletableFuture<T>) {
+    private fun <T> IRdTask<T>.pipeTo(lt: Lifetime, future: CompletableFuture<T>) =
+        pipeTo(lt, future) { it }
+
+    /**
+     * Completes the future with the converted result of the task. The conversion (e.g. the decoding of the path lists)
+     * runs on the protocol scheduler.
+     */
+    private fun <T, R> IRdTask<T>.pipeTo(lt: Lifetime, future: CompletableFuture<R>, convert: (T) -> R) {
         result.adviseOnce(lt) {
             try {
-                future.complete(it.unwrap())
+                future.complete(convert(it.unwrap()))
             } catch (ex: CancellationException) {
                 future.cancel(false)
             } catch (ex: Throwable) {
@@ -19,6 +19,12 @@ object TfsModel : Root() {
         field("path", string)
     }
 
+    // Front-coded paths: a chunk of paths under a workspace root sends the root once rather than with every path
+    private val TfsPathList = structdef {
+        field("sharedPrefixLengths", immutableList(int)) // Characters shared with the previous path, -1 for null
+        field("suffixes", immutableList(string)) // The rest of every path
+    }
+
     private val TfsServerStatusType = enum {
         +"ADD"
         +"RENAME"
@@ -43,6 +49,35 @@ object TfsModel : Root() {
         field("computer", string)
         field("isCandidate", bool)
         field("sourceItem", string.nullable)
+        field("hashValue", string.nullable) // Base64 MD5 of the workspace version content, if known
+    }
+
+    private val TfsCallContext = structdef {
+        field("correlationId", string) // <plugin request ID>.<call number>, also written to the backend log
+        field("sentAtMillis", long) // System.currentTimeMillis() of the plugin when the call was sent
+    }
+
+    private val TfsCallTimings = structdef {
+        field("correlationId", string)
+        field("queueMillis", long) // From sending the call to the start of its handler, including the transfer
+        field("sdkMicros", long) // The handler run time, i.e. mostly the SDK calls
+    }
+
+    private val TfsPathsRequest = structdef {
+        field("localPaths", TfsPathList)
+        field("serverPaths", immutableList(TfsServerPath))
+        field("context", TfsCallContext)
+    }
+
+    private val TfsLocalPathsRequest = structdef {
+        field("paths", TfsPathList)
+        field("context", TfsCallContext)
+    }
+
+    private val TfsPendingChangeList = structdef {
+        field("serverItems", TfsPathList)
+        field("localItems", TfsPathList)
+        field("changes", immutableList(TfsPendingChange)) // Sent with empty serverItem and localItem
     }
 
     private val TfsCredentials = structdef {
@@ -50,11 +85,6 @@ object TfsModel : Root() {
         field("password", secureString)
     }
 
-    private val TfsCollectionDefinition = structdef {
-        field("serverUri", uri)
-        field("credentials", TfsCredentials)
-    }
-
     private val TfsItemInfo = basestruct {
         field("serverItem", string.nullable)
         field("localItem", string.nullable)
@@ -73,6 +103,18 @@ object TfsModel : Root() {
         field("lockOwner", string.nullable)
     }
 
+    private val TfsLocalItemInfoList = structdef {
+        field("serverItems", TfsPathList)
+        field("localItems", TfsPathList)
+        field("items", immutableList(TfsLocalItemInfo)) // Sent with null serverItem and localItem
+    }
+
+    private val TfsExtendedItemInfoList = structdef {
+        field("serverItems", TfsPathList)
+        field("localItems", TfsPathList)
+        field("items", immutableList(TfsExtendedItemInfo)) // Sent with null serverItem and localItem
+    }
+
     private val TfsDeleteResult = structdef {
         field("deletedPaths", immutableList(TfsLocalPath))
         field("notFoundPaths", immutableList(TfsPath))
@@ -82,6 +124,7 @@ object TfsModel : Root() {
     private val TfvcCheckoutParameters = structdef {
         field("filePaths", immutableList(TfsLocalPath))
         field("recursive", bool)
+        field("context", TfsCallContext)
     }
 
     private val TfvcCheckoutResult = structdef {
@@ -93,34 +136,81 @@ object TfsModel : Root() {
     private val TfvcRenameRequest = structdef {
         field("oldPath", TfsLocalPath)
         field("newPath", TfsLocalPath)
+        field("context", TfsCallContext)
+    }
+
+    private val TfvcCheckinParameters = structdef {
+        field("filePaths", immutableList(TfsLocalPath))
+        field("comment", string)
+        field("workItemIds", immutableList(int))
+        field("context", TfsCallContext)
+    }
+
+    private val TfvcCheckinProgress = structdef {
+        field("serverItem", string)
+        field("localItem", string.nullable)
+        field("checkedInCount", int)
+        field("totalCount", int)
+    }
+
+    private val TfsCheckinResult = structdef {
+        field("changesetNumber", int) // 0 if nothing was checked in
+        field("errorMessages", immutableList(string))
+    }
+
+    private val TfsItemCacheStatistics = structdef {
+        field("hits", long) // Paths answered from the cache
+        field("misses", long) // Paths queried from the server
+        field("invalidations", long)
+        field("entries", int)
+        field("cachedCalls", long) // Item info calls answered without a server round trip
+        field("cachedCallMicros", long) // Total run time of these calls
+        field("serverCalls", long)
+        field("serverCallMicros", long)
+    }
+
+    private val TfsBackendHealth = structdef {
+        field("heapUsedBytes", long)
+        field("liveHeapBytes", long) // Heap used right after the last collection, i.e. the live data
+        field("peakLiveHeapBytes", long) // The largest liveHeapBytes since the backend start
+        field("heapMaxBytes", long)
+        field("gcCount", long)
+        field("gcPauseMillis", long) // Total time spent in collections since the backend start
+        field("uptimeMillis", long)
+        field("cachedWorkspaceCount", int) // Workspaces of all the collections kept by the SDK
+        field("workspaceItemCount", long) // Versioned items of the workspaces of all the collections
+        field("itemCache", TfsItemCacheStatistics) // Item info caches of all the collections
     }
 
     private val TfsCollection = classdef {
+        property("credentials", TfsCredentials.nullable)
+            .doc("The client is created when these are first set; later changes (e.g. a token refresh) replace them in place")
+
         property("isReady", bool)
             .doc("Whether the client is ready to accept method calls")
 
         property("mappedPaths", immutableList(TfsPath))
             .doc("A list of path mappings for this collection")
 
-        call("getPendingChanges", immutableList(TfsPath), immutableList(TfsPendingChange))
+        call("getPendingChanges", TfsPathsRequest, TfsPendingChangeList)
             .doc("Determines a set of the pending changes in the collection")
 
-        call("getLocalItemsInfo", immutableList(TfsLocalPath), immutableList(TfsLocalItemInfo))
+        call("getLocalItemsInfo", TfsLocalPathsRequest, TfsLocalItemInfoList)
             .doc("Provides information on local repository items")
 
-        call("getExtendedLocalItemsInfo", immutableList(TfsLocalPath), immutableList(TfsExtendedItemInfo))
+        call("getExtendedLocalItemsInfo", TfsLocalPathsRequest, TfsExtendedItemInfoList)
             .doc("Provides extended information (i.e. including locks) on local repository items")
 
-        call("invalidatePaths", immutableList(TfsLocalPath), void)
+        call("invalidatePaths", TfsLocalPathsRequest, void)
             .doc("Invalidates the paths in the TFS cache")
 
-        call("addFiles", immutableList(TfsLocalPath), immutableList(TfsLocalPath))
+        call("addFiles", TfsLocalPathsRequest, TfsPathList)
             .doc("Creates an \"add\" pending change, which adds files and folders from the local workspace to the source control server. Returns a collection of the paths added.")
 
-        call("deleteFilesRecursively", immutableList(TfsPath), TfsDeleteResult)
+        call("deleteFilesRecursively", TfsPathsRequest, TfsDeleteResult)
             .doc("Scheduled deletion of the files")
 
-        call("undoLocalChanges", immutableList(TfsPath), immutableList(TfsLocalPath))
+        call("undoLocalChanges", TfsPathsRequest, TfsPathList)
             .doc("Removes pending changes from a workspace, restoring the local disk files to match the state of the source control server before the change was made.")
 
         call("checkoutFilesForEdit", TfvcCheckoutParameters, TfvcCheckoutResult)
@@ -128,12 +218,28 @@ object TfsModel : Root() {
 
         call("renameFile", TfvcRenameRequest, bool)
             .doc("Creates a \"rename\" pending change, which moves or renames a file or folder. Returns success status")
+
+        call("checkin", TfvcCheckinParameters, TfsCheckinResult)
+            .doc("Validates the pending changes of the files (conflicts, locks held by others, associated work items) and checks them in, firing checkinProgress for every item uploaded. Returns the changeset number or the validation errors.")
+
+        signal("checkinProgress", TfvcCheckinProgress).async
+            .doc("Fired from the upload threads as the items of a checkin are uploaded")
+
+        signal("callTimings", TfsCallTimings).async
+            .doc("Fired from the call thread of the collection right before the call completes, so the timings arrive before the call result")
     }
 
     init {
         signal("shutdown", void)
             .doc("Shuts down the application")
 
-        map("collections", TfsCollectionDefinition, TfsCollection)
+        call("heartbeat", long, long)
+            .doc("Returns its argument (the time it was sent at) from the protocol thread; the calls of the collections run on their own threads, so a long call doesn't delay the answer")
+
+        map("collections", uri, TfsCollection)
+            .doc("Collections by server URI. Removing one terminates its client")
+
+        property("health", TfsBackendHealth.nullable)
+            .doc("Heap, GC, SDK cache and item cache statistics of the backend, updated periodically")
     }
 }
\ No newline at end of file
@@ -379,6 +379,18 @@ public class UrlHelper {
         return false;
     }
 
+    /**
+     * Returns the portion of the URI that has to match for two URIs to use the same credentials (see
+     * {@link #haveSameAccount(URI, URI)}), normalized so that it can be used as a hash key
+     */
+    public static String getAccountKey(final URI uri) {
+        if (uri == null) {
+            return null;
+        }
+
+        return StringUtils.lowerCase(StringUtils.defaultString(getServerAccountKey(uri)));
+    }
+
     public static String encode(String urlParameter) {
         try {
             return URLEncoder.encode(urlParameter, "UTF-8");
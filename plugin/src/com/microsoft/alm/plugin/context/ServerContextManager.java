@@ -37,6 +37,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -49,7 +50,12 @@ public class ServerContextManager {
     private final String CONNECTION_DATA_REST_API_PATH = "/_apis/connectionData?connectOptions=IncludeServices&lastChangeId=-1&lastChangeId64=-1&api-version=1.0";
     private final String TFS2015_NEW_SERVICE = "distributedtask";
 
-    private Map<String, ServerContext> contextMap = new HashMap<String, ServerContext>();
+    /**
+     * Contexts are published as an immutable snapshot, so readers (e.g. git asking for credentials during a fetch) never
+     * wait for a writer. Writers copy the snapshot under {@link #writeLock}.
+     */
+    private volatile Registry registry = Registry.EMPTY;
+    private final Object writeLock = new Object();
 
     private static class Holder {
         private static final ServerContextManager INSTANCE = new ServerContextManager(true);
@@ -79,7 +85,7 @@ public class ServerContextManager {
         return Holder.INSTANCE;
     }
 
-    public synchronized ServerContext getLastUsedContext() {
+    public ServerContext getLastUsedContext() {
         final ServerContext context = get(getLastUsedContextKey());
         return context;
     }
@@ -92,34 +98,36 @@ public class ServerContextManager {
         return PluginServiceProvider.getInstance().getPropertyService().getProperty(PropertyService.PROP_LAST_CONTEXT_KEY);
     }
 
-    public synchronized void clearLastUsedContext() {
+    public void clearLastUsedContext() {
         setLastUsedContextKey(null);
     }
 
-    public synchronized boolean lastUsedContextIsEmpty() {
+    public boolean lastUsedContextIsEmpty() {
         final ServerContext lastUsed = getLastUsedContext();
         return lastUsed == null;
     }
 
-    public synchronized boolean lastUsedContextIsTFS() {
+    public boolean lastUsedContextIsTFS() {
         final ServerContext lastUsed = getLastUsedContext();
         return lastUsed != null && lastUsed.getType() == ServerContext.Type.TFS;
     }
 
-    public synchronized void add(final ServerContext context) {
+    public void add(final ServerContext context) {
         add(context, true);
     }
 
-    public synchronized void add(final ServerContext context, boolean updateLastUsedContext) {
+    public void add(final ServerContext context, boolean updateLastUsedContext) {
         if (context != null) {
             final String key = context.getKey();
-            contextMap.put(key, context);
-            // Only persist PATs, not access tokens
-            if (shouldBeSaved(context)) {
-                getStore().saveServerContext(context);
-            }
-            if (updateLastUsedContext) {
-                setLastUsedContextKey(key);
+            synchronized (writeLock) {
+                registry = registry.with(key, context);
+                // Only persist PATs, not access tokens
+                if (shouldBeSaved(context)) {
+                    getStore().saveServerContext(context);
+                }
+                if (updateLastUsedContext) {
+                    setLastUsedContextKey(key);
+                }
             }
         }
     }
@@ -136,45 +144,47 @@ public class ServerContextManager {
         return shouldBeSaved;
     }
 
-    public synchronized ServerContext get(final String uri) {
+    public ServerContext get(final String uri) {
         if (!StringUtils.isEmpty(uri)) {
-            final ServerContext context = contextMap.get(ServerContext.getKey(uri));
+            final ServerContext context = registry.contexts.get(ServerContext.getKey(uri));
             return context;
         }
 
         return null;
     }
 
-    public synchronized void remove(final String serverUri) {
+    public void remove(final String serverUri) {
         if (StringUtils.isEmpty(serverUri)) {
             return;
         }
 
         final String key = ServerContext.getKey(serverUri);
-        final ServerContext context = get(key);
-
-        if (context != null) {
-            getStore().forgetServerContext(key);
-            contextMap.remove(key);
-            if (StringUtils.equalsIgnoreCase(key, getLastUsedContextKey())) {
-                clearLastUsedContext();
+        synchronized (writeLock) {
+            final ServerContext context = get(key);
+
+            if (context != null) {
+                getStore().forgetServerContext(key);
+                registry = registry.without(key);
+                if (StringUtils.equalsIgnoreCase(key, getLastUsedContextKey())) {
+                    clearLastUsedContext();
+                }
             }
         }
     }
 
-    public synchronized Collection<ServerContext> getAllServerContexts() {
-        //copy values from HashMap to a new List make sure the list is immutable
-        return Collections.unmodifiableCollection(new ArrayList<ServerContext>(contextMap.values()));
+    public Collection<ServerContext> getAllServerContexts() {
+        // the snapshot is never modified, so it can be handed out without copying it
+        return registry.contexts.values();
     }
 
-    private ServerContextStore getStore() {
+    protected ServerContextStore getStore() {
         return PluginServiceProvider.getInstance().getServerContextStore();
     }
 
     /**
      * Called once from constructor restore the state from disk between sessions.
      */
-    private synchronized void restoreFromSavedState() {
+    private void restoreFromSavedState() {
         final List<ServerContext> contexts = getStore().restoreServerContexts();
         for (final ServerContext sc : contexts) {
             add(sc, false);
@@ -487,13 +497,11 @@ public class ServerContextManager {
     public AuthenticationInfo getAuthenticationInfo(URI serverUri, final boolean prompt) {
         AuthenticationInfo authenticationInfo = null;
 
-        // For now I will just do a linear search for an appropriate context info to copy the auth info from
-        for (final ServerContext context : getAllServerContexts()) {
-            if (UrlHelper.haveSameAccount(serverUri, context.getUri())) {
-                logger.info("AuthenticatedInfo found for url " + serverUri);
-                authenticationInfo = context.getAuthenticationInfo();
-                break;
-            }
+        // Copy the auth info from the most recently added context of the same account
+        final List<ServerContext> accountContexts = registry.getAccountContexts(serverUri);
+        if (!accountContexts.isEmpty()) {
+            logger.info("AuthenticatedInfo found for url " + serverUri);
+            authenticationInfo = accountContexts.get(accountContexts.size() - 1).getAuthenticationInfo();
         }
 
         // If the auth info wasn't found and we are ok to prompt, then prompt
@@ -515,13 +523,13 @@ public class ServerContextManager {
      * @return
      */
     public void updateServerContextsAuthInfo(final List<ServerContext> contexts) {
-        logger.info("updateServerContextsAuthInfo: starting with context count: " + contexts.size() + ", contextMap size: " + contextMap.size());
+        logger.info("updateServerContextsAuthInfo: starting with context count: " + contexts.size() + ", context count: " + registry.contexts.size());
         final HashMap<AuthenticationInfo, AuthenticationInfo> authInfoMap = new HashMap<AuthenticationInfo, AuthenticationInfo>(contexts.size());
         for (final ServerContext context : contexts) {
             authInfoMap.put(context.getAuthenticationInfo(), getNewAuthInfo(context));
         }
         refreshAuthInfo(authInfoMap);
-        logger.info("updateServerContextsAuthInfo: ending with contextMap size: " + contextMap.size());
+        logger.info("updateServerContextsAuthInfo: ending with context count: " + registry.contexts.size());
     }
 
     /**
@@ -610,39 +618,37 @@ public class ServerContextManager {
         final URI remoteUri = UrlHelper.createUri(remoteUrl);
         ServerContext matchingContext = null;
 
-        //Linear search through all contexts to find the ones with same authority as remoteUrl
-        for (final ServerContext context : getAllServerContexts()) {
+        //Look up all contexts with same authority as remoteUrl
+        for (final ServerContext context : registry.getAccountContexts(remoteUri)) {
             logger.info("auth info updateAuthenticationInfo compare " + context.getUri().getPath());
-            if (UrlHelper.haveSameAccount(remoteUri, context.getUri())) {
-                //remove the context with old credentials
-                remove(context.getKey());
-
-                logger.info("auth info updateAuthenticationInfo removed");
-                //get new credentials by prompting the user one time only
-                if (promptUser) {
-                    logger.info("auth info updateAuthenticationInfo prompting");
-                    //prompt user
-                    final AuthenticationProvider authenticationProvider = getAuthenticationProvider(remoteUrl);
-                    authenticationProvider.clearAuthenticationDetails(context.getServerUri().toString());
-                    newAuthenticationInfo = AuthHelper.getAuthenticationInfoSynchronously(authenticationProvider, remoteUrl);
-                    promptUser = false;
-                }
+            //remove the context with old credentials
+            remove(context.getKey());
+
+            logger.info("auth info updateAuthenticationInfo removed");
+            //get new credentials by prompting the user one time only
+            if (promptUser) {
+                logger.info("auth info updateAuthenticationInfo prompting");
+                //prompt user
+                final AuthenticationProvider authenticationProvider = getAuthenticationProvider(remoteUrl);
+                authenticationProvider.clearAuthenticationDetails(context.getServerUri().toString());
+                newAuthenticationInfo = AuthHelper.getAuthenticationInfoSynchronously(authenticationProvider, remoteUrl);
+                promptUser = false;
+            }
 
-                if (newAuthenticationInfo != null) {
-                    logger.info("auth info updateAuthenticationInfo not null");
-                    //build a context with new authentication info and add
-                    final ServerContextBuilder builder = new ServerContextBuilder(context);
-                    builder.authentication(newAuthenticationInfo);
-                    final ServerContext newContext = builder.build();
-                    logger.info(context.getUri().toString() + "       " + remoteUrl);
-                    if (StringUtils.equalsIgnoreCase(context.getUri().toString(), remoteUrl)) {
-                        logger.info("The updated auth info created a context that matches the remote url");
-                        add(newContext, true);
-                        matchingContext = newContext;
-                    } else {
-                        logger.info("The updated auth info created a context that has a different remote url");
-                        add(newContext, false);
-                    }
+            if (newAuthenticationInfo != null) {
+                logger.info("auth info updateAuthenticationInfo not null");
+                //build a context with new authentication info and add
+                final ServerContextBuilder builder = new ServerContextBuilder(context);
+                builder.authentication(newAuthenticationInfo);
+                final ServerContext newContext = builder.build();
+                logger.info(context.getUri().toString() + "       " + remoteUrl);
+                if (StringUtils.equalsIgnoreCase(context.getUri().toString(), remoteUrl)) {
+                    logger.info("The updated auth info created a context that matches the remote url");
+                    add(newContext, true);
+                    matchingContext = newContext;
+                } else {
+                    logger.info("The updated auth info created a context that has a different remote url");
+                    add(newContext, false);
                 }
             }
         }
@@ -666,6 +672,90 @@ public class ServerContextManager {
         return TfsAuthenticationProvider.getInstance();
     }
 
+    /**
+     * Immutable snapshot of the contexts, indexed by their key and by the account they authenticate against (see
+     * {@link UrlHelper#haveSameAccount(URI, URI)}). Every change creates a new snapshot.
+     */
+    private static class Registry {
+        private static final Registry EMPTY = new Registry(Collections.<String, ServerContext>emptyMap(),
+                Collections.<String, List<ServerContext>>emptyMap());
+
+        private final Map<String, ServerContext> contexts;
+        // the contexts of each account in the order they were added
+        private final Map<String, List<ServerContext>> accounts;
+
+        private Registry(final Map<String, ServerContext> contexts, final Map<String, List<ServerContext>> accounts) {
+            this.contexts = contexts;
+            this.accounts = accounts;
+        }
+
+        public List<ServerContext> getAccountContexts(final URI uri) {
+            final String accountKey = UrlHelper.getAccountKey(uri);
+            final List<ServerContext> accountContexts = accountKey == null ? null : accounts.get(accountKey);
+            return accountContexts == null ? Collections.<ServerContext>emptyList() : accountContexts;
+        }
+
+        public Registry with(final String key, final ServerContext context) {
+            final Map<String, ServerContext> newContexts = new LinkedHashMap<String, ServerContext>(contexts);
+            final Map<String, List<ServerContext>> newAccounts = new HashMap<String, List<ServerContext>>(accounts);
+            final ServerContext previous = newContexts.remove(key);
+            if (previous != null) {
+                removeFromAccount(newAccounts, previous);
+            }
+            newContexts.put(key, context);
+            addToAccount(newAccounts, context);
+            return new Registry(Collections.unmodifiableMap(newContexts), Collections.unmodifiableMap(newAccounts));
+        }
+
+        public Registry without(final String key) {
+            final ServerContext previous = contexts.get(key);
+            if (previous == null) {
+                return this;
+            }
+
+            final Map<String, ServerContext> newContexts = new LinkedHashMap<String, ServerContext>(contexts);
+            final Map<String, List<ServerContext>> newAccounts = new HashMap<String, List<ServerContext>>(accounts);
+            newContexts.remove(key);
+            removeFromAccount(newAccounts, previous);
+            return new Registry(Collections.unmodifiableMap(newContexts), Collections.unmodifiableMap(newAccounts));
+        }
+
+        private static void addToAccount(final Map<String, List<ServerContext>> accounts, final ServerContext context) {
+            final String accountKey = UrlHelper.getAccountKey(context.getUri());
+            if (accountKey == null) {
+                return;
+            }
+
+            final List<ServerContext> previous = accounts.get(accountKey);
+            final List<ServerContext> accountContexts = previous == null
+                    ? new ArrayList<ServerContext>(1)
+                    : new ArrayList<ServerContext>(previous);
+            accountContexts.add(context);
+            accounts.put(accountKey, Collections.unmodifiableList(accountContexts));
+        }
+
+        private static void removeFromAccount(final Map<String, List<ServerContext>> accounts, final ServerContext context) {
+            final String accountKey = UrlHelper.getAccountKey(context.getUri());
+            final List<ServerContext> previous = accountKey == null ? null : accounts.get(accountKey);
+            if (previous == null) {
+                return;
+            }
+
+            final List<ServerContext> accountContexts = new ArrayList<ServerContext>(previous);
+            for (int i = 0; i < accountContexts.size(); i++) {
+                if (accountContexts.get(i) == context) {
+                    accountContexts.remove(i);
+                    break;
+                }
+            }
+            if (accountContexts.isEmpty()) {
+                accounts.remove(accountKey);
+            } else {
+                accounts.put(accountKey, Collections.unmodifiableList(accountContexts));
+            }
+        }
+    }
+
     protected static class Validator implements UrlHelper.ParseResultValidator {
         private final static String TFVC_BRANCHES_URL_PATH = "/_apis/tfvc/branches";
         private final static String REPO_INFO_URL_PATH = "/vsts/info";
@@ -4,6 +4,7 @@
 package com.microsoft.alm.plugin.external;
 
 import com.google.common.util.concurrent.SettableFuture;
+import com.intellij.execution.process.OSProcessUtil;
 import com.microsoft.alm.common.utils.ArgumentHelper;
 import com.microsoft.alm.plugin.authentication.AuthenticationInfo;
 import com.microsoft.alm.plugin.external.utils.ProcessHelper;
@@ -269,6 +270,23 @@ public class ToolRunner {
         }
     }
 
+    /**
+     * Kills the process along with any process it started (e.g. the JVM started by the tf script) and then disposes
+     * of the runner. Used when a command hangs or is cancelled.
+     */
+    public void kill() {
+        final Process process = toolProcess;
+        if (process != null) {
+            try {
+                OSProcessUtil.killProcessTree(process);
+            } catch (final Throwable t) {
+                logger.warn("Failed to kill the process tree.", t);
+                process.destroyForcibly();
+            }
+        }
+        dispose();
+    }
+
     private static class ListenerProxy implements Listener {
         private final List<Listener> listeners = new ArrayList<Listener>(2);
 
@@ -6,6 +6,7 @@ package com.microsoft.alm.plugin.external;
 import com.google.common.collect.Lists;
 import com.microsoft.alm.common.utils.ArgumentHelper;
 import com.microsoft.alm.plugin.external.models.ToolVersion;
+import com.microsoft.alm.plugin.external.telemetry.CommandTrace;
 import com.microsoft.alm.plugin.external.tools.TfTool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,6 +50,23 @@ public class ToolRunnerCache {
             ToolRunner.Listener listener,
             boolean shouldPrepareCachedRunner,
             boolean skipVersionCheck) {
+        return getRunningToolRunner(toolLocation, argumentBuilder, listener, shouldPrepareCachedRunner,
+                skipVersionCheck, null);
+    }
+
+    /**
+     * Same as {@link #getRunningToolRunner(String, ToolRunner.ArgumentBuilder, ToolRunner.Listener, boolean, boolean)},
+     * and reports whether a cached runner was used and how long it took to start a process to the trace.
+     *
+     * @param trace the trace of the command the runner is for, may be null
+     */
+    public static ToolRunner getRunningToolRunner(
+            String toolLocation,
+            ToolRunner.ArgumentBuilder argumentBuilder,
+            ToolRunner.Listener listener,
+            boolean shouldPrepareCachedRunner,
+            boolean skipVersionCheck,
+            CommandTrace trace) {
         logger.info("getRunningToolRunner: toolLocation={}", toolLocation);
         ToolRunner toolRunner;
 
@@ -57,7 +75,15 @@ public class ToolRunnerCache {
         if (version == null || version.compare(TfTool.TF_MIN_VERSION) < 0) {
             // If it is older than the min version then just return a new ToolRunner and start it
             logger.info("getRunningToolRunner: slow version - " + (skipVersionCheck ? "(version check skipped)" : version));
+            if (trace != null) {
+                // the arguments are passed on the command line, so they are sent when the process starts
+                trace.argumentsSent();
+            }
+            final long processStart = System.nanoTime();
             toolRunner = startToolRunner(toolLocation, argumentBuilder, listener);
+            if (trace != null) {
+                trace.runnerAcquired(false, System.nanoTime() - processStart);
+            }
         } else {
             // check the cache and try to get one that is already running
             logger.info("getRunningToolRunner: fast version - " + version);
@@ -69,13 +95,23 @@ public class ToolRunnerCache {
             if (toolRunner == null) {
                 // Cache miss, so create a new one
                 logger.info("getRunningToolRunner: cache miss.");
+                final long processStart = System.nanoTime();
                 toolRunner = startToolRunner(toolLocation, getStartAndWaitArguments(argumentBuilder), listener);
+                if (trace != null) {
+                    trace.runnerAcquired(false, System.nanoTime() - processStart);
+                }
             } else {
                 // Cache hit, but we need to add the listener
                 toolRunner.addListener(listener);
+                if (trace != null) {
+                    trace.runnerAcquired(true, 0);
+                }
             }
 
             // The toolRunner should already be started, we just need to send the args in
+            if (trace != null) {
+                trace.argumentsSent();
+            }
             toolRunner.sendArgsViaStandardInput(argumentBuilder);
 
             // Add another instance to the cache for later
@@ -87,6 +123,18 @@ public class ToolRunnerCache {
         return toolRunner;
     }
 
+    /**
+     * Kills the runner waiting for the next command in the same working directory. Used after a command there hung,
+     * since a runner started at the same time is likely to be stuck the same way.
+     */
+    public static void evict(final String toolLocation, final ToolRunner.ArgumentBuilder argumentBuilder) {
+        final ToolRunner toolRunner = cache.remove(getKey(toolLocation, argumentBuilder));
+        if (toolRunner != null) {
+            logger.info("evict: killing cached tool runner for {}", argumentBuilder.getWorkingDirectory());
+            toolRunner.kill();
+        }
+    }
+
     private static ToolRunner startToolRunner(String toolLocation, ToolRunner.ArgumentBuilder argumentBuilder, ToolRunner.Listener listener) {
         final ToolRunner toolRunner = new ToolRunner(toolLocation, argumentBuilder.getWorkingDirectory());
         toolRunner.addListener(listener);
@@ -117,4 +117,9 @@ public class CheckinCommand extends Command<String> {
 
         return getChangesetNumber(stdout);
     }
+
+    @Override
+    public int getTimeoutSeconds() {
+        return LONG_RUNNING_TIMEOUT_SECONDS;
+    }
 }
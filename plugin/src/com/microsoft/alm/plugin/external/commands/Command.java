@@ -5,6 +5,9 @@ package com.microsoft.alm.plugin.external.commands;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.SettableFuture;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
 import com.microsoft.alm.common.utils.ArgumentHelper;
 import com.microsoft.alm.helpers.Path;
 import com.microsoft.alm.plugin.context.ServerContext;
@@ -14,7 +17,9 @@ import com.microsoft.alm.plugin.external.exceptions.DollarInPathException;
 import com.microsoft.alm.plugin.external.exceptions.ToolException;
 import com.microsoft.alm.plugin.external.exceptions.ToolMemoryException;
 import com.microsoft.alm.plugin.external.exceptions.ToolParseFailureException;
+import com.microsoft.alm.plugin.external.exceptions.ToolTimeoutException;
 import com.microsoft.alm.plugin.external.models.Workspace;
+import com.microsoft.alm.plugin.external.telemetry.CommandTrace;
 import com.microsoft.alm.plugin.external.tools.TfTool;
 import com.microsoft.alm.plugin.external.utils.WorkspaceHelper;
 import com.sun.org.apache.xpath.internal.jaxp.XPathFactoryImpl;
@@ -37,6 +42,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -60,6 +67,16 @@ public abstract class Command<T> {
     public static final int OUTPUT_TYPE_WARNING = 1;
     public static final int OUTPUT_TYPE_ERROR = 2;
 
+    /**
+     * How long a command may run by default before it is considered hung
+     */
+    public static final int DEFAULT_TIMEOUT_SECONDS = 10 * 60;
+    /**
+     * For commands that transfer many files (get, checkin, merge)
+     */
+    public static final int LONG_RUNNING_TIMEOUT_SECONDS = 60 * 60;
+    private static final long CANCEL_CHECK_INTERVAL_MILLISECONDS = 100L;
+
     private static final String WARNING_PREFIX = "WARN ";
     private static final String XML_PREFIX = "<?xml ";
 
@@ -135,17 +152,21 @@ public abstract class Command<T> {
      * when the command process finishes.
      *
      * @param listener
+     * @return the runner of the tool process, so the caller can kill it
      */
-    public void run(final Listener<T> listener) {
+    public ToolRunner run(final Listener<T> listener) {
         final StringBuilder stdout = new StringBuilder();
         final StringBuilder stderr = new StringBuilder();
         ArgumentHelper.checkNotNull(listener, "listener");
-        final ToolRunner runner = ToolRunnerCache.getRunningToolRunner(TfTool.getValidLocation(),
+        final CommandTrace trace = new CommandTrace(name);
+        return ToolRunnerCache.getRunningToolRunner(TfTool.getValidLocation(),
                 getArgumentBuilder(), new ToolRunner.Listener() {
                     @Override
                     public void processStandardOutput(final String line) {
-                        if (logStdOut) {
-                            logger.info("CMD: " + line);
+                        trace.standardOutput(line);
+                        // Large outputs (e.g. the status of a whole workspace) would flood the log one line at a time
+                        if (logStdOut && logger.isDebugEnabled()) {
+                            logger.debug("CMD: " + line);
                         }
 
                         stdout.append(line + "\n");
@@ -162,6 +183,7 @@ public abstract class Command<T> {
                     @Override
                     public void processException(final Throwable throwable) {
                         logger.info("ERROR: " + throwable.toString());
+                        trace.finish();
                         listener.progress("", OUTPUT_TYPE_INFO, 100);
                         listener.completed(null, throwable);
                     }
@@ -172,6 +194,7 @@ public abstract class Command<T> {
 
                         Throwable error = null;
                         T result = null;
+                        final long parseStart = System.nanoTime();
                         try {
                             //TODO there are some commands that write errors to stdout and simply return a non-zero exit code (i.e. when a workspace is not found by name)
                             //TODO we may want to pass in the return code to the parse method or something like that to allow the command to inspect this info as well.
@@ -187,10 +210,12 @@ public abstract class Command<T> {
                                 error = throwable;
                             }
                         }
+                        trace.parsed(System.nanoTime() - parseStart, returnCode);
+                        trace.finish();
                         listener.progress("", OUTPUT_TYPE_INFO, 100);
                         listener.completed(result, error);
                     }
-                }, shouldPrepareCachedRunner(), skipVersionCheck());
+                }, shouldPrepareCachedRunner(), skipVersionCheck(), trace);
     }
 
     /**
@@ -212,15 +237,21 @@ public abstract class Command<T> {
      * This method is provided to allow callers to run the command and wait on the result.
      * You should probably not call this method on the main thread.
      * You should also limit this to fast local commands.
+     * <p/>
+     * If the progress indicator of the calling thread is cancelled or the command runs longer than
+     * {@link #getTimeoutSeconds()}, the tool process is killed along with the processes it started.
      *
      * @return
+     * @throws ProcessCanceledException if the progress indicator was cancelled
+     * @throws ToolTimeoutException     if the command didn't finish in time
      */
     public T runSynchronously() {
         final long startTime = System.nanoTime();
+        final long deadline = startTime + TimeUnit.SECONDS.toNanos(getTimeoutSeconds());
         final SettableFuture<T> syncResult = SettableFuture.create();
         final SettableFuture<Throwable> syncError = SettableFuture.create();
 
-        run(new Listener<T>() {
+        final ToolRunner runner = run(new Listener<T>() {
             @Override
             public void progress(String output, int outputType, int percentComplete) {
                 // Do nothing
@@ -234,7 +265,26 @@ public abstract class Command<T> {
         });
 
         try {
-            Throwable error = syncError.get();
+            Throwable error = null;
+            boolean completed = false;
+            while (!completed) {
+                try {
+                    error = syncError.get(CANCEL_CHECK_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS);
+                    completed = true;
+                } catch (TimeoutException e) {
+                    try {
+                        checkCanceled();
+                    } catch (ProcessCanceledException pce) {
+                        stop(runner, "cancelled");
+                        throw pce;
+                    }
+                    if (System.nanoTime() - deadline >= 0) {
+                        stop(runner, "timed out after " + getTimeoutSeconds() + " sec");
+                        throw new ToolTimeoutException(name, getTimeoutSeconds());
+                    }
+                }
+            }
+
             if (error != null) {
                 if (error.getMessage().contains("tf eula")) {
                     throw new ToolEulaNotAcceptedException(error);
@@ -251,6 +301,10 @@ public abstract class Command<T> {
             }
         } catch (InterruptedException | ExecutionException e) {
             logger.error("CMD: failure", e);
+            if (e instanceof InterruptedException) {
+                stop(runner, "interrupted");
+                Thread.currentThread().interrupt();
+            }
             throw new ToolException(ToolException.KEY_TF_BAD_EXIT_CODE, e);
         } finally {
             final long endTime = System.nanoTime();
@@ -260,8 +314,41 @@ public abstract class Command<T> {
         }
     }
 
+    /**
+     * Checks whether the operation that runs the command was cancelled. Throws ProcessCanceledException if it was.
+     */
+    @VisibleForTesting
+    protected void checkCanceled() {
+        if (ApplicationManager.getApplication() != null) {
+            ProgressManager.checkCanceled();
+        }
+    }
+
+    /**
+     * Kills the tool process of a command that hung or was cancelled, and the runner cached for the next command in
+     * the same directory
+     */
+    private void stop(final ToolRunner runner, final String reason) {
+        logger.warn("CMD: stopping {}: {}", name, reason);
+        if (runner != null) {
+            runner.kill();
+        }
+        try {
+            ToolRunnerCache.evict(TfTool.getValidLocation(), getArgumentBuilder());
+        } catch (Throwable t) {
+            logger.warn("CMD: failed to evict the cached tool runner", t);
+        }
+    }
+
     public abstract T parseOutput(final String stdout, final String stderr);
 
+    /**
+     * How long the command may run in {@link #runSynchronously()} before it is considered hung and stopped
+     */
+    public int getTimeoutSeconds() {
+        return DEFAULT_TIMEOUT_SECONDS;
+    }
+
     /**
      * Default method for parsing return code that can be overridden if need be
      *
@@ -151,6 +151,11 @@ public class MergeCommand extends Command<MergeResults> {
         return returnCode == 1 ? 0 : returnCode;
     }
 
+    @Override
+    public int getTimeoutSeconds() {
+        return LONG_RUNNING_TIMEOUT_SECONDS;
+    }
+
     private MergeMapping createMapping(final String changeTypes, final String source, final String target, final boolean isConflict) {
         final List<ServerStatusType> serverStatusTypes = ServerStatusType.getServerStatusTypes(changeTypes);
         String[] parts = StringUtils.split(source, VERSION_SEPARATOR);
@@ -183,6 +183,11 @@ public class SyncCommand extends Command<SyncResults> {
         return returnCode == 1 ? 0 : returnCode;
     }
 
+    @Override
+    public int getTimeoutSeconds() {
+        return LONG_RUNNING_TIMEOUT_SECONDS;
+    }
+
     /**
      * Depending on the consumer of the results it may want to handle the exception from the command differently than
      * just getting an error code exception (such as "Workspace not found" which can be an error from here)
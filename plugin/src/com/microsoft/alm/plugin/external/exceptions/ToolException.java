@@ -48,4 +48,5 @@ public class ToolException extends RuntimeException implements LocalizedExceptio
     public static String KEY_TF_OOM = "KEY_TF_OOM";
     public static String KEY_TF_AUTH_FAIL = "KEY_TF_AUTH_FAIL";
     public static String KEY_TF_VS_MIN_VERSION_WARNING = "KEY_TF_VS_MIN_VERSION_WARNING";
+    public static String KEY_TF_TIMEOUT = "KEY_TF_TIMEOUT";
 }
@@ -0,0 +1,31 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.exceptions;
+
+/**
+ * Exception for when a command didn't finish in time and the tool process was stopped
+ */
+public class ToolTimeoutException extends ToolException {
+    private final String commandName;
+    private final int timeoutSeconds;
+
+    public ToolTimeoutException(final String commandName, final int timeoutSeconds) {
+        super(ToolException.KEY_TF_TIMEOUT);
+        this.commandName = commandName;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public String getCommandName() {
+        return commandName;
+    }
+
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    @Override
+    public String[] getMessageParameters() {
+        return new String[]{commandName, String.valueOf(timeoutSeconds)};
+    }
+}
@@ -3,27 +3,51 @@
 
 package com.microsoft.alm.plugin.external.models;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.microsoft.tfs.model.connector.TfsPendingChange;
 import org.apache.commons.lang.StringUtils;
 
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.stream.Collectors;
 
 /**
  * This class represents the data returned by the TF command line about a pending change.
+ * <p/>
+ * A status may return hundreds of thousands of pending changes (e.g. after a merge), so the representation is
+ * compact: the owner, date, lock, workspace and computer are the same for most of the changes and are interned, the
+ * paths are stored as an interned parent directory and a name, and the change types are a bitmask.
  */
 public class PendingChange {
-    private final String serverItem;
-    private final String localItem;
-    private final String version;
+    private static final Interner<String> SHARED_STRINGS = Interners.newWeakInterner();
+    private static final ServerStatusType[] STATUS_TYPES = ServerStatusType.values();
+    // lists of change types by bitmask, created on first use
+    private static final AtomicReferenceArray<List<ServerStatusType>> CHANGE_TYPE_LISTS =
+            new AtomicReferenceArray<>(1 << STATUS_TYPES.length);
+    private static final int NO_VERSION = Integer.MIN_VALUE;
+
+    private final String serverItemDirectory;
+    private final String serverItemName;
+    private final String localItemDirectory;
+    private final String localItemName;
+    private final int version;
+    // only set if the version isn't a number
+    private final String versionText;
     private final String owner;
     private final String date;
     private final String lock;
-    private final List<ServerStatusType> changeTypes;
+    private final short changeTypes;
     private final String workspace;
     private final String computer;
     private final boolean isCandidate;
-    private final String sourceItem;
+    private final String sourceItemDirectory;
+    private final String sourceItemName;
+    private final byte[] baseHash;
 
     public PendingChange(final String serverItem, final String changeType) {
         this(serverItem, null, null, null, null, null, changeType, null, null, false, StringUtils.EMPTY);
@@ -59,17 +83,43 @@ public class PendingChange {
             final String computer,
             final boolean isCandidate,
             final String sourceItem) {
-        this.serverItem = serverItem;
-        this.localItem = localItem;
-        this.version = version;
-        this.owner = owner;
-        this.date = date;
-        this.lock = lock;
-        this.changeTypes = changeTypes;
-        this.workspace = workspace;
-        this.computer = computer;
+        this(serverItem, localItem, version, owner, date, lock, changeTypes, workspace, computer, isCandidate,
+                sourceItem, null);
+    }
+
+    /**
+     * @param baseHash MD5 hash of the content of the workspace version the change was pended against, or null if the
+     *                 client doesn't report it
+     */
+    public PendingChange(
+            final String serverItem,
+            final String localItem,
+            final String version,
+            final String owner,
+            final String date,
+            final String lock,
+            final List<ServerStatusType> changeTypes,
+            final String workspace,
+            final String computer,
+            final boolean isCandidate,
+            final String sourceItem,
+            final byte[] baseHash) {
+        this.serverItemDirectory = getDirectory(serverItem);
+        this.serverItemName = getName(serverItem);
+        this.localItemDirectory = getDirectory(localItem);
+        this.localItemName = getName(localItem);
+        this.version = parseVersion(version);
+        this.versionText = this.version == NO_VERSION ? version : null;
+        this.owner = share(owner);
+        this.date = share(date);
+        this.lock = share(lock);
+        this.changeTypes = toMask(changeTypes);
+        this.workspace = share(workspace);
+        this.computer = share(computer);
         this.isCandidate = isCandidate;
-        this.sourceItem = sourceItem;
+        this.sourceItemDirectory = getDirectory(sourceItem);
+        this.sourceItemName = getName(sourceItem);
+        this.baseHash = baseHash == null || baseHash.length == 0 ? null : baseHash.clone();
     }
 
     public static PendingChange from(TfsPendingChange pc) {
@@ -84,7 +134,8 @@ public class PendingChange {
                 pc.getWorkspace(),
                 pc.getComputer(),
                 pc.isCandidate(),
-                pc.getSourceItem());
+                pc.getSourceItem(),
+                pc.getHashValue() == null ? null : Base64.getDecoder().decode(pc.getHashValue()));
     }
 
     public String getComputer() {
@@ -92,15 +143,15 @@ public class PendingChange {
     }
 
     public String getServerItem() {
-        return serverItem;
+        return join(serverItemDirectory, serverItemName);
     }
 
     public String getLocalItem() {
-        return localItem;
+        return join(localItemDirectory, localItemName);
     }
 
     public String getVersion() {
-        return version;
+        return version == NO_VERSION ? versionText : Integer.toString(version);
     }
 
     public String getOwner() {
@@ -115,8 +166,11 @@ public class PendingChange {
         return lock;
     }
 
+    /**
+     * Returns the change types, in the order of {@link ServerStatusType}
+     */
     public List<ServerStatusType> getChangeTypes() {
-        return changeTypes;
+        return getChangeTypeList(changeTypes);
     }
 
     public String getWorkspace() {
@@ -128,6 +182,81 @@ public class PendingChange {
     }
 
     public String getSourceItem() {
-        return sourceItem;
+        return join(sourceItemDirectory, sourceItemName);
+    }
+
+    /**
+     * Returns the MD5 hash of the content of the workspace version the change was pended against, or null if unknown
+     * (the command line client doesn't report it)
+     */
+    public byte[] getBaseHash() {
+        return baseHash == null ? null : baseHash.clone();
+    }
+
+    private static String share(final String value) {
+        return value == null ? null : SHARED_STRINGS.intern(value);
+    }
+
+    /**
+     * Returns the parent directory of a server or local path, including the trailing separator, so that the changes of
+     * a directory share it
+     */
+    private static String getDirectory(final String path) {
+        final int separator = getLastSeparator(path);
+        return separator < 0 ? null : share(path.substring(0, separator + 1));
+    }
+
+    private static String getName(final String path) {
+        final int separator = getLastSeparator(path);
+        return separator < 0 ? path : path.substring(separator + 1);
+    }
+
+    private static int getLastSeparator(final String path) {
+        return path == null ? -1 : Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+    }
+
+    private static String join(final String directory, final String name) {
+        return directory == null ? name : directory.concat(name);
+    }
+
+    private static int parseVersion(final String version) {
+        if (version == null || version.isEmpty() || version.length() > 9) {
+            return NO_VERSION;
+        }
+        int result = 0;
+        for (int i = 0; i < version.length(); i++) {
+            final char c = version.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_VERSION;
+            }
+            result = result * 10 + (c - '0');
+        }
+        // keep the text of versions like "007" which wouldn't survive the round trip
+        return version.length() > 1 && version.charAt(0) == '0' ? NO_VERSION : result;
+    }
+
+    private static short toMask(final List<ServerStatusType> changeTypes) {
+        short mask = 0;
+        if (changeTypes != null) {
+            for (final ServerStatusType type : changeTypes) {
+                mask |= 1 << type.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    private static List<ServerStatusType> getChangeTypeList(final short mask) {
+        List<ServerStatusType> list = CHANGE_TYPE_LISTS.get(mask);
+        if (list == null) {
+            final EnumSet<ServerStatusType> types = EnumSet.noneOf(ServerStatusType.class);
+            for (final ServerStatusType type : STATUS_TYPES) {
+                if ((mask & (1 << type.ordinal())) != 0) {
+                    types.add(type);
+                }
+            }
+            list = Collections.unmodifiableList(new ArrayList<>(types));
+            CHANGE_TYPE_LISTS.compareAndSet(mask, null, list);
+        }
+        return list;
     }
 }
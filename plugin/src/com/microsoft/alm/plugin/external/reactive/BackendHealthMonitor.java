@@ -0,0 +1,178 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.reactive;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.microsoft.alm.plugin.services.PropertyService;
+import com.microsoft.tfs.model.connector.TfsBackendHealth;
+import com.microsoft.tfs.model.connector.TfsItemCacheStatistics;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * Follows the health statistics of a backend. Keeps its peak live heap and the size of its workspaces in the settings,
+ * so the next launch can size the heap from them (see {@link #getHeapLimitMb}), and reports a GC overhead above
+ * {@link #GC_OVERHEAD_THRESHOLD} once per backend. The hit rate and the call latencies of the item info cache of the
+ * backend go to the debug log.
+ * <p>
+ * The statistics arrive on the protocol scheduler, one at a time.
+ */
+public class BackendHealthMonitor {
+    /**
+     * The memory limit setting value that lets the plugin size the heap
+     */
+    public static final int AUTOMATIC_HEAP_LIMIT = 0;
+
+    /* default */ static final double GC_OVERHEAD_THRESHOLD = 0.1;
+    /* default */ static final long GC_OVERHEAD_WINDOW_MILLIS = 60_000L;
+
+    private static final Logger ourLogger = Logger.getInstance(BackendHealthMonitor.class);
+
+    private static final long MB = 1024L * 1024L;
+    private static final int MIN_HEAP_LIMIT_MB = 512;
+    private static final int MAX_HEAP_LIMIT_MB = 8192;
+    private static final int HEAP_LIMIT_STEP_MB = 256;
+    // The SDK keeps the local version table of a local workspace in memory, with its paths and hashes
+    private static final long BASE_HEAP_BYTES = 256L * MB;
+    private static final long BYTES_PER_WORKSPACE_ITEM = 2048L;
+    // The collector needs room above the live data to keep the pauses short
+    private static final double LIVE_HEAP_HEADROOM = 2.0;
+    // A peak lower than the one kept from the previous launch only replaces it after this long, so a short session
+    // doesn't shrink the heap of the next one
+    private static final long MIN_UPTIME_TO_LOWER_PEAK_MILLIS = 10 * 60_000L;
+
+    private final PropertyService myPropertyService;
+    private final DoubleConsumer myGcOverheadListener;
+
+    private long myRecordedPeakMb = -1L;
+    private long myRecordedItemCount = -1L;
+    private long myWindowStartUptimeMillis = -1L;
+    private long myWindowStartGcPauseMillis;
+    private boolean myGcOverheadReported;
+
+    /**
+     * @param propertyService     the settings to keep the statistics in.
+     * @param gcOverheadListener  receives the fraction of the time spent in GC when it first exceeds the threshold.
+     */
+    public BackendHealthMonitor(
+            @NotNull PropertyService propertyService,
+            @NotNull DoubleConsumer gcOverheadListener) {
+        myPropertyService = propertyService;
+        myGcOverheadListener = gcOverheadListener;
+    }
+
+    /**
+     * Returns the heap limit for a backend launch: the memory limit setting if it is set, and otherwise the size
+     * computed from the statistics of the previous launches.
+     */
+    public static int getHeapLimitMb(@NotNull PropertyService propertyService) {
+        long limitMb = parseLong(propertyService.getProperty(PropertyService.PROP_REACTIVE_CLIENT_MEMORY));
+        if (limitMb > AUTOMATIC_HEAP_LIMIT)
+            return (int) limitMb;
+
+        return computeHeapLimitMb(
+                Math.max(0L, parseLong(propertyService.getProperty(PropertyService.PROP_REACTIVE_CLIENT_PEAK_HEAP))) * MB,
+                Math.max(0L, parseLong(propertyService.getProperty(PropertyService.PROP_REACTIVE_CLIENT_WORKSPACE_ITEMS))));
+    }
+
+    /**
+     * Sizes the heap with room for twice the observed live data, and at least for the local version tables of the
+     * workspace items.
+     */
+    /* default */ static int computeHeapLimitMb(long peakLiveHeapBytes, long workspaceItemCount) {
+        if (peakLiveHeapBytes == 0L && workspaceItemCount == 0L)
+            return ReactiveTfvcClientHost.REACTIVE_CLIENT_DEFAULT_MEMORY_LIMIT;
+
+        long neededBytes = Math.max(
+                (long) (peakLiveHeapBytes * LIVE_HEAP_HEADROOM),
+                BASE_HEAP_BYTES + workspaceItemCount * BYTES_PER_WORKSPACE_ITEM);
+        long neededMb = (neededBytes + MB - 1) / MB;
+        long roundedMb = (neededMb + HEAP_LIMIT_STEP_MB - 1) / HEAP_LIMIT_STEP_MB * HEAP_LIMIT_STEP_MB;
+        return (int) Math.min(MAX_HEAP_LIMIT_MB, Math.max(MIN_HEAP_LIMIT_MB, roundedMb));
+    }
+
+    public void onHealth(@NotNull TfsBackendHealth health) {
+        recordSize(health);
+        checkGcOverhead(health);
+        logItemCache(health.getItemCache());
+    }
+
+    private void recordSize(TfsBackendHealth health) {
+        if (myRecordedPeakMb < 0L) {
+            myRecordedPeakMb = parseLong(myPropertyService.getProperty(PropertyService.PROP_REACTIVE_CLIENT_PEAK_HEAP));
+            myRecordedItemCount = parseLong(
+                    myPropertyService.getProperty(PropertyService.PROP_REACTIVE_CLIENT_WORKSPACE_ITEMS));
+        }
+
+        long peakMb = (health.getPeakLiveHeapBytes() + MB - 1) / MB;
+        if (peakMb > myRecordedPeakMb
+                || peakMb < myRecordedPeakMb && health.getUptimeMillis() >= MIN_UPTIME_TO_LOWER_PEAK_MILLIS) {
+            myRecordedPeakMb = peakMb;
+            myPropertyService.setProperty(PropertyService.PROP_REACTIVE_CLIENT_PEAK_HEAP, Long.toString(peakMb));
+        }
+
+        // The items are counted once the workspaces are known, zero before that
+        long itemCount = health.getWorkspaceItemCount();
+        if (itemCount > 0L && itemCount != myRecordedItemCount) {
+            myRecordedItemCount = itemCount;
+            myPropertyService.setProperty(PropertyService.PROP_REACTIVE_CLIENT_WORKSPACE_ITEMS, Long.toString(itemCount));
+        }
+    }
+
+    private void checkGcOverhead(TfsBackendHealth health) {
+        if (myWindowStartUptimeMillis < 0L) {
+            startWindow(health);
+            return;
+        }
+
+        long windowMillis = health.getUptimeMillis() - myWindowStartUptimeMillis;
+        if (windowMillis < GC_OVERHEAD_WINDOW_MILLIS)
+            return;
+
+        double overhead = (double) (health.getGcPauseMillis() - myWindowStartGcPauseMillis) / windowMillis;
+        startWindow(health);
+        if (overhead > GC_OVERHEAD_THRESHOLD && !myGcOverheadReported) {
+            myGcOverheadReported = true;
+            ourLogger.warn(String.format(
+                    "Reactive client spent %.0f%% of the last %d s in GC, heap limit %d MB, live data %d MB",
+                    overhead * 100.0, windowMillis / 1000L, health.getHeapMaxBytes() / MB,
+                    health.getLiveHeapBytes() / MB));
+            myGcOverheadListener.accept(overhead);
+        }
+    }
+
+    private static void logItemCache(TfsItemCacheStatistics cache) {
+        long lookups = cache.getHits() + cache.getMisses();
+        if (!ourLogger.isDebugEnabled() || lookups == 0L)
+            return;
+
+        ourLogger.debug(String.format(
+                "Item cache: %.1f%% hits of %d paths, %d entries, %d invalidations; " +
+                        "%d cached calls (avg %d us), %d server calls (avg %d us)",
+                cache.getHits() * 100.0 / lookups, lookups, cache.getEntries(), cache.getInvalidations(),
+                cache.getCachedCalls(), average(cache.getCachedCallMicros(), cache.getCachedCalls()),
+                cache.getServerCalls(), average(cache.getServerCallMicros(), cache.getServerCalls())));
+    }
+
+    private static long average(long total, long count) {
+        return count == 0L ? 0L : total / count;
+    }
+
+    private void startWindow(TfsBackendHealth health) {
+        myWindowStartUptimeMillis = health.getUptimeMillis();
+        myWindowStartGcPauseMillis = health.getGcPauseMillis();
+    }
+
+    private static long parseLong(String value) {
+        if (value == null)
+            return -1L;
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
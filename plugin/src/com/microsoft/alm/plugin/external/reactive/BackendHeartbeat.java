@@ -0,0 +1,100 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.reactive;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Sends heartbeats to a backend and reports it as hung once a heartbeat stays unanswered for longer than the deadline.
+ * The next heartbeat is only sent after the previous one is answered. Any answer counts, even a failure, because it
+ * shows that the protocol thread of the backend is alive.
+ * <p>
+ * The backend answers the heartbeats on its protocol thread, while the calls run on the call threads of the
+ * collections, so a long call (e.g. a big checkin) doesn't delay the answer.
+ */
+public class BackendHeartbeat {
+    private final Supplier<CompletionStage<?>> mySender;
+    private final ScheduledExecutorService myScheduler;
+    private final long myIntervalMillis;
+    private final long myDeadlineMillis;
+    private final LongConsumer myHungListener;
+
+    // Guarded by this
+    private CompletionStage<?> myPendingHeartbeat;
+    private long myPendingSentNanos;
+    private boolean myHungReported;
+    private ScheduledFuture<?> myTask;
+
+    /**
+     * @param sender          sends a heartbeat and returns its answer.
+     * @param scheduler       runs the checks.
+     * @param intervalMillis  the time between the checks, and so between the heartbeats.
+     * @param deadlineMillis  the time a heartbeat may stay unanswered.
+     * @param hungListener    receives the time the pending heartbeat was waited for, once.
+     */
+    public BackendHeartbeat(
+            @NotNull Supplier<CompletionStage<?>> sender,
+            @NotNull ScheduledExecutorService scheduler,
+            long intervalMillis,
+            long deadlineMillis,
+            @NotNull LongConsumer hungListener) {
+        mySender = sender;
+        myScheduler = scheduler;
+        myIntervalMillis = intervalMillis;
+        myDeadlineMillis = deadlineMillis;
+        myHungListener = hungListener;
+    }
+
+    public synchronized void start() {
+        if (myTask == null)
+            myTask = myScheduler.scheduleWithFixedDelay(this::check, 0L, myIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (myTask != null)
+            myTask.cancel(false);
+    }
+
+    private void check() {
+        long waitedMillis;
+        synchronized (this) {
+            if (myHungReported)
+                return;
+
+            if (myPendingHeartbeat == null) {
+                sendHeartbeat();
+                return;
+            }
+
+            waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - myPendingSentNanos);
+            if (waitedMillis < myDeadlineMillis)
+                return;
+
+            myHungReported = true;
+            stop();
+        }
+
+        myHungListener.accept(waitedMillis);
+    }
+
+    // Called under the lock
+    private void sendHeartbeat() {
+        myPendingSentNanos = System.nanoTime();
+        CompletionStage<?> heartbeat = mySender.get();
+        myPendingHeartbeat = heartbeat;
+        heartbeat.whenComplete((result, error) -> {
+            synchronized (this) {
+                if (myPendingHeartbeat == heartbeat)
+                    myPendingHeartbeat = null;
+            }
+        });
+    }
+}
@@ -0,0 +1,225 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.reactive;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Sends the items to a query in chunks, keeping several chunks in flight so that the wire and the backend don't wait
+ * for each other, and passes the results to the consumer in the order of the items.
+ * <p>
+ * A chunk holds its slot until its results are passed to the consumer, so that the results waiting behind a slow chunk
+ * are limited by the number of chunks in flight. The chunk size follows the measured time per item, aiming at chunks
+ * that take {@link #TARGET_CHUNK_MILLIS} to process, and is limited by the total weight (e.g. the path lengths) of the
+ * items to keep the messages small.
+ *
+ * @param <T> the item type.
+ * @param <R> the result type.
+ */
+public class ChunkPipeline<T, R> {
+    public static final int INITIAL_CHUNK_SIZE = 1000;
+    public static final int MIN_CHUNK_SIZE = 100;
+    public static final int MAX_CHUNK_SIZE = 10000;
+    public static final int MAX_CHUNK_WEIGHT = 1024 * 1024;
+    public static final long TARGET_CHUNK_MILLIS = 200L;
+
+    // Weight of the latest measurement in the moving average of the time per item
+    private static final double SMOOTHING = 0.3;
+
+    private final Iterator<T> myItems;
+    private final Function<List<T>, CompletionStage<List<R>>> myQuery;
+    private final Consumer<R> myConsumer;
+    private final ToIntFunction<T> myWeigher;
+    private final int myMaxChunksInFlight;
+    private final CompletableFuture<Void> myCompletion = new CompletableFuture<>();
+
+    // All the fields below are guarded by this
+    private final Map<Integer, List<R>> myCompletedChunks = new HashMap<>();
+    private T myNextItem;
+    private int myNextChunkToSend;
+    private int myNextChunkToDeliver;
+    private int myChunksInFlight;
+    private int myChunkSize = INITIAL_CHUNK_SIZE;
+    private double myNanosPerItem = -1.0;
+    private long myLastCompletionNanos = -1L;
+    private boolean myFailed;
+
+    /**
+     * @param items             the items to send.
+     * @param query             the query to send the chunks to; may complete on any thread.
+     * @param consumer          called for every result, in order and never simultaneously.
+     * @param weigher           the weight of an item, e.g. the length of its path.
+     * @param maxChunksInFlight the number of chunks sent and not yet passed to the consumer.
+     */
+    public ChunkPipeline(
+            @NotNull Iterator<T> items,
+            @NotNull Function<List<T>, CompletionStage<List<R>>> query,
+            @NotNull Consumer<R> consumer,
+            @NotNull ToIntFunction<T> weigher,
+            int maxChunksInFlight) {
+        if (maxChunksInFlight < 1)
+            throw new IllegalArgumentException("maxChunksInFlight: " + maxChunksInFlight);
+
+        myItems = items;
+        myQuery = query;
+        myConsumer = consumer;
+        myWeigher = weigher;
+        myMaxChunksInFlight = maxChunksInFlight;
+    }
+
+    /**
+     * Starts sending the chunks.
+     *
+     * @return a completion stage that will be finished after the results of all the chunks are passed to the consumer,
+     * or failed with the first error of the query or the consumer.
+     */
+    @NotNull
+    public CompletionStage<Void> runAsync() {
+        fillPipeline();
+        return myCompletion;
+    }
+
+    /* default */
+    synchronized int getChunkSize() {
+        return myChunkSize;
+    }
+
+    private void fillPipeline() {
+        List<Chunk> chunksToSend = new ArrayList<>();
+        boolean finished;
+        synchronized (this) {
+            while (!myFailed && myChunksInFlight < myMaxChunksInFlight && hasNextItem()) {
+                chunksToSend.add(new Chunk(myNextChunkToSend++, takeChunk()));
+                ++myChunksInFlight;
+            }
+
+            finished = !myFailed && myChunksInFlight == 0 && !hasNextItem();
+        }
+
+        if (finished) {
+            myCompletion.complete(null);
+            return;
+        }
+
+        for (Chunk chunk : chunksToSend) {
+            CompletionStage<List<R>> results;
+            try {
+                results = myQuery.apply(chunk.items);
+            } catch (Throwable t) {
+                fail(t);
+                return;
+            }
+
+            results.whenComplete((result, error) -> {
+                if (error != null)
+                    fail(error);
+                else
+                    onChunkCompleted(chunk, result);
+            });
+        }
+    }
+
+    private void onChunkCompleted(Chunk chunk, List<R> results) {
+        synchronized (this) {
+            if (myFailed)
+                return;
+
+            measure(chunk);
+            myCompletedChunks.put(chunk.number, results);
+            try {
+                List<R> nextResults;
+                while ((nextResults = myCompletedChunks.remove(myNextChunkToDeliver)) != null) {
+                    nextResults.forEach(myConsumer);
+                    ++myNextChunkToDeliver;
+                    --myChunksInFlight;
+                }
+            } catch (Throwable t) {
+                myFailed = true;
+                myCompletedChunks.clear();
+                myCompletion.completeExceptionally(t);
+                return;
+            }
+        }
+
+        fillPipeline();
+    }
+
+    private void fail(Throwable error) {
+        synchronized (this) {
+            myFailed = true;
+            myCompletedChunks.clear();
+        }
+
+        myCompletion.completeExceptionally(error);
+    }
+
+    /**
+     * Updates the time per item and the chunk size from the processing time of a chunk. When the pipeline is full, a
+     * chunk also waits for the ones sent before it, so it's measured from the completion of the previous chunk.
+     */
+    private void measure(Chunk chunk) {
+        long now = System.nanoTime();
+        long start = Math.max(chunk.sentNanos, myLastCompletionNanos);
+        myLastCompletionNanos = now;
+        if (chunk.items.isEmpty())
+            return;
+
+        double nanosPerItem = (double) (now - start) / chunk.items.size();
+        myNanosPerItem = myNanosPerItem < 0.0
+                ? nanosPerItem
+                : SMOOTHING * nanosPerItem + (1.0 - SMOOTHING) * myNanosPerItem;
+
+        long targetSize = myNanosPerItem > 0.0
+                ? (long) (TARGET_CHUNK_MILLIS * 1_000_000L / myNanosPerItem)
+                : MAX_CHUNK_SIZE;
+        myChunkSize = (int) Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, targetSize));
+    }
+
+    private boolean hasNextItem() {
+        return myNextItem != null || myItems.hasNext();
+    }
+
+    private List<T> takeChunk() {
+        List<T> chunk = new ArrayList<>(myChunkSize);
+        long weight = 0L;
+        while (chunk.size() < myChunkSize && hasNextItem()) {
+            T item = myNextItem != null ? myNextItem : myItems.next();
+            myNextItem = null;
+
+            int itemWeight = myWeigher.applyAsInt(item);
+            if (!chunk.isEmpty() && weight + itemWeight > MAX_CHUNK_WEIGHT) {
+                // Leave it for the next chunk
+                myNextItem = item;
+                break;
+            }
+
+            chunk.add(item);
+            weight += itemWeight;
+        }
+
+        return chunk;
+    }
+
+    private class Chunk {
+        final int number;
+        final List<T> items;
+        final long sentNanos = System.nanoTime();
+
+        Chunk(int number, List<T> items) {
+            this.number = number;
+            this.items = items;
+        }
+    }
+}
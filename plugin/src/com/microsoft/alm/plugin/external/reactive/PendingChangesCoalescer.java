@@ -0,0 +1,164 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.reactive;
+
+import com.microsoft.alm.plugin.external.models.PendingChange;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Coalesces the pending change queries of a collection, which the change provider, the file listeners and the commit
+ * dialog often send for overlapping paths at about the same time.
+ * <p>
+ * The requests are collected for a short window and sent as one query for the union of their paths. Each request gets
+ * the pending changes under its own paths only. The queries are recursive, so a path covers itself and everything
+ * below it.
+ * <p>
+ * A request never shares a query already sent, even one covering its paths: that query may have been sent before the
+ * change the request is about (e.g. a refresh after a checkout), so the request goes into the next query.
+ */
+public class PendingChangesCoalescer {
+    public static final long DEFAULT_WINDOW_MILLIS = 50L;
+
+    private final BiFunction<ServerIdentification, List<Path>, CompletionStage<List<PendingChange>>> myQuery;
+    private final ScheduledExecutorService myScheduler;
+    private final long myWindowMillis;
+
+    // Guarded by this
+    private Query myNextQuery;
+
+    /**
+     * @param query        sends a query to the backend.
+     * @param scheduler    the scheduler to send the queries collected in a window.
+     * @param windowMillis how long to collect the requests for before sending them as one query.
+     */
+    public PendingChangesCoalescer(
+            @NotNull BiFunction<ServerIdentification, List<Path>, CompletionStage<List<PendingChange>>> query,
+            @NotNull ScheduledExecutorService scheduler,
+            long windowMillis) {
+        myQuery = query;
+        myScheduler = scheduler;
+        myWindowMillis = windowMillis;
+    }
+
+    @NotNull
+    public CompletionStage<List<PendingChange>> getPendingChangesAsync(
+            @NotNull ServerIdentification serverIdentification,
+            @NotNull Collection<Path> paths) {
+        List<Path> roots = getRoots(paths);
+        Query query;
+        synchronized (this) {
+            if (myNextQuery == null) {
+                myNextQuery = new Query();
+                myScheduler.schedule(this::sendNextQuery, myWindowMillis, TimeUnit.MILLISECONDS);
+            }
+
+            query = myNextQuery;
+            query.add(serverIdentification, roots);
+        }
+
+        return query.result.thenApply(changes -> query.filter(changes, roots));
+    }
+
+    private void sendNextQuery() {
+        Query query;
+        synchronized (this) {
+            query = myNextQuery;
+            myNextQuery = null;
+            query.seal();
+        }
+
+        CompletionStage<List<PendingChange>> result;
+        try {
+            result = myQuery.apply(query.serverIdentification, query.roots);
+        } catch (Throwable t) {
+            CompletableFuture<List<PendingChange>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(t);
+            result = failed;
+        }
+
+        result.whenComplete((changes, error) -> {
+            if (error != null)
+                query.result.completeExceptionally(error);
+            else
+                query.result.complete(changes);
+        });
+    }
+
+    /**
+     * Returns the paths that aren't below another one of the paths.
+     */
+    /* default */
+    @NotNull
+    static List<Path> getRoots(@NotNull Collection<Path> paths) {
+        List<Path> sorted = paths.stream()
+                .map(Path::normalize)
+                .distinct()
+                .sorted(Comparator.comparingInt(Path::getNameCount))
+                .collect(Collectors.toList());
+        Set<Path> roots = new LinkedHashSet<>(sorted.size());
+        for (Path path : sorted) {
+            if (!isCovered(roots, path))
+                roots.add(path);
+        }
+
+        return new ArrayList<>(roots);
+    }
+
+    /**
+     * Whether the path or one of its parents is in the set; cheaper than testing every root for large requests.
+     */
+    private static boolean isCovered(@NotNull Set<Path> roots, @NotNull Path path) {
+        for (Path current = path; current != null; current = current.getParent()) {
+            if (roots.contains(current))
+                return true;
+        }
+
+        return false;
+    }
+
+    private static class Query {
+        final CompletableFuture<List<PendingChange>> result = new CompletableFuture<>();
+        ServerIdentification serverIdentification;
+        List<Path> roots = new ArrayList<>();
+        Set<Path> rootSet;
+
+        void add(ServerIdentification serverIdentification, List<Path> roots) {
+            // The latest request has the freshest credentials
+            this.serverIdentification = serverIdentification;
+            this.roots.addAll(roots);
+        }
+
+        void seal() {
+            roots = getRoots(roots);
+            rootSet = new HashSet<>(roots);
+        }
+
+        List<PendingChange> filter(List<PendingChange> changes, List<Path> paths) {
+            Set<Path> pathSet = new HashSet<>(paths);
+            if (pathSet.equals(rootSet))
+                return changes;
+
+            return changes.stream()
+                    .filter(change -> change.getLocalItem() != null
+                            && isCovered(pathSet, Paths.get(change.getLocalItem())))
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.reactive;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Keeps a reactive client running. It creates the client on demand. When the client terminates by itself (the process
+ * crashed, the connection dropped or the heartbeats were missed), it restarts the client after a
+ * {@link RestartBackoff} delay.
+ * <p>
+ * The requests in flight fail when their client terminates. The read-only ones sent through
+ * {@link #callReadOnlyAsync} are replayed on the restarted client instead; the ones that pass their items to a consumer
+ * skip the items the interrupted attempts already passed, so the consumer gets every item once.
+ */
+public class ReactiveClientSupervisor {
+    public interface ClientFactory {
+        @NotNull
+        CompletionStage<ReactiveTfvcClientHost> createClientAsync() throws Exception;
+    }
+
+    public static final int MAX_REPLAYS = 2;
+    public static final long DEFAULT_INITIAL_RESTART_DELAY_MILLIS = 1000L;
+    public static final long DEFAULT_MAX_RESTART_DELAY_MILLIS = 60_000L;
+    public static final long DEFAULT_STABLE_RUN_MILLIS = 5 * 60_000L;
+
+    private static final Logger ourLogger = Logger.getInstance(ReactiveClientSupervisor.class);
+
+    private final ClientFactory myFactory;
+    private final ScheduledExecutorService myScheduler;
+    private final RestartBackoff myBackoff;
+
+    // Guarded by this
+    private CompletableFuture<ReactiveTfvcClientHost> myClient;
+
+    public ReactiveClientSupervisor(
+            @NotNull ClientFactory factory,
+            @NotNull ScheduledExecutorService scheduler,
+            @NotNull RestartBackoff backoff) {
+        myFactory = factory;
+        myScheduler = scheduler;
+        myBackoff = backoff;
+    }
+
+    /**
+     * Returns the client, starting it if there's none or if the last start failed. While a terminated client waits for
+     * its restart, returns the restarted one.
+     */
+    public synchronized CompletionStage<ReactiveTfvcClientHost> getClient() {
+        if (myClient == null || myClient.isCompletedExceptionally() || myClient.isCancelled())
+            return myClient = startClient();
+
+        ReactiveTfvcClientHost client = myClient.getNow(null);
+        if (client != null && !client.isAlive())
+            scheduleRestart();
+
+        return myClient;
+    }
+
+    /**
+     * Sends a request that doesn't change anything, replaying it on the restarted client up to {@link #MAX_REPLAYS}
+     * times if its client terminates before it completes.
+     */
+    public <T> CompletionStage<T> callReadOnlyAsync(
+            @NotNull Function<ReactiveTfvcClientHost, CompletionStage<T>> request) {
+        return callReadOnlyAsync(request, MAX_REPLAYS);
+    }
+
+    /**
+     * Sends a request that doesn't change anything and passes its items to the consumer in a stable order (e.g. through
+     * a {@link ChunkPipeline}), replaying it like {@link #callReadOnlyAsync(Function)}. A replay skips as many items as
+     * the interrupted attempts passed to the consumer.
+     */
+    public <T, I> CompletionStage<T> callReadOnlyAsync(
+            @NotNull BiFunction<ReactiveTfvcClientHost, Consumer<I>, CompletionStage<T>> request,
+            @NotNull Consumer<I> consumer) {
+        AtomicInteger delivered = new AtomicInteger();
+        return callReadOnlyAsync(client -> {
+            int alreadyDelivered = delivered.get();
+            AtomicInteger received = new AtomicInteger();
+            return request.apply(client, item -> {
+                if (received.incrementAndGet() <= alreadyDelivered)
+                    return;
+
+                consumer.accept(item);
+                delivered.incrementAndGet();
+            });
+        }, MAX_REPLAYS);
+    }
+
+    private <T> CompletionStage<T> callReadOnlyAsync(
+            Function<ReactiveTfvcClientHost, CompletionStage<T>> request,
+            int replaysLeft) {
+        return getClient().thenCompose(client -> request.apply(client)
+                .<CompletionStage<T>>handle((result, error) -> {
+                    if (error == null)
+                        return CompletableFuture.completedFuture(result);
+
+                    if (replaysLeft == 0 || client.isAlive())
+                        return failedFuture(error);
+
+                    ourLogger.info("Replaying a read-only request interrupted by the reactive client termination");
+                    return callReadOnlyAsync(request, replaysLeft - 1);
+                })
+                .thenCompose(Function.identity()));
+    }
+
+    /**
+     * Terminates the client, if any. The next request starts a new one.
+     */
+    public synchronized void destroyClient() {
+        if (myClient == null)
+            return;
+
+        myClient.thenAccept(ReactiveTfvcClientHost::terminate);
+        myClient = null;
+    }
+
+    private CompletableFuture<ReactiveTfvcClientHost> startClient() {
+        CompletionStage<ReactiveTfvcClientHost> client;
+        try {
+            client = myFactory.createClientAsync();
+        } catch (Throwable t) {
+            client = failedFuture(t);
+        }
+
+        return client.thenApply(started -> {
+            myBackoff.started();
+            started.whenTerminated(() -> onClientTerminated(started));
+            return started;
+        }).toCompletableFuture();
+    }
+
+    private synchronized void onClientTerminated(ReactiveTfvcClientHost client) {
+        // The client destroyed on purpose was already forgotten, and a new one may be starting
+        if (myClient != null && myClient.getNow(null) == client)
+            scheduleRestart();
+    }
+
+    // Called under the lock
+    private void scheduleRestart() {
+        long delayMillis = myBackoff.nextDelayMillis();
+        ourLogger.warn("Reactive client terminated unexpectedly, restarting it in " + delayMillis + " ms");
+
+        CompletableFuture<ReactiveTfvcClientHost> restarted = new CompletableFuture<>();
+        myClient = restarted;
+        myScheduler.schedule(() -> restart(restarted), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void restart(CompletableFuture<ReactiveTfvcClientHost> restarted) {
+        synchronized (this) {
+            if (myClient != restarted) {
+                // Destroyed while waiting for the restart
+                restarted.cancel(false);
+                return;
+            }
+        }
+
+        startClient().whenComplete((client, error) -> {
+            if (error != null)
+                restarted.completeExceptionally(error);
+            else
+                restarted.complete(client);
+        });
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable error) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.completeExceptionally(error);
+        return result;
+    }
+}
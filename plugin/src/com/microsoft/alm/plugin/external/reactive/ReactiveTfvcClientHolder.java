@@ -6,24 +6,43 @@ package com.microsoft.alm.plugin.external.reactive;
 import com.intellij.execution.ExecutionException;
 import com.intellij.ide.plugins.PluginManager;
 import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.Application;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.vcs.VcsNotifier;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.microsoft.alm.plugin.idea.common.resources.TfPluginBundle;
 import com.microsoft.alm.plugin.idea.common.settings.SettingsChangedNotifier;
 import com.microsoft.alm.plugin.idea.common.utils.IdeaHelper;
 import com.microsoft.alm.plugin.idea.tfvc.ui.settings.EULADialog;
 import com.microsoft.alm.plugin.services.PropertyService;
+import org.jetbrains.annotations.NotNull;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class ReactiveTfvcClientHolder implements Disposable {
 
+    private static final Logger ourLogger = Logger.getInstance(ReactiveTfvcClientHolder.class);
+
+    /**
+     * The prewarm waits for this long after the indexing so it doesn't compete with the rest of the project startup.
+     */
+    private static final long PREWARM_DELAY_SECONDS = 10L;
+
     public static ReactiveTfvcClientHolder getInstance(Project project) {
         return ServiceManager.getService(project, ReactiveTfvcClientHolder.class);
     }
@@ -34,9 +53,21 @@ public class ReactiveTfvcClientHolder implements Disposable {
                 "backend");
     }
 
-    private final Object myClientLock = new Object();
+    private final Object myEulaLock = new Object();
     private final Project myProject;
-    private CompletableFuture<ReactiveTfvcClientHost> myClient;
+    private final ReactiveClientSupervisor mySupervisor = new ReactiveClientSupervisor(
+            this::createNewClientAsync,
+            AppExecutorUtil.getAppScheduledExecutorService(),
+            new RestartBackoff(
+                    ReactiveClientSupervisor.DEFAULT_INITIAL_RESTART_DELAY_MILLIS,
+                    ReactiveClientSupervisor.DEFAULT_MAX_RESTART_DELAY_MILLIS,
+                    ReactiveClientSupervisor.DEFAULT_STABLE_RUN_MILLIS));
+
+    private volatile boolean myEulaAccepted;
+    // Guarded by myEulaLock; completes once the EULA dialog shown for the waiting requests is closed
+    private CompletableFuture<Void> myEulaGate;
+    // Only accessed on the EDT
+    private boolean myEulaDialogShowing;
 
     public ReactiveTfvcClientHolder(Project myProject) {
         this.myProject = myProject;
@@ -46,26 +77,96 @@ public class ReactiveTfvcClientHolder implements Disposable {
                     if (propertyKey.equals(PropertyService.PROP_TFVC_USE_REACTIVE_CLIENT)
                         || propertyKey.equals(PropertyService.PROP_REACTIVE_CLIENT_MEMORY)) {
                         destroyClientIfExists();
+                    } else if (propertyKey.equals(PropertyService.PROP_TF_SDK_EULA_ACCEPTED)) {
+                        myEulaAccepted = false;
                     }
                 });
     }
 
+    /**
+     * Returns the client, starting it if needed. Once the EULA has been accepted, this doesn't leave the calling thread,
+     * so the background requests don't wait for the UI work on the EDT.
+     */
     public CompletionStage<ReactiveTfvcClientHost> getClient() {
-        ensureEulaAccepted();
-
-        synchronized (myClientLock) {
-            if (myClient == null || myClient.isCompletedExceptionally() || myClient.isCancelled()) {
-                try {
-                    return myClient = createNewClientAsync();
-                } catch (Throwable t) {
-                    CompletableFuture<ReactiveTfvcClientHost> result = new CompletableFuture<>();
-                    result.completeExceptionally(t);
-                    return result;
-                }
-            }
+        return afterEulaAccepted(mySupervisor::getClient);
+    }
 
-            return myClient;
+    /**
+     * Sends a request that doesn't change anything to the client. Unlike the requests sent to the client returned by
+     * {@link #getClient}, it's replayed if the client crashes or hangs before completing it.
+     */
+    public <T> CompletionStage<T> callReadOnlyAsync(
+            @NotNull Function<ReactiveTfvcClientHost, CompletionStage<T>> request) {
+        return afterEulaAccepted(() -> mySupervisor.callReadOnlyAsync(request));
+    }
+
+    /**
+     * Sends a request that doesn't change anything and passes its items to the consumer. If it's replayed, the consumer
+     * still gets every item once.
+     */
+    public <T, I> CompletionStage<T> callReadOnlyAsync(
+            @NotNull BiFunction<ReactiveTfvcClientHost, Consumer<I>, CompletionStage<T>> request,
+            @NotNull Consumer<I> consumer) {
+        return afterEulaAccepted(() -> mySupervisor.callReadOnlyAsync(request, consumer));
+    }
+
+    private <T> CompletionStage<T> afterEulaAccepted(Supplier<CompletionStage<T>> action) {
+        if (myEulaAccepted || isEulaAcceptedInSettings()) {
+            myEulaAccepted = true;
+            return action.get();
         }
+
+        return waitForEulaAcceptanceAsync()
+                .thenComposeAsync(unused -> action.get(), AppExecutorUtil.getAppExecutorService());
+    }
+
+    /**
+     * Starts the client and connects the collection of the project in the background, so the first status refresh
+     * doesn't wait for the backend startup. Does nothing unless enabled in the settings, or if the EULA hasn't been
+     * accepted yet: the dialog shouldn't pop up when a project is opened.
+     *
+     * @param serverIdentification supplies the collection to connect, or null if there's none; called on a pooled
+     *                             thread, and shouldn't prompt for credentials.
+     */
+    public void prewarmInBackground(@NotNull Supplier<ServerIdentification> serverIdentification) {
+        if (!isPrewarmEnabled())
+            return;
+
+        DumbService.getInstance(myProject).smartInvokeLater(() -> AppExecutorUtil.getAppScheduledExecutorService()
+                .schedule(() -> prewarm(serverIdentification), PREWARM_DELAY_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private static boolean isPrewarmEnabled() {
+        PropertyService propertyService = PropertyService.getInstance();
+        return "true".equalsIgnoreCase(propertyService.getProperty(PropertyService.PROP_TFVC_USE_REACTIVE_CLIENT))
+                && "true".equalsIgnoreCase(propertyService.getProperty(PropertyService.PROP_REACTIVE_CLIENT_PREWARM));
+    }
+
+    private void prewarm(@NotNull Supplier<ServerIdentification> serverIdentificationSupplier) {
+        if (myProject.isDisposed() || !isPrewarmEnabled() || !(myEulaAccepted || isEulaAcceptedInSettings()))
+            return;
+
+        long start = System.nanoTime();
+        ServerIdentification serverIdentification;
+        try {
+            serverIdentification = serverIdentificationSupplier.get();
+        } catch (Throwable t) {
+            ourLogger.info("Unable to determine the collection to prewarm", t);
+            serverIdentification = null;
+        }
+
+        ServerIdentification collection = serverIdentification;
+        getClient()
+                .thenCompose(client -> collection == null
+                        ? CompletableFuture.<Void>completedFuture(null)
+                        : client.prewarmCollectionAsync(collection))
+                .whenComplete((result, error) -> {
+                    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    if (error != null)
+                        ourLogger.info("Reactive client prewarm failed after " + elapsedMillis + " ms", error);
+                    else
+                        ourLogger.info("Reactive client prewarmed in " + elapsedMillis + " ms");
+                });
     }
 
     @Override
@@ -73,32 +174,82 @@ public class ReactiveTfvcClientHolder implements Disposable {
         destroyClientIfExists();
     }
 
-    private void ensureEulaAccepted() {
-        ApplicationManager.getApplication().invokeAndWait(() -> {
-            PropertyService propertyService = PropertyService.getInstance();
-            String eulaAccepted = propertyService.getProperty(PropertyService.PROP_TF_SDK_EULA_ACCEPTED);
-            if (!"true".equalsIgnoreCase(eulaAccepted)) {
-                if (!EULADialog.forTfsSdk(myProject).showAndGet())
-                    throw new RuntimeException("EULA acceptance is required to use the reactive TF client");
-            }
-        }, ModalityState.any()); // EULA should be shown even if there's a modal dialog (e.g. a commit one)
+    private static boolean isEulaAcceptedInSettings() {
+        String eulaAccepted = PropertyService.getInstance().getProperty(PropertyService.PROP_TF_SDK_EULA_ACCEPTED);
+        return "true".equalsIgnoreCase(eulaAccepted);
     }
 
-    private void destroyClientIfExists() {
-        synchronized (myClientLock) {
-            if (myClient == null)
-                return;
+    /**
+     * Shows the EULA dialog once for all the requests made until it's closed. If the EULA is declined, the requests
+     * fail and the next one shows the dialog again.
+     */
+    private CompletionStage<Void> waitForEulaAcceptanceAsync() {
+        Application application = ApplicationManager.getApplication();
+        CompletableFuture<Void> gate;
+        synchronized (myEulaLock) {
+            if (myEulaGate == null || myEulaGate.isDone()) {
+                CompletableFuture<Void> newGate = new CompletableFuture<>();
+                // EULA should be shown even if there's a modal dialog (e.g. a commit one)
+                application.invokeLater(() -> showEulaDialog(newGate), ModalityState.any());
+                myEulaGate = newGate;
+            }
+
+            gate = myEulaGate;
+        }
+
+        // A request made on the EDT may be waited for there, so the dialog can't wait for its turn in the queue
+        if (application.isDispatchThread())
+            showEulaDialog(gate);
+
+        return gate;
+    }
 
-            myClient.thenAccept(ReactiveTfvcClientHost::terminate);
-            myClient = null;
+    private void showEulaDialog(CompletableFuture<Void> gate) {
+        if (gate.isDone() || myEulaDialogShowing)
+            return;
+
+        myEulaDialogShowing = true;
+        try {
+            if (isEulaAcceptedInSettings() || EULADialog.forTfsSdk(myProject).showAndGet()) {
+                myEulaAccepted = true;
+                gate.complete(null);
+            } else {
+                gate.completeExceptionally(
+                        new RuntimeException("EULA acceptance is required to use the reactive TF client"));
+            }
+        } catch (Throwable t) {
+            gate.completeExceptionally(t);
+        } finally {
+            myEulaDialogShowing = false;
         }
     }
 
-    private CompletableFuture<ReactiveTfvcClientHost> createNewClientAsync() throws ExecutionException {
+    private void destroyClientIfExists() {
+        mySupervisor.destroyClient();
+    }
+
+    @NotNull
+    private CompletionStage<ReactiveTfvcClientHost> createNewClientAsync() throws ExecutionException {
         Path clientPath = getClientBackendPath()
                 .resolve("bin")
                 .resolve(SystemInfo.isWindows ? "backend.bat" : "backend");
         ReactiveTfvcClientHost client = ReactiveTfvcClientHost.create(this, clientPath);
-        return client.startAsync().thenApply(unused -> client).toCompletableFuture();
+        BackendHealthMonitor healthMonitor = new BackendHealthMonitor(
+                PropertyService.getInstance(),
+                this::notifyGcOverhead);
+        return client.startAsync()
+                .thenCompose(unused -> client.adviseHealthAsync(healthMonitor::onHealth))
+                .thenApply(unused -> client);
+    }
+
+    private void notifyGcOverhead(double overhead) {
+        if (myProject.isDisposed())
+            return;
+
+        VcsNotifier.getInstance(myProject).notifyImportantWarning(
+                TfPluginBundle.message(TfPluginBundle.KEY_TFVC_REACTIVE_CLIENT_GC_OVERHEAD_TITLE),
+                TfPluginBundle.message(
+                        TfPluginBundle.KEY_TFVC_REACTIVE_CLIENT_GC_OVERHEAD_MSG,
+                        Math.round(overhead * 100.0)));
     }
 }
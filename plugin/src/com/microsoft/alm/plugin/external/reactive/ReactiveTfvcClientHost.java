@@ -4,46 +4,54 @@
 package com.microsoft.alm.plugin.external.reactive;
 
 import com.google.common.base.Strings;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.intellij.execution.ExecutionException;
 import com.intellij.execution.configurations.GeneralCommandLine;
 import com.intellij.execution.process.OSProcessHandler;
-import com.intellij.execution.process.ProcessHandler;
+import com.intellij.execution.process.OSProcessUtil;
 import com.intellij.execution.process.ProcessOutputTypes;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.SystemInfo;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.jetbrains.rd.framework.impl.RdSecureString;
 import com.jetbrains.rd.util.lifetime.LifetimeDefinition;
+import com.jetbrains.rd.util.lifetime.LifetimeStatus;
 import com.jetbrains.rd.util.threading.SingleThreadScheduler;
 import com.microsoft.alm.plugin.authentication.AuthenticationInfo;
 import com.microsoft.alm.plugin.external.models.ExtendedItemInfo;
 import com.microsoft.alm.plugin.external.models.ItemInfo;
 import com.microsoft.alm.plugin.external.models.PendingChange;
+import com.microsoft.alm.plugin.external.telemetry.ReactiveCallTrace;
 import com.microsoft.alm.plugin.external.utils.ProcessHelper;
 import com.microsoft.alm.plugin.idea.tfvc.core.tfs.TfsFileUtil;
 import com.microsoft.alm.plugin.services.PropertyService;
 import com.microsoft.tfs.connector.ReactiveClientConnection;
+import com.microsoft.tfs.model.connector.TfsBackendHealth;
+import com.microsoft.tfs.model.connector.TfsCheckinResult;
 import com.microsoft.tfs.model.connector.TfsCollection;
-import com.microsoft.tfs.model.connector.TfsCollectionDefinition;
 import com.microsoft.tfs.model.connector.TfsCredentials;
 import com.microsoft.tfs.model.connector.TfsDeleteResult;
 import com.microsoft.tfs.model.connector.TfsLocalPath;
 import com.microsoft.tfs.model.connector.TfsPath;
+import com.microsoft.tfs.model.connector.TfvcCheckinProgress;
 import com.microsoft.tfs.model.connector.TfvcCheckoutResult;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.TestOnly;
 
+import java.net.URI;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -60,8 +68,12 @@ public class ReactiveTfvcClientHost {
 
     public static final String REACTIVE_CLIENT_OPTIONS_ENV = "BACKEND_OPTS";
     public static final int REACTIVE_CLIENT_DEFAULT_MEMORY_LIMIT = 2048;
+    public static final int REACTIVE_CLIENT_DEFAULT_CHUNKS_IN_FLIGHT = 4;
+    public static final int REACTIVE_CLIENT_DEFAULT_COLLECTION_IDLE_MINUTES = 30;
+    public static final int REACTIVE_CLIENT_DEFAULT_HEARTBEAT_DEADLINE_SECONDS = 120;
 
-    private static final int INFO_PARTITION_COUNT = 1000;
+    private static final long COLLECTION_EVICTION_CHECK_MINUTES = 1L;
+    private static final long HEARTBEAT_INTERVAL_MILLIS = 10_000L;
 
     private static final String REACTIVE_CLIENT_LOG_LEVEL = "INFO";
 
@@ -69,10 +81,16 @@ public class ReactiveTfvcClientHost {
 
     private final LifetimeDefinition myLifetime;
     private final ReactiveClientConnection myConnection;
+    private final Process myProcess;
+    private final ConcurrentMap<URI, PendingChangesCoalescer> myPendingChangesCoalescers = new ConcurrentHashMap<>();
 
-    public ReactiveTfvcClientHost(LifetimeDefinition myLifetime, ReactiveClientConnection connection) {
+    public ReactiveTfvcClientHost(
+            LifetimeDefinition myLifetime,
+            ReactiveClientConnection connection,
+            Process process) {
         this.myLifetime = myLifetime;
         myConnection = connection;
+        myProcess = process;
     }
 
     public static ReactiveTfvcClientHost create(Disposable parent, Path clientPath) throws ExecutionException {
@@ -85,7 +103,7 @@ public class ReactiveTfvcClientHost {
             GeneralCommandLine commandLine = ProcessHelper.patchPathEnvironmentVariable(
                     getClientCommandLine(clientPath, connection.getPort(), logDirectory, clientHomeDir));
 
-            ProcessHandler processHandler = new OSProcessHandler(commandLine) {
+            OSProcessHandler processHandler = new OSProcessHandler(commandLine) {
                 @Override
                 protected void notifyProcessTerminated(int exitCode) {
                     super.notifyProcessTerminated(exitCode);
@@ -113,7 +131,7 @@ public class ReactiveTfvcClientHost {
 
             processHandler.startNotify();
 
-            return new ReactiveTfvcClientHost(hostLifetime, connection);
+            return new ReactiveTfvcClientHost(hostLifetime, connection, processHandler.getProcess());
         } catch (Throwable t) {
             hostLifetime.terminate(false);
             throw t;
@@ -124,6 +142,24 @@ public class ReactiveTfvcClientHost {
         myLifetime.terminate(false);
     }
 
+    public boolean isAlive() {
+        return myLifetime.getStatus() == LifetimeStatus.Alive;
+    }
+
+    /**
+     * Runs the action once the client terminates, whether on request, because the process has exited or because the
+     * connection has dropped. Runs it right away if the client has already terminated.
+     */
+    public void whenTerminated(@NotNull Runnable action) {
+        if (!myLifetime.onTerminationIfAlive(action::run))
+            action.run();
+    }
+
+    @TestOnly
+    public int getProcessId() {
+        return OSProcessUtil.getProcessID(myProcess);
+    }
+
     @NotNull
     private static GeneralCommandLine getClientCommandLine(
             Path clientExecutable,
@@ -142,11 +178,8 @@ public class ReactiveTfvcClientHost {
 
         String backendOptions = System.getenv(REACTIVE_CLIENT_OPTIONS_ENV);
         if (Strings.isNullOrEmpty(backendOptions)) {
-            String memoryMb = PropertyService.getInstance().getProperty(PropertyService.PROP_REACTIVE_CLIENT_MEMORY);
-            if (memoryMb == null)
-                memoryMb = Integer.toString(REACTIVE_CLIENT_DEFAULT_MEMORY_LIMIT);
-
-            backendOptions = String.format("-Xmx%sm", memoryMb);
+            int memoryMb = BackendHealthMonitor.getHeapLimitMb(PropertyService.getInstance());
+            backendOptions = String.format("-Xmx%dm", memoryMb);
         }
 
         ourLogger.info("Reactive client will be started with env " + REACTIVE_CLIENT_OPTIONS_ENV + "=" + backendOptions);
@@ -157,127 +190,266 @@ public class ReactiveTfvcClientHost {
     }
 
     public CompletionStage<Void> startAsync() {
-        return myConnection.startAsync();
+        return myConnection.startAsync().thenRun(() -> {
+            scheduleIdleCollectionEviction();
+            startHeartbeat();
+        });
     }
 
-    public CompletionStage<List<PendingChange>> getPendingChangesAsync(
-            ServerIdentification serverIdentification,
-            Stream<Path> localPaths) {
-        List<TfsLocalPath> paths = localPaths.map(TfsFileUtil::createLocalPath).collect(Collectors.toList());
-        return getReadyCollectionAsync(serverIdentification)
-                .thenCompose(collection -> myConnection.invalidatePathsAsync(collection, paths).thenApply(v -> collection))
-                .thenCompose(collection -> myConnection.getPendingChangesAsync(collection, paths))
-                .thenApply(changes -> changes.stream().map(PendingChange::from).collect(Collectors.toList()));
+    /**
+     * Kills the backend if it stops answering the heartbeats, e.g. because its protocol thread is stuck or the process
+     * was suspended. The connection and the calls in flight terminate with the process.
+     */
+    private void startHeartbeat() {
+        long deadlineMillis = TimeUnit.SECONDS.toMillis(getHeartbeatDeadlineSeconds());
+        if (deadlineMillis <= 0L)
+            return;
+
+        BackendHeartbeat heartbeat = new BackendHeartbeat(
+                () -> myConnection.heartbeatAsync(System.currentTimeMillis()),
+                AppExecutorUtil.getAppScheduledExecutorService(),
+                Math.min(HEARTBEAT_INTERVAL_MILLIS, deadlineMillis / 2L),
+                deadlineMillis,
+                this::onHeartbeatMissed);
+        heartbeat.start();
+        myLifetime.onTerminationIfAlive(() -> {
+            heartbeat.stop();
+        });
+    }
+
+    private void onHeartbeatMissed(long waitedMillis) {
+        ourLogger.warn("Reactive client didn't answer the heartbeat for " + waitedMillis + " ms, killing it");
+        myProcess.destroyForcibly();
+        terminate();
     }
 
-    private CompletionStage<Void> getLocalItemsInfoAsyncChunk(
-            TfsCollection collection,
-            Iterator<List<Path>> chunkIterator,
-            Consumer<ItemInfo> onItemReceived) {
-        if (!chunkIterator.hasNext())
-            return CompletableFuture.completedFuture(null);
-
-        List<Path> chunk = chunkIterator.next();
-        List<TfsLocalPath> paths = chunk.stream().map(TfsFileUtil::createLocalPath).collect(Collectors.toList());
-        return myConnection.getLocalItemsInfoAsync(collection, paths)
-                .thenCompose(infos -> {
-                    infos.forEach(ii -> onItemReceived.accept(ItemInfo.from(ii)));
-                    return getLocalItemsInfoAsyncChunk(collection, chunkIterator, onItemReceived);
+    private static int getHeartbeatDeadlineSeconds() {
+        String value = PropertyService.getInstance().getProperty(
+                PropertyService.PROP_REACTIVE_CLIENT_HEARTBEAT_DEADLINE_SECONDS);
+        try {
+            return value == null ? REACTIVE_CLIENT_DEFAULT_HEARTBEAT_DEADLINE_SECONDS : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            ourLogger.warn("Invalid " + PropertyService.PROP_REACTIVE_CLIENT_HEARTBEAT_DEADLINE_SECONDS + " value: "
+                    + value);
+            return REACTIVE_CLIENT_DEFAULT_HEARTBEAT_DEADLINE_SECONDS;
+        }
+    }
+
+    /**
+     * Drops the connection to the backend without stopping it first. Used by the fault injection tests.
+     */
+    @TestOnly
+    public void dropConnection() {
+        myConnection.dropConnection();
+    }
+
+    private void scheduleIdleCollectionEviction() {
+        ScheduledFuture<?> eviction = AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(
+                this::evictIdleCollections,
+                COLLECTION_EVICTION_CHECK_MINUTES,
+                COLLECTION_EVICTION_CHECK_MINUTES,
+                TimeUnit.MINUTES);
+        myLifetime.onTerminationIfAlive(() -> {
+            eviction.cancel(false);
+        });
+    }
+
+    /**
+     * Removes the collections that weren't used for the configured time, so the backend releases their clients with
+     * the workspace caches and file watchers. The next request for a removed collection creates it again.
+     */
+    private void evictIdleCollections() {
+        int idleMinutes = getCollectionIdleMinutes();
+        if (idleMinutes <= 0)
+            return;
+
+        myConnection.evictIdleCollectionsAsync(TimeUnit.MINUTES.toMillis(idleMinutes))
+                .thenAccept(serverUris -> {
+                    for (URI serverUri : serverUris) {
+                        myPendingChangesCoalescers.remove(serverUri);
+                        ourLogger.info("Collection " + serverUri + " evicted after " + idleMinutes + " idle minutes");
+                    }
                 });
     }
 
-    private CompletionStage<Void> getExtendedItemsInfoAsyncChunk(
-            TfsCollection collection,
-            Iterator<List<Path>> chunkIterator,
-            Consumer<ExtendedItemInfo> onItemReceived) {
-        if (!chunkIterator.hasNext())
-            return CompletableFuture.completedFuture(null);
-
-        List<Path> chunk = chunkIterator.next();
-        List<TfsLocalPath> paths = chunk.stream().map(TfsFileUtil::createLocalPath).collect(Collectors.toList());
-        return myConnection.getExtendedItemsInfoAsync(collection, paths)
-                .thenCompose(infos -> {
-                    infos.forEach(ii -> onItemReceived.accept(ExtendedItemInfo.from(ii)));
-                    return getExtendedItemsInfoAsyncChunk(collection, chunkIterator, onItemReceived);
+    private static int getCollectionIdleMinutes() {
+        String value = PropertyService.getInstance().getProperty(
+                PropertyService.PROP_REACTIVE_CLIENT_COLLECTION_IDLE_MINUTES);
+        try {
+            return value == null ? REACTIVE_CLIENT_DEFAULT_COLLECTION_IDLE_MINUTES : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            ourLogger.warn("Invalid " + PropertyService.PROP_REACTIVE_CLIENT_COLLECTION_IDLE_MINUTES + " value: " + value);
+            return REACTIVE_CLIENT_DEFAULT_COLLECTION_IDLE_MINUTES;
+        }
+    }
+
+    /**
+     * Passes every health statistics update of the backend to the handler, on the protocol scheduler.
+     */
+    public CompletionStage<Void> adviseHealthAsync(Consumer<TfsBackendHealth> handler) {
+        return myConnection.adviseHealthAsync(handler);
+    }
+
+    /**
+     * Creates the collection and waits for it to connect, so the first request of the project doesn't pay for it.
+     */
+    public CompletionStage<Void> prewarmCollectionAsync(ServerIdentification serverIdentification) {
+        ReactiveCallTrace trace = new ReactiveCallTrace("Prewarm");
+        return getReadyCollectionAsync(serverIdentification, trace)
+                .thenAccept(collection -> ourLogger.info("Collection " + serverIdentification.getServerUri()
+                        + " prewarmed in " + TimeUnit.NANOSECONDS.toMillis(trace.getCollectionReadyNanos()) + " ms"));
+    }
+
+    public CompletionStage<List<PendingChange>> getPendingChangesAsync(
+            ServerIdentification serverIdentification,
+            Stream<Path> localPaths) {
+        PendingChangesCoalescer coalescer = myPendingChangesCoalescers.computeIfAbsent(
+                serverIdentification.getServerUri(),
+                uri -> new PendingChangesCoalescer(
+                        this::queryPendingChangesAsync,
+                        AppExecutorUtil.getAppScheduledExecutorService(),
+                        PendingChangesCoalescer.DEFAULT_WINDOW_MILLIS));
+        return coalescer.getPendingChangesAsync(serverIdentification, localPaths.collect(Collectors.toList()));
+    }
+
+    /**
+     * Sends a query for the requests coalesced by the {@link PendingChangesCoalescer}, which is traced on its own: the
+     * traces of the requests only have a holder lookup.
+     */
+    private CompletionStage<List<PendingChange>> queryPendingChangesAsync(
+            ServerIdentification serverIdentification,
+            List<Path> localPaths) {
+        ReactiveCallTrace trace = new ReactiveCallTrace("Status query");
+        List<TfsLocalPath> paths = localPaths.stream().map(TfsFileUtil::createLocalPath).collect(Collectors.toList());
+        return getReadyCollectionAsync(serverIdentification, trace)
+                .thenCompose(collection -> myConnection.invalidatePathsAsync(collection, paths, trace)
+                        .thenApply(v -> collection))
+                .thenCompose(collection -> myConnection.getPendingChangesAsync(collection, paths, trace))
+                .thenApply(changes -> changes.stream().map(PendingChange::from).collect(Collectors.toList()))
+                .whenComplete((result, error) -> {
+                    trace.finish(error != null);
+                    ourLogger.debug(trace.toString());
                 });
     }
 
     public CompletionStage<Void> getLocalItemsInfoAsync(
             ServerIdentification serverIdentification,
             Stream<Path> localPaths,
-            Consumer<ItemInfo> onItemReceived) {
-        // Pack the paths into partitions of predefined size to avoid overloading the protocol.
-        Iterable<List<Path>> partitions = Iterables.partition(localPaths::iterator, INFO_PARTITION_COUNT);
-        return getReadyCollectionAsync(serverIdentification)
-                .thenCompose(collection -> getLocalItemsInfoAsyncChunk(collection, partitions.iterator(), onItemReceived));
+            Consumer<ItemInfo> onItemReceived,
+            ReactiveCallTrace trace) {
+        return getReadyCollectionAsync(serverIdentification, trace)
+                .thenCompose(collection -> new ChunkPipeline<TfsLocalPath, ItemInfo>(
+                        localPaths.map(TfsFileUtil::createLocalPath).iterator(),
+                        paths -> myConnection.getLocalItemsInfoAsync(collection, paths, trace)
+                                .thenApply(infos -> infos.stream().map(ItemInfo::from).collect(Collectors.toList())),
+                        onItemReceived,
+                        path -> path.getPath().length(),
+                        getMaxChunksInFlight()).runAsync());
     }
 
     public CompletionStage<Void> getExtendedItemsInfoAsync(
             ServerIdentification serverIdentification,
             Stream<Path> localPaths,
-            Consumer<ExtendedItemInfo> onItemReceived) {
-        // Pack the paths into partitions of predefined size to avoid overloading the protocol.
-        Iterable<List<Path>> partitions = Iterables.partition(localPaths::iterator, INFO_PARTITION_COUNT);
-        return getReadyCollectionAsync(serverIdentification)
-                .thenCompose(collection -> getExtendedItemsInfoAsyncChunk(
-                        collection,
-                        partitions.iterator(),
-                        onItemReceived));
+            Consumer<ExtendedItemInfo> onItemReceived,
+            ReactiveCallTrace trace) {
+        return getReadyCollectionAsync(serverIdentification, trace)
+                .thenCompose(collection -> new ChunkPipeline<TfsLocalPath, ExtendedItemInfo>(
+                        localPaths.map(TfsFileUtil::createLocalPath).iterator(),
+                        paths -> myConnection.getExtendedItemsInfoAsync(collection, paths, trace)
+                                .thenApply(infos -> infos.stream()
+                                        .map(ExtendedItemInfo::from)
+                                        .collect(Collectors.toList())),
+                        onItemReceived,
+                        path -> path.getPath().length(),
+                        getMaxChunksInFlight()).runAsync());
+    }
+
+    private static int getMaxChunksInFlight() {
+        String value = PropertyService.getInstance().getProperty(PropertyService.PROP_REACTIVE_CLIENT_CHUNKS_IN_FLIGHT);
+        try {
+            return value == null ? REACTIVE_CLIENT_DEFAULT_CHUNKS_IN_FLIGHT : Math.max(1, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            ourLogger.warn("Invalid " + PropertyService.PROP_REACTIVE_CLIENT_CHUNKS_IN_FLIGHT + " value: " + value);
+            return REACTIVE_CLIENT_DEFAULT_CHUNKS_IN_FLIGHT;
+        }
     }
 
     @NotNull
     public CompletionStage<List<TfsLocalPath>> addFilesAsync(
             @NotNull ServerIdentification serverIdentification,
-            @NotNull List<TfsLocalPath> files) {
-        return getReadyCollectionAsync(serverIdentification)
-                .thenCompose(collection -> myConnection.addFilesAsync(collection, files));
+            @NotNull List<TfsLocalPath> files,
+            @NotNull ReactiveCallTrace trace) {
+        return getReadyCollectionAsync(serverIdentification, trace)
+                .thenCompose(collection -> myConnection.addFilesAsync(collection, files, trace));
     }
 
     @NotNull
     public CompletionStage<TfsDeleteResult> deleteFilesRecursivelyAsync(
             @NotNull ServerIdentification serverIdentification,
-            @NotNull List<TfsPath> paths) {
-        return getReadyCollectionAsync(serverIdentification)
-                .thenCompose(collection -> myConnection.deleteFilesRecursivelyAsync(collection, paths));
+            @NotNull List<TfsPath> paths,
+            @NotNull ReactiveCallTrace trace) {
+        return getReadyCollectionAsync(serverIdentification, trace)
+                .thenCompose(collection -> myConnection.deleteFilesRecursivelyAsync(collection, paths, trace));
     }
 
     @NotNull
     public CompletionStage<List<TfsLocalPath>> undoLocalChangesAsync(
             @NotNull ServerIdentification serverIdentification,
-            @NotNull List<TfsPath> paths) {
-        return getReadyCollectionAsync(serverIdentification)
-                .thenCompose(collection -> myConnection.undoLocalChangesAsync(collection, paths));
+            @NotNull List<TfsPath> paths,
+            @NotNull ReactiveCallTrace trace) {
+        return getReadyCollectionAsync(serverIdentification, trace)
+                .thenCompose(collection -> myConnection.undoLocalChangesAsync(collection, paths, trace));
     }
 
     @NotNull
     public CompletionStage<TfvcCheckoutResult> checkoutFilesForEditAsync(
             @NotNull ServerIdentification serverIdentification,
             @NotNull List<TfsLocalPath> paths,
-            boolean recursive) {
-        return getReadyCollectionAsync(serverIdentification)
-                .thenCompose(collection -> myConnection.checkoutFilesForEditAsync(collection, paths, recursive));
+            boolean recursive,
+            @NotNull ReactiveCallTrace trace) {
+        return getReadyCollectionAsync(serverIdentification, trace)
+                .thenCompose(collection -> myConnection.checkoutFilesForEditAsync(collection, paths, recursive, trace));
     }
 
     public CompletionStage<Boolean> renameFileAsync(
             @NotNull ServerIdentification serverIdentification,
             @NotNull TfsLocalPath oldPath,
-            @NotNull TfsLocalPath newPath) {
-        return getReadyCollectionAsync(serverIdentification)
-                .thenCompose(collection -> myConnection.renameFileAsync(collection, oldPath, newPath));
+            @NotNull TfsLocalPath newPath,
+            @NotNull ReactiveCallTrace trace) {
+        return getReadyCollectionAsync(serverIdentification, trace)
+                .thenCompose(collection -> myConnection.renameFileAsync(collection, oldPath, newPath, trace));
+    }
+
+    @NotNull
+    public CompletionStage<TfsCheckinResult> checkinAsync(
+            @NotNull ServerIdentification serverIdentification,
+            @NotNull List<TfsLocalPath> files,
+            @NotNull String comment,
+            @NotNull List<Integer> workItemIds,
+            @NotNull Consumer<TfvcCheckinProgress> onProgress,
+            @NotNull ReactiveCallTrace trace) {
+        return getReadyCollectionAsync(serverIdentification, trace)
+                .thenCompose(collection -> myConnection.checkinAsync(
+                        collection,
+                        files,
+                        comment,
+                        workItemIds,
+                        onProgress,
+                        trace));
     }
 
     private CompletionStage<TfsCollection> getReadyCollectionAsync(
-            @NotNull ServerIdentification serverIdentification) {
+            @NotNull ServerIdentification serverIdentification,
+            @NotNull ReactiveCallTrace trace) {
         AuthenticationInfo authenticationInfo = serverIdentification.getAuthenticationInfo();
         TfsCredentials tfsCredentials = new TfsCredentials(
                 authenticationInfo.getUserName(),
                 new RdSecureString(authenticationInfo.getPassword()));
-        TfsCollectionDefinition workspaceDefinition = new TfsCollectionDefinition(
-                serverIdentification.getServerUri(),
-                tfsCredentials);
-
-        return myConnection.getOrCreateCollectionAsync(workspaceDefinition)
+        return myConnection.getOrCreateCollectionAsync(serverIdentification.getServerUri(), tfsCredentials)
                 .thenCompose(workspace -> myConnection.waitForReadyAsync(workspace)
-                        .thenApply(unused -> workspace));
+                        .thenApply(unused -> {
+                            trace.collectionReady();
+                            return workspace;
+                        }));
     }
 }
@@ -0,0 +1,65 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.reactive;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Computes the delays of the restarts of a backend that keeps terminating. The first restart is immediate, the next
+ * ones wait twice as long as the previous one, up to the maximum. A backend that ran for long enough before it
+ * terminated is restarted immediately again.
+ */
+public class RestartBackoff {
+    private final long myInitialDelayMillis;
+    private final long myMaxDelayMillis;
+    private final long myStableRunMillis;
+    private final LongSupplier myNanoClock;
+
+    // Guarded by this
+    private int myRestartCount;
+    private boolean myStarted;
+    private long myStartedNanos;
+
+    public RestartBackoff(long initialDelayMillis, long maxDelayMillis, long stableRunMillis) {
+        this(initialDelayMillis, maxDelayMillis, stableRunMillis, System::nanoTime);
+    }
+
+    /* default */ RestartBackoff(
+            long initialDelayMillis,
+            long maxDelayMillis,
+            long stableRunMillis,
+            LongSupplier nanoClock) {
+        myInitialDelayMillis = initialDelayMillis;
+        myMaxDelayMillis = maxDelayMillis;
+        myStableRunMillis = stableRunMillis;
+        myNanoClock = nanoClock;
+    }
+
+    /**
+     * Called when the backend has started.
+     */
+    public synchronized void started() {
+        myStarted = true;
+        myStartedNanos = myNanoClock.getAsLong();
+    }
+
+    /**
+     * Called when the backend has terminated by itself; returns the delay before it's started again.
+     */
+    public synchronized long nextDelayMillis() {
+        if (myStarted
+                && TimeUnit.NANOSECONDS.toMillis(myNanoClock.getAsLong() - myStartedNanos) >= myStableRunMillis) {
+            myRestartCount = 0;
+        }
+        // A restart that fails to start the backend keeps backing off
+        myStarted = false;
+
+        long delayMillis = myRestartCount == 0
+                ? 0L
+                : Math.min(myMaxDelayMillis, myInitialDelayMillis << Math.min(myRestartCount - 1, 30));
+        myRestartCount++;
+        return delayMillis;
+    }
+}
@@ -0,0 +1,145 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.telemetry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Emits a JDK Flight Recorder event for every tf command, so command latency can be lined up with GC, I/O and thread
+ * activity in a recording of the IDE.
+ * <p/>
+ * The plugin is built for Java 8 and the IDE may run on a JRE without the jdk.jfr module, so the event type is
+ * defined at runtime through jdk.jfr.EventFactory and used via reflection. When Flight Recorder isn't available or
+ * isn't recording, this costs a null check per command.
+ */
+class CommandFlightRecorder {
+    private static final Logger logger = LoggerFactory.getLogger(CommandFlightRecorder.class);
+
+    /* default */ static final String EVENT_NAME = "com.microsoft.alm.TfCommand";
+
+    private static final int FIELD_COMMAND = 0;
+    private static final int FIELD_CACHED_RUNNER = 1;
+    private static final int FIELD_QUEUE_WAIT = 2;
+    private static final int FIELD_PROCESS_START = 3;
+    private static final int FIELD_FIRST_BYTE = 4;
+    private static final int FIELD_PARSE = 5;
+    private static final int FIELD_STDOUT_CHARS = 6;
+    private static final int FIELD_EXIT_CODE = 7;
+
+    private static final EventType eventType = EventType.create();
+
+    /**
+     * Starts timing an event, returns null if no event will be recorded
+     */
+    static Object begin() {
+        return eventType != null ? eventType.begin() : null;
+    }
+
+    static void commit(final Object event, final CommandTrace trace) {
+        if (event != null && eventType != null) {
+            eventType.commit(event, trace);
+        }
+    }
+
+    /* default */ static boolean isAvailable() {
+        return eventType != null;
+    }
+
+    private static class EventType {
+        private final Object factory;
+        private final Method newEvent;
+        private final Method isEnabled;
+        private final Method begin;
+        private final Method set;
+        private final Method commit;
+
+        private EventType(final Object factory) throws ReflectiveOperationException {
+            this.factory = factory;
+            final Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            this.newEvent = factory.getClass().getMethod("newEvent");
+            this.isEnabled = eventClass.getMethod("isEnabled");
+            this.begin = eventClass.getMethod("begin");
+            this.set = eventClass.getMethod("set", int.class, Object.class);
+            this.commit = eventClass.getMethod("commit");
+        }
+
+        private static EventType create() {
+            try {
+                final Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+                final Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+                final Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+                final Constructor<?> annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+                final Constructor<?> valueDescriptor = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+                final Object nanoseconds = annotationElement.newInstance(annotation("jdk.jfr.Timespan"), "NANOSECONDS");
+
+                final List<Object> eventAnnotations = Arrays.asList(
+                        annotationElement.newInstance(annotation("jdk.jfr.Name"), EVENT_NAME),
+                        annotationElement.newInstance(annotation("jdk.jfr.Label"), "TF Command"),
+                        annotationElement.newInstance(annotation("jdk.jfr.Category"), new String[]{"Azure DevOps", "TFVC"}));
+                final List<Object> fields = new ArrayList<Object>();
+                fields.add(FIELD_COMMAND, valueDescriptor.newInstance(String.class, "command", Collections.emptyList()));
+                fields.add(FIELD_CACHED_RUNNER, valueDescriptor.newInstance(boolean.class, "cachedRunner", Collections.emptyList()));
+                fields.add(FIELD_QUEUE_WAIT, valueDescriptor.newInstance(long.class, "queueWait", Collections.singletonList(nanoseconds)));
+                fields.add(FIELD_PROCESS_START, valueDescriptor.newInstance(long.class, "processStart", Collections.singletonList(nanoseconds)));
+                fields.add(FIELD_FIRST_BYTE, valueDescriptor.newInstance(long.class, "firstByte", Collections.singletonList(nanoseconds)));
+                fields.add(FIELD_PARSE, valueDescriptor.newInstance(long.class, "parse", Collections.singletonList(nanoseconds)));
+                fields.add(FIELD_STDOUT_CHARS, valueDescriptor.newInstance(long.class, "stdoutChars", Collections.emptyList()));
+                fields.add(FIELD_EXIT_CODE, valueDescriptor.newInstance(int.class, "exitCode", Collections.emptyList()));
+
+                final Object factory = eventFactoryClass.getMethod("create", List.class, List.class)
+                        .invoke(null, eventAnnotations, fields);
+                return new EventType(factory);
+            } catch (final ClassNotFoundException e) {
+                logger.info("Flight Recorder is not available, tf command events will not be recorded");
+            } catch (final Throwable t) {
+                logger.warn("Failed to define the tf command Flight Recorder event", t);
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Class<? extends Annotation> annotation(final String name) throws ClassNotFoundException {
+            return (Class<? extends Annotation>) Class.forName(name);
+        }
+
+        private Object begin() {
+            try {
+                final Object event = newEvent.invoke(factory);
+                if (!(Boolean) isEnabled.invoke(event)) {
+                    return null;
+                }
+                begin.invoke(event);
+                return event;
+            } catch (final ReflectiveOperationException e) {
+                logger.warn("Failed to begin a tf command event", e);
+                return null;
+            }
+        }
+
+        private void commit(final Object event, final CommandTrace trace) {
+            try {
+                set.invoke(event, FIELD_COMMAND, trace.getCommand());
+                set.invoke(event, FIELD_CACHED_RUNNER, trace.isCachedRunner());
+                set.invoke(event, FIELD_QUEUE_WAIT, trace.getQueueWaitNanos());
+                set.invoke(event, FIELD_PROCESS_START, trace.getProcessStartNanos());
+                set.invoke(event, FIELD_FIRST_BYTE, trace.getFirstByteNanos());
+                set.invoke(event, FIELD_PARSE, trace.getParseNanos());
+                set.invoke(event, FIELD_STDOUT_CHARS, trace.getStdoutChars());
+                set.invoke(event, FIELD_EXIT_CODE, trace.getExitCode());
+                commit.invoke(event);
+            } catch (final ReflectiveOperationException e) {
+                logger.warn("Failed to commit a tf command event", e);
+            }
+        }
+    }
+}
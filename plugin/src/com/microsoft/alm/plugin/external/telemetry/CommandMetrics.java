@@ -0,0 +1,159 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.telemetry;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency and output size histograms of the tf commands run since the IDE started, per command name.
+ * <p/>
+ * Recording a command is cheap and lock free, so every command is recorded. Times are kept in microseconds with 3
+ * significant digits.
+ */
+public class CommandMetrics {
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0};
+
+    private final ConcurrentMap<String, Statistics> statistics = new ConcurrentHashMap<String, Statistics>();
+
+    private static class Holder {
+        public final static CommandMetrics INSTANCE = new CommandMetrics();
+    }
+
+    public static CommandMetrics getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public void record(final CommandTrace trace) {
+        Statistics commandStatistics = statistics.get(trace.getCommand());
+        if (commandStatistics == null) {
+            final Statistics newStatistics = new Statistics();
+            commandStatistics = statistics.putIfAbsent(trace.getCommand(), newStatistics);
+            if (commandStatistics == null) {
+                commandStatistics = newStatistics;
+            }
+        }
+        commandStatistics.record(trace);
+    }
+
+    /**
+     * Returns the statistics of a command, or null if it wasn't run
+     */
+    public Statistics getStatistics(final String command) {
+        return statistics.get(command);
+    }
+
+    public void reset() {
+        statistics.clear();
+    }
+
+    /**
+     * Returns a table with the percentiles of every phase of every command that was run
+     */
+    public String dump() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%-24s %8s %8s %8s %10s %10s %10s %10s%n",
+                "command/phase", "count", "cached", "failed", "p50", "p90", "p99", "max"));
+        for (final Map.Entry<String, Statistics> entry : new TreeMap<String, Statistics>(statistics).entrySet()) {
+            final Statistics commandStatistics = entry.getValue();
+            builder.append(String.format("%-24s %8d %8d %8d%n", entry.getKey(), commandStatistics.getCount(),
+                    commandStatistics.getCachedRunnerCount(), commandStatistics.getFailureCount()));
+            appendRow(builder, "  queue wait (ms)", commandStatistics.queueWait, 1000.0);
+            appendRow(builder, "  process start (ms)", commandStatistics.processStart, 1000.0);
+            appendRow(builder, "  first byte (ms)", commandStatistics.firstByte, 1000.0);
+            appendRow(builder, "  total (ms)", commandStatistics.total, 1000.0);
+            appendRow(builder, "  parse (ms)", commandStatistics.parse, 1000.0);
+            appendRow(builder, "  stdout (KB)", commandStatistics.stdoutChars, 1024.0);
+        }
+        return builder.toString();
+    }
+
+    private static void appendRow(final StringBuilder builder, final String label, final Histogram histogram,
+                                  final double scale) {
+        if (histogram.getTotalCount() == 0) {
+            return;
+        }
+        builder.append(String.format("%-24s %8d %8s %8s", label, histogram.getTotalCount(), "", ""));
+        for (final double percentile : PERCENTILES) {
+            builder.append(String.format(" %10.1f", histogram.getValueAtPercentile(percentile) / scale));
+        }
+        builder.append(String.format(" %10.1f%n", histogram.getMaxValue() / scale));
+    }
+
+    /**
+     * The histograms of a single command
+     */
+    public static class Statistics {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong cachedRunnerCount = new AtomicLong();
+        private final AtomicLong failureCount = new AtomicLong();
+        private final Histogram queueWait = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final Histogram processStart = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final Histogram firstByte = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final Histogram total = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final Histogram parse = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final Histogram stdoutChars = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+
+        private void record(final CommandTrace trace) {
+            count.incrementAndGet();
+            if (trace.isCachedRunner()) {
+                cachedRunnerCount.incrementAndGet();
+            } else if (trace.getProcessStartNanos() > 0) {
+                processStart.recordValue(toMicros(trace.getProcessStartNanos()));
+            }
+            if (trace.getExitCode() == CommandTrace.NO_EXIT_CODE) {
+                failureCount.incrementAndGet();
+            }
+            queueWait.recordValue(toMicros(trace.getQueueWaitNanos()));
+            if (trace.getFirstByteNanos() >= 0) {
+                firstByte.recordValue(toMicros(trace.getFirstByteNanos()));
+            }
+            total.recordValue(toMicros(trace.getTotalNanos()));
+            parse.recordValue(toMicros(trace.getParseNanos()));
+            stdoutChars.recordValue(trace.getStdoutChars());
+        }
+
+        private static long toMicros(final long nanos) {
+            return TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getCachedRunnerCount() {
+            return cachedRunnerCount.get();
+        }
+
+        public long getFailureCount() {
+            return failureCount.get();
+        }
+
+        /**
+         * Returns the total run time at the given percentile, in microseconds
+         */
+        public long getTotalMicrosAtPercentile(final double percentile) {
+            return total.getValueAtPercentile(percentile);
+        }
+
+        /**
+         * Returns the time to the first line of output at the given percentile, in microseconds
+         */
+        public long getFirstByteMicrosAtPercentile(final double percentile) {
+            return firstByte.getValueAtPercentile(percentile);
+        }
+
+        public long getMaxStdoutChars() {
+            return stdoutChars.getMaxValue();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.telemetry;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Timings of a single run of a tf command, from the moment it was started to the moment its output was parsed.
+ * <p/>
+ * The phases are:
+ * <ul>
+ * <li>queue wait: checking the tool version and looking for a cached runner</li>
+ * <li>process start: starting a new tf process (zero when a cached runner was used)</li>
+ * <li>first byte: from sending the arguments to the first line of output, i.e. mostly the time the CLC spends on
+ * the network</li>
+ * <li>parse: turning the output into the result of the command</li>
+ * </ul>
+ * A trace is filled in by the thread that starts the command and by the threads that read the process output, and is
+ * recorded in {@link CommandMetrics} once the command has finished.
+ */
+public class CommandTrace {
+    public static final int NO_EXIT_CODE = -1;
+
+    private final String command;
+    private final long startNanos;
+    private final Object flightRecorderEvent;
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    private volatile boolean cachedRunner;
+    private volatile long acquiredNanos;
+    private volatile long processStartNanos;
+    private volatile long argumentsSentNanos;
+    private volatile long firstOutputNanos;
+    private volatile long stdoutChars;
+    private volatile long parseNanos;
+    private volatile int exitCode = NO_EXIT_CODE;
+    private volatile long endNanos;
+
+    public CommandTrace(final String command) {
+        this.command = command;
+        this.flightRecorderEvent = CommandFlightRecorder.begin();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Called once a runner for the command is available, before the arguments are sent to it
+     *
+     * @param cachedRunner      whether the runner was started in advance for this directory
+     * @param processStartNanos the time spent starting a new process for the command
+     */
+    public void runnerAcquired(final boolean cachedRunner, final long processStartNanos) {
+        this.cachedRunner = cachedRunner;
+        this.processStartNanos = processStartNanos;
+        this.acquiredNanos = System.nanoTime();
+    }
+
+    public void argumentsSent() {
+        argumentsSentNanos = System.nanoTime();
+    }
+
+    /**
+     * Called for every line of standard output. Only the stream processor thread of the runner calls this.
+     */
+    public void standardOutput(final String line) {
+        if (firstOutputNanos == 0) {
+            firstOutputNanos = System.nanoTime();
+        }
+        stdoutChars += line.length() + 1;
+    }
+
+    public void parsed(final long parseNanos, final int exitCode) {
+        this.parseNanos = parseNanos;
+        this.exitCode = exitCode;
+    }
+
+    /**
+     * Records the trace. Only the first call has an effect, so a process that fails after reporting its exit code is
+     * counted once.
+     */
+    public void finish() {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        endNanos = System.nanoTime();
+        CommandMetrics.getInstance().record(this);
+        CommandFlightRecorder.commit(flightRecorderEvent, this);
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public boolean isCachedRunner() {
+        return cachedRunner;
+    }
+
+    public long getQueueWaitNanos() {
+        return acquiredNanos == 0 ? 0 : Math.max(0, acquiredNanos - startNanos - processStartNanos);
+    }
+
+    public long getProcessStartNanos() {
+        return processStartNanos;
+    }
+
+    /**
+     * Returns the time from sending the arguments to the first line of output, or -1 if there was no output
+     */
+    public long getFirstByteNanos() {
+        if (firstOutputNanos == 0) {
+            return -1;
+        }
+        final long sent = argumentsSentNanos != 0 ? argumentsSentNanos : startNanos;
+        return Math.max(0, firstOutputNanos - sent);
+    }
+
+    public long getTotalNanos() {
+        return (endNanos != 0 ? endNanos : System.nanoTime()) - startNanos;
+    }
+
+    public long getStdoutChars() {
+        return stdoutChars;
+    }
+
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * Returns the exit code of the process, or {@link #NO_EXIT_CODE} if the process failed or was stopped before it
+     * exited
+     */
+    public int getExitCode() {
+        return exitCode;
+    }
+}
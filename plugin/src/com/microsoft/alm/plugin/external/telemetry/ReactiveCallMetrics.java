@@ -0,0 +1,156 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.telemetry;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms of the stages of the reactive client requests made since the IDE started, per request name. See
+ * {@link ReactiveCallTrace} for the stages.
+ * <p/>
+ * Times are kept in microseconds with 3 significant digits.
+ */
+public class ReactiveCallMetrics {
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0};
+
+    private final ConcurrentMap<String, Statistics> statistics = new ConcurrentHashMap<String, Statistics>();
+
+    private static class Holder {
+        public final static ReactiveCallMetrics INSTANCE = new ReactiveCallMetrics();
+    }
+
+    public static ReactiveCallMetrics getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public void record(final ReactiveCallTrace trace) {
+        Statistics callStatistics = statistics.get(trace.getCall());
+        if (callStatistics == null) {
+            final Statistics newStatistics = new Statistics();
+            callStatistics = statistics.putIfAbsent(trace.getCall(), newStatistics);
+            if (callStatistics == null) {
+                callStatistics = newStatistics;
+            }
+        }
+        callStatistics.record(trace);
+    }
+
+    /**
+     * Returns the statistics of a request, or null if it wasn't made
+     */
+    public Statistics getStatistics(final String call) {
+        return statistics.get(call);
+    }
+
+    public void reset() {
+        statistics.clear();
+    }
+
+    /**
+     * Returns a table with the percentiles of every stage of every request that was made
+     */
+    public String dump() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%-24s %8s %8s %8s %10s %10s %10s %10s%n",
+                "request/stage", "count", "calls", "failed", "p50", "p90", "p99", "max"));
+        for (final Map.Entry<String, Statistics> entry : new TreeMap<String, Statistics>(statistics).entrySet()) {
+            final Statistics callStatistics = entry.getValue();
+            builder.append(String.format("%-24s %8d %8d %8d%n", entry.getKey(), callStatistics.getCount(),
+                    callStatistics.getBackendCallCount(), callStatistics.getFailureCount()));
+            appendRow(builder, "  holder lookup (ms)", callStatistics.holderLookup);
+            appendRow(builder, "  collection ready (ms)", callStatistics.collectionReady);
+            appendRow(builder, "  serialization (ms)", callStatistics.serialization);
+            appendRow(builder, "  backend queue (ms)", callStatistics.backendQueue);
+            appendRow(builder, "  SDK (ms)", callStatistics.sdk);
+            appendRow(builder, "  deserialization (ms)", callStatistics.deserialization);
+            appendRow(builder, "  total (ms)", callStatistics.total);
+        }
+        return builder.toString();
+    }
+
+    private static void appendRow(final StringBuilder builder, final String label, final Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            return;
+        }
+        builder.append(String.format("%-24s %8d %8s %8s", label, histogram.getTotalCount(), "", ""));
+        for (final double percentile : PERCENTILES) {
+            builder.append(String.format(" %10.1f", histogram.getValueAtPercentile(percentile) / 1000.0));
+        }
+        builder.append(String.format(" %10.1f%n", histogram.getMaxValue() / 1000.0));
+    }
+
+    /**
+     * The histograms of a single request name
+     */
+    public static class Statistics {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong backendCallCount = new AtomicLong();
+        private final AtomicLong failureCount = new AtomicLong();
+        private final Histogram holderLookup = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final Histogram collectionReady = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final Histogram serialization = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final Histogram backendQueue = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final Histogram sdk = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final Histogram deserialization = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final Histogram total = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+
+        private void record(final ReactiveCallTrace trace) {
+            count.incrementAndGet();
+            backendCallCount.addAndGet(trace.getCallCount());
+            if (trace.isFailed()) {
+                failureCount.incrementAndGet();
+            }
+            holderLookup.recordValue(toMicros(trace.getHolderLookupNanos()));
+            // Requests that made no backend calls (e.g. status requests answered by a coalesced query) only have a
+            // holder lookup and a total
+            if (trace.getCallCount() > 0) {
+                collectionReady.recordValue(toMicros(trace.getCollectionReadyNanos()));
+                serialization.recordValue(toMicros(trace.getSerializationNanos()));
+                backendQueue.recordValue(toMicros(trace.getBackendQueueNanos()));
+                sdk.recordValue(toMicros(trace.getSdkNanos()));
+                deserialization.recordValue(toMicros(trace.getDeserializationNanos()));
+            }
+            total.recordValue(toMicros(trace.getTotalNanos()));
+        }
+
+        private static long toMicros(final long nanos) {
+            return TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getBackendCallCount() {
+            return backendCallCount.get();
+        }
+
+        public long getFailureCount() {
+            return failureCount.get();
+        }
+
+        /**
+         * Returns the backend queue time at the given percentile, in microseconds
+         */
+        public long getBackendQueueMicrosAtPercentile(final double percentile) {
+            return backendQueue.getValueAtPercentile(percentile);
+        }
+
+        /**
+         * Returns the total time at the given percentile, in microseconds
+         */
+        public long getTotalMicrosAtPercentile(final double percentile) {
+            return total.getValueAtPercentile(percentile);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.telemetry;
+
+import com.microsoft.tfs.connector.CallTrace;
+import com.microsoft.tfs.model.connector.TfsCallTimings;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timings of a single request to the reactive client, from the moment it was started to the moment its result was
+ * available.
+ * <p/>
+ * The stages are:
+ * <ul>
+ * <li>holder lookup: getting the client of the project, i.e. the EULA check and starting the backend if needed</li>
+ * <li>collection ready: waiting for the backend to set up the collection of the server</li>
+ * <li>serialization: writing the call requests to the wire on the protocol scheduler</li>
+ * <li>backend queue: from sending a call to the start of its handler in the backend, including the transfer</li>
+ * <li>SDK: the handler run time in the backend</li>
+ * <li>deserialization: the rest of the round trips, i.e. sending the results back and reading them</li>
+ * </ul>
+ * A request may make several backend calls (e.g. one per chunk of an info query); their stages are summed up. Every
+ * call carries the correlation ID of the request followed by the call number, which the backend writes to its log.
+ */
+public class ReactiveCallTrace implements CallTrace {
+    private static final String SESSION_ID = Integer.toHexString(ThreadLocalRandom.current().nextInt(0x10000));
+    private static final AtomicLong requestCounter = new AtomicLong();
+
+    private final String call;
+    private final String correlationId;
+    private final long startNanos;
+    private final AtomicInteger callCount = new AtomicInteger();
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private final LongAdder serializationNanos = new LongAdder();
+    private final LongAdder roundTripNanos = new LongAdder();
+    private final LongAdder backendQueueMicros = new LongAdder();
+    private final LongAdder sdkMicros = new LongAdder();
+
+    private volatile long clientAcquiredNanos;
+    private volatile long holderLookupNanos;
+    private volatile long collectionReadyNanos;
+    private volatile boolean failed;
+    private volatile long endNanos;
+
+    public ReactiveCallTrace(@NotNull final String call) {
+        this.call = call;
+        this.correlationId = SESSION_ID + "-" + requestCounter.incrementAndGet();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Called once the client of the project is available
+     */
+    public void clientAcquired() {
+        clientAcquiredNanos = System.nanoTime();
+        holderLookupNanos = clientAcquiredNanos - startNanos;
+    }
+
+    /**
+     * Called once the collection is ready to accept calls
+     */
+    public void collectionReady() {
+        final long since = clientAcquiredNanos != 0 ? clientAcquiredNanos : startNanos;
+        collectionReadyNanos = System.nanoTime() - since;
+    }
+
+    @NotNull
+    @Override
+    public String nextCallId() {
+        return correlationId + "." + callCount.incrementAndGet();
+    }
+
+    @Override
+    public void callSent(final long serializationNanos) {
+        this.serializationNanos.add(serializationNanos);
+    }
+
+    @Override
+    public void backendTimingsReceived(@NotNull final TfsCallTimings timings) {
+        backendQueueMicros.add(TimeUnit.MILLISECONDS.toMicros(timings.getQueueMillis()));
+        sdkMicros.add(timings.getSdkMicros());
+    }
+
+    @Override
+    public void callCompleted(final long roundTripNanos) {
+        this.roundTripNanos.add(roundTripNanos);
+    }
+
+    /**
+     * Records the trace. Only the first call has an effect.
+     */
+    public void finish(final boolean failed) {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        this.failed = failed;
+        endNanos = System.nanoTime();
+        ReactiveCallMetrics.getInstance().record(this);
+    }
+
+    public String getCall() {
+        return call;
+    }
+
+    public String getCorrelationId() {
+        return correlationId;
+    }
+
+    public int getCallCount() {
+        return callCount.get();
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public long getHolderLookupNanos() {
+        return holderLookupNanos;
+    }
+
+    public long getCollectionReadyNanos() {
+        return collectionReadyNanos;
+    }
+
+    public long getSerializationNanos() {
+        return serializationNanos.sum();
+    }
+
+    public long getBackendQueueNanos() {
+        return TimeUnit.MICROSECONDS.toNanos(backendQueueMicros.sum());
+    }
+
+    public long getSdkNanos() {
+        return TimeUnit.MICROSECONDS.toNanos(sdkMicros.sum());
+    }
+
+    /**
+     * Returns the part of the round trips that isn't spent serializing the requests, waiting in the backend queue or
+     * running the handlers
+     */
+    public long getDeserializationNanos() {
+        return Math.max(0, roundTripNanos.sum() - getSerializationNanos() - getBackendQueueNanos() - getSdkNanos());
+    }
+
+    public long getTotalNanos() {
+        return (endNanos != 0 ? endNanos : System.nanoTime()) - startNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%s] %s %s in %.1f ms (%d calls): holder lookup %.1f ms, collection ready %.1f ms, " +
+                        "serialization %.1f ms, backend queue %.1f ms, SDK %.1f ms, deserialization %.1f ms",
+                correlationId, call, failed ? "failed" : "finished", toMillis(getTotalNanos()), getCallCount(),
+                toMillis(holderLookupNanos), toMillis(collectionReadyNanos), toMillis(getSerializationNanos()),
+                toMillis(getBackendQueueNanos()), toMillis(getSdkNanos()), toMillis(getDeserializationNanos()));
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -39,6 +39,7 @@ import com.microsoft.alm.plugin.external.commands.UndoCommand;
 import com.microsoft.alm.plugin.external.commands.UpdateWorkspaceCommand;
 import com.microsoft.alm.plugin.external.commands.UpdateWorkspaceMappingCommand;
 import com.microsoft.alm.plugin.external.exceptions.DollarInPathException;
+import com.microsoft.alm.plugin.external.exceptions.SyncException;
 import com.microsoft.alm.plugin.external.exceptions.ToolAuthenticationException;
 import com.microsoft.alm.plugin.external.models.ChangeSet;
 import com.microsoft.alm.plugin.external.models.Conflict;
@@ -72,6 +73,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Helper for running commands
@@ -79,6 +82,11 @@ import java.util.Objects;
 public class CommandUtils {
     protected static final Logger logger = LoggerFactory.getLogger(CommandUtils.class);
 
+    // Total length of the item arguments of one command. The tf versions older than TfTool.TF_MIN_VERSION get their
+    // arguments on the command line, which Windows limits to 32K characters; the newer ones get them from the cached
+    // runner over standard input, without a limit, but a command per batch still reports the progress as it goes.
+    private static final int MAX_ITEM_ARGUMENTS_LENGTH = 24000;
+
     /**
      * This method will return just the workspace name or empty string (never null)
      *
@@ -384,14 +392,73 @@ public class CommandUtils {
     }
 
     /**
-     * This method forces the Get of a file from the server
+     * This method forces the Get of several files from the server, in batches of files whose paths fit in the
+     * arguments of a command. A failed batch doesn't stop the next ones: the failures are reported together once every
+     * batch has run.
      *
      * @param context
-     * @param filePath
+     * @param filePaths
+     * @param onBatchCompleted called with the paths of every successful batch once it's done, e.g. to report progress
+     * @throws RuntimeException if any batch failed, with the failure of the first one as its cause
+     */
+    public static void forceGetFiles(final ServerContext context, final List<String> filePaths,
+                                     final Consumer<List<String>> onBatchCompleted) {
+        final List<RuntimeException> failures = new ArrayList<>();
+        int failedFileCount = 0;
+        for (final List<String> batch : partitionByLength(filePaths, MAX_ITEM_ARGUMENTS_LENGTH)) {
+            final SyncResults results;
+            try {
+                final SyncCommand command = new SyncCommand(context, batch, false, false, true);
+                results = command.runSynchronously();
+            } catch (final RuntimeException e) {
+                logger.warn("Force get of " + batch.size() + " file(s) failed", e);
+                failures.add(e);
+                failedFileCount += batch.size();
+                continue;
+            }
+
+            for (final SyncException exception : results.getExceptions()) {
+                logger.warn("Force get reported: " + exception.getMessage());
+            }
+            onBatchCompleted.accept(batch);
+        }
+
+        if (!failures.isEmpty()) {
+            final String messages = failures.stream()
+                    .map(Throwable::getMessage)
+                    .distinct()
+                    .collect(Collectors.joining("\n"));
+            final RuntimeException failure = new RuntimeException(String.format(
+                    "Failed to get %d of %d file(s):\n%s", failedFileCount, filePaths.size(), messages),
+                    failures.get(0));
+            failures.stream().skip(1).forEach(failure::addSuppressed);
+            throw failure;
+        }
+    }
+
+    /**
+     * Splits the items in consecutive batches whose total length (with quotes and separators) doesn't exceed the given
+     * length, unless a single item does
      */
-    public static void forceGetFile(final ServerContext context, final String filePath) {
-        final SyncCommand command = new SyncCommand(context, Collections.singletonList(filePath), false, false, true);
-        command.runSynchronously();
+    /* default */
+    static List<List<String>> partitionByLength(final List<String> items, final int maxLength) {
+        final List<List<String>> batches = new ArrayList<>();
+        List<String> batch = new ArrayList<>();
+        int batchLength = 0;
+        for (final String item : items) {
+            final int itemLength = item.length() + 3;
+            if (!batch.isEmpty() && batchLength + itemLength > maxLength) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                batchLength = 0;
+            }
+            batch.add(item);
+            batchLength += itemLength;
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
     }
 
     /**
@@ -0,0 +1,36 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.common.actions;
+
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.ide.CopyPasteManager;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.ui.Messages;
+import com.microsoft.alm.plugin.external.telemetry.CommandMetrics;
+import com.microsoft.alm.plugin.external.telemetry.ReactiveCallMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.datatransfer.StringSelection;
+
+/**
+ * Internal action (only shown when the IDE runs in internal mode) that writes the latency percentiles of the tf
+ * commands and the reactive client requests run so far to the log and the clipboard.
+ */
+public class DumpCommandMetricsAction extends DumbAwareAction {
+    private static final Logger logger = LoggerFactory.getLogger(DumpCommandMetricsAction.class);
+
+    @Override
+    public void actionPerformed(@NotNull final AnActionEvent anActionEvent) {
+        final String metrics = CommandMetrics.getInstance().dump()
+                + System.lineSeparator()
+                + ReactiveCallMetrics.getInstance().dump();
+        logger.info("TF command metrics:\n{}", metrics);
+        CopyPasteManager.getInstance().setContents(new StringSelection(metrics));
+        Messages.showInfoMessage(anActionEvent.getData(CommonDataKeys.PROJECT),
+                "The TF command metrics were written to the log and copied to the clipboard.", "TF Command Metrics");
+    }
+}
@@ -292,6 +292,10 @@ public class TfPluginBundle {
     @NonNls
     public static final String KEY_IMPORT_ADDING_FILES = "Import.AddingFiles";
     @NonNls
+    public static final String KEY_IMPORT_ADDING_FILES_PROGRESS = "Import.AddingFiles.Progress";
+    @NonNls
+    public static final String KEY_IMPORT_COMMITTING_FILES = "Import.CommittingFiles";
+    @NonNls
     public static final String KEY_IMPORT_ADDING_FILES_ERROR = "Import.Errors.AddingFiles";
     @NonNls
     public static final String KEY_IMPORT_NO_SELECTED_FILES = "Import.Errors.NoSelectedFiles";
@@ -838,6 +842,10 @@ public class TfPluginBundle {
     public static final String KEY_TFVC_SETTINGS_VS_CLIENT_PATH_NOT_FOUND = "Tfvc.Settings.VisualStudioClient.PathNotFound";
     @NonNls
     public static final String KEY_TFVC_SETTINGS_FOUND_VS_CLIENT_EXE = "Tfvc.Settings.VisualStudioClient.Found";
+    @NonNls
+    public static final String KEY_TFVC_REACTIVE_CLIENT_GC_OVERHEAD_TITLE = "Tfvc.ReactiveClient.GcOverhead.Title";
+    @NonNls
+    public static final String KEY_TFVC_REACTIVE_CLIENT_GC_OVERHEAD_MSG = "Tfvc.ReactiveClient.GcOverhead.Message";
 
     //TFVC Edit Workspace Action
     @NonNls
@@ -4,14 +4,14 @@
 package com.microsoft.alm.plugin.idea.common.ui.common;
 
 
-import com.google.common.collect.Collections2;
-import com.google.common.collect.Lists;
 import com.microsoft.alm.common.utils.UrlHelper;
 import com.microsoft.alm.core.webapi.model.TeamProjectCollectionReference;
 import com.microsoft.alm.core.webapi.model.TeamProjectReference;
 import com.microsoft.alm.plugin.context.ServerContext;
 import com.microsoft.alm.plugin.idea.common.resources.TfPluginBundle;
+import com.microsoft.alm.plugin.idea.common.utils.IdeaHelper;
 import com.microsoft.alm.plugin.idea.common.utils.VcsHelper;
+import com.microsoft.alm.plugin.operations.OperationExecutor;
 import com.microsoft.alm.sourcecontrol.webapi.model.GitRepository;
 import org.apache.commons.lang.StringUtils;
 
@@ -19,9 +19,11 @@ import javax.swing.DefaultListSelectionModel;
 import javax.swing.ListSelectionModel;
 import javax.swing.table.AbstractTableModel;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ServerContextTableModel extends AbstractTableModel {
     public enum Column {GIT_REPOSITORY, TFVC_REPOSITORY, PROJECT, COLLECTION, ACCOUNT, GENERAL_REPOSITORY, USER_NAME, ACCOUNT_URL}
@@ -34,6 +36,11 @@ public class ServerContextTableModel extends AbstractTableModel {
     public final static Column[] TFS_PROJECT_COLUMNS = new Column[]{Column.PROJECT, Column.COLLECTION};
     public final static Column[] GENERAL_COLUMNS = new Column[]{Column.GENERAL_REPOSITORY, Column.ACCOUNT_URL, Column.USER_NAME};
 
+    /**
+     * Tables with more rows than this are filtered on a background thread
+     */
+    /* default */ static final int BACKGROUND_FILTER_ROW_COUNT = 5000;
+
     /**
      * The default converter simply returns the index given.
      */
@@ -48,6 +55,9 @@ public class ServerContextTableModel extends AbstractTableModel {
     private List<ServerContext> rows = new ArrayList<ServerContext>(1000);
     private List<ServerContext> filteredRows = null;
     private String filter;
+    private final TableFilterIndex<ServerContext> filterIndex = new TableFilterIndex<ServerContext>(this::getSearchText);
+    // incremented whenever the filter or the rows change, so that a filter still running in the background is dropped
+    private final AtomicInteger filterGeneration = new AtomicInteger();
     private final Column[] columns;
     private TableModelSelectionConverter converter;
 
@@ -85,6 +95,8 @@ public class ServerContextTableModel extends AbstractTableModel {
         final ServerContext selectedContext = getSelectedContext();
 
         // Add the new rows to the existing list
+        filterGeneration.incrementAndGet();
+        filterIndex.addAll(contexts);
         rows.addAll(contexts);
         // Sort the rows by the first column
         Collections.sort(rows, new Comparator<ServerContext>() {
@@ -97,15 +109,15 @@ public class ServerContextTableModel extends AbstractTableModel {
         });
 
         if (hasFilter()) {
-            // re-apply the filter, this will fire its own event
-            applyFilter();
+            // re-apply the filter, this will fire its own event and restore the selection
+            applyFilter(selectedContext);
         } else {
             // Fire an event letting callers know
             super.fireTableDataChanged();
-        }
 
-        // Attempt to restore the selection
-        select(selectedContext);
+            // Attempt to restore the selection
+            select(selectedContext);
+        }
     }
 
     public void setSelectionConverter(TableModelSelectionConverter converter) {
@@ -171,8 +183,10 @@ public class ServerContextTableModel extends AbstractTableModel {
     }
 
     public void clearRows() {
+        filterGeneration.incrementAndGet();
         filteredRows = null;
         rows.clear();
+        filterIndex.clear();
         super.fireTableDataChanged();
     }
 
@@ -287,31 +301,76 @@ public class ServerContextTableModel extends AbstractTableModel {
         // Remember selection
         final ServerContext selectedContext = getSelectedContext();
 
-        applyFilter();
+        applyFilter(selectedContext);
+    }
+
+    /**
+     * Filters the rows and then restores the selection. Large tables are filtered on a background thread and the
+     * result is only applied if neither the filter nor the rows changed in the meantime.
+     */
+    private void applyFilter(final ServerContext selectedContext) {
+        final int generation = filterGeneration.incrementAndGet();
+        if (!hasFilter()) {
+            setFilteredRows(null, selectedContext);
+            return;
+        }
 
-        // Attempt to restore the selection
-        select(selectedContext);
+        final String currentFilter = filter;
+        final List<ServerContext> currentRows = new ArrayList<ServerContext>(rows);
+        if (currentRows.size() <= BACKGROUND_FILTER_ROW_COUNT) {
+            setFilteredRows(filterRows(currentRows, currentFilter, generation), selectedContext);
+            return;
+        }
 
+        OperationExecutor.getInstance().submitOperationTask(OperationExecutor.Priority.INTERACTIVE, () -> {
+            final List<ServerContext> result = filterRows(currentRows, currentFilter, generation);
+            if (result != null) {
+                IdeaHelper.runOnUIThread(() -> {
+                    if (generation == filterGeneration.get()) {
+                        setFilteredRows(result, selectedContext);
+                    }
+                });
+            }
+        });
     }
 
-    private void applyFilter() {
-        if (!hasFilter()) {
-            filteredRows = null;
-        } else {
-            filteredRows = Lists.newArrayList(Collections2.filter(rows, this::rowContains));
+    /**
+     * Returns the rows that contain the filter in any column (ignoring case), in the order of the table, or null if the
+     * filter or rows changed while searching
+     */
+    private List<ServerContext> filterRows(final List<ServerContext> currentRows, final String currentFilter,
+                                           final int generation) {
+        final BitSet matches = filterIndex.find(currentFilter, () -> generation != filterGeneration.get());
+        if (matches == null) {
+            return null;
+        }
+
+        final List<ServerContext> result = new ArrayList<ServerContext>(matches.cardinality());
+        for (final ServerContext row : currentRows) {
+            final int id = filterIndex.getId(row);
+            if (id >= 0 && matches.get(id)) {
+                result.add(row);
+            }
         }
+        return result;
+    }
+
+    private void setFilteredRows(final List<ServerContext> filteredRows, final ServerContext selectedContext) {
+        this.filteredRows = filteredRows;
         super.fireTableDataChanged();
+
+        // Attempt to restore the selection
+        select(selectedContext);
     }
 
-    private boolean rowContains(ServerContext repositoryRow) {
-        // search for the string in a case insensitive way
-        // check each column for a match, if any column contains the string the result is true
+    private String getSearchText(final ServerContext row) {
+        final StringBuilder text = new StringBuilder();
         for (int c = 0; c < columns.length; c++) {
-            if (StringUtils.containsIgnoreCase(getValueFor(repositoryRow, c), filter)) {
-                return true;
+            if (c > 0) {
+                text.append(TableFilterIndex.COLUMN_SEPARATOR);
             }
+            text.append(StringUtils.defaultString(getValueFor(row, c)));
         }
-
-        return false;
+        return text.toString();
     }
 }
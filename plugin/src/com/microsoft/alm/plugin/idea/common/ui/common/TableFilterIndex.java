@@ -0,0 +1,285 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.common.ui.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Case insensitive substring index over the rows of a table.
+ * <p/>
+ * The lower case text of each row is computed once, along with an index of the 3 character sequences (trigrams) it
+ * contains. This happens on the first search after the row was added, so adding rows stays cheap on the UI thread,
+ * and outside of the lock, so adding rows doesn't wait for it either.
+ * A filter only looks at the rows that contain every trigram of the filter, and when the filter extends the previous
+ * one (the user typed another character) only at the rows that matched before.
+ * <p/>
+ * Rows are identified by their position in the order they were added, which doesn't change when the table is sorted.
+ */
+public class TableFilterIndex<T> {
+    public static final char COLUMN_SEPARATOR = '\n';
+
+    private static final int GRAM_LENGTH = 3;
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    private final Function<T, String> textProvider;
+    private final List<T> rows = new ArrayList<T>();
+    private final List<String> texts = new ArrayList<String>();
+    private final Map<T, Integer> ids = new IdentityHashMap<T, Integer>();
+    private final Map<Long, Postings> postings = new HashMap<Long, Postings>();
+    // incremented by clear, so that the rows indexed before are not merged into the new ones
+    private int generation;
+    private String lastFilter;
+    private BitSet lastMatches;
+
+    /**
+     * @param textProvider returns the searchable text of a row, with its columns separated by {@link #COLUMN_SEPARATOR}
+     */
+    public TableFilterIndex(final Function<T, String> textProvider) {
+        this.textProvider = textProvider;
+    }
+
+    public synchronized void addAll(final Collection<T> newRows) {
+        for (final T row : newRows) {
+            if (!ids.containsKey(row)) {
+                ids.put(row, rows.size());
+                rows.add(row);
+            }
+        }
+        lastFilter = null;
+        lastMatches = null;
+    }
+
+    /**
+     * Computes the text and trigrams of a batch of rows
+     */
+    private RowBatch indexRows(final int firstId, final List<T> addedRows, final BooleanSupplier canceled) {
+        final RowBatch batch = new RowBatch(firstId);
+        for (int i = 0; i < addedRows.size(); i++) {
+            if ((i + 1) % CANCEL_CHECK_INTERVAL == 0 && canceled.getAsBoolean()) {
+                return null;
+            }
+
+            final int id = firstId + i;
+            final String text = textProvider.apply(addedRows.get(i)).toLowerCase(Locale.ROOT);
+            batch.texts.add(text);
+            for (int c = 0; c + GRAM_LENGTH <= text.length(); c++) {
+                if (text.charAt(c + 1) == COLUMN_SEPARATOR || text.charAt(c + 2) == COLUMN_SEPARATOR) {
+                    // no filter can match across columns
+                    c += text.charAt(c + 1) == COLUMN_SEPARATOR ? 1 : 2;
+                    continue;
+                }
+                final Long gram = gram(text, c);
+                Postings rowIds = batch.postings.get(gram);
+                if (rowIds == null) {
+                    rowIds = new Postings();
+                    batch.postings.put(gram, rowIds);
+                }
+                rowIds.add(id);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Adds the batch to the index, unless the rows it starts with were indexed or cleared in the meantime
+     */
+    private synchronized void merge(final int batchGeneration, final RowBatch batch) {
+        if (batchGeneration != generation || batch.firstId != texts.size()) {
+            return;
+        }
+
+        texts.addAll(batch.texts);
+        for (final Map.Entry<Long, Postings> entry : batch.postings.entrySet()) {
+            final Postings rowIds = postings.get(entry.getKey());
+            if (rowIds == null) {
+                postings.put(entry.getKey(), entry.getValue());
+            } else {
+                rowIds.addAll(entry.getValue());
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        rows.clear();
+        texts.clear();
+        ids.clear();
+        postings.clear();
+        generation++;
+        lastFilter = null;
+        lastMatches = null;
+    }
+
+    public synchronized int size() {
+        return rows.size();
+    }
+
+    /**
+     * Returns the id of the row, or -1 if it wasn't added
+     */
+    public synchronized int getId(final T row) {
+        final Integer id = ids.get(row);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Finds the rows that contain the filter in any of their columns, ignoring case.
+     *
+     * @param canceled checked every now and then; once it returns true the search stops
+     * @return the ids of the matching rows (the caller must not modify it), or null if the search was canceled
+     */
+    public BitSet find(final String filter, final BooleanSupplier canceled) {
+        while (true) {
+            final int batchGeneration;
+            final int firstId;
+            final List<T> addedRows;
+            synchronized (this) {
+                if (texts.size() == rows.size()) {
+                    return findIndexed(filter, canceled);
+                }
+                batchGeneration = generation;
+                firstId = texts.size();
+                addedRows = new ArrayList<T>(rows.subList(firstId, rows.size()));
+            }
+
+            // the rows added since the last search are indexed without holding the lock
+            final RowBatch batch = indexRows(firstId, addedRows, canceled);
+            if (batch == null) {
+                return null;
+            }
+            merge(batchGeneration, batch);
+        }
+    }
+
+    // called with the lock held, once every row is indexed
+    private BitSet findIndexed(final String filter, final BooleanSupplier canceled) {
+        final String query = filter.toLowerCase(Locale.ROOT);
+
+        // null means every row is a candidate
+        BitSet candidates = null;
+        if (lastFilter != null && query.contains(lastFilter)) {
+            candidates = (BitSet) lastMatches.clone();
+        }
+        if (query.length() >= GRAM_LENGTH) {
+            final BitSet gramCandidates = findGramCandidates(query);
+            if (candidates == null) {
+                candidates = gramCandidates;
+            } else {
+                candidates.and(gramCandidates);
+            }
+        }
+
+        final BitSet matches = new BitSet(texts.size());
+        int checked = 0;
+        int id = candidates == null ? 0 : candidates.nextSetBit(0);
+        while (id >= 0 && id < texts.size()) {
+            if (++checked % CANCEL_CHECK_INTERVAL == 0 && canceled.getAsBoolean()) {
+                return null;
+            }
+            if (texts.get(id).contains(query)) {
+                matches.set(id);
+            }
+            id = candidates == null ? id + 1 : candidates.nextSetBit(id + 1);
+        }
+
+        lastFilter = query;
+        lastMatches = matches;
+        return matches;
+    }
+
+    private BitSet findGramCandidates(final String query) {
+        final BitSet candidates = new BitSet();
+        final Set<Long> grams = new LinkedHashSet<Long>();
+        for (int i = 0; i + GRAM_LENGTH <= query.length(); i++) {
+            grams.add(gram(query, i));
+        }
+
+        final Postings[] lists = new Postings[grams.size()];
+        int index = 0;
+        for (final Long gram : grams) {
+            final Postings rowIds = postings.get(gram);
+            if (rowIds == null) {
+                // no row contains this part of the filter
+                return candidates;
+            }
+            lists[index++] = rowIds;
+        }
+
+        // walk the shortest list and look the ids up in the others
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+        nextId:
+        for (int i = 0; i < lists[0].size; i++) {
+            final int id = lists[0].ids[i];
+            for (int l = 1; l < lists.length; l++) {
+                if (!lists[l].contains(id)) {
+                    continue nextId;
+                }
+            }
+            candidates.set(id);
+        }
+        return candidates;
+    }
+
+    private static Long gram(final String text, final int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    /**
+     * The texts and trigrams of rows indexed together, from firstId on
+     */
+    private static class RowBatch {
+        private final int firstId;
+        private final List<String> texts = new ArrayList<String>();
+        private final Map<Long, Postings> postings = new HashMap<Long, Postings>();
+
+        private RowBatch(final int firstId) {
+            this.firstId = firstId;
+        }
+    }
+
+    /**
+     * Sorted ids of the rows that contain a trigram. Rows are added in id order, so appending keeps it sorted.
+     */
+    private static class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(final int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        /**
+         * Appends the ids of rows added after the rows of this list
+         */
+        private void addAll(final Postings other) {
+            if (size + other.size > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(size * 2, size + other.size));
+            }
+            System.arraycopy(other.ids, 0, ids, size, other.size);
+            size += other.size;
+        }
+
+        private boolean contains(final int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.git.ui.pullrequest;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.vcs.changes.Change;
+import com.intellij.openapi.vfs.VirtualFile;
+import git4idea.GitCommit;
+import git4idea.repo.GitRepository;
+import git4idea.util.GitCommitCompareInfo;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Application wide cache of branch comparisons for the Create Pull Request dialog
+ * <p/>
+ * Entries are identified by the source tip, target tip and merge-base commit hashes so they stay valid for as long as
+ * the IDE runs, and reopening the dialog or switching back to a target branch doesn't recompute them. When the source
+ * branch advances, the entry for the old tip can be used as a starting point so that only the new commits need to be
+ * read from the history.
+ */
+public class BranchCompareCache {
+    /* default */ static final int MAX_ENTRIES = 50;
+
+    private final Cache<Key, Entry> cache = CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES).build();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private static class Holder {
+        private static final BranchCompareCache INSTANCE = new BranchCompareCache();
+    }
+
+    public static BranchCompareCache getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Returns the cached comparison for exactly these tips, or null
+     */
+    public Entry get(final VirtualFile root, final String sourceHash, final String targetHash) {
+        return cache.getIfPresent(new Key(root, sourceHash, targetHash));
+    }
+
+    /**
+     * Finds the most recent comparison against the same target tip and merge-base. If its source tip is an ancestor of
+     * the new source tip, the new comparison only differs by the commits added since.
+     */
+    public Entry findIncrementalBase(final VirtualFile root, final String targetHash, final String mergeBaseHash) {
+        Entry best = null;
+        for (final java.util.Map.Entry<Key, Entry> cached : cache.asMap().entrySet()) {
+            final Entry entry = cached.getValue();
+            if (Objects.equals(cached.getKey().root, root)
+                    && StringUtils.equalsIgnoreCase(entry.getTargetHash(), targetHash)
+                    && StringUtils.equalsIgnoreCase(entry.getMergeBaseHash(), mergeBaseHash)
+                    && (best == null || entry.order > best.order)) {
+                best = entry;
+            }
+        }
+        return best;
+    }
+
+    public Entry put(final VirtualFile root, final String sourceHash, final String targetHash, final String mergeBaseHash,
+                     final List<GitCommit> branchToHeadCommits, final List<GitCommit> headToBranchCommits,
+                     final Collection<Change> diff) {
+        final Entry entry = new Entry(sourceHash, targetHash, mergeBaseHash, branchToHeadCommits, headToBranchCommits,
+                diff, sequence.incrementAndGet());
+        cache.put(new Key(root, sourceHash, targetHash), entry);
+        return entry;
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    public static class Entry {
+        private final String sourceHash;
+        private final String targetHash;
+        private final String mergeBaseHash;
+        private final List<GitCommit> branchToHeadCommits;
+        private final List<GitCommit> headToBranchCommits;
+        private final Collection<Change> diff;
+        private final long order;
+
+        private Entry(final String sourceHash, final String targetHash, final String mergeBaseHash,
+                      final List<GitCommit> branchToHeadCommits, final List<GitCommit> headToBranchCommits,
+                      final Collection<Change> diff, final long order) {
+            this.sourceHash = sourceHash;
+            this.targetHash = targetHash;
+            this.mergeBaseHash = mergeBaseHash;
+            this.branchToHeadCommits = Collections.unmodifiableList(new ArrayList<GitCommit>(branchToHeadCommits));
+            this.headToBranchCommits = Collections.unmodifiableList(new ArrayList<GitCommit>(headToBranchCommits));
+            this.diff = Collections.unmodifiableList(new ArrayList<Change>(diff));
+            this.order = order;
+        }
+
+        public String getSourceHash() {
+            return sourceHash;
+        }
+
+        public String getTargetHash() {
+            return targetHash;
+        }
+
+        public String getMergeBaseHash() {
+            return mergeBaseHash;
+        }
+
+        public List<GitCommit> getBranchToHeadCommits() {
+            return branchToHeadCommits;
+        }
+
+        public List<GitCommit> getHeadToBranchCommits() {
+            return headToBranchCommits;
+        }
+
+        public Collection<Change> getDiff() {
+            return diff;
+        }
+
+        /**
+         * Creates a new compare info each time since GitCommitCompareInfo is mutable
+         */
+        public GitCommitCompareInfo toCompareInfo(final GitRepository gitRepository) {
+            final GitCommitCompareInfo info = new GitCommitCompareInfo(GitCommitCompareInfo.InfoType.BRANCH_TO_HEAD);
+            info.put(gitRepository, diff);
+            info.put(gitRepository, new Pair<List<GitCommit>, List<GitCommit>>(headToBranchCommits, branchToHeadCommits));
+            return info;
+        }
+    }
+
+    private static class Key {
+        private final VirtualFile root;
+        private final String sourceHash;
+        private final String targetHash;
+
+        private Key(final VirtualFile root, final String sourceHash, final String targetHash) {
+            this.root = root;
+            this.sourceHash = StringUtils.lowerCase(sourceHash);
+            this.targetHash = StringUtils.lowerCase(targetHash);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return Objects.equals(root, other.root)
+                    && Objects.equals(sourceHash, other.sourceHash)
+                    && Objects.equals(targetHash, other.targetHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(root, sourceHash, targetHash);
+        }
+    }
+}
@@ -15,6 +15,11 @@ import git4idea.history.GitHistoryUtils;
 import git4idea.repo.GitRepository;
 import git4idea.util.GitCommitCompareInfo;
 
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -22,21 +27,37 @@ import java.util.List;
 /**
  * Compare information provider
  * <p/>
- * Calculate commits and diff information from git4idea utilities
+ * Calculate commits and diff information from git4idea utilities. Results are kept in the application wide
+ * {@link BranchCompareCache}, so they survive the Create Pull Request dialog being closed, and are computed
+ * incrementally when only the source branch has advanced.
  */
 public class DiffCompareInfoProvider {
+    private static final Logger logger = LoggerFactory.getLogger(DiffCompareInfoProvider.class);
 
     private GitUtilWrapper utilWrapper;
+    private BranchCompareCache compareCache;
 
     public DiffCompareInfoProvider() {
+        this(BranchCompareCache.getInstance());
+    }
+
+    /* default */ DiffCompareInfoProvider(final BranchCompareCache compareCache) {
         this.utilWrapper = new GitUtilWrapper();
+        this.compareCache = compareCache;
     }
 
     public GitCommitCompareInfo getBranchCompareInfo(final Project project, final GitRepository gitRepository,
                                                      final String source, final String target)
             throws VcsException {
+        final VirtualFile root = gitRepository.getRoot();
+        final BranchCompareCache.Entry cached = compareCache.get(root, source, target);
+        if (cached != null) {
+            logger.info("getBranchCompareInfo: found cached comparison of {} to {}", source, target);
+            return cached.toCompareInfo(gitRepository);
+        }
+
         final GitRevisionNumber commonParentRevision = getUtilWrapper().getMergeBase(project,
-                gitRepository.getRoot(), target, source);
+                root, target, source);
 
         final String commonParentHash = (commonParentRevision != null) ? commonParentRevision.getRev() : null;
 
@@ -44,23 +65,54 @@ public class DiffCompareInfoProvider {
             return getEmptyDiff(gitRepository);
         }
 
-        return getCompareInfo(project, gitRepository, source, commonParentHash);
+        final BranchCompareCache.Entry previous = compareCache.findIncrementalBase(root, target, commonParentHash);
+        if (previous != null && isAncestor(project, root, previous.getSourceHash(), source)) {
+            logger.info("getBranchCompareInfo: extending cached comparison from {} to {}", previous.getSourceHash(), source);
+            return getIncrementalCompareInfo(project, gitRepository, previous, source);
+        }
+
+        return getCompareInfo(project, gitRepository, source, target, commonParentHash);
     }
 
     private GitCommitCompareInfo getCompareInfo(final Project project, final GitRepository gitRepository,
-                                                final String source, final String target)
+                                                final String source, final String targetTip, final String target)
             throws VcsException {
         final VirtualFile root = gitRepository.getRoot();
         final List<GitCommit> commits1 = getUtilWrapper().history(project, root, ".." + target);
         final List<GitCommit> commits2 = getUtilWrapper().history(project, root, target + "..");
 
         final Collection<Change> diff = getUtilWrapper().getDiff(project, root, target, source);
-        final GitCommitCompareInfo info = new GitCommitCompareInfo(GitCommitCompareInfo.InfoType.BRANCH_TO_HEAD);
 
-        info.put(gitRepository, diff);
-        info.put(gitRepository, new Pair<List<GitCommit>, List<GitCommit>>(commits1, commits2));
+        return compareCache.put(root, source, targetTip, target, commits2, commits1, diff)
+                .toCompareInfo(gitRepository);
+    }
 
-        return info;
+    /**
+     * Reuses the comparison of an older tip of the source branch against the same merge-base: only the commits added
+     * since are read from the history. The diff is still taken against the merge-base, since git computes it from the
+     * two trees regardless of how many commits are in between.
+     */
+    private GitCommitCompareInfo getIncrementalCompareInfo(final Project project, final GitRepository gitRepository,
+                                                           final BranchCompareCache.Entry previous, final String source)
+            throws VcsException {
+        final VirtualFile root = gitRepository.getRoot();
+        final List<GitCommit> newCommits = getUtilWrapper().history(project, root, previous.getSourceHash() + ".." + source);
+
+        // history is ordered from the newest commit to the oldest one
+        final List<GitCommit> commits = new ArrayList<GitCommit>(newCommits.size() + previous.getBranchToHeadCommits().size());
+        commits.addAll(newCommits);
+        commits.addAll(previous.getBranchToHeadCommits());
+
+        final Collection<Change> diff = getUtilWrapper().getDiff(project, root, previous.getMergeBaseHash(), source);
+
+        return compareCache.put(root, source, previous.getTargetHash(), previous.getMergeBaseHash(), commits,
+                previous.getHeadToBranchCommits(), diff).toCompareInfo(gitRepository);
+    }
+
+    private boolean isAncestor(final Project project, final VirtualFile root, final String ancestor, final String descendant)
+            throws VcsException {
+        final GitRevisionNumber mergeBase = getUtilWrapper().getMergeBase(project, root, ancestor, descendant);
+        return mergeBase != null && StringUtils.equalsIgnoreCase(mergeBase.getRev(), ancestor);
     }
 
     /**
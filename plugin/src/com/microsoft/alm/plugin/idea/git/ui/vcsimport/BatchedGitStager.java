@@ -0,0 +1,165 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.git.ui.vcsimport;
+
+import com.intellij.openapi.vcs.VcsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stages files into a Git index in bounded batches.
+ * <p/>
+ * The caller's thread produces the paths (e.g. while walking the project tree) and hands them over in batches to a
+ * staging thread that runs one add command per batch, so producing and staging overlap. Only a few batches can be
+ * waiting at any time, so the memory used stays bounded no matter how many files are imported.
+ */
+public class BatchedGitStager {
+    private static final Logger logger = LoggerFactory.getLogger(BatchedGitStager.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    // Keep the command line of each add well below the Windows limit of 32k characters
+    public static final int DEFAULT_BATCH_CHARACTERS = 24000;
+    public static final int DEFAULT_QUEUED_BATCHES = 4;
+
+    private static final List<String> END_OF_INPUT = Collections.emptyList();
+    private static final long POLL_INTERVAL_MILLISECONDS = 100L;
+
+    /**
+     * Stages one batch of paths relative to the repository root
+     */
+    public interface BatchCommand {
+        void add(List<String> relativePaths) throws VcsException;
+    }
+
+    /**
+     * Receives progress as batches are staged and lets the caller cancel the staging
+     */
+    public interface Listener {
+        void onBatchStaged(int stagedFiles, int producedFiles);
+
+        boolean isCanceled();
+    }
+
+    private final BatchCommand command;
+    private final int batchSize;
+    private final int batchCharacters;
+    private final int queuedBatches;
+
+    public BatchedGitStager(final BatchCommand command) {
+        this(command, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_CHARACTERS, DEFAULT_QUEUED_BATCHES);
+    }
+
+    public BatchedGitStager(final BatchCommand command, final int batchSize, final int batchCharacters,
+                            final int queuedBatches) {
+        this.command = command;
+        this.batchSize = batchSize;
+        this.batchCharacters = batchCharacters;
+        this.queuedBatches = queuedBatches;
+    }
+
+    /**
+     * Stages all the paths returned by the iterator. Returns once every batch has been staged.
+     *
+     * @return the number of staged paths
+     * @throws VcsException if a batch fails to be staged or staging is cancelled; batches staged before that stay in
+     *                      the index
+     */
+    public int stage(final Iterator<String> relativePaths, final Listener listener) throws VcsException {
+        final BlockingQueue<List<String>> queue = new ArrayBlockingQueue<List<String>>(queuedBatches);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final AtomicInteger produced = new AtomicInteger();
+        final AtomicInteger staged = new AtomicInteger();
+
+        final Thread stagingThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    List<String> batch;
+                    while ((batch = queue.take()) != END_OF_INPUT) {
+                        if (listener.isCanceled()) {
+                            failure.compareAndSet(null, new VcsException("Staging was cancelled"));
+                            return;
+                        }
+                        command.add(batch);
+                        listener.onBatchStaged(staged.addAndGet(batch.size()), produced.get());
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }
+        }, "Git import staging");
+        stagingThread.setDaemon(true);
+        stagingThread.start();
+
+        try {
+            List<String> batch = new ArrayList<String>(batchSize);
+            int characters = 0;
+            boolean queued = true;
+            // Stop producing as soon as a batch fails instead of walking the rest of the files for nothing
+            while (queued && failure.get() == null && relativePaths.hasNext()) {
+                final String path = relativePaths.next();
+                if (!batch.isEmpty() && (batch.size() >= batchSize || characters + path.length() > batchCharacters)) {
+                    queued = offer(queue, batch, failure, listener);
+                    batch = new ArrayList<String>(batchSize);
+                    characters = 0;
+                }
+                batch.add(path);
+                characters += path.length() + 1;
+                produced.incrementAndGet();
+            }
+            queued = queued && failure.get() == null;
+            if (queued && !batch.isEmpty()) {
+                queued = offer(queue, batch, failure, listener);
+            }
+            if (queued && offer(queue, END_OF_INPUT, failure, listener)) {
+                stagingThread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } finally {
+            // Wake the staging thread up if it is still waiting for batches that will never come
+            if (stagingThread.isAlive()) {
+                stagingThread.interrupt();
+            }
+        }
+
+        final Throwable t = failure.get();
+        if (t != null) {
+            logger.warn("stage: staging stopped after {} files", staged.get(), t);
+            throw t instanceof VcsException ? (VcsException) t : new VcsException(t);
+        }
+
+        return staged.get();
+    }
+
+    /**
+     * Waits for room in the queue, giving up when staging failed or the user cancelled
+     *
+     * @return false if the batch couldn't be queued and staging has to stop
+     */
+    private boolean offer(final BlockingQueue<List<String>> queue, final List<String> batch,
+                          final AtomicReference<Throwable> failure, final Listener listener) throws InterruptedException {
+        while (!queue.offer(batch, POLL_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null) {
+                return false;
+            }
+            if (listener.isCanceled()) {
+                failure.compareAndSet(null, new VcsException("Staging was cancelled"));
+                return false;
+            }
+        }
+        return true;
+    }
+}
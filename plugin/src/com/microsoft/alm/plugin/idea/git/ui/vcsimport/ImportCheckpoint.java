@@ -0,0 +1,135 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.git.ui.vcsimport;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Records which phases of an import into a remote repository have completed, so that a failed import can be retried
+ * from the phase that failed (e.g. a failed push doesn't add and commit the files again, or try to create the remote
+ * repository a second time).
+ * <p/>
+ * The checkpoint is stored in the .git directory of the local repository and removed once the import succeeds.
+ */
+public class ImportCheckpoint {
+    private static final Logger logger = LoggerFactory.getLogger(ImportCheckpoint.class);
+
+    public static final String FILE_NAME = "azure-devops-import.properties";
+
+    private static final String PROP_REPOSITORY_NAME = "repositoryName";
+    private static final String PROP_TEAM_PROJECT = "teamProject";
+    private static final String PROP_COMPLETED_PHASE = "completedPhase";
+    private static final String PROP_REMOTE_URL = "remoteUrl";
+
+    /**
+     * The phases of an import in the order they run
+     */
+    public enum Phase {STAGE_FILES, COMMIT, CREATE_REMOTE, SETUP_REMOTE, PUSH}
+
+    private final File file;
+    private final String repositoryName;
+    private final String teamProject;
+    private Phase completedPhase;
+    private String remoteUrl;
+
+    private ImportCheckpoint(final File file, final String repositoryName, final String teamProject) {
+        this.file = file;
+        this.repositoryName = repositoryName;
+        this.teamProject = teamProject;
+    }
+
+    /**
+     * Loads the checkpoint of a previous import of the repository into the same remote repository. A checkpoint left
+     * by an import into a different remote repository is ignored.
+     */
+    public static ImportCheckpoint load(final File gitDirectory, final String repositoryName, final String teamProject) {
+        final ImportCheckpoint checkpoint = new ImportCheckpoint(new File(gitDirectory, FILE_NAME), repositoryName, teamProject);
+        if (!checkpoint.file.exists()) {
+            return checkpoint;
+        }
+
+        final Properties properties = new Properties();
+        try (final InputStream stream = new FileInputStream(checkpoint.file)) {
+            properties.load(stream);
+        } catch (IOException e) {
+            logger.warn("load: failed to read import checkpoint {}", checkpoint.file, e);
+            return checkpoint;
+        }
+
+        if (!StringUtils.equals(properties.getProperty(PROP_REPOSITORY_NAME), repositoryName)
+                || !StringUtils.equals(properties.getProperty(PROP_TEAM_PROJECT), teamProject)) {
+            logger.info("load: ignoring checkpoint of an import into {}/{}",
+                    properties.getProperty(PROP_TEAM_PROJECT), properties.getProperty(PROP_REPOSITORY_NAME));
+            return checkpoint;
+        }
+
+        final String phase = properties.getProperty(PROP_COMPLETED_PHASE);
+        try {
+            checkpoint.completedPhase = StringUtils.isEmpty(phase) ? null : Phase.valueOf(phase);
+        } catch (IllegalArgumentException e) {
+            logger.warn("load: unknown import phase {}", phase);
+        }
+        checkpoint.remoteUrl = properties.getProperty(PROP_REMOTE_URL);
+        logger.info("load: resuming import after phase {}", checkpoint.completedPhase);
+        return checkpoint;
+    }
+
+    public boolean isCompleted(final Phase phase) {
+        return completedPhase != null && completedPhase.compareTo(phase) >= 0;
+    }
+
+    public Phase getCompletedPhase() {
+        return completedPhase;
+    }
+
+    public String getRemoteUrl() {
+        return remoteUrl;
+    }
+
+    public void setRemoteUrl(final String remoteUrl) {
+        this.remoteUrl = remoteUrl;
+    }
+
+    /**
+     * Records that the phase completed. Failing to write the checkpoint doesn't fail the import, it only means a
+     * retry starts from the beginning.
+     */
+    public void markCompleted(final Phase phase) {
+        completedPhase = phase;
+
+        final Properties properties = new Properties();
+        properties.setProperty(PROP_REPOSITORY_NAME, StringUtils.defaultString(repositoryName));
+        properties.setProperty(PROP_TEAM_PROJECT, StringUtils.defaultString(teamProject));
+        properties.setProperty(PROP_COMPLETED_PHASE, phase.name());
+        if (remoteUrl != null) {
+            properties.setProperty(PROP_REMOTE_URL, remoteUrl);
+        }
+
+        try (final OutputStream stream = new FileOutputStream(file)) {
+            properties.store(stream, "Azure DevOps import checkpoint");
+        } catch (IOException e) {
+            logger.warn("markCompleted: failed to write import checkpoint {}", file, e);
+        }
+    }
+
+    /**
+     * Removes the checkpoint once the import is done
+     */
+    public void delete() {
+        completedPhase = null;
+        if (file.exists() && !file.delete()) {
+            logger.warn("delete: failed to delete import checkpoint {}", file);
+        }
+    }
+}
@@ -17,6 +17,7 @@ import com.intellij.openapi.vcs.VcsException;
 import com.intellij.openapi.vcs.VcsNotifier;
 import com.intellij.openapi.vcs.VcsShowConfirmationOption;
 import com.intellij.openapi.vcs.changes.ChangeListManager;
+import com.intellij.openapi.vcs.changes.VcsDirtyScopeManager;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.ArrayUtil;
@@ -52,17 +53,18 @@ import git4idea.commands.GitSimpleHandler;
 import git4idea.repo.GitRemote;
 import git4idea.repo.GitRepository;
 import git4idea.repo.GitRepositoryManager;
-import git4idea.util.GitFileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.swing.ListSelectionModel;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -235,13 +237,18 @@ public abstract class ImportPageModelImpl extends LoginPageModelImpl implements
                         return;
                     }
 
-                    if (!doFirstCommitIfRequired(project, localRepository, rootVirtualFile, localContext, indicator)) {
+                    // Phases completed by a previous attempt to import into the same remote repository are skipped
+                    final ImportCheckpoint checkpoint = ImportCheckpoint.load(new File(localRepository.getGitDir().getPath()),
+                            repositoryName, localContext.getTeamProjectReference().getName());
+                    indicator.setIndeterminate(false);
+
+                    if (!doFirstCommitIfRequired(project, localRepository, rootVirtualFile, localContext, indicator, checkpoint)) {
                         logger.error("doImport: failed to do first commit on the local repository at: {}", localRepository.getRoot().getUrl());
                         return;
                     }
 
                     final com.microsoft.alm.sourcecontrol.webapi.model.GitRepository remoteRepository =
-                            createRemoteGitRepo(project, context, localContext, indicator);
+                            getOrCreateRemoteGitRepo(project, context, localContext, indicator, checkpoint);
                     if (remoteRepository != null) {
                         //remote repo creation succeeded, save active context with the repository information
                         localContext = new ServerContextBuilder(localContext).uri(remoteRepository.getRemoteUrl()).repository(remoteRepository).build();
@@ -252,16 +259,20 @@ public abstract class ImportPageModelImpl extends LoginPageModelImpl implements
                         return;
                     }
 
-                    if (!setupRemoteOnLocalRepo(project, localRepository, remoteRepository, localContext, indicator)) {
+                    if (!checkpoint.isCompleted(ImportCheckpoint.Phase.SETUP_REMOTE)
+                            && !setupRemoteOnLocalRepo(project, localRepository, remoteRepository, localContext, indicator)) {
                         logger.error("doImport: failed to setup remote origin on local repository at: {} to point to remote repository: {}",
                                 localRepository.getRoot().getUrl(), remoteRepository.getRemoteUrl());
                         return;
                     }
+                    checkpoint.markCompleted(ImportCheckpoint.Phase.SETUP_REMOTE);
 
                     if (!pushChangesToRemoteRepo(project, localRepository, remoteRepository, localContext, indicator)) {
                         logger.error("doImport: failed to push changes to remote repository: {}", remoteRepository.getRemoteUrl());
                         return;
                     }
+                    checkpoint.delete();
+                    indicator.setFraction(1.0);
 
                     //all steps completed successfully
                     remoteUrlForDisplay = remoteRepository.getRemoteUrl();
@@ -380,62 +391,74 @@ public abstract class ImportPageModelImpl extends LoginPageModelImpl implements
 
     private boolean doFirstCommitIfRequired(final Project project, final GitRepository localRepository,
                                             final VirtualFile rootVirtualFile, final ServerContext localContext,
-                                            final ProgressIndicator indicator) {
+                                            final ProgressIndicator indicator, final ImportCheckpoint checkpoint) {
         //Do first commit if there are no commits in the repository
         if (localRepository.isFresh()) {
             try {
-                final ChangeListManager changeListManager = ChangeListManager.getInstance(project);
-                final ProjectLevelVcsManager vcsManager = ProjectLevelVcsManager.getInstance(project);
-                final List<VirtualFile> trackedFiles = changeListManager.getAffectedFiles();
-                final Collection<VirtualFile> untrackedFiles = ContainerUtil.filter(localRepository.getUntrackedFilesHolder().retrieveUntrackedFiles(),
-                        new Condition<VirtualFile>() {
-                            @Override
-                            public boolean value(VirtualFile file) {
-                                return !changeListManager.isIgnoredFile(file) && !vcsManager.isIgnored(file);
-                            }
-                        });
-                trackedFiles.removeAll(untrackedFiles);
-
-                final List<VirtualFile> allFiles = new ArrayList<VirtualFile>();
-                allFiles.addAll(trackedFiles);
-                allFiles.addAll(untrackedFiles);
-
                 final List<VirtualFile> filesToCommit = new ArrayList<VirtualFile>();
-                IdeaHelper.runOnUIThread(() -> {
-                    Collection<VirtualFile> selectedFiles = IdeaFileSelector.getInstance().selectFiles(
-                            project,
-                            allFiles,
-                            TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_SELECT_FILES),
-                            VcsShowConfirmationOption.STATIC_SHOW_CONFIRMATION,
-                            TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_SELECT_FILES_DIALOG_TITLE));
-                    if (selectedFiles != null)
-                        filesToCommit.addAll(selectedFiles);
-                }, true, indicator.getModalityState());
-
-                indicator.setText(TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_ADDING_FILES, project.getName()));
-                GitFileUtils.addFiles(project, rootVirtualFile, filesToCommit);
-                if (filesToCommit.size() > 0) {
-                    final GitSimpleHandler hCommit = new GitSimpleHandler(project, rootVirtualFile, GitCommand.COMMIT);
-                    hCommit.addParameters("-m", TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_ADDING_FILES, project.getName()));
-                    GitHandlerUtil.runInCurrentThread(hCommit, null, true, TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_ADDING_FILES, project.getName()));
-                    if (hCommit.getExitCode() != 0) {
-                        //unable to commit
-                        logger.error("doFirstCommitIfRequired: git commit failed for project: {}, repoRoot: {} with error: {}",
-                                project.getName(), rootVirtualFile.getUrl(), hCommit.getStderr());
+                if (!checkpoint.isCompleted(ImportCheckpoint.Phase.STAGE_FILES)) {
+                    final ChangeListManager changeListManager = ChangeListManager.getInstance(project);
+                    final ProjectLevelVcsManager vcsManager = ProjectLevelVcsManager.getInstance(project);
+                    final List<VirtualFile> trackedFiles = changeListManager.getAffectedFiles();
+                    final Collection<VirtualFile> untrackedFiles = ContainerUtil.filter(localRepository.getUntrackedFilesHolder().retrieveUntrackedFiles(),
+                            new Condition<VirtualFile>() {
+                                @Override
+                                public boolean value(VirtualFile file) {
+                                    return !changeListManager.isIgnoredFile(file) && !vcsManager.isIgnored(file);
+                                }
+                            });
+                    trackedFiles.removeAll(untrackedFiles);
+
+                    final List<VirtualFile> allFiles = new ArrayList<VirtualFile>();
+                    allFiles.addAll(trackedFiles);
+                    allFiles.addAll(untrackedFiles);
+
+                    IdeaHelper.runOnUIThread(() -> {
+                        Collection<VirtualFile> selectedFiles = IdeaFileSelector.getInstance().selectFiles(
+                                project,
+                                allFiles,
+                                TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_SELECT_FILES),
+                                VcsShowConfirmationOption.STATIC_SHOW_CONFIRMATION,
+                                TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_SELECT_FILES_DIALOG_TITLE));
+                        if (selectedFiles != null)
+                            filesToCommit.addAll(selectedFiles);
+                    }, true, indicator.getModalityState());
+
+                    if (filesToCommit.isEmpty()) {
+                        logger.error("doFirstCommitIfRequired: No files to do first commit in project: {}, repoRoot: {}",
+                                project.getName(), rootVirtualFile.getUrl());
                         notifyImportError(project,
-                                TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_ADDING_FILES_ERROR, project.getName(), hCommit.getStderr()));
+                                TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_NO_SELECTED_FILES));
                         return false;
                     }
-                    VfsUtil.markDirtyAndRefresh(false, true, false, ArrayUtil.toObjectArray(filesToCommit, VirtualFile.class));
-                    VcsFileUtil.markFilesDirty(project, getFilePaths(filesToCommit));
-                } else {
-                    logger.error("doFirstCommitIfRequired: No files to do first commit in project: {}, repoRoot: {}",
-                            project.getName(), rootVirtualFile.getUrl());
+
+                    stageFiles(project, rootVirtualFile, filesToCommit, indicator);
+                    checkpoint.markCompleted(ImportCheckpoint.Phase.STAGE_FILES);
+                }
+
+                // the files staged by a previous attempt are still in the index, so they are simply committed
+                setPhase(indicator, ImportCheckpoint.Phase.COMMIT);
+                indicator.setText(TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_COMMITTING_FILES, project.getName()));
+                final GitSimpleHandler hCommit = new GitSimpleHandler(project, rootVirtualFile, GitCommand.COMMIT);
+                hCommit.addParameters("-m", TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_ADDING_FILES, project.getName()));
+                GitHandlerUtil.runInCurrentThread(hCommit, null, true, TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_ADDING_FILES, project.getName()));
+                if (hCommit.getExitCode() != 0) {
+                    //unable to commit
+                    logger.error("doFirstCommitIfRequired: git commit failed for project: {}, repoRoot: {} with error: {}",
+                            project.getName(), rootVirtualFile.getUrl(), hCommit.getStderr());
                     notifyImportError(project,
-                            TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_NO_SELECTED_FILES));
+                            TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_ADDING_FILES_ERROR, project.getName(), hCommit.getStderr()));
                     return false;
                 }
+                checkpoint.markCompleted(ImportCheckpoint.Phase.COMMIT);
 
+                if (filesToCommit.isEmpty()) {
+                    VfsUtil.markDirtyAndRefresh(false, true, false, rootVirtualFile);
+                    VcsDirtyScopeManager.getInstance(project).markEverythingDirty();
+                } else {
+                    VfsUtil.markDirtyAndRefresh(false, true, false, ArrayUtil.toObjectArray(filesToCommit, VirtualFile.class));
+                    VcsFileUtil.markFilesDirty(project, getFilePaths(filesToCommit));
+                }
             } catch (VcsException ve) {
                 logger.error("doFirstCommitIfRequired: VcsException occurred when trying to do a commit on project: {}, repoRoot: {}",
                         project.getName(), rootVirtualFile.getUrl());
@@ -449,6 +472,95 @@ public abstract class ImportPageModelImpl extends LoginPageModelImpl implements
         return true;
     }
 
+    /**
+     * Adds the files to the index in bounded batches. Relative paths are computed while earlier batches are being
+     * added, and progress is reported after each batch.
+     */
+    private void stageFiles(final Project project, final VirtualFile rootVirtualFile, final List<VirtualFile> files,
+                            final ProgressIndicator indicator) throws VcsException {
+        setPhase(indicator, ImportCheckpoint.Phase.STAGE_FILES);
+        indicator.setText(TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_ADDING_FILES, project.getName()));
+        final int total = files.size();
+        final Iterator<VirtualFile> fileIterator = files.iterator();
+        final Iterator<String> relativePaths = new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return fileIterator.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return VcsFileUtil.relativePath(rootVirtualFile, fileIterator.next());
+            }
+        };
+
+        final BatchedGitStager stager = new BatchedGitStager(new BatchedGitStager.BatchCommand() {
+            @Override
+            public void add(final List<String> batch) throws VcsException {
+                final GitSimpleHandler hAdd = new GitSimpleHandler(project, rootVirtualFile, GitCommand.ADD);
+                hAdd.setSilent(true);
+                hAdd.addParameters("--ignore-errors");
+                hAdd.endOptions();
+                hAdd.addParameters(batch);
+                hAdd.run();
+            }
+        });
+        final int staged = stager.stage(relativePaths, new BatchedGitStager.Listener() {
+            @Override
+            public void onBatchStaged(final int stagedFiles, final int producedFiles) {
+                indicator.setText2(TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_ADDING_FILES_PROGRESS, stagedFiles, total));
+                setPhase(indicator, ImportCheckpoint.Phase.STAGE_FILES, (double) stagedFiles / total);
+            }
+
+            @Override
+            public boolean isCanceled() {
+                return indicator.isCanceled();
+            }
+        });
+        indicator.setText2(null);
+        logger.info("stageFiles: added {} files to the index", staged);
+    }
+
+    private static void setPhase(final ProgressIndicator indicator, final ImportCheckpoint.Phase phase) {
+        setPhase(indicator, phase, 0.0);
+    }
+
+    /**
+     * Each phase gets an equal share of the progress bar
+     */
+    private static void setPhase(final ProgressIndicator indicator, final ImportCheckpoint.Phase phase,
+                                 final double phaseFraction) {
+        final int phases = ImportCheckpoint.Phase.values().length;
+        indicator.setFraction((phase.ordinal() + Math.min(1.0, phaseFraction)) / phases);
+    }
+
+    private com.microsoft.alm.sourcecontrol.webapi.model.GitRepository getOrCreateRemoteGitRepo(final Project project,
+                                                                                                final ServerContext context, final ServerContext localContext, final ProgressIndicator indicator,
+                                                                                                final ImportCheckpoint checkpoint) {
+        setPhase(indicator, ImportCheckpoint.Phase.CREATE_REMOTE);
+        if (checkpoint.isCompleted(ImportCheckpoint.Phase.CREATE_REMOTE)) {
+            // a previous attempt already created the remote repository, creating it again would fail
+            try {
+                final com.microsoft.alm.sourcecontrol.webapi.model.GitRepository existing = context.getGitHttpClient()
+                        .getRepository(localContext.getTeamProjectReference().getName(), repositoryName);
+                if (existing != null) {
+                    logger.info("getOrCreateRemoteGitRepo: reusing remote repository {} created by a previous import", existing.getRemoteUrl());
+                    return existing;
+                }
+            } catch (Throwable t) {
+                logger.warn("getOrCreateRemoteGitRepo: failed to find the remote repository created by a previous import", t);
+            }
+        }
+
+        final com.microsoft.alm.sourcecontrol.webapi.model.GitRepository remoteRepository =
+                createRemoteGitRepo(project, context, localContext, indicator);
+        if (remoteRepository != null) {
+            checkpoint.setRemoteUrl(remoteRepository.getRemoteUrl());
+            checkpoint.markCompleted(ImportCheckpoint.Phase.CREATE_REMOTE);
+        }
+        return remoteRepository;
+    }
+
     private com.microsoft.alm.sourcecontrol.webapi.model.GitRepository createRemoteGitRepo(final Project project,
                                                                                            final ServerContext context, final ServerContext localContext, final ProgressIndicator indicator) {
         //create remote repository
@@ -506,6 +618,7 @@ public abstract class ImportPageModelImpl extends LoginPageModelImpl implements
                                            final com.microsoft.alm.sourcecontrol.webapi.model.GitRepository remoteRepository,
                                            final ServerContext localContext, final ProgressIndicator indicator) {
         //get remotes on local repository
+        setPhase(indicator, ImportCheckpoint.Phase.SETUP_REMOTE);
         indicator.setText(TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_GIT_REMOTE));
         final Collection<GitRemote> gitRemotes = localRepository.getRemotes();
         final List<String> remoteParams = new ArrayList<String>();
@@ -568,6 +681,7 @@ public abstract class ImportPageModelImpl extends LoginPageModelImpl implements
         final String remoteGitUrl = UrlHelper.getCmdLineFriendlyUrl(remoteRepository.getRemoteUrl());
 
         //push all branches in local Git repo to remote
+        setPhase(indicator, ImportCheckpoint.Phase.PUSH);
         indicator.setText(TfPluginBundle.message(TfPluginBundle.KEY_IMPORT_GIT_PUSH));
         final Git git = ServiceManager.getService(Git.class);
         final GitCommandResult result = git.push(localRepository, REMOTE_ORIGIN, remoteGitUrl, "*", true);
@@ -202,4 +202,28 @@ public class ClassicTfvcClient implements TfvcClient {
             return false;
         }
     }
+
+    @NotNull
+    @Override
+    public CompletionStage<TfvcCheckinResult> checkinFilesAsync(
+            @NotNull ServerContext serverContext,
+            @NotNull List<String> files,
+            @NotNull String comment,
+            @NotNull List<Integer> workItemIds,
+            @NotNull Consumer<String> onItemCheckedIn) {
+        return CompletableFuture.completedFuture(
+                checkinFiles(serverContext, files, comment, workItemIds, onItemCheckedIn));
+    }
+
+    @NotNull
+    @Override
+    public TfvcCheckinResult checkinFiles(
+            @NotNull ServerContext serverContext,
+            @NotNull List<String> files,
+            @NotNull String comment,
+            @NotNull List<Integer> workItemIds,
+            @NotNull Consumer<String> onItemCheckedIn) {
+        // tf checkin reports neither progress nor validation errors before the upload, and fails on any problem
+        return new TfvcCheckinResult(CommandUtils.checkinFiles(serverContext, files, comment, workItemIds));
+    }
 }
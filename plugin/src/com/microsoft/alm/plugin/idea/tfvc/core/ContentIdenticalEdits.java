@@ -0,0 +1,77 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.tfvc.core;
+
+import com.microsoft.alm.plugin.external.models.PendingChange;
+import com.microsoft.alm.plugin.external.models.ServerStatusType;
+import com.microsoft.alm.plugin.idea.tfvc.core.tfs.TfsContentHashCache;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the edits that don't change anything: files checked out (e.g. by a formatter or a code generator) whose
+ * content is still the content of their workspace version. In server workspaces, such files stay as pending edits
+ * until they are undone.
+ */
+public class ContentIdenticalEdits {
+    private static final List<ServerStatusType> EDIT = Collections.singletonList(ServerStatusType.EDIT);
+
+    private ContentIdenticalEdits() {
+    }
+
+    /**
+     * Returns the plain edits (not renamed, locked, merged...) whose local file has the hash of the workspace version.
+     * Changes without a known base hash are never reported. The cached hashes of the files under the roots that are no
+     * longer candidates are evicted.
+     *
+     * @param roots   the paths the changes were queried for.
+     * @param changes the changes under the roots.
+     */
+    @NotNull
+    public static List<PendingChange> find(@NotNull final TfsContentHashCache hashCache,
+                                           @NotNull final Collection<Path> roots,
+                                           @NotNull final List<PendingChange> changes) {
+        final Map<Path, PendingChange> candidates = new LinkedHashMap<>();
+        for (final PendingChange change : changes) {
+            if (change.isCandidate()
+                    || !EDIT.equals(change.getChangeTypes())
+                    || change.getBaseHash() == null
+                    || StringUtils.isEmpty(change.getLocalItem())) {
+                continue;
+            }
+
+            try {
+                candidates.put(Paths.get(change.getLocalItem()), change);
+            } catch (InvalidPathException e) {
+                // not a file we can read
+            }
+        }
+
+        hashCache.retainUnder(roots, candidates.keySet());
+        if (candidates.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final Map<Path, byte[]> hashes = hashCache.getHashes(candidates.keySet());
+        final List<PendingChange> result = new ArrayList<>();
+        for (final Map.Entry<Path, PendingChange> candidate : candidates.entrySet()) {
+            final byte[] hash = hashes.get(candidate.getKey());
+            if (hash != null && Arrays.equals(hash, candidate.getValue().getBaseHash())) {
+                result.add(candidate.getValue());
+            }
+        }
+        return result;
+    }
+}
@@ -10,7 +10,9 @@ import com.microsoft.alm.plugin.external.models.ExtendedItemInfo;
 import com.microsoft.alm.plugin.external.models.ItemInfo;
 import com.microsoft.alm.plugin.external.models.PendingChange;
 import com.microsoft.alm.plugin.external.reactive.ReactiveTfvcClientHolder;
+import com.microsoft.alm.plugin.external.reactive.ReactiveTfvcClientHost;
 import com.microsoft.alm.plugin.external.reactive.ServerIdentification;
+import com.microsoft.alm.plugin.external.telemetry.ReactiveCallTrace;
 import com.microsoft.alm.plugin.idea.tfvc.core.tfs.TfsFileUtil;
 import com.microsoft.tfs.model.connector.TfsLocalPath;
 import com.microsoft.tfs.model.connector.TfsPath;
@@ -21,10 +23,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.concurrent.CompletionStage;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
-import java.util.function.Supplier;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * The new, "reactive" TFVC client implementation. Most of the methods are asynchronous and delegate to the external
@@ -48,27 +50,62 @@ public class ReactiveTfvcClient implements TfvcClient {
     @NotNull
     private static <T> CompletionStage<T> traceTime(
             @NotNull String title,
-            @NotNull Supplier<CompletionStage<T>> action) {
-        long startTime = System.nanoTime();
-        return action.get().whenComplete((result, ex) -> {
-            long endTime = System.nanoTime();
-            double seconds = ((double) endTime - startTime) / 1_000_000_000.0;
-            String status = ex == null ? "successfully" : "with error";
-            ourLogger.trace(title + " finished " + status + " in " + seconds + " sec");
+            @NotNull Function<ReactiveCallTrace, CompletionStage<T>> action) {
+        ReactiveCallTrace trace = new ReactiveCallTrace(title);
+        return action.apply(trace).whenComplete((result, ex) -> {
+            trace.finish(ex != null);
+            ourLogger.debug(trace.toString());
         });
     }
 
+    @NotNull
+    private CompletionStage<ReactiveTfvcClientHost> getClient(@NotNull ReactiveCallTrace trace) {
+        return ReactiveTfvcClientHolder.getInstance(myProject).getClient()
+                .thenApply(client -> {
+                    trace.clientAcquired();
+                    return client;
+                });
+    }
+
+    /**
+     * Sends a read-only request, which is replayed if the client terminates before completing it. The request may be
+     * applied more than once, so it should create its streams itself.
+     */
+    @NotNull
+    private <T> CompletionStage<T> callReadOnly(
+            @NotNull ReactiveCallTrace trace,
+            @NotNull Function<ReactiveTfvcClientHost, CompletionStage<T>> request) {
+        return ReactiveTfvcClientHolder.getInstance(myProject).callReadOnlyAsync(client -> {
+            trace.clientAcquired();
+            return request.apply(client);
+        });
+    }
+
+    /**
+     * Sends a read-only request that passes its items to the consumer. If the request is replayed, the items received
+     * before the client terminated aren't passed again.
+     */
+    @NotNull
+    private <T, I> CompletionStage<T> callReadOnly(
+            @NotNull ReactiveCallTrace trace,
+            @NotNull BiFunction<ReactiveTfvcClientHost, Consumer<I>, CompletionStage<T>> request,
+            @NotNull Consumer<I> consumer) {
+        return ReactiveTfvcClientHolder.getInstance(myProject).callReadOnlyAsync((client, itemConsumer) -> {
+            trace.clientAcquired();
+            return request.apply(client, itemConsumer);
+        }, consumer);
+    }
+
     @Override
     @NotNull
     public CompletionStage<List<PendingChange>> getStatusForFilesAsync(
             @NotNull ServerContext serverContext,
             @NotNull List<String> pathsToProcess) {
-        return traceTime("Status", () -> {
+        return traceTime("Status", trace -> {
             ServerIdentification serverIdentification = getServerIdentification(serverContext);
-            Stream<Path> paths = pathsToProcess.stream().map(Paths::get);
-
-            return ReactiveTfvcClientHolder.getInstance(myProject).getClient()
-                    .thenCompose(client -> client.getPendingChangesAsync(serverIdentification, paths));
+            return callReadOnly(trace, client -> client.getPendingChangesAsync(
+                    serverIdentification,
+                    pathsToProcess.stream().map(Paths::get)));
         });
     }
 
@@ -78,11 +115,13 @@ public class ReactiveTfvcClient implements TfvcClient {
             @NotNull ServerContext serverContext,
             @NotNull List<String> pathsToProcess,
             @NotNull Consumer<ItemInfo> onItemReceived) {
-        return traceTime("Info", () -> {
+        return traceTime("Info", trace -> {
             ServerIdentification serverIdentification = getServerIdentification(serverContext);
-            Stream<Path> paths = pathsToProcess.stream().map(Paths::get);
-            return ReactiveTfvcClientHolder.getInstance(myProject).getClient()
-                    .thenCompose(client -> client.getLocalItemsInfoAsync(serverIdentification, paths, onItemReceived));
+            return callReadOnly(trace, (client, itemConsumer) -> client.getLocalItemsInfoAsync(
+                    serverIdentification,
+                    pathsToProcess.stream().map(Paths::get),
+                    itemConsumer,
+                    trace), onItemReceived);
         });
     }
 
@@ -92,27 +131,26 @@ public class ReactiveTfvcClient implements TfvcClient {
             @NotNull ServerContext serverContext,
             @NotNull List<String> pathsToProcess,
             @NotNull Consumer<ExtendedItemInfo> onItemReceived) {
-        return traceTime("Extended info", () -> {
+        return traceTime("Extended info", trace -> {
             ServerIdentification serverIdentification = getServerIdentification(serverContext);
-            Stream<Path> paths = pathsToProcess.stream().map(Paths::get);
-            return ReactiveTfvcClientHolder.getInstance(myProject).getClient()
-                    .thenCompose(client -> client.getExtendedItemsInfoAsync(
-                            serverIdentification,
-                            paths,
-                            onItemReceived));
+            return callReadOnly(trace, (client, itemConsumer) -> client.getExtendedItemsInfoAsync(
+                    serverIdentification,
+                    pathsToProcess.stream().map(Paths::get),
+                    itemConsumer,
+                    trace), onItemReceived);
         });
     }
 
     @NotNull
     @Override
     public CompletionStage<List<Path>> addFilesAsync(@NotNull ServerContext serverContext, @NotNull List<Path> files) {
-        return traceTime("Add", () -> {
+        return traceTime("Add", trace -> {
             ServerIdentification serverIdentification = getServerIdentification(serverContext);
             List<TfsLocalPath> localPaths = files.stream()
                     .map(TfsFileUtil::createLocalPath)
                     .collect(Collectors.toList());
-            return ReactiveTfvcClientHolder.getInstance(myProject).getClient()
-                    .thenCompose(client -> client.addFilesAsync(serverIdentification, localPaths))
+            return getClient(trace)
+                    .thenCompose(client -> client.addFilesAsync(serverIdentification, localPaths, trace))
                     .thenApply(paths -> paths.stream()
                             .map(path -> Paths.get(path.getPath()))
                             .collect(Collectors.toList()));
@@ -124,10 +162,10 @@ public class ReactiveTfvcClient implements TfvcClient {
     public CompletionStage<TfvcDeleteResult> deleteFilesRecursivelyAsync(
             @NotNull ServerContext serverContext,
             @NotNull List<TfsPath> items) {
-        return traceTime("Delete", () -> {
+        return traceTime("Delete", trace -> {
             ServerIdentification serverIdentification = getServerIdentification(serverContext);
-            return ReactiveTfvcClientHolder.getInstance(myProject).getClient()
-                    .thenCompose(client -> client.deleteFilesRecursivelyAsync(serverIdentification, items))
+            return getClient(trace)
+                    .thenCompose(client -> client.deleteFilesRecursivelyAsync(serverIdentification, items, trace))
                     .thenApply(result -> {
                         List<Path> deletedPaths = result.getDeletedPaths().stream()
                                 .map(localPath -> Paths.get(localPath.getPath())).collect(Collectors.toList());
@@ -142,10 +180,10 @@ public class ReactiveTfvcClient implements TfvcClient {
     public CompletionStage<List<TfsLocalPath>> undoLocalChangesAsync(
             @NotNull ServerContext serverContext,
             @NotNull List<TfsPath> items) {
-        return traceTime("Undo", () -> {
+        return traceTime("Undo", trace -> {
             ServerIdentification serverIdentification = getServerIdentification(serverContext);
-            return ReactiveTfvcClientHolder.getInstance(myProject).getClient()
-                    .thenCompose(client -> client.undoLocalChangesAsync(serverIdentification, items));
+            return getClient(trace)
+                    .thenCompose(client -> client.undoLocalChangesAsync(serverIdentification, items, trace));
         });
     }
 
@@ -155,16 +193,17 @@ public class ReactiveTfvcClient implements TfvcClient {
             @NotNull ServerContext serverContext,
             @NotNull List<Path> filePaths,
             boolean recursive) {
-        return traceTime("Checkout", () -> {
+        return traceTime("Checkout", trace -> {
             ServerIdentification serverIdentification = getServerIdentification(serverContext);
             List<TfsLocalPath> paths = filePaths.stream()
                     .map(TfsFileUtil::createLocalPath)
                     .collect(Collectors.toList());
-            return ReactiveTfvcClientHolder.getInstance(myProject).getClient()
+            return getClient(trace)
                     .thenCompose(client -> client.checkoutFilesForEditAsync(
                             serverIdentification,
                             paths,
-                            recursive));
+                            recursive,
+                            trace));
         });
     }
 
@@ -174,12 +213,41 @@ public class ReactiveTfvcClient implements TfvcClient {
             @NotNull ServerContext serverContext,
             @NotNull Path oldFile,
             @NotNull Path newFile) {
-        return traceTime("Rename", () -> {
+        return traceTime("Rename", trace -> {
             ServerIdentification serverIdentification = getServerIdentification(serverContext);
             TfsLocalPath oldPath = TfsFileUtil.createLocalPath(oldFile);
             TfsLocalPath newPath = TfsFileUtil.createLocalPath(newFile);
-            return ReactiveTfvcClientHolder.getInstance(myProject).getClient()
-                    .thenCompose(client -> client.renameFileAsync(serverIdentification, oldPath, newPath));
+            return getClient(trace)
+                    .thenCompose(client -> client.renameFileAsync(serverIdentification, oldPath, newPath, trace));
+        });
+    }
+
+    @NotNull
+    @Override
+    public CompletionStage<TfvcCheckinResult> checkinFilesAsync(
+            @NotNull ServerContext serverContext,
+            @NotNull List<String> files,
+            @NotNull String comment,
+            @NotNull List<Integer> workItemIds,
+            @NotNull Consumer<String> onItemCheckedIn) {
+        return traceTime("Checkin", trace -> {
+            ServerIdentification serverIdentification = getServerIdentification(serverContext);
+            List<TfsLocalPath> paths = files.stream()
+                    .map(TfsFileUtil::createLocalPath)
+                    .collect(Collectors.toList());
+            return getClient(trace)
+                    .thenCompose(client -> client.checkinAsync(
+                            serverIdentification,
+                            paths,
+                            comment,
+                            workItemIds,
+                            progress -> onItemCheckedIn.accept(progress.getLocalItem() != null
+                                    ? progress.getLocalItem()
+                                    : progress.getServerItem()),
+                            trace))
+                    .thenApply(result -> result.getErrorMessages().isEmpty()
+                            ? new TfvcCheckinResult(Integer.toString(result.getChangesetNumber()))
+                            : new TfvcCheckinResult(null, result.getErrorMessages()));
         });
     }
 }
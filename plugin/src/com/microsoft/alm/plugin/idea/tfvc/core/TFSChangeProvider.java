@@ -19,27 +19,50 @@
 
 package com.microsoft.alm.plugin.idea.tfvc.core;
 
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vcs.FilePath;
+import com.intellij.openapi.vcs.ProjectLevelVcsManager;
 import com.intellij.openapi.vcs.changes.ChangeListManager;
 import com.intellij.openapi.vcs.changes.ChangeListManagerGate;
 import com.intellij.openapi.vcs.changes.ChangeProvider;
 import com.intellij.openapi.vcs.changes.ChangelistBuilder;
+import com.intellij.openapi.vcs.changes.FilePathsHelper;
 import com.intellij.openapi.vcs.changes.VcsDirtyScope;
+import com.intellij.openapi.vcs.changes.VcsDirtyScopeManager;
+import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.vcsUtil.VcsUtil;
 import com.microsoft.alm.plugin.context.ServerContext;
 import com.microsoft.alm.plugin.external.models.PendingChange;
 import com.microsoft.alm.plugin.idea.tfvc.core.tfs.RootsCollection;
 import com.microsoft.alm.plugin.idea.tfvc.core.tfs.StatusProvider;
 import com.microsoft.alm.plugin.idea.tfvc.core.tfs.TFVCUtil;
+import com.microsoft.alm.plugin.idea.tfvc.core.tfs.TfsContentHashCache;
+import com.microsoft.alm.plugin.idea.tfvc.core.tfs.TfsFileUtil;
+import com.microsoft.alm.plugin.services.PropertyService;
+import com.microsoft.tfs.model.connector.TfsLocalPath;
+import com.microsoft.tfs.model.connector.TfsPath;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
 
 /**
  * Extends the VCS change provider to execture the correct events to find out the local changes in the workspace
@@ -54,6 +77,11 @@ public class TFSChangeProvider implements ChangeProvider {
     @NotNull
     private final TFSVcs myVcs;
 
+    // The local paths of the edits being undone because they don't change anything
+    private final Set<String> myUndoesInFlight = ContainerUtil.newConcurrentSet();
+    // Paths matching a .tfignore file that have no server item, converted with FilePathsHelper
+    private final Set<String> myUnversionedIgnoredPaths = ContainerUtil.newConcurrentSet();
+
     public TFSChangeProvider(@NotNull TFSVcs vcs) {
         myVcs = vcs;
     }
@@ -78,16 +106,50 @@ public class TFSChangeProvider implements ChangeProvider {
 
         // process only roots, filter out child items since requests are recursive anyway
         RootsCollection.FilePathRootsCollection roots = new RootsCollection.FilePathRootsCollection();
-        roots.addAll(dirtyScope.getRecursivelyDirtyDirectories());
-
+        final List<FilePath> tfIgnoredPaths = new ArrayList<>();
         final ChangeListManager changeListManager = ChangeListManager.getInstance(project);
+        // tf info fails on unversioned items, so the classic client can't tell the versioned ignored items apart: its
+        // dirty items are all refreshed
+        final boolean filterTfIgnoredPaths = !(TfvcClient.getInstance(project) instanceof ClassicTfvcClient);
+        if (dirtyScope.wasEveryThingDirty()) {
+            // A full refresh follows e.g. a get, which may have brought items at the unversioned paths
+            myUnversionedIgnoredPaths.clear();
+        } else {
+            forgetUnversionedPaths(dirtyScope.getRecursivelyDirtyDirectories(), dirtyScope.getDirtyFiles());
+        }
+
+        for (FilePath dirtyDirectory : dirtyScope.getRecursivelyDirtyDirectories()) {
+            if (filterTfIgnoredPaths && isIgnoredByTfIgnore(changeListManager, dirtyDirectory)) {
+                tfIgnoredPaths.add(dirtyDirectory);
+            } else {
+                roots.add(dirtyDirectory);
+            }
+        }
+
         for (FilePath dirtyFile : dirtyScope.getDirtyFiles()) {
             // workaround for IDEADEV-31511 and IDEADEV-31721
-            if (dirtyFile.getVirtualFile() == null || !changeListManager.isIgnoredFile(dirtyFile.getVirtualFile())) {
+            if (dirtyFile.getVirtualFile() != null && changeListManager.isIgnoredFile(dirtyFile.getVirtualFile())) {
+                continue;
+            }
+
+            if (filterTfIgnoredPaths && isIgnoredByTfIgnore(changeListManager, dirtyFile)) {
+                tfIgnoredPaths.add(dirtyFile);
+            } else {
                 roots.add(dirtyFile);
             }
         }
 
+        ServerContext serverContext = null;
+        if (!tfIgnoredPaths.isEmpty()) {
+            try {
+                serverContext = myVcs.getServerContext(true);
+                roots.addAll(getVersionedPaths(serverContext, tfIgnoredPaths));
+            } catch (final Throwable t) {
+                logger.warn("Failed to get the versioned items of ignored paths, refreshing them all", t);
+                roots.addAll(tfIgnoredPaths);
+            }
+        }
+
         if (roots.isEmpty()) {
             return;
         }
@@ -98,18 +160,218 @@ public class TFSChangeProvider implements ChangeProvider {
         }
 
         List<PendingChange> changes;
+        boolean statusSucceeded = false;
         try {
-            ServerContext serverContext = myVcs.getServerContext(true);
+            if (serverContext == null) {
+                serverContext = myVcs.getServerContext(true);
+            }
             changes = TfvcClient.getInstance(project).getStatusForFiles(serverContext, pathsToProcess);
+            statusSucceeded = true;
         } catch (final Throwable t) {
             logger.error("Failed to get changes from command line. roots=" + StringUtils.join(pathsToProcess, ", "), t);
             changes = Collections.emptyList();
         }
 
+        // the undo is optional: the changes are reported as they are whatever happens to it
+        if (statusSucceeded) {
+            try {
+                undoContentIdenticalEdits(serverContext, pathsToProcess, changes);
+            } catch (final Throwable t) {
+                logger.warn("Failed to undo the edits without content changes", t);
+            }
+        }
+
         // for each change, find out the status of the changes and then add to the list
         final ChangelistBuilderStatusVisitor changelistBuilderStatusVisitor = new ChangelistBuilderStatusVisitor(project, builder);
         for (final PendingChange change : changes) {
             StatusProvider.visitByStatus(changelistBuilderStatusVisitor, change);
         }
     }
+
+    /**
+     * Undoes, if enabled in the settings, the edits that leave files identical to their workspace version. The undo
+     * runs in the background; the files are refreshed once it's done, so the edits are reported until then.
+     * <p/>
+     * The edits still being made are left alone: the files with unsaved changes in the editor, and the files just
+     * checked out by the editor, which checks a file out on its first change, before the change reaches the disk.
+     */
+    private void undoContentIdenticalEdits(
+            @NotNull ServerContext serverContext,
+            @NotNull List<String> roots,
+            @NotNull List<PendingChange> changes) {
+        boolean isEnabled = "true".equalsIgnoreCase(
+                PropertyService.getInstance().getProperty(PropertyService.PROP_TFVC_UNDO_CONTENT_IDENTICAL_EDITS));
+        if (!isEnabled) {
+            return;
+        }
+
+        List<Path> rootPaths = roots.stream().map(Paths::get).collect(Collectors.toList());
+        List<String> identicalEdits = ContentIdenticalEdits.find(TfsContentHashCache.getInstance(), rootPaths, changes)
+                .stream()
+                .map(PendingChange::getLocalItem)
+                .filter(this::canUndoIdenticalEdit)
+                .collect(Collectors.toList());
+        // the paths of an undo in flight are reported by the refreshes until it's done, they shouldn't be sent again
+        identicalEdits.removeIf(path -> !myUndoesInFlight.add(path));
+        if (identicalEdits.isEmpty()) {
+            return;
+        }
+
+        logger.info("Undoing {} edit(s) without content changes", identicalEdits.size());
+        List<TfsPath> paths = identicalEdits.stream()
+                .<TfsPath>map(TfsFileUtil::createLocalPath)
+                .collect(Collectors.toList());
+        Project project = myVcs.getProject();
+        CompletionStage<List<TfsLocalPath>> undo;
+        try {
+            undo = TfvcClient.getInstance(project).undoLocalChangesAsync(serverContext, paths);
+        } catch (Throwable t) {
+            myUndoesInFlight.removeAll(identicalEdits);
+            throw t;
+        }
+
+        undo.whenComplete((undone, error) -> {
+            myUndoesInFlight.removeAll(identicalEdits);
+            if (error != null) {
+                logger.warn("Failed to undo edits without content changes", error);
+                return;
+            }
+
+            if (!project.isDisposed()) {
+                List<FilePath> files = undone.stream()
+                        .map(path -> VcsUtil.getFilePath(path.getPath(), false))
+                        .collect(Collectors.toList());
+                VcsDirtyScopeManager.getInstance(project).filePathsDirty(files, null);
+            }
+        });
+    }
+
+    private boolean canUndoIdenticalEdit(@NotNull String localItem) {
+        if (myVcs.getCheckoutCoordinator().isRecentlyCheckedOut(Paths.get(localItem))) {
+            return false;
+        }
+
+        VirtualFile file = LocalFileSystem.getInstance().findFileByPath(localItem);
+        return file == null || !ReadAction.compute(() -> FileDocumentManager.getInstance().isFileModified(file));
+    }
+
+    /**
+     * Returns the paths that have a server item, among the dirty paths matching a .tfignore file, so that edits of
+     * versioned items (e.g. committed binaries) are refreshed like any other. The paths found unversioned, and the
+     * paths under them, are remembered until they are dirty again (see {@link #forgetUnversionedPaths}) or until the
+     * next full refresh; the others are queried on every refresh.
+     */
+    private List<FilePath> getVersionedPaths(@NotNull ServerContext serverContext, @NotNull List<FilePath> paths) {
+        Map<String, FilePath> pathsToQuery = new LinkedHashMap<>();
+        for (FilePath path : paths) {
+            if (!isKnownUnversioned(path)) {
+                pathsToQuery.put(FilePathsHelper.convertPath(path.getPath()), path);
+            }
+        }
+
+        if (pathsToQuery.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<String> versionedPaths = ContainerUtil.newConcurrentSet();
+        List<String> queriedPaths = pathsToQuery.values().stream().map(FilePath::getPath).collect(Collectors.toList());
+        TfvcClient.getInstance(myVcs.getProject()).getLocalItemsInfo(serverContext, queriedPaths, info -> {
+            if (StringUtils.isNotEmpty(info.getServerItem()) && info.getLocalItem() != null) {
+                versionedPaths.add(FilePathsHelper.convertPath(info.getLocalItem()));
+            }
+        });
+
+        List<FilePath> result = new ArrayList<>();
+        for (Map.Entry<String, FilePath> entry : pathsToQuery.entrySet()) {
+            if (versionedPaths.contains(entry.getKey())) {
+                result.add(entry.getValue());
+            } else {
+                myUnversionedIgnoredPaths.add(entry.getKey());
+            }
+        }
+
+        logger.info("{} of {} path(s) ignored by .tfignore are versioned", result.size(), pathsToQuery.size());
+        return result;
+    }
+
+    /**
+     * Forgets the unversioned paths that are dirty, or under a dirty path, since they may have been added since they
+     * were queried. The dirty paths under a known unversioned folder are still found unversioned, unless the folder is
+     * dirty itself.
+     */
+    private void forgetUnversionedPaths(@NotNull Set<FilePath> dirtyDirectories, @NotNull Set<FilePath> dirtyFiles) {
+        if (myUnversionedIgnoredPaths.isEmpty()) {
+            return;
+        }
+
+        Set<String> dirtyPaths = new HashSet<>();
+        for (FilePath path : ContainerUtil.concat(dirtyDirectories, dirtyFiles)) {
+            dirtyPaths.add(FilePathsHelper.convertPath(path.getPath()));
+        }
+
+        myUnversionedIgnoredPaths.removeIf(path -> isUnder(path, dirtyPaths));
+    }
+
+    /**
+     * Forgets the paths just scheduled for addition, and the folders containing them, which tf adds with them.
+     */
+    public void itemsAdded(@NotNull List<Path> paths) {
+        for (Path path : paths) {
+            FilePath current = VcsUtil.getFilePath(path.toFile());
+            for (; current != null; current = current.getParentPath()) {
+                myUnversionedIgnoredPaths.remove(FilePathsHelper.convertPath(current.getPath()));
+            }
+        }
+    }
+
+    private static boolean isUnder(@NotNull String path, @NotNull Set<String> ancestors) {
+        for (String current = path; ; current = current.substring(0, current.lastIndexOf('/'))) {
+            if (ancestors.contains(current)) {
+                return true;
+            }
+            if (current.lastIndexOf('/') <= 0) {
+                return false;
+            }
+        }
+    }
+
+    // An unversioned folder can't hold versioned items, so the paths under a known unversioned one are unversioned too
+    private boolean isKnownUnversioned(@NotNull FilePath path) {
+        for (FilePath current = path; current != null; current = current.getParentPath()) {
+            if (myUnversionedIgnoredPaths.contains(FilePathsHelper.convertPath(current.getPath()))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks whether tf would ignore the dirty item because of a .tfignore file, so that the writes into ignored
+     * directories (e.g. build outputs) don't run status commands. Items with known changes are always refreshed. As a
+     * .tfignore file only applies to unversioned items, the matching items are then checked with
+     * {@link #getVersionedPaths}.
+     */
+    private boolean isIgnoredByTfIgnore(@NotNull ChangeListManager changeListManager, @NotNull FilePath path) {
+        VirtualFile vcsRoot = ProjectLevelVcsManager.getInstance(myVcs.getProject()).getVcsRootFor(path);
+        if (vcsRoot == null) {
+            return false;
+        }
+
+        boolean hasChanges = path.isDirectory()
+                ? !changeListManager.getChangesIn(path).isEmpty()
+                : changeListManager.getChange(path) != null;
+        if (hasChanges) {
+            return false;
+        }
+
+        try {
+            return myVcs.getTfIgnoreMatcher().isIgnored(
+                    Paths.get(vcsRoot.getPath()),
+                    Paths.get(path.getPath()),
+                    path.isDirectory());
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
 }
\ No newline at end of file
@@ -37,7 +37,6 @@ import com.intellij.util.PairConsumer;
 import com.microsoft.alm.common.utils.UrlHelper;
 import com.microsoft.alm.plugin.context.ServerContext;
 import com.microsoft.alm.plugin.exceptions.TeamServicesException;
-import com.microsoft.alm.plugin.external.utils.CommandUtils;
 import com.microsoft.alm.plugin.idea.common.resources.TfPluginBundle;
 import com.microsoft.alm.plugin.idea.common.services.LocalizationServiceImpl;
 import com.microsoft.alm.plugin.idea.common.utils.VcsHelper;
@@ -56,6 +55,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -192,7 +192,23 @@ public class TFSCheckinEnvironment implements CheckinEnvironment {
         try {
             final ServerContext context = myVcs.getServerContext(true);
             final List<Integer> workItemIds = VcsHelper.getWorkItemIdsFromMessage(preparedComment);
-            final String changesetNumber = CommandUtils.checkinFiles(context, files, preparedComment, workItemIds);
+            final AtomicInteger checkedInCount = new AtomicInteger();
+            final TfvcCheckinResult result = TfvcClient.getInstance(myVcs.getProject()).checkinFiles(
+                    context, files, StringUtils.defaultString(preparedComment), workItemIds, item -> {
+                        // the pending changes checked in may outnumber the files, e.g. for renamed folders
+                        TFSProgressUtil.setIndeterminate(progressIndicator, false);
+                        TFSProgressUtil.setProgressFraction(progressIndicator,
+                                Math.min(1.0, (double) checkedInCount.incrementAndGet() / files.size()));
+                        TFSProgressUtil.setProgressText2(progressIndicator, item);
+                    });
+            if (!result.getErrorMessages().isEmpty()) {
+                for (final String message : result.getErrorMessages()) {
+                    errors.add(new VcsException(message));
+                }
+                return errors;
+            }
+
+            final String changesetNumber = result.getChangesetNumber();
 
             // notify user of success
             final String changesetLink = String.format(UrlHelper.SHORT_HTTP_LINK_FORMATTER, UrlHelper.getTfvcChangesetURI(context.getUri().toString(), changesetNumber),
@@ -238,6 +254,7 @@ public class TFSCheckinEnvironment implements CheckinEnvironment {
                     .collect(Collectors.toList());
             TfvcClient client = TfvcClient.getInstance(myVcs.getProject());
             List<Path> successfullyAdded = client.addFiles(myVcs.getServerContext(false), pathsToAdd);
+            myVcs.getChangeProvider().itemsAdded(successfullyAdded);
 
             // mark files as dirty so that they refresh in local changes tab
             for (Path path : successfullyAdded) {
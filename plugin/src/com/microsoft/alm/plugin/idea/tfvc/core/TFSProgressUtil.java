@@ -52,4 +52,10 @@ public class TFSProgressUtil {
             progressIndicator.setIndeterminate(indeterminate);
         }
     }
+
+    public static void setProgressFraction(final @Nullable ProgressIndicator progressIndicator, final double fraction) {
+        if (progressIndicator != null) {
+            progressIndicator.setFraction(fraction);
+        }
+    }
 }
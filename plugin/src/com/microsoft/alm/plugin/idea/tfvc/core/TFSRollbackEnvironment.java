@@ -19,6 +19,7 @@
 
 package com.microsoft.alm.plugin.idea.tfvc.core;
 
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vcs.FilePath;
 import com.intellij.openapi.vcs.VcsException;
@@ -26,7 +27,6 @@ import com.intellij.openapi.vcs.changes.Change;
 import com.intellij.openapi.vcs.changes.ContentRevision;
 import com.intellij.openapi.vcs.rollback.DefaultRollbackEnvironment;
 import com.intellij.openapi.vcs.rollback.RollbackProgressListener;
-import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.microsoft.alm.plugin.context.ServerContext;
 import com.microsoft.alm.plugin.external.utils.CommandUtils;
@@ -45,6 +45,9 @@ import java.util.stream.Collectors;
 public class TFSRollbackEnvironment extends DefaultRollbackEnvironment {
     private static final Logger logger = LoggerFactory.getLogger(TFSRollbackEnvironment.class);
 
+    private static final int FIRST_UNDO_BATCH_SIZE = 100;
+    private static final int MAX_UNDO_BATCH_SIZE = 2000;
+
     private final Project project;
     private final TFSVcs vcs;
 
@@ -74,14 +77,17 @@ public class TFSRollbackEnvironment extends DefaultRollbackEnvironment {
                                             final List<VcsException> errors,
                                             final RollbackProgressListener listener) {
         logger.info("rollbackMissingFileDeletion started");
-        for (final FilePath file : files) {
-            try {
-                // get the file from the server so it's restored locally
-                CommandUtils.forceGetFile(vcs.getServerContext(false), file.getPath());
-            } catch (final Throwable t) {
-                logger.warn("Exception hit while rolling back deleted file: " + file.getPath(), t);
-                errors.add(new VcsException(t.getMessage(), t));
-            }
+        final List<String> paths = files.stream().map(FilePath::getPath).collect(Collectors.toList());
+        try {
+            // get the files from the server so they're restored locally, in as few tf processes as possible
+            CommandUtils.forceGetFiles(vcs.getServerContext(false), paths, batch -> {
+                for (final String path : batch) {
+                    listener.accept(new File(path));
+                }
+            });
+        } catch (final Throwable t) {
+            logger.warn("Exception hit while rolling back deleted files", t);
+            errors.add(new VcsException(t.getMessage(), t));
         }
         logger.info("rollbackMissingFileDeletion ended");
     }
@@ -123,40 +129,54 @@ public class TFSRollbackEnvironment extends DefaultRollbackEnvironment {
         // state in which it was checked out or last saved.
     }
 
+    /**
+     * Undoes the changes in batches of growing size, so that the first files are reported to the listener quickly and
+     * the large rollbacks don't run one tf process per small batch
+     */
     private void undoPendingChanges(final List<FilePath> localPaths,
                                     final List<VcsException> errors,
                                     @NotNull final RollbackProgressListener listener) {
         logger.info("undoPendingChanges started");
+        final List<File> filesUndone = new ArrayList<>(localPaths.size());
         try {
             List<TfsPath> localFiles = localPaths.stream()
                     .map(TfsFileUtil::createLocalPath)
                     .collect(Collectors.toList());
 
-            // Call the undo command synchronously
             final ServerContext context = vcs.getServerContext(true);
-            final List<TfsLocalPath> filesUndone = TfvcClient.getInstance(project).undoLocalChanges(context, localFiles);
-
-            // Trigger the accept callback and build up our refresh list
-            final List<VirtualFile> refresh = new ArrayList<VirtualFile>(filesUndone.size());
-            for (final TfsLocalPath path : filesUndone) {
-                // Call the accept method on the listener to indicate progress
-                final File fileUndone = new File(path.getPath());
-                listener.accept(fileUndone);
-
-                // Add the parent folder of the file to our refresh list
-                final VirtualFile file = LocalFileSystem.getInstance().findFileByIoFile(fileUndone);
-                final VirtualFile parent = file != null ? file.getParent() : null;
-                if (parent != null && parent.exists()) {
-                    refresh.add(file);
+            final TfvcClient client = TfvcClient.getInstance(project);
+            for (final List<TfsPath> batch : partitionGrowing(localFiles, FIRST_UNDO_BATCH_SIZE, MAX_UNDO_BATCH_SIZE)) {
+                listener.checkCanceled();
+                for (final TfsLocalPath path : client.undoLocalChanges(context, batch)) {
+                    // Call the accept method on the listener to indicate progress
+                    final File fileUndone = new File(path.getPath());
+                    listener.accept(fileUndone);
+                    filesUndone.add(fileUndone);
                 }
             }
-
-            // Refresh all the folders that changed
-            TfsFileUtil.refreshAndMarkDirty(project, refresh, true);
+        } catch (final ProcessCanceledException e) {
+            throw e;
         } catch (final Throwable e) {
             logger.warn("undoPendingChanges: Errors caught: " + e.getMessage(), e);
             errors.add(new VcsException("Cannot undo pending changes", e));
+        } finally {
+            // Refresh all the files undone so far in one go
+            TfsFileUtil.refreshFilesAndMarkDirty(project, filesUndone, true);
         }
         logger.info("undoPendingChanges ended");
     }
+
+    /**
+     * Splits the items in consecutive batches, the first one of the given size and every next one twice as large as
+     * the previous one, up to the maximum size
+     */
+    /* default */
+    static <T> List<List<T>> partitionGrowing(final List<T> items, final int firstSize, final int maxSize) {
+        final List<List<T>> batches = new ArrayList<>();
+        int size = firstSize;
+        for (int start = 0; start < items.size(); start += size, size = Math.min(size * 2, maxSize)) {
+            batches.add(items.subList(start, Math.min(start + size, items.size())));
+        }
+        return batches;
+    }
 }
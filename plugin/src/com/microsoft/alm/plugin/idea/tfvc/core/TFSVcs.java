@@ -23,6 +23,7 @@ import com.google.common.util.concurrent.SettableFuture;
 import com.intellij.ide.BrowserUtil;
 import com.intellij.notification.Notification;
 import com.intellij.notification.NotificationListener;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.options.Configurable;
 import com.intellij.openapi.options.ShowSettingsUtil;
@@ -46,7 +47,8 @@ import com.intellij.openapi.vcs.VcsRoot;
 import com.intellij.openapi.vcs.VcsShowConfirmationOption;
 import com.intellij.openapi.vcs.VcsShowSettingOption;
 import com.intellij.openapi.vcs.VcsVFSListener;
-import com.intellij.openapi.vcs.changes.ChangeProvider;
+import com.intellij.openapi.vcs.changes.Change;
+import com.intellij.openapi.vcs.changes.ChangeListManager;
 import com.intellij.openapi.vcs.diff.DiffProvider;
 import com.intellij.openapi.vcs.history.VcsHistoryProvider;
 import com.intellij.openapi.vcs.history.VcsRevisionNumber;
@@ -54,17 +56,22 @@ import com.intellij.openapi.vcs.rollback.RollbackEnvironment;
 import com.intellij.openapi.vcs.roots.VcsRootDetector;
 import com.intellij.openapi.vcs.update.UpdateEnvironment;
 import com.intellij.openapi.vcs.versionBrowser.ChangeBrowserSettings;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.util.messages.MessageBusConnection;
 import com.intellij.vcsUtil.VcsUtil;
 import com.microsoft.alm.plugin.context.RepositoryContext;
 import com.microsoft.alm.plugin.context.ServerContext;
 import com.microsoft.alm.plugin.context.ServerContextManager;
 import com.microsoft.alm.plugin.external.exceptions.SyncException;
 import com.microsoft.alm.plugin.external.exceptions.ToolException;
+import com.microsoft.alm.plugin.external.reactive.ReactiveTfvcClientHolder;
+import com.microsoft.alm.plugin.external.reactive.ServerIdentification;
 import com.microsoft.alm.plugin.external.tools.TfTool;
 import com.microsoft.alm.plugin.idea.common.resources.TfPluginBundle;
 import com.microsoft.alm.plugin.idea.common.services.LocalizationServiceImpl;
 import com.microsoft.alm.plugin.idea.common.utils.IdeaHelper;
 import com.microsoft.alm.plugin.idea.common.utils.VcsHelper;
+import com.microsoft.alm.plugin.idea.tfvc.core.tfs.TfIgnoreMatcher;
 import com.microsoft.alm.plugin.idea.tfvc.core.tfs.TfsRevisionNumber;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NonNls;
@@ -76,6 +83,8 @@ import org.slf4j.LoggerFactory;
 import javax.swing.event.HyperlinkEvent;
 import javax.ws.rs.NotAuthorizedException;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collection;
 
 /**
@@ -103,6 +112,11 @@ public class TFSVcs extends AbstractVcs {
     private TFSFileSystemListener tfsFileSystemListener;
     private CommittedChangesProvider<TFSChangeList, ChangeBrowserSettings> committedChangesProvider;
     private EditFileProvider myEditFileProvider;
+    // Kept across refreshes: it remembers the unversioned paths matching .tfignore files
+    private final TFSChangeProvider myChangeProvider = new TFSChangeProvider(this);
+    private final TfIgnoreMatcher myTfIgnoreMatcher = new TfIgnoreMatcher();
+    private MessageBusConnection myTfIgnoreConnection;
+    private final TfvcCheckoutCoordinator myCheckoutCoordinator;
 
     public TFSVcs(@NotNull Project project) {
         super(project, TFVC_NAME);
@@ -110,6 +124,11 @@ public class TFSVcs extends AbstractVcs {
         myAddConfirmation = vcsManager.getStandardConfirmation(VcsConfiguration.StandardConfirmation.ADD, this);
         myDeleteConfirmation = vcsManager.getStandardConfirmation(VcsConfiguration.StandardConfirmation.REMOVE, this);
         myCheckoutOptions = vcsManager.getStandardOption(VcsConfiguration.StandardOption.CHECKOUT, this);
+        myCheckoutCoordinator = new TfvcCheckoutCoordinator(
+                (serverContext, filePaths) -> TfvcClient.getInstance(project).checkoutForEdit(serverContext, filePaths, false),
+                this::hasPendingEdit,
+                () -> ApplicationManager.getApplication().isDispatchThread(),
+                TfvcCheckoutCoordinator.DEFAULT_WINDOW_MILLIS);
     }
 
     public static TFSVcs getInstance(Project project) {
@@ -131,8 +150,18 @@ public class TFSVcs extends AbstractVcs {
         if (tfsFileSystemListener == null) {
             tfsFileSystemListener = new TFSFileSystemListener(myProject);
         }
+        if (myTfIgnoreConnection == null) {
+            myTfIgnoreConnection = myProject.getMessageBus().connect();
+            myTfIgnoreConnection.subscribe(VirtualFileManager.VFS_CHANGES, myTfIgnoreMatcher);
+        }
 
         checkCommandLineVersion();
+        ReactiveTfvcClientHolder.getInstance(myProject).prewarmInBackground(() -> {
+            ServerContext serverContext = getServerContext(false, false);
+            return serverContext == null
+                    ? null
+                    : new ServerIdentification(serverContext.getCollectionURI(), serverContext.getAuthenticationInfo());
+        });
     }
 
     @Override
@@ -140,6 +169,11 @@ public class TFSVcs extends AbstractVcs {
         Disposer.dispose(fileListener);
         tfsFileSystemListener.dispose();
         tfsFileSystemListener = null;
+        if (myTfIgnoreConnection != null) {
+            myTfIgnoreConnection.disconnect();
+            myTfIgnoreConnection = null;
+        }
+        myTfIgnoreMatcher.invalidateAll();
     }
 
     @Override
@@ -162,8 +196,34 @@ public class TFSVcs extends AbstractVcs {
         return myCheckoutOptions;
     }
 
-    public ChangeProvider getChangeProvider() {
-        return new TFSChangeProvider(this);
+    /**
+     * Returns the matcher of the .tfignore files of the project, kept up to date while the VCS is active
+     */
+    @NotNull
+    public TfIgnoreMatcher getTfIgnoreMatcher() {
+        return myTfIgnoreMatcher;
+    }
+
+    /**
+     * Returns the coordinator of the checkouts for edit requested by the editor
+     */
+    @NotNull
+    public TfvcCheckoutCoordinator getCheckoutCoordinator() {
+        return myCheckoutCoordinator;
+    }
+
+    private boolean hasPendingEdit(@NotNull Path path) {
+        // the change list may be older than an undo made outside of the IDE, which leaves the file read-only again
+        if (!Files.isWritable(path)) {
+            return false;
+        }
+
+        Change change = ChangeListManager.getInstance(myProject).getChange(VcsUtil.getFilePath(path.toFile()));
+        return change != null && change.getType() == Change.Type.MODIFICATION;
+    }
+
+    public TFSChangeProvider getChangeProvider() {
+        return myChangeProvider;
     }
 
     @NotNull
@@ -274,6 +334,14 @@ public class TFSVcs extends AbstractVcs {
      * We do not cache it here because it should already be cached in the ServerContextManager.
      */
     public ServerContext getServerContext(boolean throwIfNotFound) {
+        return getServerContext(throwIfNotFound, true);
+    }
+
+    /**
+     * Same as {@link #getServerContext(boolean)}, but may be told not to prompt for credentials, e.g. for background
+     * work the user didn't ask for.
+     */
+    public ServerContext getServerContext(boolean throwIfNotFound, boolean prompt) {
         final RepositoryContext repositoryContext = VcsHelper.getRepositoryContext(getProject());
         logger.info("TFSVcs.getServerContext repositoryContext is null: " + (repositoryContext == null));
 
@@ -281,7 +349,7 @@ public class TFSVcs extends AbstractVcs {
                 && StringUtils.isNotEmpty(repositoryContext.getTeamProjectName())
                 && StringUtils.isNotEmpty(repositoryContext.getUrl()) ?
                 ServerContextManager.getInstance().createContextFromTfvcServerUrl(
-                        URI.create(repositoryContext.getUrl()), repositoryContext.getTeamProjectName(), true)
+                        URI.create(repositoryContext.getUrl()), repositoryContext.getTeamProjectName(), prompt)
                 : null;
 
         if (serverContext == null && throwIfNotFound) {
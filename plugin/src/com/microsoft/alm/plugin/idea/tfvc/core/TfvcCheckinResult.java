@@ -0,0 +1,45 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.tfvc.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A result of TFVC checkin operation.
+ */
+public class TfvcCheckinResult {
+    @Nullable
+    private final String changesetNumber;
+    @NotNull
+    private final List<String> errorMessages;
+
+    public TfvcCheckinResult(@NotNull String changesetNumber) {
+        this(changesetNumber, Collections.emptyList());
+    }
+
+    public TfvcCheckinResult(@Nullable String changesetNumber, @NotNull List<String> errorMessages) {
+        this.changesetNumber = changesetNumber;
+        this.errorMessages = errorMessages;
+    }
+
+    /**
+     * The number of the changeset created, or null if nothing was checked in.
+     */
+    @Nullable
+    public String getChangesetNumber() {
+        return changesetNumber;
+    }
+
+    /**
+     * The problems that prevented the checkin, e.g. conflicts or items locked by other users.
+     */
+    @NotNull
+    public List<String> getErrorMessages() {
+        return errorMessages;
+    }
+}
@@ -0,0 +1,261 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.tfvc.core;
+
+import com.microsoft.alm.plugin.context.ServerContext;
+import com.microsoft.alm.plugin.idea.tfvc.core.tfs.TfsFileUtil;
+import com.microsoft.tfs.model.connector.TfsLocalPath;
+import com.microsoft.tfs.model.connector.TfvcCheckoutResult;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Coalesces the checkouts for edit requested by the editor within a short window into one batched checkout.
+ * <p/>
+ * Files that already have a pending edit are not checked out again, and files already queued or being checked out by
+ * another request are not sent twice: every caller waits only for the batches containing its own files, and receives
+ * the part of their results that concerns these files.
+ * <p/>
+ * A batch runs on the thread of its first caller, once the window is over.
+ * <p/>
+ * Only the checkouts requested from background threads are coalesced. The editor asks for most checkouts on the
+ * dispatch thread (typing, refactorings), and these are not: the callers on the dispatch thread never wait for a batch
+ * run by another thread, which may need the dispatch thread itself (e.g. to start the reactive client or to show its
+ * EULA), so they check out their files right away in a batch of their own, without a window. They still skip the files
+ * with a pending edit, and the files of a refactoring come in a single request anyway.
+ */
+public class TfvcCheckoutCoordinator {
+    private static final Logger logger = LoggerFactory.getLogger(TfvcCheckoutCoordinator.class);
+
+    public static final long DEFAULT_WINDOW_MILLIS = 30;
+
+    /**
+     * How long a file counts as just checked out, see {@link #isRecentlyCheckedOut}
+     */
+    public static final long RECENT_CHECKOUT_MILLIS = 30_000;
+
+    /**
+     * Checks out a batch of files for edit, non-recursively
+     */
+    public interface BatchCheckout {
+        @NotNull
+        TfvcCheckoutResult checkoutForEdit(@NotNull ServerContext serverContext, @NotNull List<Path> filePaths);
+    }
+
+    private final BatchCheckout checkout;
+    private final Predicate<Path> isPendingEdit;
+    private final BooleanSupplier isDispatchThread;
+    private final long windowMillis;
+
+    private final Object lock = new Object();
+    // batches accepting files, guarded by lock
+    private final Map<ServerContext, Batch> queuedBatches = new HashMap<>();
+    // batches (queued or running) by the files they check out, guarded by lock
+    private final Map<Path, Batch> batchesByPath = new HashMap<>();
+    // the time (System.nanoTime) of the last checkout of the files checked out recently
+    private final Map<Path, Long> recentCheckouts = new ConcurrentHashMap<>();
+
+    /**
+     * @param checkout      runs the batched checkouts
+     * @param isPendingEdit    tells whether a file is known to have a pending edit already
+     * @param isDispatchThread tells whether the calling thread is the dispatch thread
+     * @param windowMillis     how long a batch waits for more files after its first one
+     */
+    public TfvcCheckoutCoordinator(@NotNull final BatchCheckout checkout,
+                                   @NotNull final Predicate<Path> isPendingEdit,
+                                   @NotNull final BooleanSupplier isDispatchThread,
+                                   final long windowMillis) {
+        this.checkout = checkout;
+        this.isPendingEdit = isPendingEdit;
+        this.isDispatchThread = isDispatchThread;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Checks out the files for edit, together with the files requested by other callers at the same time.
+     *
+     * @return the result of the checkout of these files; the files with a pending edit already are reported as checked
+     * out
+     */
+    @NotNull
+    public TfvcCheckoutResult checkoutForEdit(@NotNull final ServerContext serverContext,
+                                              @NotNull final List<Path> filePaths) {
+        final List<TfsLocalPath> checkedOutFiles = new ArrayList<>();
+        final List<Path> pathsToCheckout = new ArrayList<>(filePaths.size());
+        for (final Path path : new LinkedHashSet<>(filePaths)) {
+            if (isPendingEdit.test(path)) {
+                checkedOutFiles.add(TfsFileUtil.createLocalPath(path));
+            } else {
+                pathsToCheckout.add(path);
+            }
+        }
+
+        final boolean onDispatchThread = isDispatchThread.getAsBoolean();
+        final Map<Batch, Set<Path>> pathsByBatch = new LinkedHashMap<>();
+        Batch ownBatch = null;
+        synchronized (lock) {
+            if (onDispatchThread) {
+                // the background requests for these files may wait for this batch, but not the other way around
+                if (!pathsToCheckout.isEmpty()) {
+                    ownBatch = new Batch(serverContext);
+                    ownBatch.paths.addAll(pathsToCheckout);
+                    for (final Path path : pathsToCheckout) {
+                        batchesByPath.putIfAbsent(path, ownBatch);
+                    }
+                    pathsByBatch.put(ownBatch, new LinkedHashSet<>(pathsToCheckout));
+                }
+            } else {
+                for (final Path path : pathsToCheckout) {
+                    Batch batch = batchesByPath.get(path);
+                    if (batch == null || !batch.serverContext.equals(serverContext)) {
+                        batch = queuedBatches.get(serverContext);
+                        if (batch == null) {
+                            // the first caller runs the batch
+                            batch = new Batch(serverContext);
+                            queuedBatches.put(serverContext, batch);
+                            ownBatch = batch;
+                        }
+                        batch.paths.add(path);
+                        batchesByPath.put(path, batch);
+                    }
+                    pathsByBatch.computeIfAbsent(batch, b -> new LinkedHashSet<>()).add(path);
+                }
+            }
+        }
+
+        if (ownBatch != null) {
+            if (!onDispatchThread) {
+                waitForMoreFiles();
+            }
+            run(ownBatch);
+        }
+
+        final List<TfsLocalPath> notFoundFiles = new ArrayList<>();
+        final List<String> errorMessages = new ArrayList<>();
+        for (final Map.Entry<Batch, Set<Path>> entry : pathsByBatch.entrySet()) {
+            final Batch batch = entry.getKey();
+            final Set<Path> paths = entry.getValue();
+            final TfvcCheckoutResult result = getResult(batch);
+            for (final TfsLocalPath file : result.getCheckedOutFiles()) {
+                if (paths.contains(Paths.get(file.getPath()))) {
+                    checkedOutFiles.add(file);
+                }
+            }
+            for (final TfsLocalPath file : result.getNotFoundFiles()) {
+                if (paths.contains(Paths.get(file.getPath()))) {
+                    notFoundFiles.add(file);
+                }
+            }
+            for (final String message : result.getErrorMessages()) {
+                // messages about other files of the batch are not the business of this caller
+                if (mentionsAny(message, paths) || !mentionsAny(message, batch.paths)) {
+                    errorMessages.add(message);
+                }
+            }
+        }
+
+        return new TfvcCheckoutResult(checkedOutFiles, notFoundFiles, errorMessages);
+    }
+
+    private void waitForMoreFiles() {
+        try {
+            Thread.sleep(windowMillis);
+        } catch (InterruptedException e) {
+            // run the batch with the files it has
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run(final Batch batch) {
+        final List<Path> paths;
+        synchronized (lock) {
+            // the batch doesn't accept files anymore; the files requested from now on go into the next one, unless
+            // this one already checks them out
+            queuedBatches.remove(batch.serverContext, batch);
+            paths = new ArrayList<>(batch.paths);
+        }
+
+        logger.info("Checking out {} file(s) for edit", paths.size());
+        try {
+            final TfvcCheckoutResult result = checkout.checkoutForEdit(batch.serverContext, paths);
+            recordCheckouts(result);
+            batch.result.complete(result);
+        } catch (Throwable t) {
+            batch.result.completeExceptionally(t);
+        } finally {
+            synchronized (lock) {
+                for (final Path path : paths) {
+                    batchesByPath.remove(path, batch);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells whether the file has been checked out for edit in the last {@link #RECENT_CHECKOUT_MILLIS}. The editor
+     * checks a file out on its first change, before the change is saved: until then, the file is still identical to
+     * its workspace version.
+     */
+    public boolean isRecentlyCheckedOut(@NotNull final Path path) {
+        final Long checkoutTime = recentCheckouts.get(path);
+        return checkoutTime != null && !isExpired(checkoutTime, System.nanoTime());
+    }
+
+    private void recordCheckouts(final TfvcCheckoutResult result) {
+        final long now = System.nanoTime();
+        recentCheckouts.values().removeIf(checkoutTime -> isExpired(checkoutTime, now));
+        for (final TfsLocalPath file : result.getCheckedOutFiles()) {
+            recentCheckouts.put(Paths.get(file.getPath()), now);
+        }
+    }
+
+    private static boolean isExpired(final long checkoutTime, final long now) {
+        return now - checkoutTime >= TimeUnit.MILLISECONDS.toNanos(RECENT_CHECKOUT_MILLIS);
+    }
+
+    private static TfvcCheckoutResult getResult(final Batch batch) {
+        try {
+            return batch.result.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static boolean mentionsAny(final String message, final Iterable<Path> paths) {
+        for (final Path path : paths) {
+            if (message.contains(path.toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Batch {
+        final ServerContext serverContext;
+        // guarded by the coordinator lock until the batch runs
+        final Set<Path> paths = new LinkedHashSet<>();
+        final CompletableFuture<TfvcCheckoutResult> result = new CompletableFuture<>();
+
+        Batch(final ServerContext serverContext) {
+            this.serverContext = serverContext;
+        }
+    }
+}
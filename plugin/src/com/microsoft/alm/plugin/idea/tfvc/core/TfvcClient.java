@@ -284,4 +284,52 @@ public interface TfvcClient {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Checks in the pending changes of the files asynchronously.
+     *
+     * @param serverContext   a server context to extract the authorization information from.
+     * @param files           the files to check in.
+     * @param comment         the checkin comment.
+     * @param workItemIds     the ids of the work items to associate with the changeset.
+     * @param onItemCheckedIn callback that will be called with the path of every item as it's uploaded (local path if
+     *                        the item exists locally, server path otherwise). Should be free-threaded. Implementations
+     *                        that can't report the progress of a checkin won't call it.
+     * @return a completion stage with the checkin result that will be resolved when the operation ends.
+     */
+    @NotNull
+    CompletionStage<TfvcCheckinResult> checkinFilesAsync(
+            @NotNull ServerContext serverContext,
+            @NotNull List<String> files,
+            @NotNull String comment,
+            @NotNull List<Integer> workItemIds,
+            @NotNull Consumer<String> onItemCheckedIn);
+
+    /**
+     * Checks in the pending changes of the files.
+     *
+     * @param serverContext   a server context to extract the authorization information from.
+     * @param files           the files to check in.
+     * @param comment         the checkin comment.
+     * @param workItemIds     the ids of the work items to associate with the changeset.
+     * @param onItemCheckedIn callback that will be called with the path of every item as it's uploaded (local path if
+     *                        the item exists locally, server path otherwise). Should be free-threaded. Implementations
+     *                        that can't report the progress of a checkin won't call it.
+     * @return the checkin result.
+     */
+    @NotNull
+    default TfvcCheckinResult checkinFiles(
+            @NotNull ServerContext serverContext,
+            @NotNull List<String> files,
+            @NotNull String comment,
+            @NotNull List<Integer> workItemIds,
+            @NotNull Consumer<String> onItemCheckedIn) {
+        try {
+            return checkinFilesAsync(serverContext, files, comment, workItemIds, onItemCheckedIn)
+                    .toCompletableFuture()
+                    .get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -30,10 +30,7 @@ public class TfvcEditFileProvider implements EditFileProvider {
         List<Path> paths = Stream.of(files).map(file -> Paths.get(file.getPath())).collect(Collectors.toList());
 
         ServerContext serverContext = myVcs.getServerContext(true);
-        TfvcCheckoutResult result = TfvcClient.getInstance(myVcs.getProject()).checkoutForEdit(
-                serverContext,
-                paths,
-                false);
+        TfvcCheckoutResult result = myVcs.getCheckoutCoordinator().checkoutForEdit(serverContext, paths);
         TfvcCheckoutResultUtils.verify(result);
     }
 
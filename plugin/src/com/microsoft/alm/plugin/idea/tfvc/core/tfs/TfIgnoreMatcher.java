@@ -0,0 +1,201 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.tfvc.core.tfs;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tells whether unversioned items are ignored by the .tfignore files of their workspace, without running tf.
+ * <p/>
+ * The .tfignore files are read from the directory of the item up to the root, and the nearest file with a rule
+ * matching the item decides. The compiled rules are cached per directory (including the absence of a .tfignore file)
+ * and invalidated by the VFS events on .tfignore files.
+ */
+public class TfIgnoreMatcher implements BulkFileListener {
+    private static final Logger logger = LoggerFactory.getLogger(TfIgnoreMatcher.class);
+
+    private final ConcurrentMap<Path, TfIgnoreRules> rulesByDirectory = new ConcurrentHashMap<>();
+
+    /**
+     * Checks whether an item is ignored.
+     *
+     * @param root        the root directory of the workspace mapping (or the VCS root) containing the item; .tfignore
+     *                    files above it are not read
+     * @param item        the item to check
+     * @param isDirectory whether the item is a directory
+     * @return true if a .tfignore file ignores the item
+     */
+    public boolean isIgnored(@NotNull final Path root, @NotNull final Path item, final boolean isDirectory) {
+        final Path normalizedRoot = root.toAbsolutePath().normalize();
+        final Path normalizedItem = item.toAbsolutePath().normalize();
+        if (!normalizedItem.startsWith(normalizedRoot) || normalizedItem.equals(normalizedRoot)) {
+            return false;
+        }
+
+        for (Path directory = normalizedItem.getParent();
+             directory != null && directory.startsWith(normalizedRoot);
+             directory = directory.getParent()) {
+            final TfIgnoreRules rules = getRules(directory);
+            if (rules.isEmpty()) {
+                continue;
+            }
+
+            final Boolean result = rules.match(getComponents(directory.relativize(normalizedItem)), isDirectory);
+            if (result != null) {
+                return result;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Drops the cached rules of the .tfignore file in the directory
+     */
+    public void invalidate(@NotNull final Path directory) {
+        rulesByDirectory.remove(directory.toAbsolutePath().normalize());
+    }
+
+    public void invalidateAll() {
+        rulesByDirectory.clear();
+    }
+
+    @Override
+    public void before(@NotNull final List<? extends VFileEvent> events) {
+    }
+
+    @Override
+    public void after(@NotNull final List<? extends VFileEvent> events) {
+        for (final VFileEvent event : events) {
+            final String oldPath = getOldPath(event);
+            if (isTfIgnore(event.getPath()) || oldPath != null && isTfIgnore(oldPath)) {
+                invalidateParentOf(event.getPath());
+                if (oldPath != null) {
+                    invalidateParentOf(oldPath);
+                }
+            } else if (oldPath != null || event instanceof VFileDeleteEvent) {
+                final VirtualFile file = event.getFile();
+                if (file == null || file.isDirectory()) {
+                    // the .tfignore files of the subtree are now elsewhere; this is rare enough to start over
+                    invalidateAll();
+                }
+            }
+        }
+    }
+
+    @NotNull
+    private TfIgnoreRules getRules(@NotNull final Path directory) {
+        return rulesByDirectory.computeIfAbsent(directory, TfIgnoreMatcher::readRules);
+    }
+
+    @NotNull
+    private static TfIgnoreRules readRules(@NotNull final Path directory) {
+        final Path tfIgnore = directory.resolve(TfIgnoreUtil.TFIGNORE_FILE_NAME);
+        if (!Files.isRegularFile(tfIgnore)) {
+            return TfIgnoreRules.EMPTY;
+        }
+
+        try {
+            return TfIgnoreRules.parse(decodeLines(Files.readAllBytes(tfIgnore)));
+        } catch (IOException e) {
+            logger.warn("Could not read " + tfIgnore, e);
+            return TfIgnoreRules.EMPTY;
+        }
+    }
+
+    /**
+     * Decodes the lines of a .tfignore file like tf does: Visual Studio writes them in UTF-16 with a byte order mark,
+     * other editors in UTF-8 with or without one. The byte order mark isn't part of the first line.
+     */
+    @NotNull
+    static List<String> decodeLines(@NotNull final byte[] content) {
+        Charset charset = StandardCharsets.UTF_8;
+        int offset = 0;
+        if (startsWith(content, 0xEF, 0xBB, 0xBF)) {
+            offset = 3;
+        } else if (startsWith(content, 0xFF, 0xFE)) {
+            charset = StandardCharsets.UTF_16LE;
+            offset = 2;
+        } else if (startsWith(content, 0xFE, 0xFF)) {
+            charset = StandardCharsets.UTF_16BE;
+            offset = 2;
+        }
+
+        // malformed bytes are replaced, so that the other rules still apply
+        final String text = new String(content, offset, content.length - offset, charset);
+        return Arrays.asList(text.split("\\r\\n|\\r|\\n"));
+    }
+
+    private static boolean startsWith(@NotNull final byte[] content, final int... prefix) {
+        if (content.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((content[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void invalidateParentOf(@NotNull final String tfIgnorePath) {
+        try {
+            final Path directory = Paths.get(tfIgnorePath).getParent();
+            if (directory != null) {
+                invalidate(directory);
+            }
+        } catch (InvalidPathException e) {
+            invalidateAll();
+        }
+    }
+
+    private static boolean isTfIgnore(@NotNull final String path) {
+        return path.endsWith("/" + TfIgnoreUtil.TFIGNORE_FILE_NAME);
+    }
+
+    /**
+     * Returns the path of the file before the event if the event moves or renames it, null otherwise
+     */
+    @Nullable
+    private static String getOldPath(@NotNull final VFileEvent event) {
+        if (event instanceof VFileMoveEvent) {
+            return ((VFileMoveEvent) event).getOldParent().getPath() + "/" + ((VFileMoveEvent) event).getFile().getName();
+        }
+        if (event instanceof VFilePropertyChangeEvent
+                && VirtualFile.PROP_NAME.equals(((VFilePropertyChangeEvent) event).getPropertyName())) {
+            final String path = event.getPath();
+            return path.substring(0, path.lastIndexOf('/') + 1) + ((VFilePropertyChangeEvent) event).getOldValue();
+        }
+        return null;
+    }
+
+    private static String[] getComponents(@NotNull final Path relativePath) {
+        final String[] components = new String[relativePath.getNameCount()];
+        for (int i = 0; i < components.length; i++) {
+            components[i] = relativePath.getName(i).toString();
+        }
+        return components;
+    }
+}
@@ -0,0 +1,173 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.tfvc.core.tfs;
+
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compiled rules of one .tfignore file, following the TFVC semantics:
+ * <ul>
+ * <li>empty lines and lines starting with # are skipped;</li>
+ * <li>a filespec applies to the directory of the .tfignore file and all its subdirectories, unless it starts with \
+ * (or /), which anchors it to the directory of the .tfignore file;</li>
+ * <li>a filespec may contain * and ? wildcards and several path components; names are compared ignoring case;</li>
+ * <li>a filespec matching a directory ignores everything under it; a filespec ending with \ only matches
+ * directories;</li>
+ * <li>a filespec starting with ! excludes the matching items from being ignored, and wins over the other filespecs of
+ * the file.</li>
+ * </ul>
+ */
+public class TfIgnoreRules {
+    public static final TfIgnoreRules EMPTY = new TfIgnoreRules(Collections.emptyList(), Collections.emptyList());
+
+    private final List<Rule> ignores;
+    private final List<Rule> exclusions;
+
+    private TfIgnoreRules(final List<Rule> ignores, final List<Rule> exclusions) {
+        this.ignores = ignores;
+        this.exclusions = exclusions;
+    }
+
+    @NotNull
+    public static TfIgnoreRules parse(@NotNull final List<String> lines) {
+        final List<Rule> ignores = new ArrayList<>();
+        final List<Rule> exclusions = new ArrayList<>();
+        for (final String line : lines) {
+            String filespec = line.trim();
+            if (filespec.isEmpty() || filespec.startsWith("#")) {
+                continue;
+            }
+
+            final boolean isExclusion = filespec.startsWith("!");
+            if (isExclusion) {
+                filespec = filespec.substring(1).trim();
+            }
+
+            final Rule rule = Rule.compile(filespec);
+            if (rule != null) {
+                (isExclusion ? exclusions : ignores).add(rule);
+            }
+        }
+
+        return ignores.isEmpty() && exclusions.isEmpty() ? EMPTY : new TfIgnoreRules(ignores, exclusions);
+    }
+
+    public boolean isEmpty() {
+        return ignores.isEmpty() && exclusions.isEmpty();
+    }
+
+    /**
+     * Matches an item against the rules.
+     *
+     * @param components  path components of the item relative to the directory of the .tfignore file
+     * @param isDirectory whether the item is a directory
+     * @return {@link Boolean#TRUE} if the item is ignored, {@link Boolean#FALSE} if it is excluded from being ignored,
+     * or null if no rule matches it
+     */
+    @Nullable
+    public Boolean match(@NotNull final String[] components, final boolean isDirectory) {
+        for (final Rule rule : exclusions) {
+            if (rule.matches(components, isDirectory)) {
+                return Boolean.FALSE;
+            }
+        }
+        for (final Rule rule : ignores) {
+            if (rule.matches(components, isDirectory)) {
+                return Boolean.TRUE;
+            }
+        }
+        return null;
+    }
+
+    private static class Rule {
+        private final String[] segments;
+        private final boolean isAnchored;
+        private final boolean isDirectoryOnly;
+
+        private Rule(final String[] segments, final boolean isAnchored, final boolean isDirectoryOnly) {
+            this.segments = segments;
+            this.isAnchored = isAnchored;
+            this.isDirectoryOnly = isDirectoryOnly;
+        }
+
+        @Nullable
+        static Rule compile(final String filespec) {
+            final String normalized = filespec.replace('\\', '/');
+            final boolean isAnchored = normalized.startsWith("/");
+            final boolean isDirectoryOnly = normalized.endsWith("/");
+            final String[] segments = StringUtils.split(normalized, '/');
+            return segments.length == 0 ? null : new Rule(segments, isAnchored, isDirectoryOnly);
+        }
+
+        /**
+         * The rule matches an item if its segments match consecutive components of the item path, starting from the
+         * first one for anchored rules. A match ending before the last component is a match of a parent directory.
+         */
+        boolean matches(final String[] components, final boolean isDirectory) {
+            final int lastStart = isAnchored ? 0 : components.length - segments.length;
+            for (int start = 0; start <= lastStart; start++) {
+                final int end = start + segments.length;
+                final boolean endsOnDirectory = end < components.length || isDirectory;
+                if ((!isDirectoryOnly || endsOnDirectory) && matchesAt(components, start)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matchesAt(final String[] components, final int start) {
+            if (start + segments.length > components.length) {
+                return false;
+            }
+            for (int i = 0; i < segments.length; i++) {
+                if (!matchesWildcard(segments[i], components[start + i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Matches a name against a pattern with * and ? wildcards, ignoring case
+     */
+    /* default */ static boolean matchesWildcard(final String pattern, final String name) {
+        int p = 0;
+        int n = 0;
+        int starPattern = -1;
+        int starName = 0;
+        while (n < name.length()) {
+            if (p < pattern.length() && pattern.charAt(p) == '*') {
+                starPattern = p++;
+                starName = n;
+            } else if (p < pattern.length()
+                    && (pattern.charAt(p) == '?' || equalsIgnoreCase(pattern.charAt(p), name.charAt(n)))) {
+                p++;
+                n++;
+            } else if (starPattern >= 0) {
+                // let the last * consume one more character and retry
+                p = starPattern + 1;
+                n = ++starName;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    private static boolean equalsIgnoreCase(final char c1, final char c2) {
+        return c1 == c2
+                || Character.toUpperCase(c1) == Character.toUpperCase(c2)
+                || Character.toLowerCase(c1) == Character.toLowerCase(c2);
+    }
+}
@@ -0,0 +1,326 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.tfvc.core.tfs;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * MD5 hashes of local files (the hash TFVC keeps for the content of every item version), cached by path, size and
+ * modification time and persisted across sessions, so that checking whether an edited file still has the content of
+ * its workspace version doesn't read the file again until it changes.
+ * <p/>
+ * Files are hashed on parallel workers. The hashes of the files that are no longer pending edits are evicted by
+ * {@link #retainUnder}. A file modified within
+ * {@link #RACY_WINDOW_MILLIS} of its hashing may change again without its modification time changing, so its hash is
+ * used but not cached.
+ */
+public class TfsContentHashCache implements Disposable {
+    private static final Logger logger = LoggerFactory.getLogger(TfsContentHashCache.class);
+
+    private static final int STORAGE_VERSION = 1;
+    private static final int HASH_LENGTH = 16;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final ThreadLocal<ByteBuffer> READ_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(READ_BUFFER_SIZE));
+    private static final int FILES_PER_TASK = 64;
+    /* default */ static final long RACY_WINDOW_MILLIS = 2000;
+
+    private final Path storageFile;
+    private final ExecutorService hashers;
+    private final ConcurrentMap<Path, Entry> entries = new ConcurrentHashMap<>();
+
+    public static TfsContentHashCache getInstance() {
+        return ServiceManager.getService(TfsContentHashCache.class);
+    }
+
+    @SuppressWarnings("unused") // used by the service manager
+    public TfsContentHashCache() {
+        this(
+                Paths.get(PathManager.getSystemPath(), "tfvc", "content-hashes.dat"),
+                AppExecutorUtil.createBoundedApplicationPoolExecutor(
+                        "TFVC Content Hashing", Runtime.getRuntime().availableProcessors()));
+        load();
+    }
+
+    /**
+     * @param storageFile where the cache is persisted by {@link #load()} and {@link #save()}
+     * @param hashers     runs the hashing of the files that aren't cached
+     */
+    public TfsContentHashCache(@NotNull final Path storageFile, @NotNull final ExecutorService hashers) {
+        this.storageFile = storageFile;
+        this.hashers = hashers;
+    }
+
+    /**
+     * Returns the MD5 hash of the file content, or null if the file can't be read
+     */
+    @Nullable
+    public byte[] getHash(@NotNull final Path file) {
+        return getHashes(Collections.singletonList(file)).get(file);
+    }
+
+    /**
+     * Returns the MD5 hashes of the contents of the files, hashing the ones that changed since they were cached in
+     * parallel. Files that can't be read (e.g. deleted ones) are missing from the result.
+     */
+    @NotNull
+    public Map<Path, byte[]> getHashes(@NotNull final Collection<Path> files) {
+        final Map<Path, byte[]> hashes = new HashMap<>(files.size());
+        final List<Path> misses = new ArrayList<>();
+        for (final Path file : new LinkedHashSet<>(files)) {
+            final Path key = file.toAbsolutePath().normalize();
+            final Entry entry = entries.get(key);
+            if (entry == null) {
+                misses.add(key);
+                continue;
+            }
+
+            final BasicFileAttributes attributes = readAttributes(key);
+            if (attributes == null) {
+                entries.remove(key, entry);
+            } else if (entry.matches(attributes)) {
+                hashes.put(file, entry.hash.clone());
+            } else {
+                misses.add(key);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            final Map<Path, byte[]> computed = computeHashes(misses);
+            for (final Path file : files) {
+                final byte[] hash = computed.get(file.toAbsolutePath().normalize());
+                if (hash != null) {
+                    hashes.put(file, hash);
+                }
+            }
+        }
+
+        return hashes;
+    }
+
+    /**
+     * Drops the cached hashes of the files, e.g. after they were replaced by a get with the same modification time
+     */
+    public void invalidate(@NotNull final Collection<Path> files) {
+        for (final Path file : files) {
+            entries.remove(file.toAbsolutePath().normalize());
+        }
+    }
+
+    /**
+     * Drops the cached hashes of the files under the roots (or being the roots) that aren't in the given set, e.g. the
+     * files that are no longer pending edits after a refresh of the roots
+     */
+    public void retainUnder(@NotNull final Collection<Path> roots, @NotNull final Collection<Path> files) {
+        final List<Path> normalizedRoots = new ArrayList<>(roots.size());
+        for (final Path root : roots) {
+            normalizedRoots.add(root.toAbsolutePath().normalize());
+        }
+        final Set<Path> retained = new HashSet<>(files.size());
+        for (final Path file : files) {
+            retained.add(file.toAbsolutePath().normalize());
+        }
+
+        entries.keySet().removeIf(path ->
+                !retained.contains(path) && normalizedRoots.stream().anyMatch(path::startsWith));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Reads the cache persisted by a previous session; a missing or unreadable storage starts an empty cache
+     */
+    public void load() {
+        if (!Files.isRegularFile(storageFile)) {
+            return;
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(storageFile)))) {
+            if (input.readInt() != STORAGE_VERSION) {
+                return;
+            }
+
+            final int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                final Path path = Paths.get(input.readUTF());
+                final long size = input.readLong();
+                final long lastModified = input.readLong();
+                final byte[] hash = new byte[HASH_LENGTH];
+                input.readFully(hash);
+                entries.putIfAbsent(path, new Entry(size, lastModified, hash));
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not read the content hash cache from " + storageFile, e);
+            entries.clear();
+        }
+    }
+
+    /**
+     * Persists the cache, replacing the previous storage atomically
+     */
+    public void save() {
+        try {
+            Files.createDirectories(storageFile.getParent());
+            final Path temporaryFile = storageFile.resolveSibling(storageFile.getFileName() + ".tmp");
+            final List<Map.Entry<Path, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporaryFile)))) {
+                output.writeInt(STORAGE_VERSION);
+                output.writeInt(snapshot.size());
+                for (final Map.Entry<Path, Entry> entry : snapshot) {
+                    output.writeUTF(entry.getKey().toString());
+                    output.writeLong(entry.getValue().size);
+                    output.writeLong(entry.getValue().lastModified);
+                    output.write(entry.getValue().hash);
+                }
+            }
+            Files.move(temporaryFile, storageFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not save the content hash cache to " + storageFile, e);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        save();
+        hashers.shutdown();
+    }
+
+    /**
+     * Calculates the MD5 hash of the file content. The file is read through a buffer reused by the thread rather than
+     * memory-mapped: on Windows a mapped file stays locked until the mapping is collected, which would fail the next
+     * get, undo or save of the file.
+     */
+    @NotNull
+    public static byte[] calculateMD5(@NotNull final Path file) throws IOException {
+        final MessageDigest digest = newDigest();
+        final ByteBuffer buffer = READ_BUFFER.get();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer.clear();
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return digest.digest();
+    }
+
+    private Map<Path, byte[]> computeHashes(final List<Path> files) {
+        final List<CompletableFuture<Map<Path, byte[]>>> tasks = new ArrayList<>();
+        for (int start = 0; start < files.size(); start += FILES_PER_TASK) {
+            final List<Path> chunk = files.subList(start, Math.min(start + FILES_PER_TASK, files.size()));
+            tasks.add(CompletableFuture.supplyAsync(() -> computeChunk(chunk), hashers));
+        }
+
+        final Map<Path, byte[]> hashes = new HashMap<>(files.size());
+        for (final CompletableFuture<Map<Path, byte[]>> task : tasks) {
+            hashes.putAll(task.join());
+        }
+        return hashes;
+    }
+
+    private Map<Path, byte[]> computeChunk(final List<Path> files) {
+        final Map<Path, byte[]> hashes = new HashMap<>(files.size());
+        for (final Path file : files) {
+            final long hashedAt = System.currentTimeMillis();
+            final BasicFileAttributes attributes = readAttributes(file);
+            if (attributes == null || !attributes.isRegularFile()) {
+                entries.remove(file);
+                continue;
+            }
+
+            try {
+                final byte[] hash = calculateMD5(file);
+                hashes.put(file, hash);
+
+                final long lastModified = attributes.lastModifiedTime().toMillis();
+                if (lastModified < hashedAt - RACY_WINDOW_MILLIS) {
+                    entries.put(file, new Entry(attributes.size(), lastModified, hash.clone()));
+                } else {
+                    entries.remove(file);
+                }
+            } catch (NoSuchFileException e) {
+                entries.remove(file);
+            } catch (IOException e) {
+                logger.warn("Could not hash " + file, e);
+                entries.remove(file);
+            }
+        }
+        return hashes;
+    }
+
+    @Nullable
+    private static BasicFileAttributes readAttributes(final Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            //noinspection HardCodedStringLiteral
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class Entry {
+        final long size;
+        final long lastModified;
+        final byte[] hash;
+
+        Entry(final long size, final long lastModified, final byte[] hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        boolean matches(final BasicFileAttributes attributes) {
+            return attributes.size() == size && attributes.lastModifiedTime().toMillis() == lastModified;
+        }
+    }
+}
@@ -28,12 +28,14 @@ import com.intellij.openapi.vcs.FileStatus;
 import com.intellij.openapi.vcs.FileStatusManager;
 import com.intellij.openapi.vcs.actions.VcsContextFactory;
 import com.intellij.openapi.vcs.changes.VcsDirtyScopeManager;
+import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.openapi.vfs.newvfs.RefreshQueue;
 import com.intellij.ui.GuiUtils;
 import com.intellij.util.io.ReadOnlyAttributeUtil;
+import com.intellij.vcsUtil.VcsUtil;
 import com.microsoft.alm.common.utils.ArgumentHelper;
 import com.microsoft.alm.plugin.external.models.Workspace;
 import com.microsoft.alm.plugin.idea.tfvc.exceptions.TfsException;
@@ -47,17 +49,12 @@ import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Path;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -242,6 +239,31 @@ public class TfsFileUtil {
         refreshAndMarkDirty(project, VfsUtil.toVirtualFileArray(roots), async);
     }
 
+    /**
+     * Refreshes the files (recursively for the directories among them) in one VFS refresh, then marks them dirty in one
+     * go, without resolving their virtual files one by one
+     */
+    public static void refreshFilesAndMarkDirty(final Project project, final Collection<File> files, boolean async) {
+        if (files.isEmpty()) {
+            return;
+        }
+
+        LocalFileSystem.getInstance().refreshIoFiles(files, async, true, () -> {
+            final List<FilePath> dirtyFiles = new ArrayList<>(files.size());
+            final List<FilePath> dirtyDirectories = new ArrayList<>();
+            for (final File file : files) {
+                if (file.isDirectory()) {
+                    dirtyDirectories.add(VcsUtil.getFilePath(file, true));
+                } else {
+                    dirtyFiles.add(VcsUtil.getFilePath(file, false));
+                }
+            }
+            if (!project.isDisposed()) {
+                VcsDirtyScopeManager.getInstance(project).filePathsDirty(dirtyFiles, dirtyDirectories);
+            }
+        });
+    }
+
     public static void refreshAndInvalidate(final Project project, final FilePath[] roots, boolean async) {
         VirtualFile[] files = new VirtualFile[roots.length];
         for (int i = 0; i < roots.length; i++) {
@@ -331,32 +353,7 @@ public class TfsFileUtil {
     }
 
     public static byte[] calculateMD5(File file) throws IOException {
-        final MessageDigest digest;
-        try {
-            //noinspection HardCodedStringLiteral
-            digest = MessageDigest.getInstance("MD5");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
-
-        InputStream is = null;
-        try {
-            is = new BufferedInputStream(new FileInputStream(file));
-            byte[] buffer = new byte[8192];
-            int read;
-            while ((read = is.read(buffer)) > 0) {
-                digest.update(buffer, 0, read);
-            }
-            return digest.digest();
-        } finally {
-            if (is != null) {
-                try {
-                    is.close();
-                } catch (IOException e) {
-                    // skip
-                }
-            }
-        }
+        return TfsContentHashCache.calculateMD5(file.toPath());
     }
 
     /**
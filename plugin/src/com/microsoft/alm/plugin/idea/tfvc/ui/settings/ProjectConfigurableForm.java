@@ -34,6 +34,7 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.ui.HyperlinkLabel;
 import com.microsoft.alm.plugin.external.exceptions.ToolException;
 import com.microsoft.alm.plugin.external.exceptions.ToolVersionException;
+import com.microsoft.alm.plugin.external.reactive.BackendHealthMonitor;
 import com.microsoft.alm.plugin.external.reactive.ReactiveTfvcClientHost;
 import com.microsoft.alm.plugin.external.tools.TfTool;
 import com.microsoft.alm.plugin.external.visualstudio.VisualStudioTfvcClient;
@@ -82,6 +83,8 @@ public class ProjectConfigurableForm {
     private JLabel reactiveClientMemoryLimitLabel;
     private JSpinner reactiveClientMemoryLimitSpinner;
     private JLabel reactiveClientMemoryLimitInfo;
+    private JCheckBox undoContentIdenticalEditsCheckBox;
+    private JCheckBox prewarmReactiveClientCheckBox;
     private String originalTfLocation = StringUtils.EMPTY;
     private String originalVsClientPath = StringUtils.EMPTY;
 
@@ -264,6 +267,8 @@ public class ProjectConfigurableForm {
         boolean isReactiveClientEnabled = "true".equalsIgnoreCase(
                 propertyService.getProperty(PropertyService.PROP_TFVC_USE_REACTIVE_CLIENT));
         useReactiveClientCheckBox.setSelected(isReactiveClientEnabled);
+        undoContentIdenticalEditsCheckBox.setSelected(isUndoContentIdenticalEditsEnabled(propertyService));
+        prewarmReactiveClientCheckBox.setSelected(isPrewarmReactiveClientEnabled(propertyService));
 
         if (SystemInfo.isWindows) {
             Path visualStudioTfLocation = VisualStudioTfvcClient.getOrDetectPath(propertyService);
@@ -275,7 +280,7 @@ public class ProjectConfigurableForm {
 
         refreshReactiveClientMemoryLimitAvailability();
         String reactiveClientMemory = propertyService.getProperty(PropertyService.PROP_REACTIVE_CLIENT_MEMORY);
-        reactiveClientMemoryLimitSpinner.setValue(ReactiveTfvcClientHost.REACTIVE_CLIENT_DEFAULT_MEMORY_LIMIT);
+        reactiveClientMemoryLimitSpinner.setValue(BackendHealthMonitor.AUTOMATIC_HEAP_LIMIT);
         if (reactiveClientMemory != null) {
             try {
                 int memory = Integer.parseInt(reactiveClientMemory);
@@ -294,6 +299,12 @@ public class ProjectConfigurableForm {
         propertyService.setProperty(
                 PropertyService.PROP_TFVC_USE_REACTIVE_CLIENT,
                 isReactiveClientEnabled ? "true" : "false");
+        propertyService.setProperty(
+                PropertyService.PROP_TFVC_UNDO_CONTENT_IDENTICAL_EDITS,
+                undoContentIdenticalEditsCheckBox.isSelected() ? "true" : "false");
+        propertyService.setProperty(
+                PropertyService.PROP_REACTIVE_CLIENT_PREWARM,
+                prewarmReactiveClientCheckBox.isSelected() ? "true" : "false");
 
         if (reactiveClientMemoryLimitSpinner.isEnabled()) {
             propertyService.setProperty(
@@ -312,6 +323,8 @@ public class ProjectConfigurableForm {
                 propertyService.getProperty(PropertyService.PROP_TFVC_USE_REACTIVE_CLIENT));
         return !(propertyService.getProperty(PropertyService.PROP_TF_HOME).equals(getCurrentExecutablePath())
                 && isReactiveClientEnabled == useReactiveClientCheckBox.isSelected()
+                && isUndoContentIdenticalEditsEnabled(propertyService) == undoContentIdenticalEditsCheckBox.isSelected()
+                && isPrewarmReactiveClientEnabled(propertyService) == prewarmReactiveClientCheckBox.isSelected()
                 && Objects.equals(
                         propertyService.getProperty(PropertyService.PROP_VISUAL_STUDIO_TF_CLIENT_PATH),
                         getCurrentVisualStudioClientPath())
@@ -328,10 +341,21 @@ public class ProjectConfigurableForm {
         boolean isReactiveClientEnabled = "true".equalsIgnoreCase(
                 propertyService.getProperty(PropertyService.PROP_TFVC_USE_REACTIVE_CLIENT));
         useReactiveClientCheckBox.setSelected(isReactiveClientEnabled);
+        undoContentIdenticalEditsCheckBox.setSelected(isUndoContentIdenticalEditsEnabled(propertyService));
+        prewarmReactiveClientCheckBox.setSelected(isPrewarmReactiveClientEnabled(propertyService));
 
         visualStudioClientField.setText(originalVsClientPath);
     }
 
+    private static boolean isUndoContentIdenticalEditsEnabled(PropertyService propertyService) {
+        return "true".equalsIgnoreCase(
+                propertyService.getProperty(PropertyService.PROP_TFVC_UNDO_CONTENT_IDENTICAL_EDITS));
+    }
+
+    private static boolean isPrewarmReactiveClientEnabled(PropertyService propertyService) {
+        return "true".equalsIgnoreCase(propertyService.getProperty(PropertyService.PROP_REACTIVE_CLIENT_PREWARM));
+    }
+
     private void testVisualStudioClient() {
         String visualStudioClientPathString = getCurrentVisualStudioClientPath();
         if (StringUtils.isEmpty(visualStudioClientPathString)) {
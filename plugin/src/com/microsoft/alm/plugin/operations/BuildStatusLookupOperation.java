@@ -139,6 +139,12 @@ public class BuildStatusLookupOperation extends Operation {
         this.forcePrompt = forcePrompt;
     }
 
+    @Override
+    protected OperationExecutor.Priority getPriority() {
+        // The status bar refreshes the build status periodically, so it should never delay work the user waits for
+        return OperationExecutor.Priority.POLLING;
+    }
+
     @Override
     public void doWork(final Inputs inputs) {
         try {
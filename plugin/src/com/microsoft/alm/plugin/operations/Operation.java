@@ -77,7 +77,8 @@ public abstract class Operation {
 
     private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
     private final UUID id;
-    private State state;
+    private volatile State state;
+    private volatile Future future;
 
     // This constructor is protected to make sure users don't create one directly
     protected Operation() {
@@ -115,8 +116,30 @@ public abstract class Operation {
 
     public abstract void doWork(final Inputs inputs);
 
+    /**
+     * The executor lane this operation is queued in by {@link #doWorkAsync(Inputs)}. Operations are assumed to be
+     * started by the user unless they say otherwise.
+     */
+    protected OperationExecutor.Priority getPriority() {
+        return OperationExecutor.Priority.INTERACTIVE;
+    }
+
+    /**
+     * Called by the executor with the work queued for this operation, so cancelling the operation can stop the work
+     * before it starts.
+     */
+    void setFuture(final Future future) {
+        this.future = future;
+    }
+
     public void cancel() {
         state = State.CANCELLED;
+
+        // Work that is already running checks isCancelled() itself; queued work is simply never started
+        final Future queuedWork = future;
+        if (queuedWork != null) {
+            queuedWork.cancel(false);
+        }
     }
 
     protected void terminate(final Throwable throwable) {
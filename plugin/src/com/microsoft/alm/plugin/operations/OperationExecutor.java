@@ -7,29 +7,57 @@ import com.microsoft.alm.plugin.exceptions.TeamServicesException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Runs operations and their sub tasks on a small pool of threads.
+ * <p>
+ * Work is queued in priority lanes: interactive work (lookups the user is waiting for in a dialog) always runs before
+ * background work, which in turn runs before polling work (e.g. status bar refreshes). Within a lane work is run in
+ * the order it was submitted.
+ */
 public class OperationExecutor {
     private static final Logger logger = LoggerFactory.getLogger(OperationExecutor.class);
     final int THREAD_RECOVERY_TIMEOUT_SECONDS = 5;
     // For now we are limiting ourselves to 5 threads (single threaded is way too slow)
-    final int MAX_THREADS = 5;
-    // No need for Core threads and Max threads to be different
-    final int CORE_THREADS = MAX_THREADS;
+    static final int MAX_THREADS = 5;
     //timeout for each task
     final long TASK_TIMEOUT_SECONDS = 120L;
 
-    // The number of items that can be in the Queue needs to be bigger than the number of threads (10x is somewhat arbitrary)
-    final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<Runnable>(MAX_THREADS * 10);
-    final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(CORE_THREADS, MAX_THREADS, THREAD_RECOVERY_TIMEOUT_SECONDS, TimeUnit.SECONDS, queue);
+    /**
+     * The lanes work can be queued in, from the most urgent to the least urgent one.
+     */
+    public enum Priority {INTERACTIVE, BACKGROUND, POLLING}
+
+    // Sub tasks submitted from a pool thread inherit the priority of the work running on that thread, so an
+    // operation never waits on its own sub tasks sitting behind less urgent work
+    private static final ThreadLocal<Priority> currentPriority = new ThreadLocal<Priority>();
+
+    // The number of items that can be in the Queue needs to be bigger than the number of threads (10x is somewhat arbitrary).
+    // When the queue is over capacity polling work is dropped (it will be requested again on the next poll) while
+    // other work is still accepted and counted as overflow.
+    static final int QUEUE_CAPACITY = MAX_THREADS * 10;
+    final int queueCapacity;
+    final BlockingQueue<Runnable> queue = new PriorityBlockingQueue<Runnable>();
+    final ThreadPoolExecutor threadPoolExecutor;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Priority, LaneStatistics> lanes = new EnumMap<Priority, LaneStatistics>(Priority.class);
 
     private static class Holder {
         public final static OperationExecutor INSTANCE = new OperationExecutor();
@@ -39,8 +67,27 @@ public class OperationExecutor {
         return Holder.INSTANCE;
     }
 
+    public OperationExecutor() {
+        this(MAX_THREADS, QUEUE_CAPACITY);
+    }
+
+    OperationExecutor(final int threadCount, final int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+        // Core threads and max threads have to be the same: the priority queue is never full, so the executor
+        // would never grow the pool beyond the core threads
+        this.threadPoolExecutor = new ThreadPoolExecutor(threadCount, threadCount, THREAD_RECOVERY_TIMEOUT_SECONDS, TimeUnit.SECONDS, queue);
+        this.threadPoolExecutor.allowCoreThreadTimeOut(true);
+        for (final Priority priority : Priority.values()) {
+            lanes.put(priority, new LaneStatistics());
+        }
+    }
+
     public UUID executeAsync(final Operation operation, final Operation.Inputs inputs) {
-        execute(operation, inputs);
+        return executeAsync(operation, inputs, operation.getPriority());
+    }
+
+    public UUID executeAsync(final Operation operation, final Operation.Inputs inputs, final Priority priority) {
+        execute(operation, inputs, priority);
         return operation.getId();
     }
 
@@ -48,10 +95,19 @@ public class OperationExecutor {
         return queue.size();
     }
 
-    private synchronized void execute(final Operation operation, final Operation.Inputs inputs) {
-        threadPoolExecutor.execute(new Runnable() {
+    public int getQueueSize(final Priority priority) {
+        return lanes.get(priority).queued.get();
+    }
+
+    private void execute(final Operation operation, final Operation.Inputs inputs, final Priority priority) {
+        final PrioritizedTask task = new PrioritizedTask(priority, new Runnable() {
             @Override
             public void run() {
+                if (operation.isCancelled()) {
+                    logger.info("execute: operation {} was cancelled before it started", operation.getId());
+                    return;
+                }
+
                 try {
                     operation.doWork(inputs);
                 } catch (Throwable t) {
@@ -62,27 +118,80 @@ public class OperationExecutor {
                 }
             }
         });
+
+        // Let the operation cancel the queued work if it is cancelled before a thread picks it up
+        operation.setFuture(task);
+        if (!enqueue(task)) {
+            operation.terminate(new RejectedExecutionException("Operation rejected: " + operation.getId()));
+        }
     }
 
+    /**
+     * Submits a sub task at the priority of the calling pool thread, or at background priority when called from
+     * outside of the pool.
+     */
     public Future submitOperationTask(Runnable task) {
-        return threadPoolExecutor.submit(task);
+        final Priority priority = currentPriority.get();
+        return submitOperationTask(priority != null ? priority : Priority.BACKGROUND, task);
+    }
+
+    public Future submitOperationTask(final Priority priority, final Runnable task) {
+        final PrioritizedTask prioritizedTask = new PrioritizedTask(priority, task);
+        enqueue(prioritizedTask);
+        return prioritizedTask;
+    }
+
+    /**
+     * Queues the task unless it has to be rejected. Rejected tasks are cancelled so that nobody waits on them.
+     *
+     * @return true if the task was queued
+     */
+    private boolean enqueue(final PrioritizedTask task) {
+        final LaneStatistics lane = lanes.get(task.priority);
+        if (queue.size() >= queueCapacity) {
+            if (task.priority == Priority.POLLING) {
+                logger.warn("enqueue: queue is full, dropping polling task");
+                lane.rejected.incrementAndGet();
+                task.cancel(false);
+                return false;
+            }
+            lane.overflowed.incrementAndGet();
+        }
+
+        lane.queued.incrementAndGet();
+        try {
+            threadPoolExecutor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Only happens after a shutdown
+            logger.warn("enqueue: task rejected", e);
+            lane.queued.decrementAndGet();
+            lane.rejected.incrementAndGet();
+            task.cancel(false);
+            return false;
+        }
     }
 
     public void wait(List<Future> futures) {
-        //TODO: can we call get on the futures in parallel. If there are multiple ones that timeout, overall timeout might be long
+        // The timeout applies to the whole batch, so several slow tasks can't add up to several timeouts
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TASK_TIMEOUT_SECONDS);
         Throwable t = null;
         for (Future f : futures) {
             try {
-                f.get(TASK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                f.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
             } catch (InterruptedException e) {
                 t = e;
                 logger.warn("wait: InterruptedException", e);
             } catch (TimeoutException te) {
                 t = te;
                 logger.warn("wait: TimeoutException", te);
+                // Nobody is waiting for the result anymore, so don't let it take a thread away from other work
+                f.cancel(true);
             } catch (ExecutionException ee) {
                 logger.warn("wait: ExecutionException", ee);
                 t = ee;
+            } catch (CancellationException ce) {
+                logger.info("wait: task was cancelled");
             }
         }
 
@@ -91,7 +200,157 @@ public class OperationExecutor {
         }
     }
 
+    public Statistics getStatistics(final Priority priority) {
+        final LaneStatistics lane = lanes.get(priority);
+        return new Statistics(priority, lane.queued.get(), lane.completed.get(), lane.rejected.get(),
+                lane.overflowed.get(), lane.totalWaitNanos.get(), lane.maxWaitNanos.get(), lane.totalRunNanos.get());
+    }
+
     public void shutdown() {
         threadPoolExecutor.shutdown();
     }
+
+    /**
+     * A snapshot of the counters of a single priority lane.
+     */
+    public static class Statistics {
+        private final Priority priority;
+        private final int queueDepth;
+        private final long completedCount;
+        private final long rejectedCount;
+        private final long overflowCount;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final long totalRunNanos;
+
+        public Statistics(final Priority priority, final int queueDepth, final long completedCount,
+                          final long rejectedCount, final long overflowCount, final long totalWaitNanos,
+                          final long maxWaitNanos, final long totalRunNanos) {
+            this.priority = priority;
+            this.queueDepth = queueDepth;
+            this.completedCount = completedCount;
+            this.rejectedCount = rejectedCount;
+            this.overflowCount = overflowCount;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.totalRunNanos = totalRunNanos;
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public long getCompletedCount() {
+            return completedCount;
+        }
+
+        public long getRejectedCount() {
+            return rejectedCount;
+        }
+
+        public long getOverflowCount() {
+            return overflowCount;
+        }
+
+        public long getMaxWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+        }
+
+        public long getAverageWaitMillis() {
+            return completedCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos / completedCount);
+        }
+
+        public long getAverageRunMillis() {
+            return completedCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalRunNanos / completedCount);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: queued=%d, completed=%d, rejected=%d, overflow=%d, avgWait=%dms, maxWait=%dms, avgRun=%dms",
+                    priority, queueDepth, completedCount, rejectedCount, overflowCount, getAverageWaitMillis(),
+                    getMaxWaitMillis(), getAverageRunMillis());
+        }
+    }
+
+    private static class LaneStatistics {
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong overflowed = new AtomicLong();
+        final AtomicLong totalWaitNanos = new AtomicLong();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+        final AtomicLong totalRunNanos = new AtomicLong();
+    }
+
+    private class PrioritizedTask extends FutureTask<Object> implements Comparable<PrioritizedTask> {
+        private final Priority priority;
+        private final long order = sequence.getAndIncrement();
+        private final long queuedAt = System.nanoTime();
+        private long startedAt;
+
+        PrioritizedTask(final Priority priority, final Runnable runnable) {
+            super(runnable, null);
+            this.priority = priority;
+        }
+
+        @Override
+        public void run() {
+            final LaneStatistics lane = lanes.get(priority);
+            startedAt = System.nanoTime();
+            final long waited = startedAt - queuedAt;
+            lane.queued.decrementAndGet();
+            lane.totalWaitNanos.addAndGet(waited);
+            long max;
+            while (waited > (max = lane.maxWaitNanos.get()) && !lane.maxWaitNanos.compareAndSet(max, waited)) {
+                // retry until the maximum is updated
+            }
+
+            final Priority previous = currentPriority.get();
+            currentPriority.set(priority);
+            try {
+                super.run();
+            } finally {
+                currentPriority.set(previous);
+            }
+        }
+
+        // The counters are updated before the result is published, so they are current for anyone waiting on the task
+        @Override
+        protected void set(final Object result) {
+            recordCompletion();
+            super.set(result);
+        }
+
+        @Override
+        protected void setException(final Throwable t) {
+            recordCompletion();
+            super.setException(t);
+        }
+
+        // A cancelled task left in the queue would hold a slot of the queue capacity until a thread gets to it
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            final boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && threadPoolExecutor.remove(this)) {
+                lanes.get(priority).queued.decrementAndGet();
+            }
+            return cancelled;
+        }
+
+        private void recordCompletion() {
+            final LaneStatistics lane = lanes.get(priority);
+            lane.totalRunNanos.addAndGet(System.nanoTime() - startedAt);
+            lane.completed.incrementAndGet();
+        }
+
+        @Override
+        public int compareTo(final PrioritizedTask other) {
+            final int result = priority.compareTo(other.priority);
+            return result != 0 ? result : Long.compare(order, other.order);
+        }
+    }
 }
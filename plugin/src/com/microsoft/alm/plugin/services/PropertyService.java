@@ -11,9 +11,16 @@ public interface PropertyService {
     String PROP_TF_HOME = "tfHome";
     String PROP_AUTH_TYPE = "authType";
     String PROP_REACTIVE_CLIENT_MEMORY = "reactiveClientMemory";
+    String PROP_REACTIVE_CLIENT_CHUNKS_IN_FLIGHT = "reactiveClientChunksInFlight";
+    String PROP_REACTIVE_CLIENT_COLLECTION_IDLE_MINUTES = "reactiveClientCollectionIdleMinutes";
+    String PROP_REACTIVE_CLIENT_HEARTBEAT_DEADLINE_SECONDS = "reactiveClientHeartbeatDeadlineSeconds";
+    String PROP_REACTIVE_CLIENT_PEAK_HEAP = "reactiveClientPeakHeap";
+    String PROP_REACTIVE_CLIENT_WORKSPACE_ITEMS = "reactiveClientWorkspaceItems";
+    String PROP_REACTIVE_CLIENT_PREWARM = "reactiveClientPrewarm";
     String PROP_TF_SDK_EULA_ACCEPTED = "tfSdkEulaAccepted";
     String PROP_TFVC_USE_REACTIVE_CLIENT = "tfvcUseReactiveClient";
     String PROP_VISUAL_STUDIO_TF_CLIENT_PATH = "visualStudioTfClientPath";
+    String PROP_TFVC_UNDO_CONTENT_IDENTICAL_EDITS = "tfvcUndoContentIdenticalEdits";
 
     @NotNull
     static PropertyService getInstance() {
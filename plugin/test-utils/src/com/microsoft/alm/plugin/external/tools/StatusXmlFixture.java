@@ -0,0 +1,41 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.tools;
+
+import java.io.IOException;
+
+/**
+ * Generates the XML output of "status -format:xml" for the fake tf client and the benchmarks, so that both measure the
+ * same data
+ */
+public final class StatusXmlFixture {
+    private static final String[] CHANGE_TYPES = {"edit", "add", "delete", "edit, rename"};
+    public static final int FILES_PER_FOLDER = 200;
+
+    private StatusXmlFixture() {
+    }
+
+    /**
+     * Writes the output for a workspace with the given number of pending changes under the local root: a mix of edits,
+     * adds, deletes and renames in folders of {@value #FILES_PER_FOLDER} files
+     */
+    public static void write(final Appendable output, final String localRoot, final int changeCount)
+            throws IOException {
+        output.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<status>\n<pending-changes>\n");
+        for (int i = 0; i < changeCount; i++) {
+            final String relativePath = "folder" + (i / FILES_PER_FOLDER) + "/File" + i + ".java";
+            final String changeType = CHANGE_TYPES[i % CHANGE_TYPES.length];
+            output.append("<pending-change server-item=\"$/project/").append(relativePath)
+                    .append("\" version=\"").append(String.valueOf(i + 1))
+                    .append("\" owner=\"user\" date=\"2019-04-01T12:00:00.000-0400\" lock=\"none\" change-type=\"")
+                    .append(changeType).append("\" workspace=\"workspace\" computer=\"computer\" local-item=\"")
+                    .append(localRoot).append('/').append(relativePath).append('"');
+            if (changeType.contains("rename")) {
+                output.append(" source-item=\"$/project/old/").append(relativePath).append('"');
+            }
+            output.append("/>\n");
+        }
+        output.append("</pending-changes>\n<candidate-pending-changes/>\n</status>\n");
+    }
+}
@@ -10,6 +10,7 @@ import java.net.URI;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -382,4 +383,13 @@ public class UrlHelperTest {
         assertEquals(true, UrlHelper.haveSameAccount( URI.create("https://AZURE.COM/account/blah"), URI.create("https://azure.com/account/blah2")));
         assertEquals(true, UrlHelper.haveSameAccount( URI.create("http://LOCALHOST:8080/test"), URI.create("http://localhost:8080/test2")));
     }
+
+    @Test
+    public void testGetAccountKey() {
+        assertEquals(UrlHelper.getAccountKey(URI.create("https://azure.com/account/blah")), UrlHelper.getAccountKey(URI.create("https://AZURE.COM/Account/blah2")));
+        assertNotEquals(UrlHelper.getAccountKey(URI.create("https://azure.com/account1/blah")), UrlHelper.getAccountKey(URI.create("https://azure.com/account2/blah")));
+        assertEquals(UrlHelper.getAccountKey(URI.create("http://localhost:8080/test")), UrlHelper.getAccountKey(URI.create("http://LOCALHOST:8080/test2")));
+        assertNotEquals(UrlHelper.getAccountKey(URI.create("http://localhost:8080/test")), UrlHelper.getAccountKey(URI.create("http://localhost:5080/test")));
+        assertNull(UrlHelper.getAccountKey(null));
+    }
 }
@@ -0,0 +1,52 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin;
+
+import org.junit.Assume;
+import sun.security.util.Debug;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helpers of the benchmark tests, which the test task skips: each Gradle benchmark task sets the system property that
+ * enables its benchmarks.
+ */
+public class Benchmarks {
+    /**
+     * Set by the fakeTfBenchmark task, for the benchmarks that run tf commands against the fake tf client.
+     */
+    public static final String FAKE_TF_PROPERTY = "fakeTf.benchmark";
+
+    /**
+     * Set by the reactiveClientBenchmark task, for the benchmarks of the reactive client plumbing.
+     */
+    public static final String REACTIVE_CLIENT_PROPERTY = "reactiveClient.benchmark";
+
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    /**
+     * Skips the calling test unless the property is set to true.
+     */
+    public static void assumeEnabled(final String property) {
+        Assume.assumeTrue("run with -D" + property + "=true (see the benchmark tasks)", Boolean.getBoolean(property));
+    }
+
+    /**
+     * Runs the action and returns the time it took.
+     */
+    public static long timeMillis(final Action action) throws Exception {
+        final long start = System.nanoTime();
+        action.run();
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Prints a result of a benchmark to the test output.
+     */
+    public static void report(final String label, final String result) {
+        Debug.println(label, result);
+    }
+}
@@ -18,6 +18,8 @@ import com.microsoft.alm.plugin.context.rest.VstsHttpClient;
 import com.microsoft.alm.plugin.context.rest.VstsInfo;
 import com.microsoft.alm.plugin.context.rest.VstsUserInfo;
 import com.microsoft.alm.plugin.exceptions.TeamServicesException;
+import com.microsoft.alm.plugin.mocks.MockServerContextStore;
+import com.microsoft.alm.plugin.services.ServerContextStore;
 import com.microsoft.alm.sourcecontrol.webapi.GitHttpClient;
 import com.microsoft.alm.sourcecontrol.webapi.model.GitRepository;
 import org.junit.Assert;
@@ -33,8 +35,16 @@ import org.powermock.modules.junit4.PowerMockRunner;
 
 import javax.ws.rs.client.Client;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
@@ -483,6 +493,105 @@ public class ServerContextManagerTest extends AbstractTest {
         Assert.assertEquals(authInfo, manager.get(serverURL3).getAuthenticationInfo());
     }
 
+    @Test
+    public void testAuthenticationInfoIndex() {
+        ServerContextManager manager = new ServerContextManager();
+        AuthenticationInfo authInfo1 = new AuthenticationInfo("user1", "pass1", "https://dev.azure.com/account1", "user1");
+        AuthenticationInfo authInfo2 = new AuthenticationInfo("user2", "pass2", "https://dev.azure.com/account2", "user2");
+        manager.add(new ServerContextBuilder().type(ServerContext.Type.VSO).uri("https://dev.azure.com/account1/project/_git/repo").authentication(authInfo1).build());
+        manager.add(new ServerContextBuilder().type(ServerContext.Type.VSO).uri("https://dev.azure.com/account2/project/_git/repo").authentication(authInfo2).build());
+
+        Assert.assertEquals(authInfo1, manager.getAuthenticationInfo(URI.create("https://DEV.AZURE.COM/Account1/other/_git/other"), false));
+        Assert.assertEquals(authInfo2, manager.getAuthenticationInfo(URI.create("https://dev.azure.com/account2"), false));
+        Assert.assertNull(manager.getAuthenticationInfo(URI.create("https://dev.azure.com/account3/project/_git/repo"), false));
+
+        // replacing or removing a context updates the index
+        AuthenticationInfo authInfo3 = new AuthenticationInfo("user3", "pass3", "https://dev.azure.com/account1", "user3");
+        manager.add(new ServerContextBuilder().type(ServerContext.Type.VSO).uri("https://dev.azure.com/account1/project/_git/repo").authentication(authInfo3).build());
+        Assert.assertEquals(authInfo3, manager.getAuthenticationInfo(URI.create("https://dev.azure.com/account1/other/_git/other"), false));
+        manager.remove("https://dev.azure.com/account1/project/_git/repo");
+        Assert.assertNull(manager.getAuthenticationInfo(URI.create("https://dev.azure.com/account1/other/_git/other"), false));
+        Assert.assertEquals(authInfo2, manager.getAuthenticationInfo(URI.create("https://dev.azure.com/account2"), false));
+    }
+
+    /**
+     * Git asks for credentials on several threads during a fetch or push while contexts are being saved. Lookups must
+     * not wait for a slow store write.
+     */
+    @Test(timeout = 60000)
+    public void testConcurrentAuthenticationLookups() throws Exception {
+        final int contextCount = 50;
+        final int readerCount = 8;
+        final int lookupsPerReader = 1000;
+        final AtomicBoolean blockSaves = new AtomicBoolean();
+        final CountDownLatch saving = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ServerContextStore slowStore = new MockServerContextStore() {
+            @Override
+            public void saveServerContext(final ServerContext context) {
+                // the real store writes to the password safe of the IDE, which can take a while
+                if (blockSaves.get()) {
+                    saving.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        final ServerContextManager manager = new ServerContextManager() {
+            @Override
+            protected ServerContextStore getStore() {
+                return slowStore;
+            }
+        };
+        final List<ServerContext> contexts = new ArrayList<ServerContext>(contextCount);
+        for (int i = 0; i < contextCount; i++) {
+            final String accountUrl = "https://dev.azure.com/account" + i;
+            final ServerContext context = new ServerContextBuilder().type(ServerContext.Type.VSO)
+                    .uri(accountUrl + "/project/_git/repo")
+                    .authentication(new AuthenticationInfo("user" + i, "pass" + i, accountUrl, "user" + i))
+                    .build();
+            contexts.add(context);
+            manager.add(context, false);
+        }
+
+        // hold a writer inside the store write, so the write lock stays taken while the readers run
+        blockSaves.set(true);
+        final Thread writer = new Thread(() -> manager.add(contexts.get(0), false));
+        writer.start();
+        final ExecutorService readers = Executors.newFixedThreadPool(readerCount);
+        try {
+            Assert.assertTrue(saving.await(10, TimeUnit.SECONDS));
+
+            final List<Future<Integer>> results = new ArrayList<Future<Integer>>(readerCount);
+            for (int r = 0; r < readerCount; r++) {
+                results.add(readers.submit(() -> {
+                    int found = 0;
+                    for (int i = 0; i < lookupsPerReader; i++) {
+                        final int account = i % contextCount;
+                        final AuthenticationInfo info = manager.getBestAuthenticationInfo(
+                                URI.create("https://dev.azure.com/account" + account + "/other/_git/other"), false);
+                        if (info != null && ("user" + account).equals(info.getUserName())) {
+                            found++;
+                        }
+                    }
+                    return found;
+                }));
+            }
+            // the lookups would time out here if they waited for the writer
+            for (final Future<Integer> result : results) {
+                Assert.assertEquals(lookupsPerReader, result.get(10, TimeUnit.SECONDS).intValue());
+            }
+            Assert.assertTrue("the writer should still be saving", writer.isAlive());
+        } finally {
+            release.countDown();
+            writer.join();
+            readers.shutdownNow();
+        }
+    }
+
     private class MyValidator extends ServerContextManager.Validator {
 
         final GitHttpClient gitHttpClient;
@@ -0,0 +1,148 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.commands;
+
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.microsoft.alm.plugin.external.exceptions.ToolTimeoutException;
+import com.microsoft.alm.plugin.external.tools.TfTool;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.SystemUtils;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs commands against a fake tf script that never finishes, the way tf does when it waits for the network, a
+ * credential prompt or the EULA
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({TfTool.class})
+public class CommandTimeoutTest extends AbstractCommandTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File childPidFile;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeFalse("the fake tf is a shell script", SystemUtils.IS_OS_WINDOWS);
+
+        // The script starts a child process like the real tf script starts a JVM, then hangs
+        childPidFile = new File(folder.getRoot(), "child.pid");
+        final File script = new File(folder.getRoot(), "tf");
+        FileUtils.writeStringToFile(script, "#!/bin/sh\n"
+                + "sleep 600 &\n"
+                + "echo $! > '" + childPidFile.getPath() + "'\n"
+                + "sleep 600\n", StandardCharsets.UTF_8);
+        Assert.assertTrue(script.setExecutable(true));
+
+        PowerMockito.mockStatic(TfTool.class);
+        when(TfTool.getValidLocation()).thenReturn(script.getPath());
+    }
+
+    @Test(timeout = 60000)
+    public void testTimeout() throws Exception {
+        final HangingCommand command = new HangingCommand(1);
+        final long start = System.nanoTime();
+        try {
+            command.runSynchronously();
+            Assert.fail("the command should have timed out");
+        } catch (ToolTimeoutException e) {
+            Assert.assertEquals("hang", e.getCommandName());
+            Assert.assertEquals(1, e.getTimeoutSeconds());
+        }
+
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 30);
+        assertChildKilled();
+    }
+
+    @Test(timeout = 60000)
+    public void testCancel() throws Exception {
+        final HangingCommand command = new HangingCommand(600);
+        final Thread canceller = new Thread(() -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            command.canceled.set(true);
+        });
+        canceller.start();
+        try {
+            command.runSynchronously();
+            Assert.fail("the command should have been cancelled");
+        } catch (ProcessCanceledException e) {
+            // expected
+        } finally {
+            canceller.join();
+        }
+
+        assertChildKilled();
+    }
+
+    private void assertChildKilled() throws Exception {
+        final String pid = StringUtils.trim(FileUtils.readFileToString(childPidFile, StandardCharsets.UTF_8));
+        Assert.assertTrue(StringUtils.isNumeric(pid));
+        for (int i = 0; i < 50 && isRunning(pid); i++) {
+            Thread.sleep(100);
+        }
+        Assert.assertFalse("the child of the tf process is still running", isRunning(pid));
+    }
+
+    private static boolean isRunning(final String pid) throws Exception {
+        return new ProcessBuilder("kill", "-0", pid).start().waitFor() == 0;
+    }
+
+    private class HangingCommand extends Command<String> {
+        private final int timeoutSeconds;
+        private final AtomicBoolean canceled = new AtomicBoolean();
+
+        public HangingCommand(final int timeoutSeconds) {
+            super("hang", null);
+            this.timeoutSeconds = timeoutSeconds;
+        }
+
+        @Override
+        public String parseOutput(final String stdout, final String stderr) {
+            return stdout;
+        }
+
+        @Override
+        public int getTimeoutSeconds() {
+            return timeoutSeconds;
+        }
+
+        @Override
+        public boolean skipVersionCheck() {
+            return true;
+        }
+
+        @Override
+        public boolean shouldPrepareCachedRunner() {
+            return false;
+        }
+
+        @Override
+        protected void checkCanceled() {
+            if (canceled.get()) {
+                throw new ProcessCanceledException();
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.models;
+
+import com.google.common.collect.ImmutableList;
+import com.microsoft.alm.plugin.AbstractTest;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PendingChangeTest extends AbstractTest {
+
+    @Test
+    public void testConstructor() {
+        final PendingChange change = new PendingChange("$/project/folder/File.java", "C:\\workspace\\folder\\File.java",
+                "42", "owner1", "2016-07-13T12:36:51.060-0400", "none", "edit, rename", "workspace1", "computer1",
+                false, "$/project/old/File.java");
+
+        assertEquals("$/project/folder/File.java", change.getServerItem());
+        assertEquals("C:\\workspace\\folder\\File.java", change.getLocalItem());
+        assertEquals("42", change.getVersion());
+        assertEquals("owner1", change.getOwner());
+        assertEquals("2016-07-13T12:36:51.060-0400", change.getDate());
+        assertEquals("none", change.getLock());
+        assertEquals(ImmutableList.of(ServerStatusType.RENAME, ServerStatusType.EDIT), change.getChangeTypes());
+        assertEquals("workspace1", change.getWorkspace());
+        assertEquals("computer1", change.getComputer());
+        assertFalse(change.isCandidate());
+        assertEquals("$/project/old/File.java", change.getSourceItem());
+    }
+
+    @Test
+    public void testMissingValues() {
+        final PendingChange change = new PendingChange("File.java", "add");
+
+        assertEquals("File.java", change.getServerItem());
+        assertNull(change.getLocalItem());
+        assertNull(change.getVersion());
+        assertNull(change.getOwner());
+        assertEquals(ImmutableList.of(ServerStatusType.ADD), change.getChangeTypes());
+        assertEquals("", change.getSourceItem());
+        assertNull(change.getBaseHash());
+    }
+
+    @Test
+    public void testBaseHash() {
+        final byte[] hash = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+        final PendingChange change = new PendingChange("$/project/File.java", "/workspace/File.java", "1", "owner",
+                "date", "none", ImmutableList.of(ServerStatusType.EDIT), "workspace", "computer", false, "", hash);
+        hash[0] = 0;
+
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16}, change.getBaseHash());
+        assertNull(new PendingChange("$/project/File.java", "/workspace/File.java", "1", "owner", "date", "none",
+                ImmutableList.of(ServerStatusType.EDIT), "workspace", "computer", false, "", new byte[0]).getBaseHash());
+    }
+
+    @Test
+    public void testVersions() {
+        assertEquals("0", createWithVersion("0").getVersion());
+        assertEquals("2147483", createWithVersion("2147483").getVersion());
+        assertEquals("12345678901", createWithVersion("12345678901").getVersion());
+        assertEquals("007", createWithVersion("007").getVersion());
+        assertEquals("-1", createWithVersion("-1").getVersion());
+        assertEquals("", createWithVersion("").getVersion());
+    }
+
+    @Test
+    public void testChangeTypes() {
+        final PendingChange change = new PendingChange("$/project/File.java", "edit, property (+x), lock");
+        assertEquals(ImmutableList.of(ServerStatusType.EDIT, ServerStatusType.LOCK), change.getChangeTypes());
+        assertTrue(change.getChangeTypes().contains(ServerStatusType.EDIT));
+        assertSame(change.getChangeTypes(), new PendingChange("$/project/Other.java", "lock, edit").getChangeTypes());
+        assertEquals(Collections.emptyList(), new PendingChange("$/project/File.java", "").getChangeTypes());
+    }
+
+    @Test
+    public void testSharedValues() {
+        final PendingChange change1 = new PendingChange(new String("$/project/folder/File1.java"),
+                new String("/workspace/folder/File1.java"), "1", new String("owner1"), new String("date"),
+                new String("none"), "edit", new String("workspace1"), new String("computer1"), false, "");
+        final PendingChange change2 = new PendingChange(new String("$/project/folder/File2.java"),
+                new String("/workspace/folder/File2.java"), "2", new String("owner1"), new String("date"),
+                new String("none"), "edit", new String("workspace1"), new String("computer1"), false, "");
+
+        assertSame(change1.getOwner(), change2.getOwner());
+        assertSame(change1.getDate(), change2.getDate());
+        assertSame(change1.getLock(), change2.getLock());
+        assertSame(change1.getWorkspace(), change2.getWorkspace());
+        assertSame(change1.getComputer(), change2.getComputer());
+        assertEquals("/workspace/folder/File2.java", change2.getLocalItem());
+    }
+
+    private static PendingChange createWithVersion(final String version) {
+        return new PendingChange("$/project/File.java", "/workspace/File.java", version, "owner1", "date", "none",
+                "edit", "workspace1", "computer1", false, "");
+    }
+}
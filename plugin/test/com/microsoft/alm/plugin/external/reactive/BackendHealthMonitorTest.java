@@ -0,0 +1,117 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.reactive;
+
+import com.microsoft.alm.plugin.services.PropertyService;
+import com.microsoft.tfs.model.connector.TfsBackendHealth;
+import com.microsoft.tfs.model.connector.TfsItemCacheStatistics;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BackendHealthMonitorTest {
+    private static final long MB = 1024L * 1024L;
+
+    private final Map<String, String> properties = new HashMap<>();
+    private final PropertyService propertyService = new PropertyService() {
+        @Override
+        public String getProperty(String propertyName) {
+            return properties.get(propertyName);
+        }
+
+        @Override
+        public void setProperty(String propertyName, String value) {
+            properties.put(propertyName, value);
+        }
+
+        @Override
+        public void removeProperty(String propertyName) {
+            properties.remove(propertyName);
+        }
+    };
+    private final List<Double> gcOverheads = new ArrayList<>();
+    private final BackendHealthMonitor monitor = new BackendHealthMonitor(propertyService, gcOverheads::add);
+
+    private static TfsBackendHealth health(long uptimeMillis, long gcPauseMillis, long peakLiveHeapMb, long items) {
+        return new TfsBackendHealth(
+                peakLiveHeapMb * MB,
+                peakLiveHeapMb * MB,
+                peakLiveHeapMb * MB,
+                2048L * MB,
+                uptimeMillis / 1000L,
+                gcPauseMillis,
+                uptimeMillis,
+                1,
+                items,
+                new TfsItemCacheStatistics(0L, 0L, 0L, 0, 0L, 0L, 0L, 0L));
+    }
+
+    @Test
+    public void testHeapLimit() {
+        assertEquals(ReactiveTfvcClientHost.REACTIVE_CLIENT_DEFAULT_MEMORY_LIMIT,
+                BackendHealthMonitor.computeHeapLimitMb(0L, 0L));
+        assertEquals(512, BackendHealthMonitor.computeHeapLimitMb(100L * MB, 10_000L));
+        assertEquals(2048, BackendHealthMonitor.computeHeapLimitMb(1000L * MB, 10_000L));
+        assertEquals(2304, BackendHealthMonitor.computeHeapLimitMb(100L * MB, 1_000_000L));
+        assertEquals(8192, BackendHealthMonitor.computeHeapLimitMb(10_000L * MB, 0L));
+    }
+
+    @Test
+    public void testHeapLimitSetting() {
+        assertEquals(ReactiveTfvcClientHost.REACTIVE_CLIENT_DEFAULT_MEMORY_LIMIT,
+                BackendHealthMonitor.getHeapLimitMb(propertyService));
+
+        monitor.onHealth(health(10_000L, 0L, 700L, 50_000L));
+        assertEquals("700", properties.get(PropertyService.PROP_REACTIVE_CLIENT_PEAK_HEAP));
+        assertEquals("50000", properties.get(PropertyService.PROP_REACTIVE_CLIENT_WORKSPACE_ITEMS));
+        assertEquals(1536, BackendHealthMonitor.getHeapLimitMb(propertyService));
+
+        properties.put(PropertyService.PROP_REACTIVE_CLIENT_MEMORY, "0");
+        assertEquals(1536, BackendHealthMonitor.getHeapLimitMb(propertyService));
+
+        properties.put(PropertyService.PROP_REACTIVE_CLIENT_MEMORY, "3000");
+        assertEquals(3000, BackendHealthMonitor.getHeapLimitMb(propertyService));
+    }
+
+    @Test
+    public void testShortSessionDoesNotLowerPeak() {
+        properties.put(PropertyService.PROP_REACTIVE_CLIENT_PEAK_HEAP, "900");
+
+        monitor.onHealth(health(10_000L, 0L, 200L, 0L));
+        assertEquals("900", properties.get(PropertyService.PROP_REACTIVE_CLIENT_PEAK_HEAP));
+
+        monitor.onHealth(health(20 * 60_000L, 0L, 300L, 0L));
+        assertEquals("300", properties.get(PropertyService.PROP_REACTIVE_CLIENT_PEAK_HEAP));
+
+        monitor.onHealth(health(21 * 60_000L, 0L, 1200L, 0L));
+        assertEquals("1200", properties.get(PropertyService.PROP_REACTIVE_CLIENT_PEAK_HEAP));
+    }
+
+    @Test
+    public void testGcOverheadReportedOnce() {
+        monitor.onHealth(health(10_000L, 100L, 100L, 0L));
+        monitor.onHealth(health(40_000L, 20_000L, 100L, 0L));
+        assertTrue("window not over yet", gcOverheads.isEmpty());
+
+        monitor.onHealth(health(70_000L, 21_000L, 100L, 0L));
+        assertEquals(1, gcOverheads.size());
+        assertEquals(20_900.0 / 60_000.0, gcOverheads.get(0), 0.001);
+
+        monitor.onHealth(health(140_000L, 50_000L, 100L, 0L));
+        assertEquals(1, gcOverheads.size());
+    }
+
+    @Test
+    public void testLowGcOverheadNotReported() {
+        monitor.onHealth(health(10_000L, 100L, 100L, 0L));
+        monitor.onHealth(health(80_000L, 3_000L, 100L, 0L));
+        assertTrue(gcOverheads.isEmpty());
+    }
+}
@@ -0,0 +1,102 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.reactive;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BackendHeartbeatTest {
+    private static final long INTERVAL_MILLIS = 10L;
+    private static final long DEADLINE_MILLIS = 100L;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<CompletableFuture<Long>> heartbeats = new CopyOnWriteArrayList<>();
+    private final List<Long> hungReports = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private BackendHeartbeat createHeartbeat(boolean answer) {
+        return new BackendHeartbeat(
+                () -> {
+                    CompletableFuture<Long> heartbeat = new CompletableFuture<>();
+                    heartbeats.add(heartbeat);
+                    if (answer)
+                        heartbeat.complete(System.currentTimeMillis());
+                    return heartbeat;
+                },
+                scheduler,
+                INTERVAL_MILLIS,
+                DEADLINE_MILLIS,
+                hungReports::add);
+    }
+
+    @Test
+    public void testAnsweredHeartbeatsAreRepeated() throws InterruptedException {
+        BackendHeartbeat heartbeat = createHeartbeat(true);
+        heartbeat.start();
+        Thread.sleep(DEADLINE_MILLIS * 3);
+        heartbeat.stop();
+
+        assertTrue("only " + heartbeats.size() + " heartbeats sent", heartbeats.size() > 5);
+        assertTrue(hungReports.isEmpty());
+    }
+
+    @Test
+    public void testMissedHeartbeatIsReportedOnce() throws InterruptedException {
+        BackendHeartbeat heartbeat = createHeartbeat(false);
+        heartbeat.start();
+        Thread.sleep(DEADLINE_MILLIS * 3);
+
+        assertEquals("no heartbeat should be sent before the pending one is answered", 1, heartbeats.size());
+        assertEquals(1, hungReports.size());
+        assertTrue(hungReports.get(0) >= DEADLINE_MILLIS);
+    }
+
+    @Test
+    public void testFailedHeartbeatCountsAsAnswer() throws InterruptedException {
+        BackendHeartbeat heartbeat = new BackendHeartbeat(
+                () -> {
+                    CompletableFuture<Long> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(new RuntimeException("handler failed"));
+                    heartbeats.add(failed);
+                    return failed;
+                },
+                scheduler,
+                INTERVAL_MILLIS,
+                DEADLINE_MILLIS,
+                hungReports::add);
+        heartbeat.start();
+        Thread.sleep(DEADLINE_MILLIS * 3);
+        heartbeat.stop();
+
+        assertTrue(heartbeats.size() > 5);
+        assertTrue(hungReports.isEmpty());
+    }
+
+    @Test
+    public void testLateAnswerBeforeDeadlineIsNotReported() throws InterruptedException {
+        BackendHeartbeat heartbeat = createHeartbeat(false);
+        heartbeat.start();
+        Thread.sleep(DEADLINE_MILLIS / 2);
+        heartbeats.get(0).complete(0L);
+        Thread.sleep(DEADLINE_MILLIS / 2);
+        heartbeat.stop();
+
+        assertTrue(heartbeats.size() >= 2);
+        assertTrue(hungReports.isEmpty());
+    }
+}
@@ -0,0 +1,117 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.reactive;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChunkPipelineTest {
+    private final List<List<Integer>> sentChunks = new ArrayList<>();
+    private final List<CompletableFuture<List<String>>> pendingResults = new ArrayList<>();
+    private final List<String> received = new ArrayList<>();
+
+    private CompletionStage<List<String>> query(List<Integer> chunk) {
+        sentChunks.add(chunk);
+        CompletableFuture<List<String>> result = new CompletableFuture<>();
+        pendingResults.add(result);
+        return result;
+    }
+
+    private void complete(int chunk) {
+        pendingResults.get(chunk).complete(
+                sentChunks.get(chunk).stream().map(i -> "item" + i).collect(Collectors.toList()));
+    }
+
+    private ChunkPipeline<Integer, String> createPipeline(int itemCount, int maxChunksInFlight) {
+        List<Integer> items = IntStream.range(0, itemCount).boxed().collect(Collectors.toList());
+        return new ChunkPipeline<>(items.iterator(), this::query, received::add, item -> 1, maxChunksInFlight);
+    }
+
+    @Test
+    public void testResultsAreDeliveredInOrder() {
+        CompletableFuture<Void> completion = createPipeline(2500, 3).runAsync().toCompletableFuture();
+        assertEquals(3, sentChunks.size());
+
+        complete(2);
+        complete(1);
+        assertEquals(Collections.emptyList(), received);
+        assertEquals("Chunks waiting for the first one shouldn't free their slots", 3, sentChunks.size());
+
+        complete(0);
+        assertEquals(2500, received.size());
+        assertEquals("item0", received.get(0));
+        assertEquals("item2499", received.get(2499));
+        assertTrue(completion.isDone());
+    }
+
+    @Test
+    public void testChunksInFlightAreLimited() {
+        ChunkPipeline<Integer, String> pipeline = createPipeline(5000, 2);
+        CompletableFuture<Void> completion = pipeline.runAsync().toCompletableFuture();
+        assertEquals(2, sentChunks.size());
+
+        for (int i = 0; !completion.isDone(); ++i) {
+            complete(i);
+            assertTrue(sentChunks.size() - (i + 1) <= 2);
+        }
+
+        assertEquals(5000, received.size());
+        int sent = sentChunks.stream().mapToInt(List::size).sum();
+        assertEquals(5000, sent);
+    }
+
+    @Test
+    public void testChunkSizeAdapts() {
+        ChunkPipeline<Integer, String> pipeline = createPipeline(100_000, 1);
+        pipeline.runAsync();
+        assertEquals(ChunkPipeline.INITIAL_CHUNK_SIZE, sentChunks.get(0).size());
+
+        // Completed right away, the items are cheap, so the chunks grow up to the maximum size
+        complete(0);
+        assertEquals(ChunkPipeline.MAX_CHUNK_SIZE, pipeline.getChunkSize());
+        assertEquals(ChunkPipeline.MAX_CHUNK_SIZE, sentChunks.get(1).size());
+    }
+
+    @Test
+    public void testChunksAreLimitedByWeight() {
+        List<Integer> items = IntStream.range(0, 10).boxed().collect(Collectors.toList());
+        new ChunkPipeline<>(items.iterator(), this::query, received::add, item -> ChunkPipeline.MAX_CHUNK_WEIGHT / 4, 10)
+                .runAsync();
+
+        assertEquals(3, sentChunks.size());
+        assertEquals(4, sentChunks.get(0).size());
+        assertEquals(4, sentChunks.get(1).size());
+        assertEquals(2, sentChunks.get(2).size());
+    }
+
+    @Test
+    public void testFailureStopsThePipeline() {
+        CompletableFuture<Void> completion = createPipeline(5000, 2).runAsync().toCompletableFuture();
+        pendingResults.get(0).completeExceptionally(new RuntimeException("test"));
+        complete(1);
+
+        assertTrue(completion.isCompletedExceptionally());
+        assertEquals(2, sentChunks.size());
+        assertEquals(Collections.emptyList(), received);
+    }
+
+    @Test
+    public void testNoItems() {
+        CompletableFuture<Void> completion = createPipeline(0, 4).runAsync().toCompletableFuture();
+        assertTrue(completion.isDone());
+        assertFalse(completion.isCompletedExceptionally());
+        assertEquals(Collections.emptyList(), sentChunks);
+    }
+}
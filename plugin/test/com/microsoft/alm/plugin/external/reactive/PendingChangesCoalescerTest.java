@@ -0,0 +1,154 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.reactive;
+
+import com.google.common.collect.ImmutableList;
+import com.microsoft.alm.plugin.external.models.PendingChange;
+import com.microsoft.alm.plugin.external.models.ServerStatusType;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PendingChangesCoalescerTest {
+    private static final Path ROOT = Paths.get("/workspace").toAbsolutePath();
+    private static final ServerIdentification SERVER = new ServerIdentification(
+            URI.create("http://organization.visualstudio.com"), null);
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<List<Path>> queries = new CopyOnWriteArrayList<>();
+    private final List<CompletableFuture<List<PendingChange>>> results = new CopyOnWriteArrayList<>();
+    private final PendingChangesCoalescer coalescer = new PendingChangesCoalescer(this::query, scheduler, 20L);
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private CompletionStage<List<PendingChange>> query(ServerIdentification server, List<Path> paths) {
+        CompletableFuture<List<PendingChange>> result = new CompletableFuture<>();
+        queries.add(paths);
+        results.add(result);
+        return result;
+    }
+
+    private static Path path(String relativePath) {
+        return ROOT.resolve(relativePath);
+    }
+
+    private static PendingChange change(String relativePath) {
+        return new PendingChange("$/project/" + relativePath, path(relativePath).toString(), "1", "user",
+                "2019-04-01T12:00:00.000-0400", "none", ImmutableList.of(ServerStatusType.EDIT), "workspace",
+                "computer", false, "");
+    }
+
+    private static List<String> localItems(CompletionStage<List<PendingChange>> result) throws Exception {
+        return result.toCompletableFuture().get(5, TimeUnit.SECONDS).stream()
+                .map(PendingChange::getLocalItem)
+                .collect(Collectors.toList());
+    }
+
+    private void awaitQueries(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (queries.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5L);
+        }
+
+        assertEquals(count, queries.size());
+    }
+
+    @Test
+    public void testRequestsInWindowAreMerged() throws Exception {
+        CompletionStage<List<PendingChange>> first = coalescer.getPendingChangesAsync(
+                SERVER, Arrays.asList(path("a"), path("b/File.java")));
+        CompletionStage<List<PendingChange>> second = coalescer.getPendingChangesAsync(
+                SERVER, Arrays.asList(path("b"), path("c")));
+
+        awaitQueries(1);
+        assertEquals(Arrays.asList(path("a"), path("b"), path("c")), queries.get(0));
+
+        results.get(0).complete(Arrays.asList(change("a/File.java"), change("b/File.java"), change("b/Other.java"),
+                change("c/File.java")));
+        assertEquals(Arrays.asList(path("a/File.java").toString(), path("b/File.java").toString()),
+                localItems(first));
+        assertEquals(Arrays.asList(path("b/File.java").toString(), path("b/Other.java").toString(),
+                path("c/File.java").toString()), localItems(second));
+    }
+
+    @Test
+    public void testCoveredRequestDoesNotShareQueryInFlight() throws Exception {
+        CompletionStage<List<PendingChange>> first = coalescer.getPendingChangesAsync(
+                SERVER, Collections.singletonList(path("")));
+        awaitQueries(1);
+
+        // The query in flight may predate the change this request is about
+        CompletionStage<List<PendingChange>> covered = coalescer.getPendingChangesAsync(
+                SERVER, Collections.singletonList(path("b")));
+        results.get(0).complete(Collections.singletonList(change("a/File.java")));
+        assertEquals(1, localItems(first).size());
+
+        awaitQueries(2);
+        assertEquals(Collections.singletonList(path("b")), queries.get(1));
+        results.get(1).complete(Collections.singletonList(change("b/File.java")));
+        assertEquals(Collections.singletonList(path("b/File.java").toString()), localItems(covered));
+    }
+
+    @Test
+    public void testRequestNotCoveredWaitsForNextQuery() throws Exception {
+        coalescer.getPendingChangesAsync(SERVER, Collections.singletonList(path("a")));
+        awaitQueries(1);
+
+        CompletionStage<List<PendingChange>> other = coalescer.getPendingChangesAsync(
+                SERVER, Arrays.asList(path("a"), path("b")));
+        awaitQueries(2);
+        assertEquals(Arrays.asList(path("a"), path("b")), queries.get(1));
+
+        results.get(1).complete(Collections.singletonList(change("b/File.java")));
+        assertEquals(Collections.singletonList(path("b/File.java").toString()), localItems(other));
+    }
+
+    @Test
+    public void testFailureIsShared() throws Exception {
+        CompletionStage<List<PendingChange>> first = coalescer.getPendingChangesAsync(
+                SERVER, Collections.singletonList(path("a")));
+        CompletionStage<List<PendingChange>> second = coalescer.getPendingChangesAsync(
+                SERVER, Collections.singletonList(path("b")));
+        awaitQueries(1);
+
+        results.get(0).completeExceptionally(new RuntimeException("test"));
+        for (CompletionStage<List<PendingChange>> result : Arrays.asList(first, second)) {
+            try {
+                result.toCompletableFuture().get(5, TimeUnit.SECONDS);
+                fail("The query failure should be passed to every request");
+            } catch (ExecutionException e) {
+                assertEquals("test", e.getCause().getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testGetRoots() {
+        List<Path> roots = PendingChangesCoalescer.getRoots(Arrays.asList(
+                path("a/b/File.java"), path("a"), path("c/File.java"), path("a/../c/File.java"), path("d")));
+        assertEquals(Arrays.asList(path("a"), path("d"), path("c/File.java")), roots);
+        assertTrue(PendingChangesCoalescer.getRoots(Collections.emptyList()).isEmpty());
+    }
+}
@@ -0,0 +1,178 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.reactive;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReactiveClientSupervisorTest {
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<ReactiveTfvcClientHost> clients = new CopyOnWriteArrayList<>();
+    private final Map<ReactiveTfvcClientHost, AtomicBoolean> aliveFlags = new ConcurrentHashMap<>();
+    private final Map<ReactiveTfvcClientHost, List<Runnable>> terminationActions = new ConcurrentHashMap<>();
+    private final ReactiveClientSupervisor supervisor = new ReactiveClientSupervisor(
+            this::createClient,
+            scheduler,
+            new RestartBackoff(10L, 100L, 60_000L));
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private CompletionStage<ReactiveTfvcClientHost> createClient() {
+        ReactiveTfvcClientHost client = mock(ReactiveTfvcClientHost.class);
+        AtomicBoolean alive = new AtomicBoolean(true);
+        List<Runnable> actions = new CopyOnWriteArrayList<>();
+        when(client.isAlive()).thenAnswer(invocation -> alive.get());
+        doAnswer(invocation -> {
+            actions.add((Runnable) invocation.getArguments()[0]);
+            return null;
+        }).when(client).whenTerminated(any(Runnable.class));
+
+        aliveFlags.put(client, alive);
+        terminationActions.put(client, actions);
+        clients.add(client);
+        return CompletableFuture.completedFuture(client);
+    }
+
+    private void crash(ReactiveTfvcClientHost client) {
+        aliveFlags.get(client).set(false);
+        terminationActions.get(client).forEach(Runnable::run);
+    }
+
+    private ReactiveTfvcClientHost getClient() throws Exception {
+        return supervisor.getClient().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testClientIsReused() throws Exception {
+        ReactiveTfvcClientHost client = getClient();
+        assertSame(client, getClient());
+        assertEquals(1, clients.size());
+    }
+
+    @Test
+    public void testCrashedClientIsRestarted() throws Exception {
+        ReactiveTfvcClientHost client = getClient();
+        crash(client);
+
+        ReactiveTfvcClientHost restarted = getClient();
+        assertEquals(2, clients.size());
+        assertSame(clients.get(1), restarted);
+    }
+
+    @Test
+    public void testDestroyedClientIsNotRestarted() throws Exception {
+        ReactiveTfvcClientHost client = getClient();
+        supervisor.destroyClient();
+        verify(client).terminate();
+        crash(client);
+        Thread.sleep(50L);
+
+        assertEquals(1, clients.size());
+        assertTrue(getClient() != client);
+    }
+
+    @Test
+    public void testReadOnlyRequestIsReplayedAfterCrash() throws Exception {
+        List<ReactiveTfvcClientHost> requestClients = new CopyOnWriteArrayList<>();
+        CompletionStage<String> result = supervisor.callReadOnlyAsync(client -> {
+            requestClients.add(client);
+            if (requestClients.size() == 1) {
+                CompletableFuture<String> interrupted = new CompletableFuture<>();
+                crash(client);
+                interrupted.cancel(false);
+                return interrupted;
+            }
+
+            return CompletableFuture.completedFuture("status");
+        });
+
+        assertEquals("status", result.toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertEquals(2, requestClients.size());
+        assertSame(clients.get(1), requestClients.get(1));
+    }
+
+    @Test
+    public void testReplayedRequestDoesNotPassItemsTwice() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        AtomicInteger attempts = new AtomicInteger();
+        CompletionStage<Void> result = supervisor.<Void, String>callReadOnlyAsync((client, consumer) -> {
+            consumer.accept("a");
+            consumer.accept("b");
+            if (attempts.incrementAndGet() == 1) {
+                CompletableFuture<Void> interrupted = new CompletableFuture<>();
+                crash(client);
+                interrupted.cancel(false);
+                return interrupted;
+            }
+
+            consumer.accept("c");
+            return CompletableFuture.completedFuture(null);
+        }, received::add);
+
+        result.toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertEquals(2, attempts.get());
+        assertEquals(Arrays.asList("a", "b", "c"), received);
+    }
+
+    @Test
+    public void testReadOnlyRequestIsNotReplayedWhenClientIsAlive() throws Exception {
+        CompletableFuture<String> failure = new CompletableFuture<>();
+        failure.completeExceptionally(new IllegalStateException("SDK failure"));
+        CompletionStage<String> result = supervisor.callReadOnlyAsync(client -> failure);
+
+        try {
+            result.toCompletableFuture().get(5, TimeUnit.SECONDS);
+            fail("The request should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(1, clients.size());
+    }
+
+    @Test
+    public void testReplaysAreLimited() throws Exception {
+        CompletionStage<String> result = supervisor.callReadOnlyAsync(client -> {
+            CompletableFuture<String> interrupted = new CompletableFuture<>();
+            crash(client);
+            interrupted.cancel(false);
+            return interrupted;
+        });
+
+        try {
+            result.toCompletableFuture().get(5, TimeUnit.SECONDS);
+            fail("The request should fail");
+        } catch (CancellationException | ExecutionException e) {
+            // expected
+        }
+        assertEquals(ReactiveClientSupervisor.MAX_REPLAYS + 1, clients.size());
+    }
+}
@@ -0,0 +1,58 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.reactive;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class RestartBackoffTest {
+    private long nanos;
+    private final RestartBackoff backoff = new RestartBackoff(1000L, 8000L, 60_000L, () -> nanos);
+
+    private void runFor(long millis) {
+        backoff.started();
+        nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Test
+    public void testDelaysDoubleUpToMaximum() {
+        runFor(100L);
+        assertEquals(0L, backoff.nextDelayMillis());
+        runFor(100L);
+        assertEquals(1000L, backoff.nextDelayMillis());
+        runFor(100L);
+        assertEquals(2000L, backoff.nextDelayMillis());
+        runFor(100L);
+        assertEquals(4000L, backoff.nextDelayMillis());
+        runFor(100L);
+        assertEquals(8000L, backoff.nextDelayMillis());
+        runFor(100L);
+        assertEquals(8000L, backoff.nextDelayMillis());
+    }
+
+    @Test
+    public void testStableRunResetsDelay() {
+        runFor(100L);
+        assertEquals(0L, backoff.nextDelayMillis());
+        runFor(100L);
+        assertEquals(1000L, backoff.nextDelayMillis());
+
+        runFor(60_000L);
+        assertEquals(0L, backoff.nextDelayMillis());
+        runFor(100L);
+        assertEquals(1000L, backoff.nextDelayMillis());
+    }
+
+    @Test
+    public void testFailedStartKeepsBackingOff() {
+        runFor(60_000L);
+        assertEquals(0L, backoff.nextDelayMillis());
+        // The restarted backend didn't start
+        assertEquals(1000L, backoff.nextDelayMillis());
+        assertEquals(2000L, backoff.nextDelayMillis());
+    }
+}
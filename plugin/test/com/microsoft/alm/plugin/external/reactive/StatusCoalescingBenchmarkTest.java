@@ -0,0 +1,140 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.reactive;
+
+import com.microsoft.alm.plugin.AbstractTest;
+import com.microsoft.alm.plugin.Benchmarks;
+import com.microsoft.alm.plugin.external.models.PendingChange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Fires overlapping status requests from several threads, standing in for the change provider (the workspace root),
+ * the file listeners (a few files) and the commit dialog (a folder), at a simulated backend that runs one query at a
+ * time, and reports the number of backend queries and the 95th percentile of the request latency with and without the
+ * coalescing of the requests.
+ * <p/>
+ * Only runs from the reactiveClientBenchmark Gradle task.
+ */
+public class StatusCoalescingBenchmarkTest extends AbstractTest {
+    private static final int REQUESTERS = 8;
+    private static final int REQUESTS_PER_REQUESTER = 100;
+    private static final int FOLDERS = 50;
+    private static final long QUERY_MILLIS = 20L;
+    private static final Path ROOT = Paths.get("/workspace").toAbsolutePath();
+    private static final ServerIdentification SERVER = new ServerIdentification(
+            URI.create("http://organization.visualstudio.com"), null);
+
+    private ExecutorService backend;
+    private ExecutorService requesters;
+    private ScheduledExecutorService scheduler;
+    private final AtomicInteger backendQueries = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled(Benchmarks.REACTIVE_CLIENT_PROPERTY);
+        backend = Executors.newSingleThreadExecutor();
+        requesters = Executors.newFixedThreadPool(REQUESTERS);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        if (backend != null) {
+            backend.shutdownNow();
+            requesters.shutdownNow();
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testOverlappingStatusRequests() throws Exception {
+        measure("direct", this::query);
+
+        PendingChangesCoalescer coalescer = new PendingChangesCoalescer(
+                this::query,
+                scheduler,
+                PendingChangesCoalescer.DEFAULT_WINDOW_MILLIS);
+        measure("coalesced", coalescer::getPendingChangesAsync);
+    }
+
+    private CompletionStage<List<PendingChange>> query(ServerIdentification server, Collection<Path> paths) {
+        return CompletableFuture.supplyAsync(() -> {
+            backendQueries.incrementAndGet();
+            try {
+                Thread.sleep(QUERY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return Collections.<PendingChange>emptyList();
+        }, backend);
+    }
+
+    private void measure(
+            String label,
+            BiFunction<ServerIdentification, List<Path>, CompletionStage<List<PendingChange>>> statusQuery)
+            throws Exception {
+        backendQueries.set(0);
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> runs = new ArrayList<>();
+        for (int requester = 0; requester < REQUESTERS; ++requester) {
+            Random random = new Random(requester);
+            runs.add(requesters.submit(() -> {
+                for (int i = 0; i < REQUESTS_PER_REQUESTER; ++i) {
+                    long start = System.nanoTime();
+                    statusQuery.apply(SERVER, createRequest(random)).toCompletableFuture().get();
+                    latencies.add(System.nanoTime() - start);
+                    Thread.sleep(random.nextInt(20));
+                }
+
+                return null;
+            }));
+        }
+
+        for (Future<?> run : runs) {
+            run.get();
+        }
+
+        Collections.sort(latencies);
+        long p95Millis = TimeUnit.NANOSECONDS.toMillis(latencies.get((int) (latencies.size() * 0.95)));
+        Benchmarks.report(label, latencies.size() + " requests, " + backendQueries.get() + " backend queries, p95 latency "
+                + p95Millis + " ms");
+    }
+
+    private static List<Path> createRequest(Random random) {
+        Path folder = ROOT.resolve("folder" + random.nextInt(FOLDERS));
+        switch (random.nextInt(3)) {
+            case 0:
+                return Collections.singletonList(ROOT);
+            case 1:
+                return Collections.singletonList(folder);
+            default:
+                List<Path> files = new ArrayList<>();
+                for (int i = 0; i < 1 + random.nextInt(5); ++i) {
+                    files.add(folder.resolve("File" + random.nextInt(200) + ".java"));
+                }
+                return files;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.telemetry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class CommandMetricsTest {
+    @Test
+    public void testTrace() {
+        final CommandTrace trace = new CommandTrace("status");
+        Assert.assertEquals(-1, trace.getFirstByteNanos());
+        Assert.assertEquals(CommandTrace.NO_EXIT_CODE, trace.getExitCode());
+
+        trace.runnerAcquired(false, TimeUnit.MILLISECONDS.toNanos(5));
+        trace.argumentsSent();
+        trace.standardOutput("<?xml version=\"1.0\" encoding=\"utf-8\"?>");
+        trace.standardOutput("<status/>");
+        trace.parsed(TimeUnit.MILLISECONDS.toNanos(2), 0);
+
+        Assert.assertFalse(trace.isCachedRunner());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(5), trace.getProcessStartNanos());
+        Assert.assertTrue(trace.getFirstByteNanos() >= 0);
+        Assert.assertEquals(39 + 10, trace.getStdoutChars());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(2), trace.getParseNanos());
+        Assert.assertEquals(0, trace.getExitCode());
+    }
+
+    @Test
+    public void testRecord() {
+        final CommandMetrics metrics = new CommandMetrics();
+        for (int i = 0; i < 100; i++) {
+            final CommandTrace trace = new CommandTrace("status");
+            trace.runnerAcquired(i % 2 == 0, i % 2 == 0 ? 0 : TimeUnit.MILLISECONDS.toNanos(300));
+            trace.argumentsSent();
+            for (int line = 0; line < i; line++) {
+                trace.standardOutput("line");
+            }
+            trace.parsed(TimeUnit.MICROSECONDS.toNanos(i), i < 90 ? 0 : CommandTrace.NO_EXIT_CODE);
+            metrics.record(trace);
+        }
+        metrics.record(new CommandTrace("history"));
+
+        final CommandMetrics.Statistics status = metrics.getStatistics("status");
+        Assert.assertEquals(100, status.getCount());
+        Assert.assertEquals(50, status.getCachedRunnerCount());
+        Assert.assertEquals(10, status.getFailureCount());
+        Assert.assertEquals(99 * 5, status.getMaxStdoutChars(), 1);
+        Assert.assertTrue(status.getTotalMicrosAtPercentile(50.0) <= status.getTotalMicrosAtPercentile(99.0));
+        Assert.assertEquals(1, metrics.getStatistics("history").getCount());
+        Assert.assertNull(metrics.getStatistics("checkin"));
+
+        final String dump = metrics.dump();
+        Assert.assertTrue(dump, dump.contains("status"));
+        Assert.assertTrue(dump, dump.contains("history"));
+        Assert.assertTrue(dump, dump.contains("process start (ms)"));
+        // history never produced output, so there is no first byte row for it
+        Assert.assertEquals(dump, 1, dump.split("first byte").length - 1);
+
+        metrics.reset();
+        Assert.assertNull(metrics.getStatistics("status"));
+    }
+
+    @Test
+    public void testFinishRecordsOnce() {
+        final CommandTrace trace = new CommandTrace("testFinishRecordsOnce");
+        trace.parsed(0, 1);
+        trace.finish();
+        trace.finish();
+
+        // with or without Flight Recorder, the trace ends up in the histograms
+        Assert.assertEquals(1, CommandMetrics.getInstance().getStatistics("testFinishRecordsOnce").getCount());
+    }
+}
@@ -0,0 +1,91 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.telemetry;
+
+import com.microsoft.tfs.model.connector.TfsCallTimings;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class ReactiveCallMetricsTest {
+    @Test
+    public void testTrace() {
+        final ReactiveCallTrace trace = new ReactiveCallTrace("Info");
+        trace.clientAcquired();
+        trace.collectionReady();
+
+        final String firstCall = trace.nextCallId();
+        final String secondCall = trace.nextCallId();
+        Assert.assertEquals(trace.getCorrelationId() + ".1", firstCall);
+        Assert.assertEquals(trace.getCorrelationId() + ".2", secondCall);
+        Assert.assertNotEquals(trace.getCorrelationId(), new ReactiveCallTrace("Info").getCorrelationId());
+
+        for (final String callId : new String[]{firstCall, secondCall}) {
+            trace.callSent(TimeUnit.MILLISECONDS.toNanos(1));
+            trace.backendTimingsReceived(new TfsCallTimings(callId, 2L, TimeUnit.MILLISECONDS.toMicros(10)));
+            trace.callCompleted(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        trace.finish(false);
+
+        Assert.assertEquals(2, trace.getCallCount());
+        Assert.assertFalse(trace.isFailed());
+        Assert.assertTrue(trace.getHolderLookupNanos() >= 0);
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(2), trace.getSerializationNanos());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(4), trace.getBackendQueueNanos());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(20), trace.getSdkNanos());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(40 - 2 - 4 - 20), trace.getDeserializationNanos());
+        Assert.assertTrue(trace.toString(), trace.toString().contains("[" + trace.getCorrelationId() + "] Info"));
+    }
+
+    @Test
+    public void testTraceWithoutBackendTimings() {
+        final ReactiveCallTrace trace = new ReactiveCallTrace("Add");
+        trace.nextCallId();
+        trace.callSent(TimeUnit.MILLISECONDS.toNanos(5));
+        trace.callCompleted(TimeUnit.MILLISECONDS.toNanos(3));
+
+        // A call that failed in the backend or the wire may have no timings; the stages never go negative
+        Assert.assertEquals(0, trace.getSdkNanos());
+        Assert.assertEquals(0, trace.getDeserializationNanos());
+    }
+
+    @Test
+    public void testRecord() {
+        final ReactiveCallMetrics metrics = new ReactiveCallMetrics();
+        for (int i = 0; i < 100; i++) {
+            final ReactiveCallTrace trace = new ReactiveCallTrace("Info");
+            trace.clientAcquired();
+            trace.collectionReady();
+            final String callId = trace.nextCallId();
+            trace.callSent(TimeUnit.MICROSECONDS.toNanos(i));
+            trace.backendTimingsReceived(new TfsCallTimings(callId, i, 1000L));
+            trace.callCompleted(TimeUnit.MILLISECONDS.toNanos(i + 2));
+            trace.finish(i >= 90);
+            metrics.record(trace);
+        }
+
+        final ReactiveCallTrace status = new ReactiveCallTrace("Status");
+        status.clientAcquired();
+        status.finish(false);
+        metrics.record(status);
+
+        final ReactiveCallMetrics.Statistics info = metrics.getStatistics("Info");
+        Assert.assertEquals(100, info.getCount());
+        Assert.assertEquals(100, info.getBackendCallCount());
+        Assert.assertEquals(10, info.getFailureCount());
+        Assert.assertEquals(99_000, info.getBackendQueueMicrosAtPercentile(100.0), 100);
+        Assert.assertTrue(info.getTotalMicrosAtPercentile(50.0) <= info.getTotalMicrosAtPercentile(99.0));
+        Assert.assertEquals(0, metrics.getStatistics("Status").getBackendCallCount());
+        Assert.assertNull(metrics.getStatistics("Checkin"));
+
+        final String dump = metrics.dump();
+        Assert.assertTrue(dump, dump.contains("Info"));
+        Assert.assertTrue(dump, dump.contains("backend queue (ms)"));
+        Assert.assertTrue(dump, dump.contains("Status"));
+
+        metrics.reset();
+        Assert.assertNull(metrics.getStatistics("Info"));
+    }
+}
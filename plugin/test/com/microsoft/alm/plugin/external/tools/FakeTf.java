@@ -0,0 +1,195 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A stand-in for the TF command line client, started by the launcher script that {@link FakeTfScenario} writes.
+ * <p/>
+ * It replays the recorded output of each command from the scenario directory ({@code <command>.out}, e.g.
+ * {@code status.out}), and supports the {@code @} mode the ToolRunnerCache uses, where the process is started ahead of
+ * time and reads its arguments from standard input. The scenario properties control:
+ * <ul>
+ * <li>{@code version}: the version printed for {@code -?}</li>
+ * <li>{@code startupMillis}: how long the process takes to start, before it reads its arguments</li>
+ * <li>{@code rowDelayMicros}: a delay after every line of output, standing in for the server streaming results</li>
+ * <li>{@code exitCode.<command>} and {@code stderr.<command>}: a failure to inject for a command</li>
+ * </ul>
+ * Every command is appended to {@code invocations.log} in the scenario directory.
+ * <p/>
+ * This class runs in its own JVM with only the test classes on the class path, so it must only use the JDK.
+ */
+public class FakeTf {
+    public static final String SCENARIO_PROPERTY = "faketf.scenario";
+    public static final String PROPERTIES_FILE = "fake-tf.properties";
+    public static final String INVOCATIONS_FILE = "invocations.log";
+    public static final String OUTPUT_EXTENSION = ".out";
+    public static final String DEFAULT_VERSION = "14.134.0.201803081545";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File scenario;
+    private final Properties properties = new Properties();
+
+    private FakeTf(final File scenario) throws IOException {
+        this.scenario = scenario;
+        final File propertiesFile = new File(scenario, PROPERTIES_FILE);
+        if (propertiesFile.exists()) {
+            try (final InputStream stream = new FileInputStream(propertiesFile)) {
+                properties.load(stream);
+            }
+        }
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final String scenario = System.getProperty(SCENARIO_PROPERTY);
+        if (scenario == null) {
+            System.err.println("The " + SCENARIO_PROPERTY + " system property is not set");
+            System.exit(1);
+        }
+        System.exit(new FakeTf(new File(scenario)).run(args));
+    }
+
+    private int run(final String[] args) throws IOException {
+        sleepMillis(getLong("startupMillis", 0));
+
+        final List<String> arguments;
+        if (args.length == 1 && "@".equals(args[0])) {
+            // started ahead of time by the runner cache: the arguments come on a single line of standard input
+            final BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            final String line = stdin.readLine();
+            if (line == null) {
+                // the cached runner was disposed without being used
+                return 0;
+            }
+            arguments = parseArguments(line);
+        } else {
+            arguments = Arrays.asList(args);
+        }
+        logInvocation(args.length == 1 && "@".equals(args[0]), arguments);
+
+        final String command = arguments.isEmpty() ? "" : arguments.get(0);
+        if (arguments.contains("-?")) {
+            System.out.println("Team Explorer Everywhere Command Line Client (version "
+                    + properties.getProperty("version", DEFAULT_VERSION) + ")");
+            return 0;
+        }
+
+        final int exitCode = (int) getLong("exitCode." + command, 0);
+        final String stderr = properties.getProperty("stderr." + command);
+        if (exitCode != 0 || stderr != null) {
+            if (stderr != null) {
+                System.err.println(stderr);
+            }
+            return exitCode;
+        }
+
+        replay(new File(scenario, command + OUTPUT_EXTENSION), getLong("rowDelayMicros", 0));
+        return 0;
+    }
+
+    private static void replay(final File output, final long rowDelayMicros) throws IOException {
+        if (!output.exists()) {
+            return;
+        }
+        // System.out flushes on every line, which would make the fake slower than the real thing on large outputs
+        final PrintStream stdout = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out),
+                BUFFER_SIZE), false, StandardCharsets.UTF_8.name());
+        try (final Reader reader = new InputStreamReader(new FileInputStream(output), StandardCharsets.UTF_8);
+             final BufferedReader lines = new BufferedReader(reader, BUFFER_SIZE)) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                stdout.println(line);
+                if (rowDelayMicros > 0) {
+                    // stream the rows like a server would
+                    stdout.flush();
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(rowDelayMicros));
+                }
+            }
+        }
+        stdout.flush();
+    }
+
+    /**
+     * Splits the argument line the way the CLC does: arguments are separated by spaces, arguments with spaces are
+     * quoted and quotes inside of arguments are doubled (see ToolRunner.escapeArgument)
+     */
+    public static List<String> parseArguments(final String line) {
+        final List<String> arguments = new ArrayList<String>();
+        final StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        boolean inArgument = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (c == '"') {
+                if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+                inArgument = true;
+            } else if (c == ' ' && !quoted) {
+                if (inArgument) {
+                    arguments.add(current.toString());
+                    current.setLength(0);
+                    inArgument = false;
+                }
+            } else {
+                current.append(c);
+                inArgument = true;
+            }
+        }
+        if (inArgument) {
+            arguments.add(current.toString());
+        }
+        return Collections.unmodifiableList(arguments);
+    }
+
+    private void logInvocation(final boolean cached, final List<String> arguments) {
+        final String line = (cached ? "@ " : "") + String.join(" ", arguments) + System.lineSeparator();
+        try {
+            Files.write(new File(scenario, INVOCATIONS_FILE).toPath(), line.getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (final IOException e) {
+            System.err.println("Failed to log the invocation: " + e);
+        }
+    }
+
+    private long getLong(final String name, final long defaultValue) {
+        final String value = properties.getProperty(name);
+        return value != null ? Long.parseLong(value.trim()) : defaultValue;
+    }
+
+    private static void sleepMillis(final long millis) {
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
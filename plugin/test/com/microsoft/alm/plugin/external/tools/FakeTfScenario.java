@@ -0,0 +1,156 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.tools;
+
+import com.microsoft.alm.plugin.Benchmarks;
+import com.microsoft.alm.plugin.services.PluginServiceProvider;
+import com.microsoft.alm.plugin.services.PropertyService;
+import com.sun.jna.Platform;
+import org.apache.commons.io.FileUtils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Sets up the {@link FakeTf} client in a directory and points the plugin at it, e.g.
+ * <pre>
+ * new FakeTfScenario(folder)
+ *         .startupMillis(500)
+ *         .respondWithStatus("/workspace", 10000)
+ *         .fail("history", 100, "TF14045: The identity could not be found.")
+ *         .install();
+ * </pre>
+ * After {@link #install()} every command the plugin runs starts the fake, including the runners cached by
+ * ToolRunnerCache.
+ */
+public class FakeTfScenario {
+    private final File directory;
+    private final Properties properties = new Properties();
+
+    public FakeTfScenario(final File directory) {
+        this.directory = directory;
+    }
+
+    public FakeTfScenario version(final String version) {
+        properties.setProperty("version", version);
+        return this;
+    }
+
+    public FakeTfScenario startupMillis(final long startupMillis) {
+        properties.setProperty("startupMillis", String.valueOf(startupMillis));
+        return this;
+    }
+
+    public FakeTfScenario rowDelayMicros(final long rowDelayMicros) {
+        properties.setProperty("rowDelayMicros", String.valueOf(rowDelayMicros));
+        return this;
+    }
+
+    /**
+     * Makes the command fail with the exit code, writing the message to standard error
+     */
+    public FakeTfScenario fail(final String command, final int exitCode, final String stderr) {
+        properties.setProperty("exitCode." + command, String.valueOf(exitCode));
+        properties.setProperty("stderr." + command, stderr);
+        return this;
+    }
+
+    /**
+     * Replays the output, e.g. XML recorded from a real server, for the command
+     */
+    public FakeTfScenario respond(final String command, final String output) throws IOException {
+        FileUtils.writeStringToFile(getOutputFile(command), output, StandardCharsets.UTF_8);
+        return this;
+    }
+
+    /**
+     * Generates the XML output of "status -format:xml" for a workspace with the given number of pending changes
+     * under the local root, see {@link StatusXmlFixture}
+     */
+    public FakeTfScenario respondWithStatus(final String localRoot, final int changeCount) throws IOException {
+        try (final OutputStream stream = new FileOutputStream(getOutputFile("status"));
+             final Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8))) {
+            StatusXmlFixture.write(writer, localRoot, changeCount);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the scenario and the launcher script, and sets the fake as the tf location of the plugin
+     *
+     * @return the path of the launcher
+     */
+    public String install() throws IOException {
+        FileUtils.forceMkdir(directory);
+        try (final OutputStream stream = new FileOutputStream(new File(directory, FakeTf.PROPERTIES_FILE))) {
+            properties.store(stream, "fake tf scenario");
+        }
+
+        final String java = new File(System.getProperty("java.home"), "bin/java").getPath();
+        final String arguments = " -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -cp \"" + getClassPath()
+                + "\" -D" + FakeTf.SCENARIO_PROPERTY + "=\"" + directory.getAbsolutePath() + "\" "
+                + FakeTf.class.getName();
+        final File launcher;
+        if (Platform.isWindows()) {
+            launcher = new File(directory, "tf.cmd");
+            FileUtils.writeStringToFile(launcher, "@\"" + java + "\"" + arguments + " %*\r\n", StandardCharsets.UTF_8);
+        } else {
+            launcher = new File(directory, "tf");
+            FileUtils.writeStringToFile(launcher, "#!/bin/sh\nexec \"" + java + "\"" + arguments + " \"$@\"\n",
+                    StandardCharsets.UTF_8);
+            if (!launcher.setExecutable(true)) {
+                throw new IOException("Could not make " + launcher + " executable");
+            }
+        }
+
+        PluginServiceProvider.getInstance().getPropertyService()
+                .setProperty(PropertyService.PROP_TF_HOME, launcher.getPath());
+        return launcher.getPath();
+    }
+
+    /**
+     * Returns the commands the fake ran so far, one per line; commands sent to a runner started ahead of time start
+     * with "@ "
+     */
+    public List<String> getInvocations() throws IOException {
+        final File invocations = new File(directory, FakeTf.INVOCATIONS_FILE);
+        return invocations.exists()
+                ? FileUtils.readLines(invocations, StandardCharsets.UTF_8)
+                : Collections.<String>emptyList();
+    }
+
+    /**
+     * Runs the action and reports its time and the number of tf processes it started
+     */
+    public void measure(final String label, final String subject, final Benchmarks.Action action) throws Exception {
+        final int processesBefore = getInvocations().size();
+        final long millis = Benchmarks.timeMillis(action);
+        final int processes = getInvocations().size() - processesBefore;
+
+        Benchmarks.report(label, subject + " in " + millis + " ms, " + processes + " tf processes");
+    }
+
+    private File getOutputFile(final String command) throws IOException {
+        FileUtils.forceMkdir(directory);
+        return new File(directory, command + FakeTf.OUTPUT_EXTENSION);
+    }
+
+    private static String getClassPath() throws IOException {
+        try {
+            return new File(FakeTf.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        } catch (final URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+}
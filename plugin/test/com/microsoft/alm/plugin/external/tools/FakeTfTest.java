@@ -0,0 +1,86 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.tools;
+
+import com.google.common.collect.ImmutableList;
+import com.microsoft.alm.plugin.AbstractTest;
+import com.microsoft.alm.plugin.external.ToolRunnerCache;
+import com.microsoft.alm.plugin.external.models.PendingChange;
+import com.microsoft.alm.plugin.external.models.ServerStatusType;
+import com.microsoft.alm.plugin.external.utils.CommandUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs commands end to end (version check, runner cache, process, parsing) against the fake tf client
+ */
+public class FakeTfTest extends AbstractTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        ToolRunnerCache.tearDown();
+    }
+
+    @Test
+    public void testParseArguments() {
+        Assert.assertEquals(Arrays.asList("status", "-format:xml", "/path/file.txt"),
+                FakeTf.parseArguments("status -format:xml /path/file.txt "));
+        Assert.assertEquals(Arrays.asList("checkin", "-comment:a \"quoted\" comment", "/path with spaces/a.txt"),
+                FakeTf.parseArguments("checkin \"-comment:a \"\"quoted\"\" comment\" \"/path with spaces/a.txt\""));
+        Assert.assertEquals(Arrays.asList("add", "a\"b"), FakeTf.parseArguments("add a\"\"b"));
+    }
+
+    @Test(timeout = 60000)
+    public void testStatus() throws Exception {
+        final File root = folder.newFolder("workspace");
+        final FakeTfScenario scenario = new FakeTfScenario(folder.newFolder("tf"))
+                .respondWithStatus(root.getPath(), 100);
+        scenario.install();
+
+        for (int i = 0; i < 2; i++) {
+            final List<PendingChange> changes = CommandUtils.getStatusForFiles(null, null, ImmutableList.of(root.getPath()));
+            Assert.assertEquals(100, changes.size());
+            Assert.assertEquals(ImmutableList.of(ServerStatusType.EDIT), changes.get(0).getChangeTypes());
+            Assert.assertEquals(ImmutableList.of(ServerStatusType.RENAME, ServerStatusType.EDIT), changes.get(3).getChangeTypes());
+            Assert.assertEquals(root.getPath() + "/folder0/File1.java", changes.get(1).getLocalItem());
+        }
+
+        // the status commands were sent to runners started ahead of time
+        final List<String> invocations = scenario.getInvocations();
+        Assert.assertEquals(invocations.toString(), 2, countStartingWith(invocations, "@ status -noprompt -format:xml -recursive "));
+    }
+
+    @Test(timeout = 60000)
+    public void testFailure() throws Exception {
+        new FakeTfScenario(folder.newFolder("tf"))
+                .fail("history", 100, "TF14045: The identity user could not be found.")
+                .install();
+
+        try {
+            CommandUtils.getHistoryCommand(null, "$/project", null, 1, false, "user");
+            Assert.fail("the history command should have failed");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("TF14045"));
+        }
+    }
+
+    private static int countStartingWith(final List<String> lines, final String prefix) {
+        int count = 0;
+        for (final String line : lines) {
+            if (line.startsWith(prefix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
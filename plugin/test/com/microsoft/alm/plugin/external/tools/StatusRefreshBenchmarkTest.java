@@ -0,0 +1,79 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.external.tools;
+
+import com.google.common.collect.ImmutableList;
+import com.microsoft.alm.plugin.AbstractTest;
+import com.microsoft.alm.plugin.Benchmarks;
+import com.microsoft.alm.plugin.external.ToolRunnerCache;
+import com.microsoft.alm.plugin.external.models.PendingChange;
+import com.microsoft.alm.plugin.external.telemetry.CommandMetrics;
+import com.microsoft.alm.plugin.external.utils.CommandUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Measures the refreshes the TFVC change provider runs (a recursive status of the workspace root, parsed into pending
+ * changes) against the fake tf client, on synthetic workspaces of 10k to 500k pending changes.
+ * <p/>
+ * Only runs from the fakeTfBenchmark Gradle task; the sizes can be set with -PfakeTfBenchmarkSizes=10000,50000.
+ */
+public class StatusRefreshBenchmarkTest extends AbstractTest {
+    private static final String SIZES_PROPERTY = "fakeTf.benchmark.sizes";
+    private static final int REFRESHES = 5;
+    private static final long STARTUP_MILLIS = 300;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled(Benchmarks.FAKE_TF_PROPERTY);
+        CommandMetrics.getInstance().reset();
+    }
+
+    @After
+    public void tearDown() {
+        ToolRunnerCache.tearDown();
+    }
+
+    @Test
+    public void testStatusRefresh() throws Exception {
+        for (final String size : System.getProperty(SIZES_PROPERTY, "10000,100000,500000").split(",")) {
+            final int changeCount = Integer.parseInt(size.trim());
+            final File root = folder.newFolder("workspace" + changeCount);
+            new FakeTfScenario(folder.newFolder("tf" + changeCount))
+                    .startupMillis(STARTUP_MILLIS)
+                    .respondWithStatus(root.getPath(), changeCount)
+                    .install();
+
+            // the first refresh has no cached runner to use, like the first refresh after opening a project
+            final long firstMillis = Benchmarks.timeMillis(() -> assertRefresh(root, changeCount));
+
+            long totalMillis = 0;
+            for (int i = 0; i < REFRESHES; i++) {
+                // give the runner cached for the next refresh time to start, as the user would between refreshes
+                Thread.sleep(STARTUP_MILLIS * 2);
+                totalMillis += Benchmarks.timeMillis(() -> assertRefresh(root, changeCount));
+            }
+
+            Benchmarks.report(changeCount + " changes", "first refresh " + firstMillis + " ms, next refreshes "
+                    + (totalMillis / REFRESHES) + " ms on average");
+        }
+        Benchmarks.report("command metrics", "\n" + CommandMetrics.getInstance().dump());
+    }
+
+    private static void assertRefresh(final File root, final int changeCount) {
+        final List<PendingChange> changes =
+                CommandUtils.getStatusForFiles(null, null, ImmutableList.of(root.getPath()));
+        Assert.assertEquals(changeCount, changes.size());
+    }
+}
@@ -0,0 +1,164 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.common.ui.common;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TableFilterIndexTest {
+    private static final String[] WORDS = {"alpha", "Beta", "gamma", "delta", "Web", "api", "service", "client",
+            "Portal", "mobile", "data", "core", "infra", "tools", "docs"};
+
+    @Test
+    public void testFind() {
+        final TableFilterIndex<String[]> index = createIndex();
+        final List<String[]> rows = Arrays.asList(
+                new String[]{"WebPortal", "Project1", "account1"},
+                new String[]{"api", "PROJECT2", "account2"},
+                new String[]{"docs", "project3", "web"});
+        index.addAll(rows);
+
+        Assert.assertEquals(ids(0, 2), index.find("web", () -> false));
+        Assert.assertEquals(ids(0, 1, 2), index.find("PROJECT", () -> false));
+        Assert.assertEquals(ids(1), index.find("project2", () -> false));
+        Assert.assertEquals(ids(0, 1), index.find("a", () -> false));
+        Assert.assertEquals(ids(), index.find("xyz", () -> false));
+        // a match can't span two columns
+        Assert.assertEquals(ids(), index.find("portalproject", () -> false));
+        Assert.assertEquals(2, index.getId(rows.get(2)));
+        Assert.assertEquals(-1, index.getId(new String[]{"unknown"}));
+    }
+
+    @Test
+    public void testIncrementalFilterMatchesLinearScan() {
+        final List<String[]> rows = generateRows(2000, new Random(1));
+        final TableFilterIndex<String[]> index = createIndex();
+        index.addAll(rows);
+
+        // type, extend, delete and retype a filter like a user would
+        for (final String filter : new String[]{"w", "we", "web", "webp", "webpo", "web", "we", "d", "da", "dat",
+                "data1", "data12", "ta1", "x", ""}) {
+            Assert.assertEquals(filter, linearScan(rows, filter), index.find(filter, () -> false));
+        }
+    }
+
+    @Test
+    public void testAddAfterFind() {
+        final TableFilterIndex<String[]> index = createIndex();
+        index.addAll(Arrays.asList(new String[][]{{"web1"}, {"api1"}}));
+        Assert.assertEquals(ids(0), index.find("web", () -> false));
+
+        // the next keystroke must not be narrowed down from a result computed before the new rows were added
+        index.addAll(Arrays.asList(new String[][]{{"web2"}}));
+        Assert.assertEquals(ids(2), index.find("web2", () -> false));
+
+        index.clear();
+        Assert.assertEquals(0, index.size());
+        Assert.assertEquals(ids(), index.find("web", () -> false));
+    }
+
+    @Test
+    public void testCancel() {
+        final TableFilterIndex<String[]> index = createIndex();
+        index.addAll(generateRows(10000, new Random(2)));
+        Assert.assertNull(index.find("a", () -> true));
+        Assert.assertNotNull(index.find("a", () -> false));
+    }
+
+    /**
+     * Types a filter one character at a time, which narrows the candidates down from the previous matches; the
+     * timings are measured by TableFilterIndexBenchmark
+     */
+    @Test
+    public void testTypingMatchesLinearScan() {
+        final String typed = "service12";
+        final List<String[]> rows = generateRows(10000, new Random(10000));
+        final TableFilterIndex<String[]> index = createIndex();
+        index.addAll(rows);
+
+        for (int i = 1; i <= typed.length(); i++) {
+            final String filter = typed.substring(0, i);
+            Assert.assertEquals(filter, linearScan(rows, filter), index.find(filter, () -> false));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testRowsCanBeAddedWhileIndexing() throws Exception {
+        final String[] addedRow = {"added", "project", "account"};
+        final AtomicReference<TableFilterIndex<String[]>> indexRef = new AtomicReference<>();
+        final TableFilterIndex<String[]> index = new TableFilterIndex<String[]>(row -> {
+            if (row != addedRow && indexRef.get().size() == 1) {
+                // the search holding the lock while it indexes would block this
+                final Thread adder = new Thread(() -> indexRef.get().addAll(Collections.singletonList(addedRow)));
+                adder.start();
+                Uninterruptibles.joinUninterruptibly(adder);
+            }
+            return StringUtils.join(row, TableFilterIndex.COLUMN_SEPARATOR);
+        });
+        indexRef.set(index);
+        index.addAll(Collections.singletonList(new String[]{"first", "project", "account"}));
+
+        Assert.assertEquals(ids(0, 1), index.find("project", () -> false));
+    }
+
+    @Test
+    public void testRowsClearedWhileIndexingAreDropped() {
+        final AtomicReference<TableFilterIndex<String[]>> indexRef = new AtomicReference<>();
+        final TableFilterIndex<String[]> index = new TableFilterIndex<String[]>(row -> {
+            indexRef.get().clear();
+            return StringUtils.join(row, TableFilterIndex.COLUMN_SEPARATOR);
+        });
+        indexRef.set(index);
+        index.addAll(Collections.singletonList(new String[]{"first", "project", "account"}));
+
+        Assert.assertEquals(ids(), index.find("project", () -> false));
+        Assert.assertEquals(0, index.size());
+    }
+
+    private static TableFilterIndex<String[]> createIndex() {
+        return new TableFilterIndex<String[]>(row -> StringUtils.join(row, TableFilterIndex.COLUMN_SEPARATOR));
+    }
+
+    private static List<String[]> generateRows(final int count, final Random random) {
+        final List<String[]> rows = new ArrayList<String[]>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new String[]{
+                    WORDS[random.nextInt(WORDS.length)] + WORDS[random.nextInt(WORDS.length)] + random.nextInt(1000),
+                    WORDS[random.nextInt(WORDS.length)] + "Project" + random.nextInt(100),
+                    "dev.azure.com/account" + random.nextInt(50)});
+        }
+        return rows;
+    }
+
+    private static BitSet linearScan(final List<String[]> rows, final String filter) {
+        final BitSet matches = new BitSet();
+        for (int i = 0; i < rows.size(); i++) {
+            for (final String column : rows.get(i)) {
+                if (StringUtils.containsIgnoreCase(column, filter)) {
+                    matches.set(i);
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static BitSet ids(final int... ids) {
+        final BitSet set = new BitSet();
+        for (final int id : ids) {
+            set.set(id);
+        }
+        return set;
+    }
+}
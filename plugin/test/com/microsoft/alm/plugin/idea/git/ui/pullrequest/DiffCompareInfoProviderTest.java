@@ -27,6 +27,8 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class DiffCompareInfoProviderTest extends IdeaAbstractTest {
@@ -48,7 +50,7 @@ public class DiffCompareInfoProviderTest extends IdeaAbstractTest {
         fileMock = Mockito.mock(VirtualFile.class);
         when(gitRepositoryMock.getRoot()).thenReturn(fileMock);
 
-        underTest = new DiffCompareInfoProvider();
+        underTest = new DiffCompareInfoProvider(new BranchCompareCache());
         underTest.setUtilWrapper(gitUtilWrapperMock);
     }
 
@@ -109,5 +111,59 @@ public class DiffCompareInfoProviderTest extends IdeaAbstractTest {
         assertEquals(diff, new LinkedList<Change>(diffs).get(0));
     }
 
+    @Test
+    public void testBranchCompareIsCached() throws VcsException {
+        when(gitUtilWrapperMock.getMergeBase(any(Project.class), any(VirtualFile.class), eq("test2"), eq("test1")))
+                .thenReturn(new GitRevisionNumber("myparent"));
+        GitCommit commitMock1 = PRGitObjectMockHelper.getCommit(projectMock, fileMock);
+        when(gitUtilWrapperMock.history(any(Project.class), any(VirtualFile.class), eq("myparent..")))
+                .thenReturn(Collections.singletonList(commitMock1));
+        when(gitUtilWrapperMock.history(any(Project.class), any(VirtualFile.class), eq("..myparent")))
+                .thenReturn(Collections.<GitCommit>emptyList());
 
-}
\ No newline at end of file
+        underTest.getBranchCompareInfo(projectMock, gitRepositoryMock, "test1", "test2");
+
+        // a second provider (e.g. after the dialog was reopened) sharing the cache shouldn't run git again
+        final GitCommitCompareInfo compareInfo
+                = underTest.getBranchCompareInfo(projectMock, gitRepositoryMock, "test1", "test2");
+        assertEquals(Collections.singletonList(commitMock1), compareInfo.getBranchToHeadCommits(gitRepositoryMock));
+        verify(gitUtilWrapperMock, times(1)).getMergeBase(any(Project.class), any(VirtualFile.class), anyString(), anyString());
+        verify(gitUtilWrapperMock, times(1)).history(any(Project.class), any(VirtualFile.class), eq("myparent.."));
+    }
+
+    @Test
+    public void testBranchCompareIsIncrementalWhenSourceAdvances() throws VcsException {
+        when(gitUtilWrapperMock.getMergeBase(any(Project.class), any(VirtualFile.class), eq("target"), eq("source1")))
+                .thenReturn(new GitRevisionNumber("myparent"));
+        when(gitUtilWrapperMock.getMergeBase(any(Project.class), any(VirtualFile.class), eq("target"), eq("source2")))
+                .thenReturn(new GitRevisionNumber("myparent"));
+        when(gitUtilWrapperMock.getMergeBase(any(Project.class), any(VirtualFile.class), eq("source1"), eq("source2")))
+                .thenReturn(new GitRevisionNumber("source1"));
+
+        GitCommit oldCommit = PRGitObjectMockHelper.getCommit(projectMock, fileMock, "old", "old", "935b168d0601bd05d57489fae04d5c6ec439cfea");
+        GitCommit newCommit = PRGitObjectMockHelper.getCommit(projectMock, fileMock, "new", "new", "9afa081effdaeafdff089b2aa3543415f6cdb1fb");
+        when(gitUtilWrapperMock.history(any(Project.class), any(VirtualFile.class), eq("myparent..")))
+                .thenReturn(Collections.singletonList(oldCommit));
+        when(gitUtilWrapperMock.history(any(Project.class), any(VirtualFile.class), eq("..myparent")))
+                .thenReturn(Collections.<GitCommit>emptyList());
+        when(gitUtilWrapperMock.history(any(Project.class), any(VirtualFile.class), eq("source1..source2")))
+                .thenReturn(Collections.singletonList(newCommit));
+
+        Change diff = Mockito.mock(Change.class);
+        when(gitUtilWrapperMock.getDiff(any(Project.class), any(VirtualFile.class), eq("myparent"), eq("source2")))
+                .thenReturn(Collections.singletonList(diff));
+
+        underTest.getBranchCompareInfo(projectMock, gitRepositoryMock, "source1", "target");
+        final GitCommitCompareInfo compareInfo
+                = underTest.getBranchCompareInfo(projectMock, gitRepositoryMock, "source2", "target");
+
+        List<GitCommit> branchToHeadCommits = compareInfo.getBranchToHeadCommits(gitRepositoryMock);
+        assertEquals(2, branchToHeadCommits.size());
+        assertEquals(newCommit, branchToHeadCommits.get(0));
+        assertEquals(oldCommit, branchToHeadCommits.get(1));
+        assertEquals(1, compareInfo.getTotalDiff().size());
+
+        // the history of the branch was only walked once, the second time only the new commits were read
+        verify(gitUtilWrapperMock, times(1)).history(any(Project.class), any(VirtualFile.class), eq("myparent.."));
+    }
+}
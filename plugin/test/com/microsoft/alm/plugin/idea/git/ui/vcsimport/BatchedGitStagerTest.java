@@ -0,0 +1,129 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.git.ui.vcsimport;
+
+import com.intellij.openapi.vcs.VcsException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchedGitStagerTest {
+
+    private static List<String> generatePaths(final int count) {
+        final List<String> paths = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            paths.add("src/folder" + (i % 10) + "/file" + i + ".txt");
+        }
+        return paths;
+    }
+
+    @Test
+    public void testStage_allPathsStagedInBoundedBatches() throws VcsException {
+        final List<String> paths = generatePaths(2500);
+        final List<List<String>> batches = Collections.synchronizedList(new ArrayList<List<String>>());
+        final AtomicInteger lastProgress = new AtomicInteger();
+
+        final BatchedGitStager stager = new BatchedGitStager(batch -> batches.add(new ArrayList<String>(batch)),
+                1000, Integer.MAX_VALUE, 2);
+        final int staged = stager.stage(paths.iterator(), new BatchedGitStager.Listener() {
+            @Override
+            public void onBatchStaged(final int stagedFiles, final int producedFiles) {
+                Assert.assertTrue(stagedFiles <= producedFiles);
+                lastProgress.set(stagedFiles);
+            }
+
+            @Override
+            public boolean isCanceled() {
+                return false;
+            }
+        });
+
+        Assert.assertEquals(2500, staged);
+        Assert.assertEquals(2500, lastProgress.get());
+        Assert.assertEquals(3, batches.size());
+        Assert.assertEquals(1000, batches.get(0).size());
+        Assert.assertEquals(1000, batches.get(1).size());
+        Assert.assertEquals(500, batches.get(2).size());
+
+        // the order of the files is kept
+        final List<String> stagedPaths = new ArrayList<String>();
+        for (final List<String> batch : batches) {
+            stagedPaths.addAll(batch);
+        }
+        Assert.assertEquals(paths, stagedPaths);
+    }
+
+    @Test
+    public void testStage_batchesLimitedByCommandLineLength() throws VcsException {
+        final List<List<String>> batches = Collections.synchronizedList(new ArrayList<List<String>>());
+        final BatchedGitStager stager = new BatchedGitStager(batch -> batches.add(new ArrayList<String>(batch)),
+                1000, 100, 2);
+        stager.stage(generatePaths(100).iterator(), new NoOpListener());
+
+        Assert.assertTrue(batches.size() > 1);
+        for (final List<String> batch : batches) {
+            int characters = 0;
+            for (final String path : batch) {
+                characters += path.length() + 1;
+            }
+            Assert.assertTrue(batch.size() == 1 || characters <= 100);
+        }
+    }
+
+    @Test
+    public void testStage_empty() throws VcsException {
+        final AtomicBoolean called = new AtomicBoolean();
+        final BatchedGitStager stager = new BatchedGitStager(batch -> called.set(true));
+        Assert.assertEquals(0, stager.stage(Collections.<String>emptyIterator(), new NoOpListener()));
+        Assert.assertFalse(called.get());
+    }
+
+    @Test(expected = VcsException.class)
+    public void testStage_failureStopsStaging() throws VcsException {
+        final AtomicInteger calls = new AtomicInteger();
+        final BatchedGitStager stager = new BatchedGitStager(batch -> {
+            if (calls.incrementAndGet() == 2) {
+                throw new VcsException("add failed");
+            }
+        }, 10, Integer.MAX_VALUE, 1);
+        try {
+            stager.stage(generatePaths(100000).iterator(), new NoOpListener());
+        } finally {
+            // staging stops soon after the failure instead of going through every batch
+            Assert.assertTrue(calls.get() < 100);
+        }
+    }
+
+    @Test(expected = VcsException.class)
+    public void testStage_cancel() throws VcsException {
+        final AtomicInteger calls = new AtomicInteger();
+        final BatchedGitStager stager = new BatchedGitStager(batch -> calls.incrementAndGet(), 10, Integer.MAX_VALUE, 1);
+        stager.stage(generatePaths(1000).iterator(), new BatchedGitStager.Listener() {
+            @Override
+            public void onBatchStaged(final int stagedFiles, final int producedFiles) {
+            }
+
+            @Override
+            public boolean isCanceled() {
+                return calls.get() >= 3;
+            }
+        });
+    }
+
+    private static class NoOpListener implements BatchedGitStager.Listener {
+        @Override
+        public void onBatchStaged(final int stagedFiles, final int producedFiles) {
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return false;
+        }
+    }
+}
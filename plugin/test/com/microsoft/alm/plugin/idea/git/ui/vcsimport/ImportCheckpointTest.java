@@ -0,0 +1,59 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.git.ui.vcsimport;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+public class ImportCheckpointTest {
+    @Rule
+    public TemporaryFolder gitDirectory = new TemporaryFolder();
+
+    @Test
+    public void testLoad_noCheckpoint() {
+        final ImportCheckpoint checkpoint = ImportCheckpoint.load(gitDirectory.getRoot(), "repo", "project");
+        Assert.assertNull(checkpoint.getCompletedPhase());
+        Assert.assertFalse(checkpoint.isCompleted(ImportCheckpoint.Phase.STAGE_FILES));
+    }
+
+    @Test
+    public void testMarkCompleted_resumesAfterPhase() {
+        final ImportCheckpoint checkpoint = ImportCheckpoint.load(gitDirectory.getRoot(), "repo", "project");
+        checkpoint.markCompleted(ImportCheckpoint.Phase.STAGE_FILES);
+        checkpoint.markCompleted(ImportCheckpoint.Phase.COMMIT);
+        checkpoint.setRemoteUrl("https://account.visualstudio.com/project/_git/repo");
+        checkpoint.markCompleted(ImportCheckpoint.Phase.CREATE_REMOTE);
+
+        final ImportCheckpoint loaded = ImportCheckpoint.load(gitDirectory.getRoot(), "repo", "project");
+        Assert.assertEquals(ImportCheckpoint.Phase.CREATE_REMOTE, loaded.getCompletedPhase());
+        Assert.assertTrue(loaded.isCompleted(ImportCheckpoint.Phase.STAGE_FILES));
+        Assert.assertTrue(loaded.isCompleted(ImportCheckpoint.Phase.CREATE_REMOTE));
+        Assert.assertFalse(loaded.isCompleted(ImportCheckpoint.Phase.SETUP_REMOTE));
+        Assert.assertFalse(loaded.isCompleted(ImportCheckpoint.Phase.PUSH));
+        Assert.assertEquals("https://account.visualstudio.com/project/_git/repo", loaded.getRemoteUrl());
+    }
+
+    @Test
+    public void testLoad_checkpointOfAnotherImportIgnored() {
+        ImportCheckpoint.load(gitDirectory.getRoot(), "repo", "project").markCompleted(ImportCheckpoint.Phase.COMMIT);
+
+        Assert.assertNull(ImportCheckpoint.load(gitDirectory.getRoot(), "otherRepo", "project").getCompletedPhase());
+        Assert.assertNull(ImportCheckpoint.load(gitDirectory.getRoot(), "repo", "otherProject").getCompletedPhase());
+    }
+
+    @Test
+    public void testDelete() {
+        final ImportCheckpoint checkpoint = ImportCheckpoint.load(gitDirectory.getRoot(), "repo", "project");
+        checkpoint.markCompleted(ImportCheckpoint.Phase.PUSH);
+        Assert.assertTrue(new File(gitDirectory.getRoot(), ImportCheckpoint.FILE_NAME).exists());
+
+        checkpoint.delete();
+        Assert.assertFalse(new File(gitDirectory.getRoot(), ImportCheckpoint.FILE_NAME).exists());
+        Assert.assertNull(ImportCheckpoint.load(gitDirectory.getRoot(), "repo", "project").getCompletedPhase());
+    }
+}
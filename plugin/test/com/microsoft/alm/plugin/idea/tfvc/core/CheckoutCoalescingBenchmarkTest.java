@@ -0,0 +1,135 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.tfvc.core;
+
+import com.microsoft.alm.plugin.AbstractTest;
+import com.microsoft.alm.plugin.Benchmarks;
+import com.microsoft.alm.plugin.context.ServerContext;
+import com.microsoft.alm.plugin.external.ToolRunnerCache;
+import com.microsoft.alm.plugin.external.tools.FakeTfScenario;
+import com.microsoft.alm.plugin.external.utils.CommandUtils;
+import com.microsoft.tfs.model.connector.TfvcCheckoutResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures the checkouts of a rename refactoring touching 1,000 files against the fake tf client.
+ * <p/>
+ * The editor asks for the checkouts of a refactoring on the dispatch thread, in one request: {@link #testRename}
+ * measures this path, renaming the same files twice, without and through the {@link TfvcCheckoutCoordinator}, which
+ * skips the files already checked out. Only the background requests are coalesced: {@link #testBackgroundCheckouts}
+ * measures 1,000 single file requests coming from several threads.
+ * <p/>
+ * Only runs from the fakeTfBenchmark Gradle task.
+ */
+public class CheckoutCoalescingBenchmarkTest extends AbstractTest {
+    private static final int FILE_COUNT = 1000;
+    private static final int EDITOR_THREADS = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ServerContext serverContext = mock(ServerContext.class);
+    private final ExecutorService editor = Executors.newFixedThreadPool(EDITOR_THREADS);
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled(Benchmarks.FAKE_TF_PROPERTY);
+    }
+
+    @After
+    public void tearDown() {
+        editor.shutdownNow();
+        ToolRunnerCache.tearDown();
+    }
+
+    @Test
+    public void testRename() throws Exception {
+        final FakeTfScenario scenario = installScenario();
+        final List<Path> files = createFileList();
+
+        scenario.measure("two renames without the coordinator", FILE_COUNT + " files", () -> {
+            for (int i = 0; i < 2; i++) {
+                CommandUtils.checkoutFilesForEdit(serverContext, files, false);
+            }
+        });
+
+        // the change list knows about the edits once they are checked out
+        final Set<Path> pendingEdits = ConcurrentHashMap.newKeySet();
+        final TfvcCheckoutCoordinator coordinator = new TfvcCheckoutCoordinator(
+                (context, paths) -> {
+                    final TfvcCheckoutResult result = CommandUtils.checkoutFilesForEdit(context, paths, false);
+                    pendingEdits.addAll(paths);
+                    return result;
+                },
+                pendingEdits::contains,
+                () -> true,
+                TfvcCheckoutCoordinator.DEFAULT_WINDOW_MILLIS);
+        scenario.measure("two renames through the coordinator", FILE_COUNT + " files", () -> {
+            for (int i = 0; i < 2; i++) {
+                coordinator.checkoutForEdit(serverContext, files);
+            }
+        });
+    }
+
+    @Test
+    public void testBackgroundCheckouts() throws Exception {
+        final FakeTfScenario scenario = installScenario();
+        final List<Path> files = createFileList();
+
+        scenario.measure("one checkout per request", FILE_COUNT + " files", () -> checkOutConcurrently(files,
+                file -> CommandUtils.checkoutFilesForEdit(serverContext, Collections.singletonList(file), false)));
+
+        final TfvcCheckoutCoordinator coordinator = new TfvcCheckoutCoordinator(
+                (context, paths) -> CommandUtils.checkoutFilesForEdit(context, paths, false),
+                path -> false,
+                () -> false,
+                TfvcCheckoutCoordinator.DEFAULT_WINDOW_MILLIS);
+        scenario.measure("coalesced checkouts", FILE_COUNT + " files", () -> checkOutConcurrently(files,
+                file -> coordinator.checkoutForEdit(serverContext, Collections.singletonList(file))));
+    }
+
+    private FakeTfScenario installScenario() throws IOException {
+        final FakeTfScenario scenario = new FakeTfScenario(folder.newFolder("tf"));
+        scenario.install();
+        return scenario;
+    }
+
+    private List<Path> createFileList() throws IOException {
+        final File root = folder.newFolder("workspace");
+        final List<Path> files = new ArrayList<>(FILE_COUNT);
+        for (int i = 0; i < FILE_COUNT; i++) {
+            files.add(root.toPath().resolve("folder" + (i / 100) + "/File" + i + ".java"));
+        }
+        return files;
+    }
+
+    private void checkOutConcurrently(final List<Path> files, final Consumer<Path> checkout) throws Exception {
+        final List<Future<?>> requests = new ArrayList<>(files.size());
+        for (final Path file : files) {
+            requests.add(editor.submit(() -> checkout.accept(file)));
+        }
+        for (final Future<?> request : requests) {
+            request.get();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.tfvc.core;
+
+import com.google.common.collect.ImmutableList;
+import com.microsoft.alm.plugin.external.models.PendingChange;
+import com.microsoft.alm.plugin.external.models.ServerStatusType;
+import com.microsoft.alm.plugin.idea.tfvc.core.tfs.TfsContentHashCache;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+
+public class ContentIdenticalEditsTest {
+    private static final byte[] BASE_CONTENT = "class Main {}".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExecutorService hashers = Executors.newFixedThreadPool(2);
+
+    @After
+    public void tearDown() {
+        hashers.shutdownNow();
+    }
+
+    @Test
+    public void testFind() throws Exception {
+        final TfsContentHashCache cache = new TfsContentHashCache(folder.getRoot().toPath().resolve("hashes"), hashers);
+        final byte[] baseHash = MessageDigest.getInstance("MD5").digest(BASE_CONTENT);
+
+        final PendingChange formatted = edit("Formatted.java", BASE_CONTENT, baseHash, ServerStatusType.EDIT);
+        final PendingChange edited = edit("Edited.java", "class Edited { }".getBytes(StandardCharsets.UTF_8),
+                baseHash, ServerStatusType.EDIT);
+        final PendingChange renamed = edit("Renamed.java", BASE_CONTENT, baseHash,
+                ServerStatusType.RENAME, ServerStatusType.EDIT);
+        final PendingChange unknownBase = edit("Unknown.java", BASE_CONTENT, null, ServerStatusType.EDIT);
+        final PendingChange deleted = change("Deleted.java", baseHash, ServerStatusType.EDIT);
+
+        final List<PendingChange> changes = Arrays.asList(formatted, edited, renamed, unknownBase, deleted);
+        final List<Path> roots = Collections.singletonList(folder.getRoot().toPath());
+        assertEquals(Collections.singletonList(formatted), ContentIdenticalEdits.find(cache, roots, changes));
+        assertEquals(Collections.emptyList(), ContentIdenticalEdits.find(cache, roots, Collections.emptyList()));
+    }
+
+    private PendingChange edit(final String name, final byte[] content, final byte[] baseHash,
+                               final ServerStatusType... changeTypes) throws Exception {
+        Files.write(folder.getRoot().toPath().resolve(name), content);
+        return change(name, baseHash, changeTypes);
+    }
+
+    private PendingChange change(final String name, final byte[] baseHash, final ServerStatusType... changeTypes) {
+        final Path file = folder.getRoot().toPath().resolve(name);
+        return new PendingChange("$/project/" + name, file.toString(), "1", "user", "2019-04-01T12:00:00.000-0400",
+                "none", ImmutableList.copyOf(changeTypes), "workspace", "computer", false, "", baseHash);
+    }
+}
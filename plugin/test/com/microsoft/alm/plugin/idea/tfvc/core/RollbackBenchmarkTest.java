@@ -0,0 +1,104 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.tfvc.core;
+
+import com.microsoft.alm.plugin.AbstractTest;
+import com.microsoft.alm.plugin.Benchmarks;
+import com.microsoft.alm.plugin.context.ServerContext;
+import com.microsoft.alm.plugin.external.ToolRunnerCache;
+import com.microsoft.alm.plugin.external.tools.FakeTfScenario;
+import com.microsoft.alm.plugin.external.utils.CommandUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures the rollback of 100, 1,000 and 20,000 files against the fake tf client: the restoring of missing files
+ * one tf process per file (skipped for 20,000 files, which takes minutes) and batched, and the undo in one call and in
+ * batches of growing size, reporting when the first files are undone.
+ * <p/>
+ * Only runs from the fakeTfBenchmark Gradle task.
+ */
+public class RollbackBenchmarkTest extends AbstractTest {
+    private static final int[] FILE_COUNTS = {100, 1000, 20000};
+    private static final int MAX_PER_FILE_COUNT = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ServerContext serverContext = mock(ServerContext.class);
+    private FakeTfScenario scenario;
+    private File root;
+
+    @Before
+    public void setUp() throws Exception {
+        Benchmarks.assumeEnabled(Benchmarks.FAKE_TF_PROPERTY);
+        root = folder.newFolder("workspace");
+        scenario = new FakeTfScenario(folder.newFolder("tf"));
+        scenario.install();
+    }
+
+    @After
+    public void tearDown() {
+        ToolRunnerCache.tearDown();
+    }
+
+    @Test
+    public void testForceGet() throws Exception {
+        for (final int count : FILE_COUNTS) {
+            final List<String> files = createPaths(count);
+            if (count <= MAX_PER_FILE_COUNT) {
+                scenario.measure("force get per file", count + " files", () -> {
+                    for (final String file : files) {
+                        CommandUtils.forceGetFiles(serverContext, Collections.singletonList(file), batch -> {
+                        });
+                    }
+                });
+            }
+            scenario.measure("batched force get", count + " files",
+                    () -> CommandUtils.forceGetFiles(serverContext, files, batch -> {
+                    }));
+        }
+    }
+
+    @Test
+    public void testUndo() throws Exception {
+        for (final int count : FILE_COUNTS) {
+            final List<String> files = createPaths(count);
+            scenario.measure("undo in one call", count + " files",
+                    () -> CommandUtils.undoLocalFiles(serverContext, files));
+
+            final long start = System.nanoTime();
+            final long[] firstBatchMillis = {-1};
+            scenario.measure("undo in growing batches", count + " files", () -> {
+                for (final List<String> batch : TFSRollbackEnvironment.partitionGrowing(files, 100, 2000)) {
+                    CommandUtils.undoLocalFiles(serverContext, batch);
+                    if (firstBatchMillis[0] < 0) {
+                        firstBatchMillis[0] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                }
+            });
+            Benchmarks.report("undo in growing batches", count + " files: first batch after " + firstBatchMillis[0]
+                    + " ms");
+        }
+    }
+
+    private List<String> createPaths(final int count) {
+        final List<String> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            files.add(new File(root, "folder" + (i / 100) + File.separator + "File" + i + ".java").getPath());
+        }
+        return files;
+    }
+}
@@ -43,6 +43,8 @@ import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.verifyStatic;
 
@@ -102,11 +104,29 @@ public class TFSCheckinEnvironmentTest extends IdeaAbstractTest {
     public void testCommit_Happy() {
         setupCommit();
         when(CommandUtils.checkinFiles(mockServerContext, ImmutableList.of("/path/to/file1", "/path/to/file2", "/path/to/file3"),
-                comment, null)).thenReturn("12345");
+                comment, Collections.emptyList())).thenReturn("12345");
 
         List<VcsException> exceptions =
                 tfsCheckinEnvironment.commit(changes, comment, mockNullableFunction, null);
         assertTrue(exceptions.isEmpty());
+        verify(mockVcsNotifier).notifyImportantInfo(any(String.class), any(String.class), any());
+    }
+
+    @Test
+    public void testCommit_ValidationErrors() {
+        setupCommit();
+        ClassicTfvcClient mockClient = mock(ClassicTfvcClient.class);
+        when(ServiceManager.getService(eq(mockProject), any())).thenReturn(mockClient);
+        when(mockClient.checkinFiles(eq(mockServerContext), anyList(), eq(comment), anyList(), any()))
+                .thenReturn(new TfvcCheckinResult(null, ImmutableList.of(
+                        "Resolve the conflict on $/project/file1 before checking in",
+                        "Work item #12 does not exist")));
+
+        List<VcsException> exceptions =
+                tfsCheckinEnvironment.commit(changes, comment, mockNullableFunction, null);
+        assertEquals(2, exceptions.size());
+        assertEquals("Work item #12 does not exist", exceptions.get(1).getMessage());
+        verifyZeroInteractions(mockVcsNotifier);
     }
 
     @Test
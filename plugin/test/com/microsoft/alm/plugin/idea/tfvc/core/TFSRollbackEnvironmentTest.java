@@ -13,7 +13,6 @@ import com.intellij.openapi.vcs.changes.Change;
 import com.intellij.openapi.vcs.changes.ContentRevision;
 import com.intellij.openapi.vcs.rollback.RollbackProgressListener;
 import com.intellij.openapi.vfs.LocalFileSystem;
-import com.intellij.openapi.vfs.VirtualFile;
 import com.microsoft.alm.plugin.context.ServerContext;
 import com.microsoft.alm.plugin.external.utils.CommandUtils;
 import com.microsoft.alm.plugin.idea.IdeaAbstractTest;
@@ -32,6 +31,7 @@ import org.powermock.modules.junit4.PowerMockRunner;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -39,8 +39,8 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.doThrow;
 import static org.powermock.api.mockito.PowerMockito.verifyStatic;
@@ -95,18 +95,44 @@ public class TFSRollbackEnvironmentTest extends IdeaAbstractTest {
     @Test
     public void testRollbackChanges_Happy() {
         setupRollbackChanges();
-        VirtualFile mockVirtualFile = mock(VirtualFile.class);
-        VirtualFile mockVirtualFileParent = mock(VirtualFile.class);
         when(CommandUtils.undoLocalFiles(mockServerContext, filePaths)).thenReturn(filePaths);
-        when(mockVirtualFileParent.exists()).thenReturn(true);
-        when(mockVirtualFile.getParent()).thenReturn(mockVirtualFileParent);
-        when(mockLocalFileSystem.findFileByIoFile(any(File.class))).thenReturn(mockVirtualFile);
 
         rollbackEnvironment.rollbackChanges(changes, exceptions, mockRollbackProgressListener);
         ArgumentCaptor<List> arg = ArgumentCaptor.forClass(List.class);
         verifyStatic(times(1));
-        TfsFileUtil.refreshAndMarkDirty(eq(mockProject), arg.capture(), eq(true));
+        TfsFileUtil.refreshFilesAndMarkDirty(eq(mockProject), arg.capture(), eq(true));
         assertEquals(3, arg.getValue().size());
+        verify(mockRollbackProgressListener, times(3)).accept(any(File.class));
+        assertTrue(exceptions.isEmpty());
+    }
+
+    @Test
+    public void testRollbackChanges_Batches() {
+        List<String> paths = new ArrayList<>();
+        List<Change> manyChanges = new ArrayList<>();
+        for (int i = 0; i < 350; i++) {
+            String path = "/path/to/file" + i;
+            paths.add(path);
+            FilePath filePath = mock(FilePath.class);
+            when(filePath.getPath()).thenReturn(path);
+            ContentRevision revision = mock(ContentRevision.class);
+            when(revision.getFile()).thenReturn(filePath);
+            Change change = mock(Change.class);
+            when(change.getType()).thenReturn(Change.Type.MODIFICATION);
+            when(change.getAfterRevision()).thenReturn(revision);
+            manyChanges.add(change);
+        }
+        when(CommandUtils.undoLocalFiles(eq(mockServerContext), any(List.class)))
+                .thenAnswer(invocation -> invocation.getArguments()[1]);
+
+        rollbackEnvironment.rollbackChanges(manyChanges, exceptions, mockRollbackProgressListener);
+        ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+        verifyStatic(times(3));
+        CommandUtils.undoLocalFiles(eq(mockServerContext), batches.capture());
+        assertEquals(100, batches.getAllValues().get(0).size());
+        assertEquals(200, batches.getAllValues().get(1).size());
+        assertEquals(50, batches.getAllValues().get(2).size());
+        verify(mockRollbackProgressListener, times(350)).accept(any(File.class));
         assertTrue(exceptions.isEmpty());
     }
 
@@ -116,8 +142,10 @@ public class TFSRollbackEnvironmentTest extends IdeaAbstractTest {
         when(CommandUtils.undoLocalFiles(mockServerContext, filePaths)).thenThrow(new RuntimeException("test error"));
 
         rollbackEnvironment.rollbackChanges(changes, exceptions, mockRollbackProgressListener);
-        verifyStatic(never());
-        TfsFileUtil.refreshAndMarkDirty(any(Project.class), any(List.class), anyBoolean());
+        ArgumentCaptor<List> arg = ArgumentCaptor.forClass(List.class);
+        verifyStatic(times(1));
+        TfsFileUtil.refreshFilesAndMarkDirty(eq(mockProject), arg.capture(), anyBoolean());
+        assertTrue(arg.getValue().isEmpty());
         assertEquals(1, exceptions.size());
     }
 
@@ -126,14 +154,15 @@ public class TFSRollbackEnvironmentTest extends IdeaAbstractTest {
         rollbackEnvironment.rollbackMissingFileDeletion(ImmutableList.of(filePath1, filePath2, filePath3),
                 exceptions, mockRollbackProgressListener);
         verifyStatic(times(1));
-        CommandUtils.forceGetFile(mockServerContext, "/path/to/file1");
-        CommandUtils.forceGetFile(mockServerContext, "/path/to/file2");
-        CommandUtils.forceGetFile(mockServerContext, "/path/to/file3");
+        CommandUtils.forceGetFiles(eq(mockServerContext),
+                eq(ImmutableList.of("/path/to/file1", "/path/to/file2", "/path/to/file3")), any(Consumer.class));
+        assertTrue(exceptions.isEmpty());
     }
 
     @Test
     public void testRollbackMissingFileDeletion_Excepion() throws Exception {
-        doThrow(new RuntimeException("test error")).when(CommandUtils.class, "forceGetFile", mockServerContext, "/path/to/file1");
+        doThrow(new RuntimeException("test error")).when(CommandUtils.class, "forceGetFiles",
+                eq(mockServerContext), eq(ImmutableList.of("/path/to/file1")), any(Consumer.class));
 
         rollbackEnvironment.rollbackMissingFileDeletion(ImmutableList.of(filePath1), exceptions, mockRollbackProgressListener);
         assertEquals(1, exceptions.size());
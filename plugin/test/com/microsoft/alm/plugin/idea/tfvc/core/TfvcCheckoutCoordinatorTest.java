@@ -0,0 +1,200 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.tfvc.core;
+
+import com.microsoft.alm.plugin.context.ServerContext;
+import com.microsoft.alm.plugin.idea.tfvc.core.tfs.TfsFileUtil;
+import com.microsoft.tfs.model.connector.TfsLocalPath;
+import com.microsoft.tfs.model.connector.TfvcCheckoutResult;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class TfvcCheckoutCoordinatorTest {
+    private static final long WINDOW_MILLIS = 200;
+
+    private final ServerContext serverContext = mock(ServerContext.class);
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final List<List<Path>> batches = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test(timeout = 10000)
+    public void concurrentRequestsAreCoalesced() throws Exception {
+        TfvcCheckoutCoordinator coordinator = new TfvcCheckoutCoordinator(
+                this::checkoutAll, path -> false, () -> false, WINDOW_MILLIS);
+
+        List<Future<TfvcCheckoutResult>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Path path = Paths.get("/workspace/File" + i + ".java");
+            results.add(callers.submit(() -> coordinator.checkoutForEdit(serverContext, Collections.singletonList(path))));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(
+                    Collections.singletonList("/workspace/File" + i + ".java"),
+                    getPaths(results.get(i).get().getCheckedOutFiles()));
+        }
+        assertEquals(1, batches.size());
+        assertEquals(10, batches.get(0).size());
+    }
+
+    @Test(timeout = 10000)
+    public void filesWithPendingEditsAreNotCheckedOut() {
+        Path edited = Paths.get("/workspace/Edited.java");
+        Path file = Paths.get("/workspace/File.java");
+        TfvcCheckoutCoordinator coordinator = new TfvcCheckoutCoordinator(
+                this::checkoutAll, edited::equals, () -> false, WINDOW_MILLIS);
+
+        TfvcCheckoutResult result = coordinator.checkoutForEdit(serverContext, Arrays.asList(edited, file));
+        assertEquals(Arrays.asList("/workspace/Edited.java", "/workspace/File.java"), getPaths(result.getCheckedOutFiles()));
+        assertEquals(Collections.singletonList(Collections.singletonList(file)), batches);
+
+        result = coordinator.checkoutForEdit(serverContext, Collections.singletonList(edited));
+        assertEquals(Collections.singletonList("/workspace/Edited.java"), getPaths(result.getCheckedOutFiles()));
+        assertEquals(1, batches.size());
+    }
+
+    @Test(timeout = 10000)
+    public void filesBeingCheckedOutAreNotSentTwice() throws Exception {
+        CountDownLatch batchStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TfvcCheckoutCoordinator coordinator = new TfvcCheckoutCoordinator((context, paths) -> {
+            batchStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return checkoutAll(context, paths);
+        }, path -> false, () -> false, WINDOW_MILLIS);
+
+        Path path = Paths.get("/workspace/File.java");
+        Future<TfvcCheckoutResult> first = callers.submit(
+                () -> coordinator.checkoutForEdit(serverContext, Collections.singletonList(path)));
+        assertTrue(batchStarted.await(5, TimeUnit.SECONDS));
+        AtomicReference<Thread> secondThread = new AtomicReference<>();
+        Future<TfvcCheckoutResult> second = callers.submit(() -> {
+            secondThread.set(Thread.currentThread());
+            return coordinator.checkoutForEdit(serverContext, Collections.singletonList(path));
+        });
+        // release the batch once the second request waits for it
+        while (secondThread.get() == null || secondThread.get().getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        assertEquals(Collections.singletonList("/workspace/File.java"), getPaths(first.get().getCheckedOutFiles()));
+        assertEquals(Collections.singletonList("/workspace/File.java"), getPaths(second.get().getCheckedOutFiles()));
+        assertEquals(1, batches.size());
+    }
+
+    @Test(timeout = 10000)
+    public void resultsAreSplitBetweenCallers() throws Exception {
+        Path found = Paths.get("/workspace/Found.java");
+        Path missing = Paths.get("/workspace/Missing.java");
+        TfvcCheckoutCoordinator coordinator = new TfvcCheckoutCoordinator((context, paths) -> {
+            batches.add(paths);
+            return new TfvcCheckoutResult(
+                    Collections.singletonList(TfsFileUtil.createLocalPath(found)),
+                    Collections.singletonList(TfsFileUtil.createLocalPath(missing)),
+                    Arrays.asList("TF10123: " + missing + " is locked", "TF30063: not authorized"));
+        }, path -> false, () -> false, WINDOW_MILLIS);
+
+        Future<TfvcCheckoutResult> foundResult = callers.submit(
+                () -> coordinator.checkoutForEdit(serverContext, Collections.singletonList(found)));
+        Future<TfvcCheckoutResult> missingResult = callers.submit(
+                () -> coordinator.checkoutForEdit(serverContext, Collections.singletonList(missing)));
+
+        assertEquals(Collections.singletonList("/workspace/Found.java"), getPaths(foundResult.get().getCheckedOutFiles()));
+        assertEquals(Collections.emptyList(), foundResult.get().getNotFoundFiles());
+        assertEquals(Collections.singletonList("TF30063: not authorized"), foundResult.get().getErrorMessages());
+
+        assertEquals(Collections.emptyList(), missingResult.get().getCheckedOutFiles());
+        assertEquals(Collections.singletonList("/workspace/Missing.java"), getPaths(missingResult.get().getNotFoundFiles()));
+        assertEquals(2, missingResult.get().getErrorMessages().size());
+        assertEquals(1, batches.size());
+    }
+
+    @Test(timeout = 10000)
+    public void dispatchThreadChecksOutItsFilesRightAway() throws Exception {
+        long window = TimeUnit.MINUTES.toMillis(1);
+        List<Thread> checkoutThreads = new CopyOnWriteArrayList<>();
+        TfvcCheckoutCoordinator coordinator = new TfvcCheckoutCoordinator((context, paths) -> {
+            checkoutThreads.add(Thread.currentThread());
+            return checkoutAll(context, paths);
+        }, path -> false, () -> true, window);
+
+        Path path = Paths.get("/workspace/File.java");
+        TfvcCheckoutResult result = coordinator.checkoutForEdit(serverContext, Collections.singletonList(path));
+
+        // no window, and nothing to wait for on other threads
+        assertEquals(Collections.singletonList("/workspace/File.java"), getPaths(result.getCheckedOutFiles()));
+        assertEquals(Collections.singletonList(Thread.currentThread()), checkoutThreads);
+    }
+
+    @Test(timeout = 10000)
+    public void dispatchThreadDoesNotWaitForBackgroundBatches() throws Exception {
+        CountDownLatch backgroundStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread dispatchThread = Thread.currentThread();
+        TfvcCheckoutCoordinator coordinator = new TfvcCheckoutCoordinator((context, paths) -> {
+            if (Thread.currentThread() != dispatchThread) {
+                // the background batch needs the dispatch thread to go on
+                backgroundStarted.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return checkoutAll(context, paths);
+        }, path -> false, () -> Thread.currentThread() == dispatchThread, 0);
+
+        Path path = Paths.get("/workspace/File.java");
+        Future<TfvcCheckoutResult> background = callers.submit(
+                () -> coordinator.checkoutForEdit(serverContext, Collections.singletonList(path)));
+        assertTrue(backgroundStarted.await(5, TimeUnit.SECONDS));
+
+        TfvcCheckoutResult result = coordinator.checkoutForEdit(serverContext, Collections.singletonList(path));
+        assertEquals(Collections.singletonList("/workspace/File.java"), getPaths(result.getCheckedOutFiles()));
+
+        release.countDown();
+        assertEquals(Collections.singletonList("/workspace/File.java"), getPaths(background.get().getCheckedOutFiles()));
+        assertEquals(2, batches.size());
+    }
+
+    private TfvcCheckoutResult checkoutAll(ServerContext context, List<Path> paths) {
+        batches.add(paths);
+        return new TfvcCheckoutResult(
+                paths.stream().map(TfsFileUtil::createLocalPath).collect(Collectors.toList()),
+                Collections.emptyList(),
+                Collections.emptyList());
+    }
+
+    private static List<String> getPaths(List<TfsLocalPath> files) {
+        return files.stream().map(file -> Paths.get(file.getPath()).toString().replace('\\', '/')).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,200 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.tfvc.core.tfs;
+
+import com.google.common.collect.ImmutableList;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.microsoft.alm.plugin.external.commands.StatusCommand;
+import com.microsoft.alm.plugin.external.models.PendingChange;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.microsoft.alm.plugin.idea.tfvc.FileSystemTestUtil.createTempFileSystem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TfIgnoreMatcherTest {
+
+    private static final List<String> FILES = ImmutableList.of(
+            ".tfignore",
+            "build.log",
+            "important.log",
+            "docs/readme.md",
+            "docs/generated/index.html",
+            "src/app/Main.java",
+            "src/app/trace.log",
+            "src/app/app.csproj.user",
+            "src/app/bin/Main.class",
+            "src/app/obj/Debug/app.pdb",
+            "src/lib/.tfignore",
+            "src/lib/lib.csproj.user",
+            "src/lib/bin/lib.dll",
+            "src/lib/cache/data.tmp");
+
+    /**
+     * Output of "tf status -format:xml -recursive" for the workspace: only the items not ignored by the .tfignore
+     * files are candidates
+     */
+    private static final String STATUS_OUTPUT = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+            "<status>\n" +
+            "<pending-changes/>\n" +
+            "<candidate-pending-changes>\n" +
+            candidate(".tfignore") +
+            candidate("important.log") +
+            candidate("docs/readme.md") +
+            candidate("src/app/Main.java") +
+            candidate("src/app/trace.log") +
+            candidate("src/lib/.tfignore") +
+            candidate("src/lib/lib.csproj.user") +
+            "</candidate-pending-changes>\n" +
+            "</status>";
+
+    @Test
+    public void conformsToStatusCandidates() throws IOException {
+        Path root = createWorkspace();
+        TfIgnoreMatcher matcher = new TfIgnoreMatcher();
+
+        Set<String> candidates = new TreeSet<>();
+        List<PendingChange> changes = new StatusCommand(null, root.toString())
+                .parseOutput(STATUS_OUTPUT.replace("ROOT", root.toString()), "");
+        for (PendingChange change : changes) {
+            assertTrue(change.isCandidate());
+            candidates.add(root.relativize(Paths.get(change.getLocalItem())).toString()
+                    .replace('\\', '/'));
+        }
+
+        Set<String> notIgnored = new TreeSet<>();
+        for (String file : FILES) {
+            if (!matcher.isIgnored(root, root.resolve(file), false)) {
+                notIgnored.add(file);
+            }
+        }
+
+        assertEquals(candidates, notIgnored);
+    }
+
+    @Test
+    public void ignoredDirectories() throws IOException {
+        Path root = createWorkspace();
+        TfIgnoreMatcher matcher = new TfIgnoreMatcher();
+
+        assertTrue(matcher.isIgnored(root, root.resolve("src/app/bin"), true));
+        assertTrue(matcher.isIgnored(root, root.resolve("docs/generated"), true));
+        assertFalse(matcher.isIgnored(root, root.resolve("src/app"), true));
+        assertFalse(matcher.isIgnored(root, root, true));
+    }
+
+    @Test
+    public void tfIgnoreFilesAboveRootAreNotRead() throws IOException {
+        Path root = createWorkspace();
+        TfIgnoreMatcher matcher = new TfIgnoreMatcher();
+
+        assertTrue(matcher.isIgnored(root, root.resolve("src/lib/cache/data.tmp"), false));
+        assertFalse(matcher.isIgnored(root.resolve("src/lib/cache"), root.resolve("src/lib/cache/data.tmp"), false));
+        assertFalse(matcher.isIgnored(root.resolve("docs"), root.resolve("src/app/bin/Main.class"), false));
+    }
+
+    @Test
+    public void rulesAreCachedUntilInvalidated() throws IOException {
+        Path root = createWorkspace();
+        Path item = root.resolve("src/app/Main.java");
+        TfIgnoreMatcher matcher = new TfIgnoreMatcher();
+        assertFalse(matcher.isIgnored(root, item, false));
+
+        Path tfIgnore = root.resolve("src/app/.tfignore");
+        Files.write(tfIgnore, Collections.singletonList("*.java"), StandardCharsets.UTF_8);
+        assertFalse(matcher.isIgnored(root, item, false));
+
+        matcher.invalidate(tfIgnore.getParent());
+        assertTrue(matcher.isIgnored(root, item, false));
+    }
+
+    @Test
+    public void rulesAreInvalidatedByVfsEvents() throws IOException {
+        Path root = createWorkspace();
+        Path item = root.resolve("src/app/Main.java");
+        TfIgnoreMatcher matcher = new TfIgnoreMatcher();
+        assertFalse(matcher.isIgnored(root, item, false));
+
+        Path tfIgnore = root.resolve(".tfignore");
+        Files.write(tfIgnore, Collections.singletonList("*.java"), StandardCharsets.UTF_8);
+        VirtualFile virtualTfIgnore = mock(VirtualFile.class);
+        when(virtualTfIgnore.getPath()).thenReturn(tfIgnore.toString().replace('\\', '/'));
+        when(virtualTfIgnore.getName()).thenReturn(TfIgnoreUtil.TFIGNORE_FILE_NAME);
+        matcher.after(Collections.singletonList(new VFileContentChangeEvent(null, virtualTfIgnore, 0L, 1L, true)));
+
+        assertTrue(matcher.isIgnored(root, item, false));
+    }
+
+    @Test
+    public void utf8ByteOrderMarkIsNotPartOfTheFirstRule() throws IOException {
+        Path root = createTempFileSystem("trace.log", "Main.java");
+        Files.write(root.resolve(".tfignore"), bytes(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF},
+                "*.log\r\n".getBytes(StandardCharsets.UTF_8)));
+        TfIgnoreMatcher matcher = new TfIgnoreMatcher();
+
+        assertTrue(matcher.isIgnored(root, root.resolve("trace.log"), false));
+        assertFalse(matcher.isIgnored(root, root.resolve("Main.java"), false));
+    }
+
+    @Test
+    public void utf16FilesAreDecoded() throws IOException {
+        Path root = createTempFileSystem("trace.log", "app.user", "Main.java");
+        TfIgnoreMatcher matcher = new TfIgnoreMatcher();
+
+        Files.write(root.resolve(".tfignore"), bytes(new byte[]{(byte) 0xFF, (byte) 0xFE},
+                "*.log\r\n*.user\r\n".getBytes(StandardCharsets.UTF_16LE)));
+        assertTrue(matcher.isIgnored(root, root.resolve("trace.log"), false));
+        assertTrue(matcher.isIgnored(root, root.resolve("app.user"), false));
+        assertFalse(matcher.isIgnored(root, root.resolve("Main.java"), false));
+
+        Files.write(root.resolve(".tfignore"), bytes(new byte[]{(byte) 0xFE, (byte) 0xFF},
+                "*.java\n".getBytes(StandardCharsets.UTF_16BE)));
+        matcher.invalidateAll();
+        assertTrue(matcher.isIgnored(root, root.resolve("Main.java"), false));
+        assertFalse(matcher.isIgnored(root, root.resolve("trace.log"), false));
+    }
+
+    private static byte[] bytes(byte[] byteOrderMark, byte[] content) {
+        byte[] result = Arrays.copyOf(byteOrderMark, byteOrderMark.length + content.length);
+        System.arraycopy(content, 0, result, byteOrderMark.length, content.length);
+        return result;
+    }
+
+    private static Path createWorkspace() throws IOException {
+        Path root = createTempFileSystem(FILES.toArray(new String[0]));
+        Files.write(root.resolve(".tfignore"), Arrays.asList(
+                "# build outputs",
+                "bin",
+                "obj\\",
+                "*.user",
+                "\\*.log",
+                "!important.log",
+                "\\docs\\generated"), StandardCharsets.UTF_8);
+        Files.write(root.resolve("src/lib/.tfignore"), Arrays.asList(
+                "!*.user",
+                "*.tmp"), StandardCharsets.UTF_8);
+        return root.toRealPath();
+    }
+
+    private static String candidate(String relativePath) {
+        return "<pending-change server-item=\"$/project/" + relativePath + "\" version=\"0\" owner=\"user\" " +
+                "date=\"2019-04-01T12:00:00.000-0400\" lock=\"none\" change-type=\"add\" workspace=\"workspace\" " +
+                "computer=\"computer\" local-item=\"ROOT/" + relativePath + "\"/>\n";
+    }
+}
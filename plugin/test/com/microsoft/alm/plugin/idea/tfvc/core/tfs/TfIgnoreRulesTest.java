@@ -0,0 +1,87 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.tfvc.core.tfs;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TfIgnoreRulesTest {
+
+    @Test
+    public void wildcards() {
+        assertTrue(TfIgnoreRules.matchesWildcard("*.dll", "lib.dll"));
+        assertTrue(TfIgnoreRules.matchesWildcard("*.dll", ".dll"));
+        assertTrue(TfIgnoreRules.matchesWildcard("lib?.*", "lib1.dll"));
+        assertTrue(TfIgnoreRules.matchesWildcard("*a*b*", "xxaxxbxx"));
+        assertTrue(TfIgnoreRules.matchesWildcard("*", ""));
+        assertTrue(TfIgnoreRules.matchesWildcard("BIN", "bin"));
+        assertFalse(TfIgnoreRules.matchesWildcard("*.dll", "lib.dll.config"));
+        assertFalse(TfIgnoreRules.matchesWildcard("lib?.dll", "lib.dll"));
+        assertFalse(TfIgnoreRules.matchesWildcard("*a*b", "xxaxxbxx"));
+    }
+
+    @Test
+    public void commentsAndEmptyLines() {
+        TfIgnoreRules rules = TfIgnoreRules.parse(Arrays.asList("# comment", "", "   ", "#*.dll"));
+        assertTrue(rules.isEmpty());
+        assertNull(rules.match(components("lib.dll"), false));
+    }
+
+    @Test
+    public void recursiveFilespec() {
+        TfIgnoreRules rules = TfIgnoreRules.parse(Arrays.asList("*.dll", "bin"));
+        assertEquals(Boolean.TRUE, rules.match(components("lib.dll"), false));
+        assertEquals(Boolean.TRUE, rules.match(components("src/lib/lib.dll"), false));
+        assertEquals(Boolean.TRUE, rules.match(components("src/bin"), true));
+        assertEquals(Boolean.TRUE, rules.match(components("src/Bin/Debug/app.exe"), false));
+        assertNull(rules.match(components("src/binary/app.exe"), false));
+    }
+
+    @Test
+    public void anchoredFilespec() {
+        TfIgnoreRules rules = TfIgnoreRules.parse(Arrays.asList("\\*.log", "/out"));
+        assertEquals(Boolean.TRUE, rules.match(components("build.log"), false));
+        assertEquals(Boolean.TRUE, rules.match(components("out/app.exe"), false));
+        assertNull(rules.match(components("src/build.log"), false));
+        assertNull(rules.match(components("src/out/app.exe"), false));
+    }
+
+    @Test
+    public void filespecWithPath() {
+        TfIgnoreRules rules = TfIgnoreRules.parse(Arrays.asList("obj\\Debug", "\\docs\\generated"));
+        assertEquals(Boolean.TRUE, rules.match(components("obj/Debug/app.pdb"), false));
+        assertEquals(Boolean.TRUE, rules.match(components("src/obj/debug"), true));
+        assertEquals(Boolean.TRUE, rules.match(components("docs/generated/index.html"), false));
+        assertNull(rules.match(components("obj/Release/app.pdb"), false));
+        assertNull(rules.match(components("src/docs/generated/index.html"), false));
+    }
+
+    @Test
+    public void directoryOnlyFilespec() {
+        TfIgnoreRules rules = TfIgnoreRules.parse(Arrays.asList("packages\\"));
+        assertEquals(Boolean.TRUE, rules.match(components("packages"), true));
+        assertEquals(Boolean.TRUE, rules.match(components("packages/lib/lib.dll"), false));
+        assertNull(rules.match(components("src/packages"), false));
+    }
+
+    @Test
+    public void exclusionWinsOverIgnore() {
+        TfIgnoreRules rules = TfIgnoreRules.parse(Arrays.asList("!important.dll", "*.dll"));
+        assertEquals(Boolean.FALSE, rules.match(components("bin/important.dll"), false));
+        assertEquals(Boolean.TRUE, rules.match(components("bin/other.dll"), false));
+
+        rules = TfIgnoreRules.parse(Arrays.asList("*.dll", "! important.dll"));
+        assertEquals(Boolean.FALSE, rules.match(components("important.dll"), false));
+    }
+
+    private static String[] components(String relativePath) {
+        return relativePath.split("/");
+    }
+}
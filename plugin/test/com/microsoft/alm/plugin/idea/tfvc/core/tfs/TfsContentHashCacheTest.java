@@ -0,0 +1,179 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.idea.tfvc.core.tfs;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class TfsContentHashCacheTest {
+    // older than the racy window, so that the hashes are cached
+    private static final FileTime OLD_TIME = FileTime.fromMillis(1554120000000L);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExecutorService hashers = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        hashers.shutdownNow();
+    }
+
+    @Test
+    public void testCalculateMD5() throws Exception {
+        assertArrayEquals(md5(new byte[0]), TfsContentHashCache.calculateMD5(write("empty.txt", new byte[0])));
+
+        final byte[] small = "public class Main {}".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(md5(small), TfsContentHashCache.calculateMD5(write("Main.java", small)));
+
+        // larger than the read buffer
+        final byte[] large = new byte[1024 * 1024 + 7];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) (i * 31);
+        }
+        assertArrayEquals(md5(large), TfsContentHashCache.calculateMD5(write("large.bin", large)));
+    }
+
+    @Test
+    public void testHashesAreCachedBySizeAndTime() throws Exception {
+        final TfsContentHashCache cache = new TfsContentHashCache(folder.getRoot().toPath().resolve("hashes"), hashers);
+        final Path file = write("Main.java", bytes("aaaa"));
+
+        assertArrayEquals(md5(bytes("aaaa")), cache.getHash(file));
+        assertEquals(1, cache.size());
+
+        // same size and time: the cached hash is trusted
+        rewrite(file, bytes("bbbb"), OLD_TIME);
+        assertArrayEquals(md5(bytes("aaaa")), cache.getHash(file));
+
+        // a new time is a new content
+        rewrite(file, bytes("bbbb"), FileTime.fromMillis(OLD_TIME.toMillis() + 1000));
+        assertArrayEquals(md5(bytes("bbbb")), cache.getHash(file));
+
+        // so is a new size
+        rewrite(file, bytes("ccccc"), OLD_TIME);
+        assertArrayEquals(md5(bytes("ccccc")), cache.getHash(file));
+
+        cache.invalidate(Arrays.asList(file));
+        rewrite(file, bytes("ddddd"), OLD_TIME);
+        assertArrayEquals(md5(bytes("ddddd")), cache.getHash(file));
+    }
+
+    @Test
+    public void testHashesOutsideTheRetainedFilesAreEvicted() throws Exception {
+        final TfsContentHashCache cache = new TfsContentHashCache(folder.getRoot().toPath().resolve("hashes"), hashers);
+        final Path edited = write("src/Edited.java", bytes("aaaa"));
+        final Path undone = write("src/Undone.java", bytes("bbbb"));
+        final Path outside = write("test/Test.java", bytes("cccc"));
+        cache.getHashes(Arrays.asList(edited, undone, outside));
+        assertEquals(3, cache.size());
+
+        cache.retainUnder(Collections.singletonList(edited.getParent()), Collections.singletonList(edited));
+        assertEquals(2, cache.size());
+
+        cache.retainUnder(Collections.singletonList(folder.getRoot().toPath()), Collections.emptyList());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testRecentlyModifiedFilesAreNotCached() throws Exception {
+        final TfsContentHashCache cache = new TfsContentHashCache(folder.getRoot().toPath().resolve("hashes"), hashers);
+        final Path file = folder.newFile("Main.java").toPath();
+        Files.write(file, bytes("aaaa"));
+
+        assertArrayEquals(md5(bytes("aaaa")), cache.getHash(file));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testMissingFiles() throws Exception {
+        final TfsContentHashCache cache = new TfsContentHashCache(folder.getRoot().toPath().resolve("hashes"), hashers);
+        final Path file = write("Main.java", bytes("aaaa"));
+        cache.getHash(file);
+        Files.delete(file);
+
+        assertNull(cache.getHash(file));
+        assertNull(cache.getHash(folder.getRoot().toPath().resolve("missing.txt")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testParallelHashing() throws Exception {
+        final TfsContentHashCache cache = new TfsContentHashCache(folder.getRoot().toPath().resolve("hashes"), hashers);
+        final List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            files.add(write("File" + i + ".java", bytes("class File" + i + " {}")));
+        }
+
+        final Map<Path, byte[]> hashes = cache.getHashes(files);
+        assertEquals(500, hashes.size());
+        for (int i = 0; i < 500; i++) {
+            assertArrayEquals(md5(bytes("class File" + i + " {}")), hashes.get(files.get(i)));
+        }
+        assertEquals(500, cache.size());
+    }
+
+    @Test
+    public void testPersistence() throws Exception {
+        final Path storage = folder.getRoot().toPath().resolve("system/tfvc/hashes");
+        final TfsContentHashCache cache = new TfsContentHashCache(storage, hashers);
+        final Path file = write("Main.java", bytes("aaaa"));
+        cache.getHash(file);
+        cache.save();
+
+        // the reloaded cache trusts the stored hash as long as the size and time match
+        rewrite(file, bytes("bbbb"), OLD_TIME);
+        final TfsContentHashCache reloaded = new TfsContentHashCache(storage, hashers);
+        reloaded.load();
+        assertEquals(1, reloaded.size());
+        assertArrayEquals(md5(bytes("aaaa")), reloaded.getHash(file));
+
+        Files.write(storage, bytes("garbage"));
+        final TfsContentHashCache corrupted = new TfsContentHashCache(storage, hashers);
+        corrupted.load();
+        assertEquals(0, corrupted.size());
+        assertFalse(Files.exists(storage.resolveSibling("hashes.tmp")));
+    }
+
+    private Path write(final String name, final byte[] content) throws IOException {
+        final Path file = folder.getRoot().toPath().resolve(name);
+        Files.createDirectories(file.getParent());
+        rewrite(file, content, OLD_TIME);
+        return file;
+    }
+
+    private static void rewrite(final Path file, final byte[] content, final FileTime time) throws IOException {
+        Files.write(file, content);
+        Files.setLastModifiedTime(file, time);
+    }
+
+    private static byte[] bytes(final String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] md5(final byte[] content) throws Exception {
+        return MessageDigest.getInstance("MD5").digest(content);
+    }
+}
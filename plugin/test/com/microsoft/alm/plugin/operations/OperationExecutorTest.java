@@ -0,0 +1,271 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.plugin.operations;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class OperationExecutorTest {
+    private OperationExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new OperationExecutor(5, 50);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testStress_interactiveWorkRunsBeforeQueuedWork() throws Exception {
+        final int backgroundTaskCount = 4000;
+        final int interactiveTaskCount = 100;
+        final CountDownLatch blocker = new CountDownLatch(1);
+        // A single thread runs the tasks in the order they are taken from the queue, so the start order is the
+        // queue order whatever the speed of the machine
+        final OperationExecutor singleThreaded = new OperationExecutor(1, 50);
+        try {
+            final List<Future> futures = new ArrayList<Future>();
+            futures.add(singleThreaded.submitOperationTask(OperationExecutor.Priority.INTERACTIVE, new BlockingTask(blocker)));
+
+            final AtomicInteger started = new AtomicInteger();
+            final AtomicInteger firstOtherStart = new AtomicInteger(Integer.MAX_VALUE);
+            final AtomicInteger lastInteractiveStart = new AtomicInteger(-1);
+
+            // Flood the executor with less urgent work while its thread is busy
+            for (int i = 0; i < backgroundTaskCount; i++) {
+                final OperationExecutor.Priority priority = i % 2 == 0
+                        ? OperationExecutor.Priority.BACKGROUND
+                        : OperationExecutor.Priority.POLLING;
+                futures.add(singleThreaded.submitOperationTask(priority, new StartRecordingTask(started, firstOtherStart, false)));
+            }
+
+            // Interactive work submitted after it should only have to wait for the task that is already running
+            for (int i = 0; i < interactiveTaskCount; i++) {
+                futures.add(singleThreaded.submitOperationTask(OperationExecutor.Priority.INTERACTIVE,
+                        new StartRecordingTask(started, lastInteractiveStart, true)));
+            }
+            blocker.countDown();
+
+            // Dropped polling tasks are cancelled, which wait() tolerates
+            singleThreaded.wait(futures);
+
+            Assert.assertEquals(interactiveTaskCount - 1, lastInteractiveStart.get());
+            Assert.assertTrue(firstOtherStart.get() > lastInteractiveStart.get());
+
+            final OperationExecutor.Statistics interactive = singleThreaded.getStatistics(OperationExecutor.Priority.INTERACTIVE);
+            Assert.assertEquals(interactiveTaskCount + 1, interactive.getCompletedCount());
+            Assert.assertEquals(0, interactive.getQueueDepth());
+
+            // Polling work beyond the queue capacity is dropped, everything else is accepted
+            final OperationExecutor.Statistics polling = singleThreaded.getStatistics(OperationExecutor.Priority.POLLING);
+            final OperationExecutor.Statistics background = singleThreaded.getStatistics(OperationExecutor.Priority.BACKGROUND);
+            Assert.assertTrue(polling.getRejectedCount() > 0);
+            Assert.assertEquals(0, background.getRejectedCount());
+            Assert.assertEquals(backgroundTaskCount / 2, background.getCompletedCount());
+            Assert.assertTrue(background.getOverflowCount() > 0);
+        } finally {
+            singleThreaded.shutdown();
+        }
+    }
+
+    @Test
+    public void testPriorityOrder() throws Exception {
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final OperationExecutor singleThreaded = new OperationExecutor(1, 50);
+        try {
+            singleThreaded.submitOperationTask(OperationExecutor.Priority.INTERACTIVE, new BlockingTask(blocker));
+
+            final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+            final List<Future> futures = new ArrayList<Future>();
+            futures.add(singleThreaded.submitOperationTask(OperationExecutor.Priority.POLLING, new RecordingTask(order, "polling")));
+            futures.add(singleThreaded.submitOperationTask(OperationExecutor.Priority.BACKGROUND, new RecordingTask(order, "background1")));
+            futures.add(singleThreaded.submitOperationTask(OperationExecutor.Priority.BACKGROUND, new RecordingTask(order, "background2")));
+            futures.add(singleThreaded.submitOperationTask(OperationExecutor.Priority.INTERACTIVE, new RecordingTask(order, "interactive")));
+            Assert.assertEquals(4, singleThreaded.getQueueSize());
+            blocker.countDown();
+
+            singleThreaded.wait(futures);
+            Assert.assertEquals("[interactive, background1, background2, polling]", order.toString());
+        } finally {
+            singleThreaded.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubTaskInheritsPriority() throws Exception {
+        final AtomicReference<Future> subTask = new AtomicReference<Future>();
+        final Future parent = executor.submitOperationTask(OperationExecutor.Priority.POLLING, new Runnable() {
+            @Override
+            public void run() {
+                subTask.set(executor.submitOperationTask(new SleepingTask(0)));
+            }
+        });
+        parent.get(10, TimeUnit.SECONDS);
+        subTask.get().get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(2, executor.getStatistics(OperationExecutor.Priority.POLLING).getCompletedCount());
+        Assert.assertEquals(0, executor.getStatistics(OperationExecutor.Priority.BACKGROUND).getCompletedCount());
+    }
+
+    @Test
+    public void testCancelledOperationDoesNotRun() throws Exception {
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final OperationExecutor singleThreaded = new OperationExecutor(1, 50);
+        try {
+            final Future running = singleThreaded.submitOperationTask(OperationExecutor.Priority.INTERACTIVE, new BlockingTask(blocker));
+
+            final TestOperation operation = new TestOperation();
+            singleThreaded.executeAsync(operation, Operation.EMPTY_INPUTS);
+            operation.cancel();
+            blocker.countDown();
+            running.get(10, TimeUnit.SECONDS);
+
+            // Queue something behind the cancelled operation to know that it has been skipped
+            singleThreaded.submitOperationTask(OperationExecutor.Priority.POLLING, new SleepingTask(0)).get(10, TimeUnit.SECONDS);
+            Assert.assertFalse(operation.ran.get());
+            Assert.assertTrue(operation.isCancelled());
+        } finally {
+            singleThreaded.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancelledTasksLeaveTheQueue() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final OperationExecutor singleThreaded = new OperationExecutor(1, 2);
+        try {
+            final Future running = singleThreaded.submitOperationTask(OperationExecutor.Priority.INTERACTIVE, new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    new BlockingTask(blocker).run();
+                }
+            });
+            // The running task must not take a slot of the queue
+            Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            // Fill the queue, then cancel everything in it
+            final List<Future> cancelled = new ArrayList<Future>();
+            for (int i = 0; i < 2; i++) {
+                cancelled.add(singleThreaded.submitOperationTask(OperationExecutor.Priority.POLLING, new SleepingTask(0)));
+            }
+            for (final Future future : cancelled) {
+                Assert.assertTrue(future.cancel(false));
+            }
+            Assert.assertEquals(0, singleThreaded.getQueueSize());
+            Assert.assertEquals(0, singleThreaded.getQueueSize(OperationExecutor.Priority.POLLING));
+
+            // The freed slots take new polling work instead of dropping it
+            final Future accepted = singleThreaded.submitOperationTask(OperationExecutor.Priority.POLLING, new SleepingTask(0));
+            blocker.countDown();
+            running.get(10, TimeUnit.SECONDS);
+            accepted.get(10, TimeUnit.SECONDS);
+
+            final OperationExecutor.Statistics polling = singleThreaded.getStatistics(OperationExecutor.Priority.POLLING);
+            Assert.assertEquals(0, polling.getRejectedCount());
+            Assert.assertEquals(1, polling.getCompletedCount());
+        } finally {
+            singleThreaded.shutdown();
+        }
+    }
+
+    private static class SleepingTask implements Runnable {
+        private final long millis;
+
+        SleepingTask(final long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class BlockingTask implements Runnable {
+        private final CountDownLatch blocker;
+
+        BlockingTask(final CountDownLatch blocker) {
+            this.blocker = blocker;
+        }
+
+        @Override
+        public void run() {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Records the position of the task in the start order, keeping the last one or the first one seen.
+     */
+    private static class StartRecordingTask implements Runnable {
+        private final AtomicInteger started;
+        private final AtomicInteger recorded;
+        private final boolean keepLast;
+
+        StartRecordingTask(final AtomicInteger started, final AtomicInteger recorded, final boolean keepLast) {
+            this.started = started;
+            this.recorded = recorded;
+            this.keepLast = keepLast;
+        }
+
+        @Override
+        public void run() {
+            final int position = started.getAndIncrement();
+            if (keepLast) {
+                recorded.set(Math.max(recorded.get(), position));
+            } else {
+                recorded.set(Math.min(recorded.get(), position));
+            }
+        }
+    }
+
+    private static class RecordingTask implements Runnable {
+        private final List<String> order;
+        private final String name;
+
+        RecordingTask(final List<String> order, final String name) {
+            this.order = order;
+            this.name = name;
+        }
+
+        @Override
+        public void run() {
+            order.add(name);
+        }
+    }
+
+    private static class TestOperation extends Operation {
+        private final AtomicBoolean ran = new AtomicBoolean();
+
+        @Override
+        public void doWork(final Inputs inputs) {
+            ran.set(true);
+        }
+    }
+}